@@ -0,0 +1,83 @@
+package benchmark;
+
+import dao.IdGenerator;
+import metrics.Metrics;
+import model.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import service.DefaultTicketService;
+import service.TicketService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Books tickets of distinct places, spread round robin over the events, from one thread up to as many as there are
+ * processors. The store is rebuilt for every iteration, so the tickets booked do not pile up.
+ * <p>
+ * Other thread counts can be run with {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int entities;
+
+    private Dataset dataset;
+    private TicketService service;
+    private AtomicLong bookings;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        Metrics.configure(false);
+        dataset = Dataset.ofSize(entities);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        service = DefaultTicketService.initiate(dataset.newStore(), new IdGenerator());
+        bookings = new AtomicLong();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Ticket bookTicket1Thread() {
+        return book();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Ticket bookTicket4Threads() {
+        return book();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Ticket bookTicketMaxThreads() {
+        return book();
+    }
+
+    private Ticket book() {
+        long booking = bookings.getAndIncrement();
+        int event = (int) (booking % dataset.events);
+        int place = dataset.placesTaken() + 1 + (int) (booking / dataset.events);
+        long userId = dataset.userId((int) (booking % dataset.users));
+        return service.bookTicket(userId, dataset.eventId(event), place, Ticket.Category.STANDARD);
+    }
+}
@@ -0,0 +1,120 @@
+package benchmark;
+
+import dao.InMemoryStore;
+import dao.Namespace;
+import dao.Store;
+import model.Event;
+import model.EventFactory;
+import model.Ticket;
+import model.TicketFactory;
+import model.User;
+import model.UserFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Synthetic data set of a given number of entities: a tenth of them users, a hundredth events and the rest tickets,
+ * spread evenly over the events with distinct places.
+ * <p>
+ * Ids are dense: users take {@code [1, users]}, events follow and tickets come last.
+ */
+final class Dataset {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+    private static final Ticket.Category[] CATEGORIES = Ticket.Category.values();
+
+    final int users;
+    final int events;
+    final int tickets;
+
+    private Dataset(int users, int events, int tickets) {
+        this.users = users;
+        this.events = events;
+        this.tickets = tickets;
+    }
+
+    static Dataset ofSize(int entities) {
+        int users = Math.max(1, entities / 10);
+        int events = Math.max(1, entities / 100);
+        return new Dataset(users, events, Math.max(0, entities - users - events));
+    }
+
+    long userId(int index) {
+        return 1 + index;
+    }
+
+    long eventId(int index) {
+        return 1 + users + index;
+    }
+
+    long ticketId(int index) {
+        return 1 + users + events + index;
+    }
+
+    /**
+     * @return the highest place taken of any event, places of new tickets start above it.
+     */
+    int placesTaken() {
+        return (tickets + events - 1) / events;
+    }
+
+    InMemoryStore newStore() {
+        return fill(new InMemoryStore());
+    }
+
+    /**
+     * Saves the data set into an empty store.
+     */
+    <S extends Store> S fill(S store) {
+        User[] userOf = new User[users];
+        Event[] eventOf = new Event[events];
+        for (int i = 0; i < users; i++) {
+            userOf[i] = user(i);
+            store.save(Namespace.USER, userId(i), userOf[i]);
+        }
+        for (int i = 0; i < events; i++) {
+            eventOf[i] = event(i);
+            store.save(Namespace.EVENT, eventId(i), eventOf[i]);
+        }
+        for (int i = 0; i < tickets; i++) {
+            Ticket ticket = TicketFactory.create(ticketId(i), eventOf[i % events], userOf[i % users],
+                    CATEGORIES[i % CATEGORIES.length], 1 + i / events);
+            store.save(Namespace.TICKET, ticketId(i), ticket);
+        }
+        return store;
+    }
+
+    void writeCsv(Path file) {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < users; i++) {
+                out.write("user," + userId(i) + ",User" + i + ",user" + i + "@email.org\n");
+            }
+            for (int i = 0; i < events; i++) {
+                out.write("event," + eventId(i) + ",Event" + i + "," + FIRST_DAY.plusDays(i % 365) + "\n");
+            }
+            for (int i = 0; i < tickets; i++) {
+                out.write("ticket," + ticketId(i) + "," + CATEGORIES[i % CATEGORIES.length] + ","
+                        + userId(i % users) + "," + eventId(i % events) + "," + (1 + i / events) + "\n");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write data set " + file, e);
+        }
+    }
+
+    private User user(int index) {
+        return UserFactory.create(userId(index), "User" + index, "user" + index + "@email.org");
+    }
+
+    private Event event(int index) {
+        Date date = Date.from(FIRST_DAY.plusDays(index % 365).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        return EventFactory.create(eventId(index), "Event" + index, date);
+    }
+}
@@ -0,0 +1,100 @@
+package benchmark;
+
+import dao.EventDaoImpl;
+import dao.IdGenerator;
+import dao.Namespace;
+import dao.ShardedStore;
+import dao.TicketDaoImpl;
+import dao.UserDaoImpl;
+import metrics.Metrics;
+import model.UserFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes from every core and scans of a {@link ShardedStore} of in-memory shards, to be compared across numbers of
+ * shards and with {@link StoreBenchmark}, bare or with the listeners of the DAOs registered, as in the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardedStoreBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    @Param({"100000", "1000000"})
+    public int entities;
+
+    /**
+     * Whether the DAOs are built on the store, registering their indexes as listeners, the unique index of emails
+     * among them.
+     */
+    @Param({"false", "true"})
+    public boolean listeners;
+
+    private Dataset dataset;
+    private ShardedStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Metrics.configure(false);
+        dataset = Dataset.ofSize(entities);
+        store = dataset.fill(ShardedStore.ofLocal(shards));
+        if (listeners) {
+            IdGenerator ids = new IdGenerator();
+            new UserDaoImpl(store, ids);
+            new EventDaoImpl(store, ids);
+            new TicketDaoImpl(store, ids);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    /**
+     * Overwrites an existing user, so the size of the store stays the same.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object save() {
+        int index = ThreadLocalRandom.current().nextInt(dataset.users);
+        long id = dataset.userId(index);
+        return store.save(Namespace.USER, id, UserFactory.create(id, "User" + index, "user" + index + "@email.org"));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object get() {
+        return store.get(Namespace.USER, dataset.userId(ThreadLocalRandom.current().nextInt(dataset.users)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void getAll(Blackhole blackhole) {
+        for (Object ticket : store.getAll(Namespace.TICKET)) {
+            blackhole.consume(ticket);
+        }
+    }
+}
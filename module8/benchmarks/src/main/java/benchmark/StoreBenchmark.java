@@ -0,0 +1,70 @@
+package benchmark;
+
+import dao.InMemoryStore;
+import dao.Namespace;
+import metrics.Metrics;
+import model.UserFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point reads and writes of {@link InMemoryStore} and a full scan of one namespace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int entities;
+
+    private Dataset dataset;
+    private InMemoryStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Metrics.configure(false);
+        dataset = Dataset.ofSize(entities);
+        store = dataset.newStore();
+    }
+
+    @Benchmark
+    public Object get() {
+        return store.get(Namespace.USER, dataset.userId(ThreadLocalRandom.current().nextInt(dataset.users)));
+    }
+
+    /**
+     * Overwrites an existing user, so the size of the store stays the same.
+     */
+    @Benchmark
+    public Object save() {
+        int index = ThreadLocalRandom.current().nextInt(dataset.users);
+        long id = dataset.userId(index);
+        return store.save(Namespace.USER, id, UserFactory.create(id, "User" + index, "user" + index + "@email.org"));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void getAll(Blackhole blackhole) {
+        for (Object user : store.getAll(Namespace.USER)) {
+            blackhole.consume(user);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import dao.IdGenerator;
+import dao.InMemoryStore;
+import dao.TicketDaoImpl;
+import metrics.Metrics;
+import model.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads all tickets of a random event, about a hundred of them whatever the size of the data set, kept on the heap or
+ * off heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TicketDaoBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int entities;
+
+    @Param({"false", "true"})
+    public boolean offHeapTickets;
+
+    private Dataset dataset;
+    private TicketDaoImpl dao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Metrics.configure(false);
+        dataset = Dataset.ofSize(entities);
+        dao = new TicketDaoImpl(dataset.fill(new InMemoryStore(offHeapTickets)), new IdGenerator());
+    }
+
+    @Benchmark
+    public void findByEventId(Blackhole blackhole) {
+        long eventId = dataset.eventId(ThreadLocalRandom.current().nextInt(dataset.events));
+        for (Ticket ticket : dao.findByEventId(eventId)) {
+            blackhole.consume(ticket);
+        }
+    }
+}
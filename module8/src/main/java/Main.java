@@ -1,6 +1,6 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 
 public class Main {
@@ -8,8 +8,9 @@ public class Main {
     private static final Logger LOG  = LoggerFactory.getLogger(Main.class);
 
     public static void main(String[] args) {
-        ApplicationContext ctx = new
+        ConfigurableApplicationContext ctx = new
                 ClassPathXmlApplicationContext( "beans.xml" );
+        ctx.registerShutdownHook();
 
         ctx.getBean("bookingFacade");
 
@@ -1,39 +1,76 @@
 package config;
 
 import com.google.common.base.Preconditions;
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvValidationException;
+import com.opencsv.CSVParser;
 import dao.PrimaryKey;
 import model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+/**
+ * Loads the test data file.
+ * <p>
+ * The file is split into chunks on line boundaries which are parsed in parallel on a {@link ForkJoinPool}. The chunks
+ * of a file are mapped rather than read onto the heap, so the file may be larger than the heap or than 2 GiB.
+ * Tickets refer to their user and event by id and are resolved in a second pass, once every chunk is parsed,
+ * so rows may come in any order. Values must not contain line breaks.
+ */
 public class StoreData {
 
     private static final Logger LOG  = LoggerFactory.getLogger(StoreData.class);
 
+    private static final String DEFAULT_DATE_PATTERN = "yyyy-MM-dd";
+    private static final int MIN_CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
     private final Reader input;
 
-    private final SimpleDateFormat df;
+    private final Path path;
+
+    private final DateTimeFormatter df;
+
+    private final ForkJoinPool pool;
 
     public StoreData(Reader input) {
-        this(input, "yyyy-mm-dd");
+        this(input, DEFAULT_DATE_PATTERN);
     }
 
     public StoreData(Reader input, String df) {
+        this(input, null, df, ForkJoinPool.commonPool());
+    }
+
+    private StoreData(Reader input, Path path, String df, ForkJoinPool pool) {
         this.input = input;
-        this.df = new SimpleDateFormat(df);
+        this.path = path;
+        this.df = DateTimeFormatter.ofPattern(Preconditions.checkNotNull(df, "Date pattern cannot be null"));
+        this.pool = Preconditions.checkNotNull(pool, "Pool cannot be null");
     }
 
     public static StoreData fromPath(String path) {
-        return new StoreData(fileReader(path));
+        return fromPath(path, ForkJoinPool.commonPool());
+    }
+
+    public static StoreData fromPath(String path, ForkJoinPool pool) {
+        return new StoreData(null, Path.of(path), DEFAULT_DATE_PATTERN, pool);
     }
 
     public static StoreData fromString(String value) {
@@ -41,37 +78,126 @@ public class StoreData {
     }
 
     public Map<String, Object> load() {
+        List<ForkJoinTask<Rows>> tasks = new ArrayList<>();
+        for (ByteBuffer chunk : chunks()) {
+            tasks.add(pool.submit(() -> parse(chunk)));
+        }
+
+        // chunks are merged in file order, so a later row of the same id wins as it would when read one by one
         Map<String, Object> result = new HashMap<>();
+        List<TicketRow> tickets = new ArrayList<>();
+        for (ForkJoinTask<Rows> task : tasks) {
+            Rows rows = task.join();
+            rows.entities.forEach(result::put);
+            tickets.addAll(rows.tickets);
+        }
+
+        List<ForkJoinTask<List<Ticket>>> resolutions = new ArrayList<>();
+        int batch = Math.max(1, tickets.size() / (pool.getParallelism() * 4));
+        for (int from = 0; from < tickets.size(); from += batch) {
+            List<TicketRow> rows = tickets.subList(from, Math.min(tickets.size(), from + batch));
+            resolutions.add(pool.submit(() -> rows.stream().map(row -> row.resolve(result)).toList()));
+        }
+        // the map is only read while tickets are resolved, they are added once every batch is done
+        List<Ticket> resolved = new ArrayList<>(tickets.size());
+        for (ForkJoinTask<List<Ticket>> resolution : resolutions) {
+            resolved.addAll(resolution.join());
+        }
+        for (Ticket ticket : resolved) {
+            result.put(PrimaryKey.ticketKey(ticket.getId()).id(), ticket);
+        }
+        checkPlaces(result.values());
+
+        LOG.info("Loaded successfully {} entities.", result.size());
+        return result;
+    }
+
+    private List<ByteBuffer> chunks() {
+        try {
+            if (path != null) {
+                // a mapping outlives the channel it was made of
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    return chunks(new FileContent(channel));
+                }
+            }
+            try (Reader reader = input) {
+                StringWriter text = new StringWriter();
+                reader.transferTo(text);
+                return chunks(new ArrayContent(text.toString().getBytes(StandardCharsets.UTF_8)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        try (CSVReader csvReader = new CSVReader(input)) {
-            String[] values;
-            while ((values = csvReader.readNext()) != null) {
+    /**
+     * Splits the content into ranges of whole lines, about one per worker of the pool and none much larger than
+     * {@link #MAX_CHUNK_SIZE}, so that a range can be mapped whatever the size of the file.
+     * A line feed byte never occurs within a multibyte UTF-8 character, so the ranges can be decoded on their own.
+     */
+    private List<ByteBuffer> chunks(Content content) throws IOException {
+        long length = content.length();
+        long size = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, length / (pool.getParallelism() * 4) + 1));
+        List<ByteBuffer> chunks = new ArrayList<>();
+        long from = 0;
+        while (from < length) {
+            long to = Math.min(length, from + size);
+            while (to < length && content.at(to - 1) != '\n') {
+                to++;
+            }
+            chunks.add(content.range(from, to));
+            from = to;
+        }
+        return chunks;
+    }
+
+    private Rows parse(ByteBuffer chunk) {
+        CSVParser parser = new CSVParser();
+        Rows rows = new Rows();
+        BufferedReader lines = new BufferedReader(
+                new InputStreamReader(new ByteBufferInputStream(chunk), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] values = parser.parseLine(line);
 
                 String type = values[0];
                 switch(type) {
                     case "user" -> {
                         User user = buildUserFrom(values);
-                        result.put(PrimaryKey.userKey(user.getId()).id(), user);
+                        rows.entities.put(PrimaryKey.userKey(user.getId()).id(), user);
                     }
                     case "event" -> {
                         Event event = buildEventFrom(values);
-                        result.put(PrimaryKey.eventKey(event.getId()).id(), event);
-                    }
-                    case "ticket" -> {
-                        Ticket ticket = buildTicketFrom(result, values);
-                        result.put(PrimaryKey.ticketKey(ticket.getId()).id(), ticket);
+                        rows.entities.put(PrimaryKey.eventKey(event.getId()).id(), event);
                     }
+                    case "ticket" -> rows.tickets.add(buildTicketRowFrom(values));
                     default -> {
                         throw new IllegalArgumentException("Unknown type value %s".formatted(type));
                     }
                 }
             }
-        } catch (IOException | CsvValidationException e) {
-            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return rows;
+    }
 
-        LOG.info("Loaded successfully {} entities.", result.size());
-        return result;
+    /**
+     * Rejects two tickets of the same place of an event, which the store would otherwise hold both.
+     */
+    private static void checkPlaces(Collection<Object> entities) {
+        Map<Seat, Long> holders = new HashMap<>();
+        for (Object entity : entities) {
+            if (entity instanceof Ticket ticket) {
+                Long holder = holders.putIfAbsent(new Seat(ticket.getEventId(), ticket.getPlace()), ticket.getId());
+                Preconditions.checkArgument(holder == null, "Place %s of event %s is taken by tickets %s and %s",
+                        ticket.getPlace(), ticket.getEventId(), holder, ticket.getId());
+            }
+        }
     }
 
     private static User buildUserFrom(String[] values) {
@@ -85,23 +211,18 @@ public class StoreData {
         return UserFactory.create(userId, values[2], values[3]);
     }
 
-    private static Ticket buildTicketFrom(Map<String, Object> result, String[] values) {
+    private static TicketRow buildTicketRowFrom(String[] values) {
         // type = values[0], id = values[1], category = values[2], userId = values[3], eventId = values[4], place = values [5]
 
         Preconditions.checkNotNull(values, "values cannot be null");
         Preconditions.checkArgument(values.length >= 6, "Not enough values (%s) to build ticket from", values.length );
 
-        long ticketId = Long.parseLong(values[1]);
-        Ticket.Category category = Ticket.Category.valueOf(values[2]);
-        User user = (User) result.get(PrimaryKey.userKey(Long.parseLong(values[3])).id());
-        Event event = (Event) result.get(PrimaryKey.eventKey(Long.parseLong(values[4])).id());
-        int place = Integer.parseInt(values[5]);
-
-        if (user == null || event == null) {
-            throw new IllegalArgumentException("Unsatisfied dependency for ticket %d (%s, %s)".formatted(ticketId, user, event));
-        }
-        return TicketFactory.create(ticketId, event, user, category, place);
-
+        return new TicketRow(
+                Long.parseLong(values[1]),
+                Ticket.Category.valueOf(values[2]),
+                Long.parseLong(values[3]),
+                Long.parseLong(values[4]),
+                Integer.parseInt(values[5]));
     }
 
     private Event buildEventFrom(String[] values) {
@@ -118,18 +239,114 @@ public class StoreData {
 
     private Date parseDate(String value) {
         try {
-            return df.parse(value);
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
+            return Date.from(LocalDate.parse(value, df).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date %s".formatted(value), e);
         }
     }
 
-    private static FileReader fileReader(String path) {
-        try {
-            return new FileReader(path);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
+    /**
+     * Bytes of the input, addressed by {@code long} offsets.
+     */
+    private interface Content {
+
+        long length() throws IOException;
+
+        byte at(long position) throws IOException;
+
+        ByteBuffer range(long from, long to) throws IOException;
+    }
+
+    private record ArrayContent(byte[] bytes) implements Content {
+
+        @Override
+        public long length() {
+            return bytes.length;
+        }
+
+        @Override
+        public byte at(long position) {
+            return bytes[(int) position];
+        }
+
+        @Override
+        public ByteBuffer range(long from, long to) {
+            return ByteBuffer.wrap(bytes, (int) from, (int) (to - from)).slice();
+        }
+    }
+
+    private record FileContent(FileChannel channel) implements Content {
+
+        @Override
+        public long length() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public byte at(long position) throws IOException {
+            ByteBuffer single = ByteBuffer.allocate(1);
+            if (channel.read(single, position) != 1) {
+                throw new EOFException("File ends before %d".formatted(position));
+            }
+            return single.get(0);
+        }
+
+        @Override
+        public ByteBuffer range(long from, long to) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
         }
     }
 
+    /**
+     * Reads the remaining bytes of a buffer, which it consumes.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+
+    private static final class Rows {
+        private final Map<String, Object> entities = new HashMap<>();
+        private final List<TicketRow> tickets = new ArrayList<>();
+    }
+
+    private record Seat(long eventId, int place) {
+    }
+
+    /**
+     * Ticket row waiting for its user and event to be parsed.
+     */
+    private record TicketRow(long ticketId, Ticket.Category category, long userId, long eventId, int place) {
+
+        Ticket resolve(Map<String, Object> result) {
+            User user = (User) result.get(PrimaryKey.userKey(userId).id());
+            Event event = (Event) result.get(PrimaryKey.eventKey(eventId).id());
+
+            if (user == null || event == null) {
+                throw new IllegalArgumentException("Unsatisfied dependency for ticket %d (%s, %s)".formatted(ticketId, user, event));
+            }
+            return TicketFactory.create(ticketId, event, user, category, place);
+        }
+    }
 }
@@ -2,12 +2,16 @@ package config;
 
 import com.google.common.base.Preconditions;
 import dao.InMemoryStore;
+import dao.WriteAheadLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
-import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
 
-public class StoreInitBeanPostProcessor implements BeanPostProcessor {
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class StoreInitBeanPostProcessor implements DestructionAwareBeanPostProcessor {
 
     private static final Logger LOG  = LoggerFactory.getLogger(StoreInitBeanPostProcessor.class);
 
@@ -15,9 +19,32 @@ public class StoreInitBeanPostProcessor implements BeanPostProcessor {
 
     private final String path;
 
+    private final String snapshotPath;
+
+    private final String logPath;
+
+    private final WriteAheadLog.Durability durability;
+
+    private final long flushIntervalMillis;
+
     public StoreInitBeanPostProcessor(String beanName, String path) {
+        this(beanName, path, "", "", WriteAheadLog.Durability.BATCH, 0);
+    }
+
+    /**
+     * @param snapshotPath Path of the binary snapshot to load instead of the file, if it exists, and to write on
+     *                     shutdown. Blank to always load the file.
+     * @param logPath      Path of the write-ahead log to replay after the initial load and to log further writes to.
+     *                     Blank to keep the store in memory only.
+     */
+    public StoreInitBeanPostProcessor(String beanName, String path, String snapshotPath, String logPath,
+                                      WriteAheadLog.Durability durability, long flushIntervalMillis) {
         this.beanName = Preconditions.checkNotNull(beanName, "Name of store to initialize cannot be null");
         this.path = Preconditions.checkNotNull(path, "Path to file from what to initialize from cannot be null");
+        this.snapshotPath = Preconditions.checkNotNull(snapshotPath, "Path of snapshot cannot be null");
+        this.logPath = Preconditions.checkNotNull(logPath, "Path of write-ahead log cannot be null");
+        this.durability = Preconditions.checkNotNull(durability, "Durability cannot be null");
+        this.flushIntervalMillis = flushIntervalMillis;
     }
 
     public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
@@ -26,14 +53,31 @@ public class StoreInitBeanPostProcessor implements BeanPostProcessor {
 
     public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
         if (this.beanName.equalsIgnoreCase(beanName)) {
-            LOG.info("Store bean will be initialized from {}.", path);
-
             if (bean instanceof InMemoryStore store) {
-                StoreData sti = StoreData.fromPath(path);
-                store.init(sti.load());
+                if (!snapshotPath.isBlank() && Files.exists(Path.of(snapshotPath))) {
+                    LOG.info("Store bean will be initialized from snapshot {}.", snapshotPath);
+                    store.restore(Path.of(snapshotPath));
+                } else {
+                    LOG.info("Store bean will be initialized from {}.", path);
+                    StoreData sti = StoreData.fromPath(path);
+                    store.init(sti.load());
+                }
+
+                if (!logPath.isBlank()) {
+                    LOG.info("Store bean will be recovered from write-ahead log {} ({}).", logPath, durability);
+                    store.recover(WriteAheadLog.open(Path.of(logPath), durability, flushIntervalMillis));
+                }
             }
         }
 
         return bean;
     }
+
+    @Override
+    public void postProcessBeforeDestruction(Object bean, String beanName) throws BeansException {
+        if (this.beanName.equalsIgnoreCase(beanName) && !snapshotPath.isBlank() && bean instanceof InMemoryStore store) {
+            LOG.info("Store bean will be saved to snapshot {}.", snapshotPath);
+            store.checkpoint(Path.of(snapshotPath));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,399 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing (linear probing) map from primitive {@code long} keys to objects.
+ * <p>
+ * Keys are never boxed. Reads are optimistic and normally lock-free, writes are serialized by a {@link StampedLock}.
+ * Key {@code 0} is reserved as the free slot marker.
+ */
+final class ConcurrentLongObjectMap<V> implements LongObjectMap<V> {
+
+    private static final long FREE = 0L;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final int CHUNK_SLOTS = 256;
+
+    private final StampedLock lock = new StampedLock();
+
+    private volatile Table table;
+    private volatile int size;
+
+    ConcurrentLongObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    ConcurrentLongObjectMap(int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0, "Expected size cannot be negative");
+        table = new Table(tableSizeFor((int) Math.ceil(expectedSize / LOAD_FACTOR)));
+    }
+
+    @Override
+    public V get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        V value = table.find(key);
+        if (lock.validate(stamp)) {
+            return value;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return table.find(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(long key, V value) {
+        Preconditions.checkArgument(key != FREE, "Key %s is reserved", FREE);
+        Preconditions.checkNotNull(value, "Value cannot be null");
+
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int idx = t.indexOf(key);
+            if (idx >= 0) {
+                V previous = t.valueAt(idx);
+                t.values[idx] = value;
+                return previous;
+            }
+            if (size + 1 > t.threshold) {
+                t = resize(t.keys.length << 1);
+            }
+            t.insert(key, value);
+            size++;
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Puts the value unless the key is mapped already.
+     *
+     * @return the value the key is mapped to, or {@code null} if the given value was put.
+     */
+    V putIfAbsent(long key, V value) {
+        Preconditions.checkArgument(key != FREE, "Key %s is reserved", FREE);
+        Preconditions.checkNotNull(value, "Value cannot be null");
+
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int idx = t.indexOf(key);
+            if (idx >= 0) {
+                return t.valueAt(idx);
+            }
+            if (size + 1 > t.threshold) {
+                t = resize(t.keys.length << 1);
+            }
+            t.insert(key, value);
+            size++;
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the key only while it is mapped to the given value, compared by identity.
+     *
+     * @return whether the key was removed.
+     */
+    boolean remove(long key, V value) {
+        if (key == FREE) {
+            return false;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int idx = t.indexOf(key);
+            if (idx < 0 || t.valueAt(idx) != value) {
+                return false;
+            }
+            t.delete(idx);
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public V remove(long key) {
+        if (key == FREE) {
+            return null;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int idx = t.indexOf(key);
+            if (idx < 0) {
+                return null;
+            }
+            V previous = t.valueAt(idx);
+            t.delete(idx);
+            size--;
+            return previous;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Grows the table up front to hold the given number of entries without rehashing on the way.
+     */
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        long stamp = lock.writeLock();
+        try {
+            int capacity = tableSizeFor((int) Math.ceil(expectedSize / LOAD_FACTOR));
+            if (capacity > table.keys.length) {
+                resize(capacity);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(DEFAULT_CAPACITY);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Visits a consistent snapshot of all entries. Writers are blocked while the visit is in progress.
+     */
+    @Override
+    public void forEach(LongObjectConsumer<? super V> action) {
+        long stamp = lock.readLock();
+        try {
+            Table t = table;
+            for (int i = 0; i < t.keys.length; i++) {
+                if (t.keys[i] != FREE) {
+                    action.accept(t.keys[i], t.valueAt(i));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Live view of the values. Iterators are weakly consistent: they copy a few slots at a time, so the first value
+     * comes without copying the table, never throw {@link java.util.ConcurrentModificationException}, return every
+     * entry which is not concurrently modified exactly once, and may miss concurrent updates.
+     */
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private Table resize(int capacity) {
+        Table old = table;
+        Table resized = new Table(capacity);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] != FREE) {
+                resized.insert(old.keys[i], old.values[i]);
+            }
+        }
+        table = resized;
+        return resized;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity, DEFAULT_CAPACITY) - 1) << 1;
+        return n < 0 ? 1 << 30 : n;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+        final int threshold;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        V find(long key) {
+            int idx = mix(key) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long k = keys[idx];
+                if (k == key) {
+                    return valueAt(idx);
+                }
+                if (k == FREE) {
+                    return null;
+                }
+                idx = (idx + 1) & mask;
+            }
+            return null;
+        }
+
+        int indexOf(long key) {
+            int idx = mix(key) & mask;
+            long k;
+            while ((k = keys[idx]) != FREE) {
+                if (k == key) {
+                    return idx;
+                }
+                idx = (idx + 1) & mask;
+            }
+            return -1;
+        }
+
+        void insert(long key, Object value) {
+            int idx = mix(key) & mask;
+            while (keys[idx] != FREE) {
+                idx = (idx + 1) & mask;
+            }
+            values[idx] = value;
+            keys[idx] = key;
+        }
+
+        /**
+         * Backward shift deletion keeps probe sequences intact without tombstones.
+         */
+        void delete(int idx) {
+            int gap = idx;
+            int next = (gap + 1) & mask;
+            long k;
+            while ((k = keys[next]) != FREE) {
+                int home = mix(k) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = k;
+                    values[gap] = values[next];
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[gap] = FREE;
+            values[gap] = null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V valueAt(int idx) {
+            return (V) values[idx];
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over the table the map had when it was created, copying a few slots at a time under
+     * the read lock. A resize or clear leaves that table as it was, so the iterator goes on over it.
+     * <p>
+     * Deletions shift entries back towards their home slot, never past a slot which is free meanwhile. The iteration
+     * starts after a free slot and every chunk ends on a slot free when it is copied, so an entry which is not modified
+     * is copied by the chunk covering it at that time and by no other, whatever the deletions in between.
+     */
+    private final class ValueIterator implements Iterator<V> {
+        private final Table t = table;
+        private Object[] chunk = new Object[CHUNK_SLOTS];
+        private int length;
+        private int cursor;
+        private int origin = -1;
+        // slots copied so far, counted from the origin
+        private int copied;
+
+        @Override
+        public boolean hasNext() {
+            while (cursor == length && copied < t.keys.length) {
+                long stamp = lock.readLock();
+                try {
+                    copyChunk();
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return cursor < length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) chunk[cursor];
+            chunk[cursor++] = null;
+            return value;
+        }
+
+        /**
+         * Must be called holding the read lock.
+         */
+        private void copyChunk() {
+            if (origin < 0) {
+                origin = 0;
+                while (t.keys[origin] != FREE) {
+                    origin++;
+                }
+            }
+            int end = Math.min(t.keys.length, copied + CHUNK_SLOTS);
+            while (end < t.keys.length && t.keys[(origin + end) & t.mask] != FREE) {
+                end++;
+            }
+            length = 0;
+            cursor = 0;
+            for (int offset = copied + 1; offset <= end; offset++) {
+                int idx = (origin + offset) & t.mask;
+                if (t.keys[idx] != FREE) {
+                    if (length == chunk.length) {
+                        chunk = Arrays.copyOf(chunk, length << 1);
+                    }
+                    chunk[length++] = t.values[idx];
+                }
+            }
+            copied = end;
+        }
+    }
+}
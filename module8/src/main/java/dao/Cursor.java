@@ -0,0 +1,24 @@
+package dao;
+
+/**
+ * Position in a sorted query result. Pass the cursor of a {@link Page} back to fetch the page following it.
+ * The position stays valid while entities are added or removed, so pages never skip or repeat an entity.
+ * A cursor belongs to the order of the query it came from and is rejected by queries of another order.
+ */
+public final class Cursor {
+
+    final Object order;
+    final Object key;
+    final long id;
+
+    Cursor(Object order, Object key, long id) {
+        this.order = order;
+        this.key = key;
+        this.id = id;
+    }
+
+    @Override
+    public String toString() {
+        return "Cursor[" + order + ", " + key + ", " + id + "]";
+    }
+}
@@ -1,15 +1,30 @@
 package dao;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface Dao<T, ID> {
 
         <S extends T> S save(S entity);
 
+        /**
+         * Replaces the stored entity of the same id, provided it is still at the version of the given one, which
+         * is then bumped. Unlike {@link #save}, an update never overwrites a concurrent one.
+         *
+         * @throws IllegalArgumentException if there is no entity of the id.
+         * @throws IllegalStateException if the entity was updated since the given one was read.
+         */
+        T update(T entity);
+
         Optional<T> findById(ID primaryKey);
 
         Iterable<T> findAll();
 
+        /**
+         * Lazy variant of {@link #findAll()}. Entities are read as the stream is consumed.
+         */
+        Stream<T> streamAll();
+
         void delete(T entity);
 
         boolean deleteById(ID primaryKey);
@@ -0,0 +1,117 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+/**
+ * Sorted index of a date attribute, bucketed by calendar day (epoch day) in the configured zone.
+ * Within a bucket entries are ordered by the exact instant, then by id. Entities without a date are not indexed.
+ * <p>
+ * The instant indexed of every entity is kept, as dates are mutable and the previous state a listener is given may be
+ * the stored instance changed in place, which already holds the new date.
+ */
+final class DateIndex implements StoreListener {
+
+    private final ConcurrentSkipListMap<Long, NavigableSet<Entry>> days = new ConcurrentSkipListMap<>();
+    private final ConcurrentLongObjectMap<Entry> entries = new ConcurrentLongObjectMap<>();
+    private final Function<Object, Date> attribute;
+    private final ZoneId zone;
+
+    DateIndex(ZoneId zone, Function<Object, Date> attribute) {
+        this.zone = Preconditions.checkNotNull(zone, "Zone cannot be null");
+        this.attribute = Preconditions.checkNotNull(attribute, "Attribute cannot be null");
+    }
+
+    /**
+     * @return lazy stream of ids of the entities on the calendar day of the given date, ordered by date.
+     */
+    LongStream onDay(Date day) {
+        NavigableSet<Entry> bucket = days.get(epochDay(day.getTime()));
+        return bucket == null ? LongStream.empty() : ids(bucket);
+    }
+
+    /**
+     * @return lazy stream of ids of the entities dated between {@code from} and {@code to}, both inclusive, ordered by date.
+     */
+    LongStream between(Date from, Date to) {
+        long fromMillis = from.getTime();
+        long toMillis = to.getTime();
+        if (fromMillis > toMillis) {
+            return LongStream.empty();
+        }
+
+        Entry lower = new Entry(fromMillis, Long.MIN_VALUE);
+        Entry upper = new Entry(toMillis, Long.MAX_VALUE);
+        return days.subMap(epochDay(fromMillis), true, epochDay(toMillis), true)
+                .values()
+                .stream()
+                .flatMapToLong(bucket -> ids(bucket.subSet(lower, true, upper, true)));
+    }
+
+    @Override
+    public synchronized void afterPut(long id, Object previous, Object current) {
+        Date date = attribute.apply(current);
+        Entry entry = date == null ? null : new Entry(date.getTime(), id);
+        Entry indexed = entries.get(id);
+        if (Objects.equals(indexed, entry)) {
+            return;
+        }
+        unlink(indexed);
+        if (entry == null) {
+            entries.remove(id);
+        } else {
+            entries.put(id, entry);
+            days.computeIfAbsent(epochDay(entry.millis()), day -> new ConcurrentSkipListSet<>()).add(entry);
+        }
+    }
+
+    @Override
+    public synchronized void afterRemove(long id, Object previous) {
+        unlink(entries.remove(id));
+    }
+
+    @Override
+    public synchronized void afterClear() {
+        days.clear();
+        entries.clear();
+    }
+
+    private void unlink(Entry entry) {
+        if (entry != null) {
+            long day = epochDay(entry.millis());
+            NavigableSet<Entry> bucket = days.get(day);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    days.remove(day, bucket);
+                }
+            }
+        }
+    }
+
+    private long epochDay(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    private static LongStream ids(Collection<Entry> entries) {
+        return entries.stream().mapToLong(Entry::id);
+    }
+
+    private record Entry(long millis, long id) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byDate = Long.compare(millis, other.millis);
+            return byDate != 0 ? byDate : Long.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package dao;
+
+import model.Event;
+import model.EventFactory;
+import model.Ticket;
+import model.TicketFactory;
+import model.User;
+import model.UserFactory;
+import model.Versioned;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Binary form of the entities of each {@link Namespace}, shared by the write-ahead log and the snapshot.
+ * Every entity starts with its long {@link Versioned version}.
+ * Numbers are big-endian. Strings are written as UTF-8 with an int length prefix, {@code -1} standing for
+ * {@code null}. Absent dates are written as {@link Long#MIN_VALUE}.
+ */
+final class EntityCodec {
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final byte NO_CATEGORY = -1;
+
+    private EntityCodec() {
+    }
+
+    static void write(DataOutput out, Namespace ns, Object entity) throws IOException {
+        out.writeLong(((Versioned) entity).getVersion());
+        switch (ns) {
+            case EVENT -> {
+                Event event = (Event) entity;
+                writeString(out, event.getTitle());
+                out.writeLong(event.getDate() == null ? NO_DATE : event.getDate().getTime());
+            }
+            case USER -> {
+                User user = (User) entity;
+                writeString(out, user.getName());
+                writeString(out, user.getEmail());
+            }
+            case TICKET -> {
+                Ticket ticket = (Ticket) entity;
+                out.writeLong(ticket.getEventId());
+                out.writeLong(ticket.getUserId());
+                out.writeByte(ticket.getCategory() == null ? NO_CATEGORY : ticket.getCategory().ordinal());
+                out.writeInt(ticket.getPlace());
+            }
+        }
+    }
+
+    /**
+     * @param store Store to resolve the event and user of a ticket from. A ticket may outlive its event or user,
+     *              in which case it refers to a placeholder carrying the id only. Without a store, every ticket
+     *              refers to placeholders.
+     */
+    static Object read(ByteBuffer in, Namespace ns, long id, Store store) {
+        long version = in.getLong();
+        Versioned entity = switch (ns) {
+            case EVENT -> {
+                String title = readString(in);
+                long date = in.getLong();
+                yield EventFactory.create(id, title, date == NO_DATE ? null : new Date(date));
+            }
+            case USER -> UserFactory.create(id, readString(in), readString(in));
+            case TICKET -> {
+                long eventId = in.getLong();
+                long userId = in.getLong();
+                byte category = in.get();
+                int place = in.getInt();
+
+                Event event = store == null ? null : (Event) store.get(Namespace.EVENT, eventId);
+                User user = store == null ? null : (User) store.get(Namespace.USER, userId);
+                yield TicketFactory.create(id,
+                        event != null ? event : EventFactory.create(eventId, null, null),
+                        user != null ? user : UserFactory.create(userId, null, null),
+                        category == NO_CATEGORY ? null : Ticket.Category.values()[category],
+                        place);
+            }
+        };
+        entity.setVersion(version);
+        return entity;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
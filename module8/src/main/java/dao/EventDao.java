@@ -3,4 +3,11 @@ package dao;
 import model.Event;
 
 public interface EventDao extends Dao<Event, PrimaryKey>, EventQuery {
+
+    /**
+     * Primitive keyed lookup which allocates neither a key nor an {@link java.util.Optional}.
+     *
+     * @return Event or null if there is none.
+     */
+    Event findById(long id);
 }
@@ -1,26 +1,48 @@
 package dao;
 
 import com.google.common.base.Preconditions;
+import metrics.Metrics;
+import metrics.QueryCounter;
 import model.Event;
 import model.EventFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.ZoneId;
 import java.util.Date;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 public class EventDaoImpl implements EventDao {
 
     private static final Logger LOG  = LoggerFactory.getLogger(EventDaoImpl.class);
 
+    private static final QueryCounter TITLE_SEARCH = Metrics.query("EventDao.searchByTitle");
+    private static final QueryCounter DATE_SEARCH = Metrics.query("EventDao.searchByDate");
+
     private final Store store;
     private final IdGenerator idGenerator;
+    private final NGramIndex titleIndex;
+    private final DateIndex dateIndex;
 
     public EventDaoImpl(Store store, IdGenerator idGenerator) {
+        this(store, idGenerator, ZoneId.systemDefault());
+    }
+
+    /**
+     * @param zone Zone in which the calendar day of an event date is determined.
+     */
+    public EventDaoImpl(Store store, IdGenerator idGenerator, ZoneId zone) {
         this.store = store;
         this.idGenerator = idGenerator;
+        this.titleIndex = new NGramIndex(event -> ((Event) event).getTitle());
+        this.dateIndex = new DateIndex(zone, event -> ((Event) event).getDate());
+        store.addListener(Namespace.EVENT, titleIndex);
+        store.addListener(Namespace.EVENT, dateIndex);
     }
 
     @Override
@@ -32,60 +54,130 @@ public class EventDaoImpl implements EventDao {
                 event.getTitle(),
                 event.getDate()
         );
+        tempEvent.setVersion(event.getVersion());
 
-        store.save(PrimaryKey.eventKey(tempEvent.getId()).id(), tempEvent);
+        store.save(Namespace.EVENT, tempEvent.getId(), tempEvent);
 
         LOG.debug("Event entity saved {}", tempEvent);
 
         return tempEvent;
     }
 
+    @Override
+    public Event update(Event event) {
+        Preconditions.checkNotNull(event, "Event cannot be null");
+
+        Event tempEvent = EventFactory.create(event.getId(), event.getTitle(), event.getDate());
+
+        if (!store.replace(Namespace.EVENT, tempEvent.getId(), event.getVersion(), tempEvent)) {
+            Preconditions.checkArgument(findById(event.getId()) != null, "Event identified by id must exist is the store");
+            throw new IllegalStateException("Event %d was updated concurrently, version %d is stale"
+                    .formatted(event.getId(), event.getVersion()));
+        }
+
+        LOG.debug("Event entity updated {}", tempEvent);
+
+        return tempEvent;
+    }
+
     @Override
     public Optional<Event> findById(PrimaryKey primaryKey) {
-        Optional<Object> result = store.get(primaryKey.id());
-        return result.isPresent()
-                ? Optional.of((Event) result.get())
-                : Optional.empty();
+        return Optional.ofNullable(findById(primaryKey.idValue()));
+    }
+
+    @Override
+    public Event findById(long id) {
+        Preconditions.checkArgument(id > 0, "Id must be positive number");
+        return (Event) store.get(Namespace.EVENT, id);
     }
 
     @Override
     public Iterable<Event> findAll() {
-        return store.getAll(Namespace.EVENT.prefixed())
-                .stream()
-                .map(x -> (Event) x)
-                .collect(Collectors.toList());
+        return streamAll().collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Event> streamAll() {
+        return store.stream(Namespace.EVENT).map(x -> (Event) x);
     }
 
     @Override
     public void delete(Event event) {
-        deleteById(PrimaryKey.eventKey(event.getId()));
+        store.delete(Namespace.EVENT, event.getId());
     }
 
     @Override
     public boolean deleteById(PrimaryKey primaryKey) {
-        return store.delete(primaryKey.id());
+        return store.delete(Namespace.EVENT, primaryKey.idValue());
     }
 
     @Override
     public boolean existsById(PrimaryKey primaryKey) {
-        return findById(primaryKey).isPresent();
+        return findById(primaryKey.idValue()) != null;
     }
 
     @Override
     public Iterable<Event> findByTitle(String titleSegment) {
-        Preconditions.checkNotNull(titleSegment, "titleSegment cannot be null");
+        return streamByTitle(titleSegment).collect(Collectors.toList());
+    }
 
-        return StreamSupport.stream(findAll().spliterator(), false)
-                .filter(event -> event.getTitle().contains(titleSegment))
-                .collect(Collectors.toList());
+    @Override
+    public Iterable<Event> findByTitleIgnoreCase(String titleSegment) {
+        return streamByTitleIgnoreCase(titleSegment).collect(Collectors.toList());
     }
 
     @Override
     public Iterable<Event> findByDate(Date date) {
+        return streamByDate(date).collect(Collectors.toList());
+    }
+
+    @Override
+    public Iterable<Event> findBetween(Date from, Date to) {
+        return streamBetween(from, to).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Event> streamByTitle(String titleSegment) {
+        Preconditions.checkNotNull(titleSegment, "titleSegment cannot be null");
+
+        return searchByTitle(titleSegment, title -> title.contains(titleSegment));
+    }
+
+    @Override
+    public Stream<Event> streamByTitleIgnoreCase(String titleSegment) {
+        Preconditions.checkNotNull(titleSegment, "titleSegment cannot be null");
+
+        String folded = NGramIndex.fold(titleSegment);
+        return searchByTitle(titleSegment, title -> NGramIndex.fold(title).contains(folded));
+    }
+
+    private Stream<Event> searchByTitle(String titleSegment, Predicate<String> matcher) {
+        long[] candidates = titleIndex.candidates(titleSegment);
+        Stream<Event> events = candidates == null ? streamAll() : resolve(LongStream.of(candidates));
+
+        return TITLE_SEARCH.returning(TITLE_SEARCH.scanning(events)
+                .filter(event -> event.getTitle() != null && matcher.test(event.getTitle())));
+    }
+
+    @Override
+    public Stream<Event> streamByDate(Date date) {
         Preconditions.checkNotNull(date, "Date cannot be null");
 
-        return StreamSupport.stream(findAll().spliterator(), false)
-                .filter(event -> date.compareTo(event.getDate()) == 0)
-                .collect(Collectors.toList());
+        return DATE_SEARCH.returning(resolve(DATE_SEARCH.scanning(dateIndex.onDay(date))));
+    }
+
+    @Override
+    public Stream<Event> streamBetween(Date from, Date to) {
+        Preconditions.checkNotNull(from, "From date cannot be null");
+        Preconditions.checkNotNull(to, "To date cannot be null");
+
+        return DATE_SEARCH.returning(resolve(DATE_SEARCH.scanning(dateIndex.between(from, to))));
+    }
+
+    private Stream<Event> resolve(LongStream eventIds) {
+        // the event may have been deleted since its id was read from the index
+        return eventIds
+                .mapToObj(id -> (Event) store.get(Namespace.EVENT, id))
+                .filter(Objects::nonNull);
     }
 }
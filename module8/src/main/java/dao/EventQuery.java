@@ -3,10 +3,33 @@ package dao;
 import model.Event;
 
 import java.util.Date;
+import java.util.stream.Stream;
 
+/**
+ * Queries come in two flavours: {@code findBy*} materializes the result, while {@code streamBy*} returns a lazy
+ * stream which reads entities only as far as it is consumed.
+ */
 public interface EventQuery {
 
     Iterable<Event> findByTitle(String title);
 
+    Iterable<Event> findByTitleIgnoreCase(String title);
+
+    /**
+     * Events taking place on the calendar day of the given date, ordered by date.
+     */
     Iterable<Event> findByDate(Date date);
+
+    /**
+     * Events dated between the given dates, both inclusive, ordered by date.
+     */
+    Iterable<Event> findBetween(Date from, Date to);
+
+    Stream<Event> streamByTitle(String title);
+
+    Stream<Event> streamByTitleIgnoreCase(String title);
+
+    Stream<Event> streamByDate(Date date);
+
+    Stream<Event> streamBetween(Date from, Date to);
 }
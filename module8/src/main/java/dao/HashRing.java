@@ -0,0 +1,111 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consistent hashing of the keys of a store to named shards.
+ * <p>
+ * Every shard is placed at a number of pseudo-random points of a ring of 64-bit hashes, its virtual nodes, and owns
+ * the keys hashing between the previous point and each of its own. A new shard thus takes over about {@code 1/n} of
+ * the keys, evenly from the others, and a removed one hands its keys over to the next points, the other keys
+ * staying where they are.
+ * <p>
+ * A ring is immutable, adding or removing a shard returns a new one.
+ */
+final class HashRing {
+
+    private final int virtualNodes;
+    private final Map<String, Store> shards;
+    private final long[] points;
+    private final Store[] owners;
+
+    HashRing(int virtualNodes) {
+        this(virtualNodes, Map.of());
+    }
+
+    private HashRing(int virtualNodes, Map<String, Store> shards) {
+        Preconditions.checkArgument(virtualNodes > 0, "Virtual nodes must be positive number");
+        this.virtualNodes = virtualNodes;
+        this.shards = Collections.unmodifiableMap(shards);
+
+        Point[] ring = new Point[shards.size() * virtualNodes];
+        int index = 0;
+        for (Map.Entry<String, Store> shard : shards.entrySet()) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring[index++] = new Point(pointOf(shard.getKey(), node), shard.getKey(), shard.getValue());
+            }
+        }
+        // ties, as unlikely as they are, are broken by name so that the order does not depend on the history
+        Arrays.sort(ring, (a, b) -> a.hash != b.hash ? Long.compare(a.hash, b.hash) : a.shard.compareTo(b.shard));
+        points = new long[ring.length];
+        owners = new Store[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            points[i] = ring[i].hash;
+            owners[i] = ring[i].store;
+        }
+    }
+
+    HashRing with(String name, Store shard) {
+        Preconditions.checkNotNull(name, "Shard name cannot be null");
+        Preconditions.checkNotNull(shard, "Shard cannot be null");
+        Preconditions.checkArgument(!shards.containsKey(name), "Shard %s already exists", name);
+        Map<String, Store> next = new LinkedHashMap<>(shards);
+        next.put(name, shard);
+        return new HashRing(virtualNodes, next);
+    }
+
+    HashRing without(String name) {
+        Preconditions.checkArgument(shards.containsKey(name), "Shard %s does not exist", name);
+        Map<String, Store> next = new LinkedHashMap<>(shards);
+        next.remove(name);
+        return new HashRing(virtualNodes, next);
+    }
+
+    Store ownerOf(Namespace ns, long id) {
+        Preconditions.checkState(points.length > 0, "Store has no shards");
+        int index = Arrays.binarySearch(points, hashOf(ns, id));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    Store shard(String name) {
+        return shards.get(name);
+    }
+
+    Map<String, Store> shards() {
+        return shards;
+    }
+
+    List<Store> stores() {
+        return List.copyOf(shards.values());
+    }
+
+    private static long hashOf(Namespace ns, long id) {
+        return mix(id ^ ((long) ns.ordinal() << 56));
+    }
+
+    private static long pointOf(String shard, int node) {
+        return mix(((long) shard.hashCode() << 32) ^ mix(node));
+    }
+
+    /**
+     * Finalizer of SplitMix64, which spreads consecutive values over the whole range.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private record Point(long hash, String shard, Store store) {
+    }
+}
@@ -1,16 +1,209 @@
 package dao;
 
-import java.util.Date;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Hands out ids in blocks, so most calls of {@link #next()} only bump a counter. Blocks are kept in a fixed number of
+ * stripes picked by the id of the calling thread, rather than per thread, so that threads started per task, such as
+ * the virtual threads of the asynchronous facade, keep drawing from the same blocks instead of taking one each.
+ * <p>
+ * With a high-water mark file, the end of the ids handed out so far is reserved on disk, a number of blocks ahead,
+ * before any of them is used. A restarted generator continues above the mark, so ids are never reused, even though
+ * the blocks the stripes had taken but not used up are skipped. The generator is {@link #seedAbove seeded} above the ids
+ * loaded into the store, which the file may not know of.
+ * <p>
+ * Instances running side by side may share a store by giving each of them a node id: the node takes the topmost
+ * {@code nodeBits} bits below the sign bit, its own counter the rest.
+ */
 public class IdGenerator {
 
+    private static final Logger LOG = LoggerFactory.getLogger(IdGenerator.class);
+
+    static final int DEFAULT_BLOCK_SIZE = 1024;
+    private static final int RESERVED_BLOCKS = 64;
+    private static final int MAX_NODE_BITS = 16;
+    private static final int MAX_STRIPES = 64;
+
+    /*
+        Generators created without configuration share the counter, so that they never overlap each other.
+        Seeded from the clock, as they are not seeded from the store, which the loaded ids are expected to stay below.
+     */
+    private static final AtomicLong SHARED = new AtomicLong(System.currentTimeMillis());
+
+    private final AtomicLong sequence;
+    private final int blockSize;
+    private final int nodeId;
+    private final long node;
+    private final long maxSequence;
+    private final Path highWaterMark;
+    private final Block[] stripes;
+
+    // guarded by this
+    private long reserved;
+
     /*
-        With frequent restart and heavy object creation overlap is possible. Especially when used in unit tests.
+        Bumped on seeding, which makes the stripes drop the blocks they took before.
      */
-    private static final AtomicLong src = new AtomicLong(new Date().getTime());
+    private volatile int generation;
+
+    public IdGenerator() {
+        this(SHARED, DEFAULT_BLOCK_SIZE, 0, 0, null);
+    }
+
+    /**
+     * @param highWaterMarkPath Path of the file keeping the high-water mark. Blank to start from the clock on every
+     *                          start, which relies on seeding alone to not reuse ids.
+     */
+    public IdGenerator(int blockSize, int nodeId, int nodeBits, String highWaterMarkPath) {
+        this(new AtomicLong(System.currentTimeMillis()), blockSize, nodeId, nodeBits,
+                Preconditions.checkNotNull(highWaterMarkPath, "Path of high-water mark cannot be null").isBlank()
+                        ? null : Path.of(highWaterMarkPath));
+    }
+
+    private IdGenerator(AtomicLong sequence, int blockSize, int nodeId, int nodeBits, Path highWaterMark) {
+        Preconditions.checkArgument(blockSize > 0, "Block size must be positive number");
+        Preconditions.checkArgument(nodeBits >= 0 && nodeBits <= MAX_NODE_BITS,
+                "Node bits must be between 0 and %s", MAX_NODE_BITS);
+        Preconditions.checkArgument(nodeId >= 0 && nodeId < 1 << nodeBits,
+                "Node id %s does not fit in %s bits", nodeId, nodeBits);
+        this.sequence = sequence;
+        this.blockSize = blockSize;
+        this.nodeId = nodeId;
+        this.node = nodeBits == 0 ? 0 : (long) nodeId << (Long.SIZE - 1 - nodeBits);
+        this.maxSequence = nodeBits == 0 ? Long.MAX_VALUE : (1L << (Long.SIZE - 1 - nodeBits)) - 1;
+        this.highWaterMark = highWaterMark;
+        this.stripes = new Block[Integer.highestOneBit(Math.min(MAX_STRIPES,
+                Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Block();
+        }
+
+        if (highWaterMark != null && Files.exists(highWaterMark)) {
+            long mark = read(highWaterMark);
+            sequence.accumulateAndGet(mark, Math::max);
+            LOG.info("Ids will continue above high-water mark {} of {}.", mark, highWaterMark);
+        }
+        this.sequence.accumulateAndGet(1, Math::max);
+        this.reserved = sequence.get();
+    }
+
+    /**
+     * Creates a generator seeded above every id of the store, meant to be created once the store is loaded.
+     */
+    public static IdGenerator seeded(InMemoryStore store, int blockSize, int nodeId, int nodeBits,
+                                     String highWaterMarkPath) {
+        Preconditions.checkNotNull(store, "Store cannot be null");
+        IdGenerator generator = new IdGenerator(blockSize, nodeId, nodeBits, highWaterMarkPath);
+        for (Namespace ns : Namespace.values()) {
+            store.forEach(ns, (id, entity) -> generator.seedAbove(id));
+        }
+        return generator;
+    }
 
     public long next() {
-        return src.incrementAndGet();
+        Block block = stripes[stripeOf(Thread.currentThread().getId())];
+        synchronized (block) {
+            if (block.next == block.end || block.generation != generation) {
+                refill(block);
+            }
+            return node | block.next++;
+        }
+    }
+
+    /**
+     * Makes every id handed out from now on greater than the given one. Ids of other nodes are ignored, as they can
+     * never be handed out by this generator.
+     */
+    public synchronized void seedAbove(long id) {
+        if (id < 0 || (id & ~maxSequence) != node) {
+            return;
+        }
+        long current = id & maxSequence;
+        Preconditions.checkState(current < maxSequence, "Ids of node %s are exhausted", nodeId);
+        if (sequence.get() <= current) {
+            sequence.accumulateAndGet(current + 1, Math::max);
+            generation++;
+        }
+    }
+
+    private void refill(Block block) {
+        int current = generation;
+        long start = sequence.getAndAdd(blockSize);
+        long end = start + blockSize;
+        Preconditions.checkState(start > 0 && end - 1 <= maxSequence, "Ids of node %s are exhausted", nodeId);
+        if (highWaterMark != null) {
+            reserve(end);
+        }
+        block.next = start;
+        block.end = end;
+        block.generation = current;
+    }
+
+    private synchronized void reserve(long end) {
+        if (end > reserved) {
+            long mark = Math.min(maxSequence, end + (long) blockSize * RESERVED_BLOCKS);
+            write(highWaterMark, mark);
+            reserved = mark;
+        }
+    }
+
+    private int stripeOf(long threadId) {
+        long h = threadId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (stripes.length - 1);
+    }
+
+    private static long read(Path file) {
+        try {
+            return Long.parseLong(Files.readString(file, StandardCharsets.US_ASCII).trim());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read high-water mark " + file, e);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("%s is not a high-water mark".formatted(file), e);
+        }
+    }
+
+    /**
+     * Writes the mark next to the file and moves it in place once it is on disk, so a crash leaves either mark.
+     */
+    private static void write(Path file, long mark) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Long.toString(mark).getBytes(StandardCharsets.US_ASCII));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write high-water mark " + file, e);
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot move high-water mark in place " + file, e);
+        }
+    }
+
+    /**
+     * Ids of {@code [next, end)} left to the stripe, guarded by the block itself.
+     */
+    private static final class Block {
+        private long next;
+        private long end;
+        private int generation = -1;
     }
 }
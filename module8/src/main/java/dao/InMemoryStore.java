@@ -1,71 +1,550 @@
 package dao;
 
 import com.google.common.base.Preconditions;
+import model.Versioned;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
-public class InMemoryStore implements Store {
+/**
+ * Keeps every {@link Namespace} in its own primitive long keyed container, so scanning one entity type never
+ * touches the others. String keys are accepted for compatibility and parsed into namespace and id.
+ * <p>
+ * Writes lock one of a fixed number of stripes chosen by the hash of the key, and {@link #begin transactions} lock
+ * the stripes of all their keys, so a transaction is atomic with respect to any other write of those keys. Writes of
+ * different stripes run in parallel, except for listeners which {@link StoreListener#checksOtherKeys() check other
+ * keys}, which take the writes of a namespace one at a time. Readers never lock and may see a transaction half
+ * applied.
+ * <p>
+ * With a {@link WriteAheadLog} {@link #recover recovered from}, every write is logged before it is applied and
+ * returns once it is as durable as the log is configured to make it.
+ * <p>
+ * Tickets may be kept {@link OffHeapTicketTable off heap} instead, where they take a fixed-width row each and are
+ * read as read-only views of it. Only tickets can then be saved in the ticket namespace, under their own id.
+ */
+public class InMemoryStore implements Store, Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(InMemoryStore.class);
 
-    private final ConcurrentHashMap<String, Object> store;
+    private static final int STRIPE_BITS = 6;
+
+    private final EnumMap<Namespace, Partition> partitions;
+    private final ReentrantLock[] stripes = new ReentrantLock[1 << STRIPE_BITS];
+    private volatile WriteAheadLog log;
 
     public InMemoryStore() {
-        store = new ConcurrentHashMap<>();
+        this(false);
+    }
+
+    public InMemoryStore(boolean offHeapTickets) {
+        partitions = new EnumMap<>(Namespace.class);
+        for (Namespace ns : Namespace.values()) {
+            partitions.put(ns, new Partition(ns, offHeapTickets && ns == Namespace.TICKET
+                    ? new OffHeapTicketTable() : new ConcurrentLongObjectMap<>()));
+        }
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
     }
 
     public InMemoryStore(Map<String, Object> store) {
+        this();
         Preconditions.checkNotNull(store, "Store cannot be null");
-        this.store = new ConcurrentHashMap<>(store);
+        store.forEach(this::save);
     }
 
     public void init(Map<String, Object> store) {
         Preconditions.checkNotNull(store, "Store cannot be null");
-        Preconditions.checkState(this.store.isEmpty(), "Internal store must be empty. Size is ", this.store.size());
-        this.store.putAll(store);
+        Preconditions.checkState(size() == 0, "Internal store must be empty. Size is ", size());
+        store.forEach(this::save);
+    }
+
+    /**
+     * Replays the log on top of the current content and logs every further write to it. The store takes over the
+     * log and closes it on {@link #close()}.
+     */
+    public void recover(WriteAheadLog log) {
+        Preconditions.checkNotNull(log, "Log cannot be null");
+        Preconditions.checkState(this.log == null, "Store is already logged");
+
+        log.replay(this);
+        this.log = log;
+    }
+
+    /**
+     * Loads an empty store from a snapshot written by {@link #checkpoint}.
+     */
+    public void restore(Path snapshot) {
+        Preconditions.checkNotNull(snapshot, "Snapshot cannot be null");
+        Preconditions.checkState(size() == 0, "Internal store must be empty. Size is ", size());
+        StoreSnapshot.load(this, snapshot);
+    }
+
+    /**
+     * Writes a snapshot of the store and truncates the write-ahead log, if any, as the snapshot supersedes it.
+     * Writes wait until the snapshot is on disk. Should the log be truncated late because of a crash, replaying it
+     * on top of the snapshot repeats writes the snapshot already holds, which leaves the same content.
+     */
+    public void checkpoint(Path snapshot) {
+        Preconditions.checkNotNull(snapshot, "Snapshot cannot be null");
+        holdingAllStripes(() -> {
+            StoreSnapshot.write(this, snapshot);
+            WriteAheadLog current = log;
+            if (current != null) {
+                current.truncate();
+            }
+            return null;
+        });
     }
 
     @Override
     public Optional<Object> get(String key) {
-        return Optional.ofNullable(store.get(key));
+        Namespace ns = Namespace.ofKey(key);
+        return Optional.ofNullable(get(ns, ns.idOfKey(key)));
     }
 
     @Override
-    public List<Object> getAll(String namespace) {
-        return store
-                .entrySet()
-                .stream()
-                    .filter(entry -> entry.getKey().startsWith(namespace))
-                    .map(Map.Entry::getValue)
-                    .collect(Collectors.toList());
+    public Collection<Object> getAll(String namespace) {
+        return getAll(Namespace.of(namespace));
     }
 
     @Override
     public Object save(String key, Object obj) {
-        Preconditions.checkNotNull(key, "Key cannot be null");
-        Preconditions.checkNotNull(obj, "Savable object cannot be null");
-        return store.put(key, obj);
+        Namespace ns = Namespace.ofKey(key);
+        return save(ns, ns.idOfKey(key), obj);
     }
 
     @Override
     public boolean delete(String key) {
-        Preconditions.checkNotNull(key, "Key cannot be null");
+        Namespace ns = Namespace.ofKey(key);
+        return delete(ns, ns.idOfKey(key));
+    }
+
+    @Override
+    public boolean replace(String key, long expectedVersion, Versioned obj) {
+        Namespace ns = Namespace.ofKey(key);
+        return replace(ns, ns.idOfKey(key), expectedVersion, obj);
+    }
 
-        return store.remove(key) != null;
+    @Override
+    public Object get(Namespace ns, long id) {
+        return partition(ns).entities.get(id);
+    }
+
+    @Override
+    public Collection<Object> getAll(Namespace ns) {
+        return Collections.unmodifiableCollection(partition(ns).entities.values());
+    }
+
+    @Override
+    public Stream<Object> stream(Namespace ns) {
+        return partition(ns).entities.values().stream();
+    }
+
+    @Override
+    public Object save(Namespace ns, long id, Object obj) {
+        Preconditions.checkNotNull(obj, "Savable object cannot be null");
+        Partition partition = partition(ns);
+        WriteAheadLog log = this.log;
+        byte[] record = log != null ? WriteAheadLog.putRecord(ns, id, obj) : null;
+        Object previous;
+        long sequence;
+
+        ReentrantLock stripe = stripes[stripeOf(ns, id)];
+        stripe.lock();
+        try {
+            previous = partition.entities.get(id);
+            sequence = partition.write(id, previous, obj, log, record);
+        } finally {
+            stripe.unlock();
+        }
+        awaitDurable(log, sequence);
+        return previous;
+    }
+
+    @Override
+    public boolean delete(Namespace ns, long id) {
+        Partition partition = partition(ns);
+        WriteAheadLog log = this.log;
+        byte[] record = log != null ? WriteAheadLog.deleteRecord(ns, id) : null;
+        Object previous;
+        long sequence = 0;
+
+        ReentrantLock stripe = stripes[stripeOf(ns, id)];
+        stripe.lock();
+        try {
+            previous = partition.entities.get(id);
+            if (previous != null) {
+                sequence = partition.erase(id, previous, log, record);
+            }
+        } finally {
+            stripe.unlock();
+        }
+        awaitDurable(log, sequence);
+        return previous != null;
+    }
+
+    @Override
+    public boolean replace(Namespace ns, long id, long expectedVersion, Versioned obj) {
+        Preconditions.checkNotNull(obj, "Savable object cannot be null");
+        Partition partition = partition(ns);
+        WriteAheadLog log = this.log;
+        long sequence;
+
+        ReentrantLock stripe = stripes[stripeOf(ns, id)];
+        stripe.lock();
+        try {
+            Object existing = partition.entities.get(id);
+            if (!(existing instanceof Versioned current) || current.getVersion() != expectedVersion) {
+                return false;
+            }
+            long version = obj.getVersion();
+            obj.setVersion(expectedVersion + 1);
+            try {
+                // the next version is known only here, but the stripe keeps out just the writes of this key
+                byte[] record = log != null ? WriteAheadLog.putRecord(ns, id, obj) : null;
+                sequence = partition.write(id, existing, obj, log, record);
+            } catch (RuntimeException e) {
+                // a rejected object is left as it was passed
+                obj.setVersion(version);
+                throw e;
+            }
+        } finally {
+            stripe.unlock();
+        }
+        awaitDurable(log, sequence);
+        return true;
+    }
+
+    @Override
+    public Transaction begin() {
+        return new StripedTransaction();
+    }
+
+    @Override
+    public void addListener(Namespace ns, StoreListener listener) {
+        Preconditions.checkNotNull(listener, "Listener cannot be null");
+        Partition partition = partition(ns);
+        holdingAllStripes(() -> {
+            partition.addListener(listener);
+            return null;
+        });
     }
 
     public int size() {
-        return store.size();
+        int size = 0;
+        for (Partition partition : partitions.values()) {
+            size += partition.entities.size();
+        }
+        return size;
+    }
+
+    public int size(Namespace ns) {
+        return partition(ns).entities.size();
     }
 
     public void clear() {
-        store.clear();
+        for (Namespace ns : Namespace.values()) {
+            clear(ns);
+        }
         LOG.info("InMemoryStore was cleaned up.");
     }
+
+    void clear(Namespace ns) {
+        Partition partition = partition(ns);
+        WriteAheadLog log = this.log;
+        byte[] record = log != null ? WriteAheadLog.clearRecord(ns) : null;
+        long sequence = holdingAllStripes(() -> partition.clear(log, record));
+        awaitDurable(log, sequence);
+    }
+
+    /**
+     * Closes the log the store was recovered from, if any, after forcing the pending writes to disk.
+     */
+    @Override
+    public void close() {
+        WriteAheadLog current = log;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    void reserve(Namespace ns, int expectedSize) {
+        partition(ns).entities.ensureCapacity(expectedSize);
+    }
+
+    void forEach(Namespace ns, LongObjectMap.LongObjectConsumer<Object> action) {
+        partition(ns).entities.forEach(action);
+    }
+
+    /**
+     * Locks every stripe, in the order transactions lock them, which keeps out every write of the store.
+     */
+    private <T> T holdingAllStripes(Supplier<T> action) {
+        int locked = 0;
+        try {
+            for (; locked < stripes.length; locked++) {
+                stripes[locked].lock();
+            }
+            return action.get();
+        } finally {
+            while (locked > 0) {
+                stripes[--locked].unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies a write without logging it. Must be called holding the stripe of its key.
+     *
+     * @return the write which reverts it.
+     */
+    private WriteAheadLog.Write apply(WriteAheadLog.Write write) {
+        Partition partition = partition(write.ns());
+        Object previous = partition.entities.get(write.id());
+        if (write.entity() != null) {
+            partition.write(write.id(), previous, write.entity(), null, null);
+        } else if (previous != null) {
+            partition.erase(write.id(), previous, null, null);
+        }
+        return new WriteAheadLog.Write(write.ns(), write.id(), previous);
+    }
+
+    private static void awaitDurable(WriteAheadLog log, long sequence) {
+        if (log != null && sequence > 0) {
+            log.awaitDurable(sequence);
+        }
+    }
+
+    static int stripeOf(Namespace ns, long id) {
+        long hash = (id ^ ((long) ns.ordinal() << 56)) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> (Long.SIZE - STRIPE_BITS));
+    }
+
+    private Partition partition(Namespace ns) {
+        return partitions.get(Preconditions.checkNotNull(ns, "Namespace cannot be null"));
+    }
+
+    /**
+     * Transaction which locks the stripes of every key it touched, in ascending order, for the time of the commit.
+     * Single writes lock the stripe of their key too, so nothing else changes these keys meanwhile, and a fixed order
+     * keeps overlapping transactions from deadlocking.
+     */
+    private final class StripedTransaction implements Transaction {
+        private final Map<Key, Object> reads = new HashMap<>();
+        private final Map<Key, Object> written = new HashMap<>();
+        private final List<WriteAheadLog.Write> writes = new ArrayList<>();
+        private boolean committed;
+
+        @Override
+        public Object get(Namespace ns, long id) {
+            Key key = new Key(ns, id);
+            if (written.containsKey(key)) {
+                return written.get(key);
+            }
+            if (!reads.containsKey(key)) {
+                reads.put(key, InMemoryStore.this.get(ns, id));
+            }
+            return reads.get(key);
+        }
+
+        @Override
+        public Transaction put(Namespace ns, long id, Object obj) {
+            Preconditions.checkNotNull(obj, "Savable object cannot be null");
+            return write(new WriteAheadLog.Write(ns, id, obj));
+        }
+
+        @Override
+        public Transaction delete(Namespace ns, long id) {
+            return write(new WriteAheadLog.Write(ns, id, null));
+        }
+
+        private Transaction write(WriteAheadLog.Write write) {
+            Preconditions.checkState(!committed, "Transaction has already been committed");
+            Preconditions.checkNotNull(write.ns(), "Namespace cannot be null");
+            written.put(new Key(write.ns(), write.id()), write.entity());
+            writes.add(write);
+            return this;
+        }
+
+        @Override
+        public void commit() {
+            Preconditions.checkState(!committed, "Transaction has already been committed");
+            committed = true;
+
+            int[] order = Stream.concat(reads.keySet().stream(), written.keySet().stream())
+                    .mapToInt(key -> stripeOf(key.ns(), key.id()))
+                    .distinct()
+                    .sorted()
+                    .toArray();
+            WriteAheadLog log = InMemoryStore.this.log;
+            byte[] record = log != null && !writes.isEmpty() ? WriteAheadLog.batchRecord(writes) : null;
+            long sequence = 0;
+
+            int locked = 0;
+            try {
+                for (; locked < order.length; locked++) {
+                    stripes[order[locked]].lock();
+                }
+
+                // views of off-heap tickets are read anew every time, and equal if they show the same stored state
+                reads.forEach((key, seen) -> Preconditions.checkState(
+                        Objects.equals(InMemoryStore.this.get(key.ns(), key.id()), seen),
+                        "Entity %s was changed by a concurrent write", key.ns().supplementedWith(key.id())));
+
+                List<WriteAheadLog.Write> undo = new ArrayList<>(writes.size());
+                try {
+                    for (WriteAheadLog.Write write : writes) {
+                        undo.add(apply(write));
+                    }
+                    if (record != null) {
+                        sequence = log.append(record);
+                    }
+                } catch (RuntimeException e) {
+                    for (int i = undo.size() - 1; i >= 0; i--) {
+                        try {
+                            apply(undo.get(i));
+                        } catch (RuntimeException suppressed) {
+                            e.addSuppressed(suppressed);
+                        }
+                    }
+                    throw e;
+                }
+            } finally {
+                while (locked > 0) {
+                    stripes[order[--locked]].unlock();
+                }
+            }
+            awaitDurable(log, sequence);
+        }
+    }
+
+    private record Key(Namespace ns, long id) {
+    }
+
+    /**
+     * Entities of one namespace. Writes of one key are serialized by its stripe, writes of different keys run in
+     * parallel. Listeners which {@link StoreListener#checksOtherKeys() check other keys} take the writes one at a
+     * time, and the log and the entities with them, so every such listener sees the writes accepted before and the
+     * log replays them in the order they were accepted. A write is logged once the listeners accepted it and before
+     * it is applied. The caller encodes the record before locking and waits for durability after unlocking.
+     */
+    private static final class Partition {
+        private final Namespace ns;
+        private final LongObjectMap<Object> entities;
+        private final List<StoreListener> crossKey = new CopyOnWriteArrayList<>();
+        private final List<StoreListener> perKey = new CopyOnWriteArrayList<>();
+        private final Object crossKeyLock = new Object();
+
+        Partition(Namespace ns, LongObjectMap<Object> entities) {
+            this.ns = ns;
+            this.entities = entities;
+        }
+
+        /**
+         * Must be called holding the stripe of the id.
+         *
+         * @param record the write encoded for the log, if any.
+         * @return sequence number of the log record, {@code 0} if not logged.
+         */
+        long write(long id, Object existing, Object obj, WriteAheadLog log, byte[] record) {
+            for (StoreListener listener : perKey) {
+                listener.beforePut(id, existing, obj);
+            }
+
+            long sequence;
+            if (crossKey.isEmpty()) {
+                sequence = put(id, obj, log, record);
+            } else {
+                synchronized (crossKeyLock) {
+                    for (StoreListener listener : crossKey) {
+                        listener.beforePut(id, existing, obj);
+                    }
+                    sequence = put(id, obj, log, record);
+                    for (StoreListener listener : crossKey) {
+                        listener.afterPut(id, existing, obj);
+                    }
+                }
+            }
+            for (StoreListener listener : perKey) {
+                listener.afterPut(id, existing, obj);
+            }
+            return sequence;
+        }
+
+        /**
+         * Must be called holding the stripe of the id.
+         *
+         * @param record the removal encoded for the log, if any.
+         * @return sequence number of the log record, {@code 0} if not logged.
+         */
+        long erase(long id, Object existing, WriteAheadLog log, byte[] record) {
+            long sequence;
+            if (crossKey.isEmpty()) {
+                sequence = remove(id, log, record);
+            } else {
+                synchronized (crossKeyLock) {
+                    sequence = remove(id, log, record);
+                    for (StoreListener listener : crossKey) {
+                        listener.afterRemove(id, existing);
+                    }
+                }
+            }
+            for (StoreListener listener : perKey) {
+                listener.afterRemove(id, existing);
+            }
+            return sequence;
+        }
+
+        /**
+         * Must be called holding every stripe.
+         *
+         * @return sequence number of the log record, {@code 0} if not logged.
+         */
+        long clear(WriteAheadLog log, byte[] record) {
+            long sequence = log != null ? log.append(record) : 0;
+            entities.clear();
+            crossKey.forEach(StoreListener::afterClear);
+            perKey.forEach(StoreListener::afterClear);
+            return sequence;
+        }
+
+        /**
+         * Must be called holding every stripe.
+         */
+        void addListener(StoreListener listener) {
+            entities.forEach((id, obj) -> {
+                listener.beforePut(id, null, obj);
+                listener.afterPut(id, null, obj);
+            });
+            (listener.checksOtherKeys() ? crossKey : perKey).add(listener);
+        }
+
+        private long put(long id, Object obj, WriteAheadLog log, byte[] record) {
+            long sequence = log != null ? log.append(record) : 0;
+            entities.put(id, obj);
+            return sequence;
+        }
+
+        private long remove(long id, WriteAheadLog log, byte[] record) {
+            long sequence = log != null ? log.append(record) : 0;
+            entities.remove(id);
+            return sequence;
+        }
+    }
 }
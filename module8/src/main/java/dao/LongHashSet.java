@@ -0,0 +1,131 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Compact open-addressing set of positive {@code long} values. Not thread safe.
+ */
+final class LongHashSet {
+
+    private static final long FREE = 0L;
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] slots;
+    private int size;
+
+    LongHashSet() {
+        slots = new long[MIN_CAPACITY];
+    }
+
+    boolean add(long value) {
+        Preconditions.checkArgument(value != FREE, "Value %s is reserved", FREE);
+
+        if ((size + 1) * 4 > slots.length * 3) {
+            rehash(slots.length << 1);
+        }
+        int mask = slots.length - 1;
+        int idx = mix(value) & mask;
+        long v;
+        while ((v = slots[idx]) != FREE) {
+            if (v == value) {
+                return false;
+            }
+            idx = (idx + 1) & mask;
+        }
+        slots[idx] = value;
+        size++;
+        return true;
+    }
+
+    boolean contains(long value) {
+        return value != FREE && indexOf(value) >= 0;
+    }
+
+    boolean remove(long value) {
+        int idx = value == FREE ? -1 : indexOf(value);
+        if (idx < 0) {
+            return false;
+        }
+
+        int mask = slots.length - 1;
+        int gap = idx;
+        int next = (gap + 1) & mask;
+        long v;
+        while ((v = slots[next]) != FREE) {
+            int home = mix(v) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                slots[gap] = v;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[gap] = FREE;
+        size--;
+
+        if (size * 8 < slots.length && slots.length > MIN_CAPACITY) {
+            rehash(slots.length >> 1);
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long[] toArray() {
+        long[] result = new long[size];
+        int i = 0;
+        for (long v : slots) {
+            if (v != FREE) {
+                result[i++] = v;
+            }
+        }
+        return result;
+    }
+
+    private int indexOf(long value) {
+        int mask = slots.length - 1;
+        int idx = mix(value) & mask;
+        long v;
+        while ((v = slots[idx]) != FREE) {
+            if (v == value) {
+                return idx;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        slots = new long[Math.max(capacity, MIN_CAPACITY)];
+        int mask = slots.length - 1;
+        for (long v : old) {
+            if (v != FREE) {
+                int idx = mix(v) & mask;
+                while (slots[idx] != FREE) {
+                    idx = (idx + 1) & mask;
+                }
+                slots[idx] = v;
+            }
+        }
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        long[] values = toArray();
+        Arrays.sort(values);
+        return Arrays.toString(values);
+    }
+}
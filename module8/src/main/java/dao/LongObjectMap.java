@@ -0,0 +1,51 @@
+package dao;
+
+import java.util.Collection;
+
+/**
+ * Map from primitive {@code long} keys to objects, as the {@link InMemoryStore} keeps the entities of a namespace.
+ * Key {@code 0} is reserved, {@code null} values are not allowed, and every operation is safe to call concurrently.
+ */
+interface LongObjectMap<V> {
+
+    V get(long key);
+
+    /**
+     * @return the previous value of the key, or {@code null} if there was none.
+     */
+    V put(long key, V value);
+
+    /**
+     * @return the value removed, or {@code null} if there was none.
+     */
+    V remove(long key);
+
+    /**
+     * Grows the map up front to hold the given number of entries without rehashing on the way.
+     */
+    void ensureCapacity(int expectedSize);
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void clear();
+
+    /**
+     * Visits a consistent snapshot of all entries. Writers are blocked while the visit is in progress.
+     */
+    void forEach(LongObjectConsumer<? super V> action);
+
+    /**
+     * Live view of the values. Iteration never throws {@link java.util.ConcurrentModificationException}, returns every
+     * entry which is not concurrently modified exactly once, and may miss concurrent updates.
+     */
+    Collection<V> values();
+
+    @FunctionalInterface
+    interface LongObjectConsumer<V> {
+        void accept(long key, V value);
+    }
+}
@@ -0,0 +1,182 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Trigram inverted index over a text attribute, used to narrow substring ("contains") searches.
+ * <p>
+ * Text is case folded before indexing, so the candidates of a query are a superset of both its case-sensitive
+ * and case-insensitive matches. Callers must verify the candidates against the actual attribute value.
+ * <p>
+ * The text indexed of every entity is kept, as the previous state a listener is given may be the stored instance
+ * changed in place, which already holds the new text.
+ */
+final class NGramIndex implements StoreListener {
+
+    static final int GRAM_LENGTH = 3;
+
+    private static final long[] NONE = new long[0];
+    private static final long GRAM_MARKER = 1L << 48;
+
+    private final ConcurrentLongObjectMap<LongHashSet> postings = new ConcurrentLongObjectMap<>();
+    private final ConcurrentLongObjectMap<String> texts = new ConcurrentLongObjectMap<>();
+    private final Function<Object, String> attribute;
+
+    NGramIndex(Function<Object, String> attribute) {
+        this.attribute = Preconditions.checkNotNull(attribute, "Attribute cannot be null");
+    }
+
+    /**
+     * Intersects the posting lists of all trigrams of the segment.
+     *
+     * @return ascending ids of the entities which may contain the segment,
+     * or {@code null} if the segment is too short to be narrowed by the index.
+     */
+    long[] candidates(String segment) {
+        long[] grams = grams(fold(segment));
+        if (grams.length == 0) {
+            return null;
+        }
+
+        LongHashSet[] lists = new LongHashSet[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return NONE;
+            }
+        }
+
+        LongHashSet smallest = lists[0];
+        for (LongHashSet list : lists) {
+            if (list.size() < smallest.size()) {
+                smallest = list;
+            }
+        }
+
+        long[] result;
+        synchronized (smallest) {
+            result = smallest.toArray();
+        }
+        int size = result.length;
+        for (LongHashSet list : lists) {
+            if (list != smallest) {
+                size = retainAll(result, size, list);
+            }
+        }
+
+        result = Arrays.copyOf(result, size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Override
+    public synchronized void afterPut(long id, Object previous, Object current) {
+        String text = attribute.apply(current);
+        String indexed = texts.get(id);
+        if (Objects.equals(indexed, text)) {
+            return;
+        }
+        unlink(id, indexed);
+        link(id, text);
+        if (text == null) {
+            texts.remove(id);
+        } else {
+            texts.put(id, text);
+        }
+    }
+
+    @Override
+    public synchronized void afterRemove(long id, Object previous) {
+        unlink(id, texts.remove(id));
+    }
+
+    @Override
+    public synchronized void afterClear() {
+        postings.clear();
+        texts.clear();
+    }
+
+    static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private void link(long id, String text) {
+        if (text == null) {
+            return;
+        }
+        for (long gram : grams(fold(text))) {
+            LongHashSet list = postings.get(gram);
+            if (list == null) {
+                list = new LongHashSet();
+                postings.put(gram, list);
+            }
+            synchronized (list) {
+                list.add(id);
+            }
+        }
+    }
+
+    private void unlink(long id, String text) {
+        if (text == null) {
+            return;
+        }
+        for (long gram : grams(fold(text))) {
+            LongHashSet list = postings.get(gram);
+            if (list != null) {
+                synchronized (list) {
+                    list.remove(id);
+                    if (list.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int retainAll(long[] ids, int size, LongHashSet list) {
+        int retained = 0;
+        synchronized (list) {
+            for (int i = 0; i < size; i++) {
+                if (list.contains(ids[i])) {
+                    ids[retained++] = ids[i];
+                }
+            }
+        }
+        return retained;
+    }
+
+    /**
+     * Distinct trigrams of the text, each packed with its three chars into one long.
+     */
+    private static long[] grams(String text) {
+        int count = text.length() - GRAM_LENGTH + 1;
+        if (count <= 0) {
+            return NONE;
+        }
+
+        long[] grams = new long[count];
+        for (int i = 0; i < count; i++) {
+            grams[i] = GRAM_MARKER
+                    | ((long) text.charAt(i) << 32)
+                    | ((long) text.charAt(i + 1) << 16)
+                    | text.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+
+        int distinct = 1;
+        for (int i = 1; i < grams.length; i++) {
+            if (grams[i] != grams[distinct - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+}
@@ -1,12 +1,21 @@
 package dao;
 
+import com.google.common.base.Preconditions;
+import model.Event;
+import model.Ticket;
+import model.User;
+
 public enum Namespace {
     TICKET("ticket"), EVENT("event"), USER("user");
 
+    private static final Namespace[] VALUES = values();
+
     private final String namespace;
+    private final String prefix;
 
     Namespace(String ns) {
         this.namespace = ns;
+        this.prefix = ns + ":";
     }
 
     public String ns() {
@@ -14,10 +23,58 @@ public enum Namespace {
     }
 
     public String prefixed() {
-        return namespace + ":";
+        return prefix;
     }
 
     public String supplementedWith(long id) {
-        return prefixed() + id;
+        return prefix + id;
+    }
+
+    /**
+     * @return the id of a store key of this namespace, e.g. {@code 42} of {@code ticket:42}.
+     */
+    long idOfKey(String key) {
+        try {
+            return Long.parseLong(key, prefix.length(), key.length(), 10);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Key %s has no numeric id".formatted(key), e);
+        }
+    }
+
+    /**
+     * @return the id of an entity of this namespace.
+     */
+    long idOfEntity(Object entity) {
+        return switch (this) {
+            case TICKET -> ((Ticket) entity).getId();
+            case EVENT -> ((Event) entity).getId();
+            case USER -> ((User) entity).getId();
+        };
+    }
+
+    /**
+     * Resolves the namespace a store key (e.g. {@code ticket:42}) belongs to.
+     */
+    public static Namespace ofKey(String key) {
+        Preconditions.checkNotNull(key, "Key cannot be null");
+        for (Namespace ns : VALUES) {
+            if (key.startsWith(ns.prefix)) {
+                return ns;
+            }
+        }
+        throw new IllegalArgumentException("Key %s does not belong to any namespace".formatted(key));
+    }
+
+    /**
+     * Resolves a namespace by its name, either plain ({@code ticket}) or prefixed ({@code ticket:}).
+     */
+    public static Namespace of(String namespace) {
+        Preconditions.checkNotNull(namespace, "Namespace cannot be null");
+        for (Namespace ns : VALUES) {
+            if (ns.prefix.equals(namespace) || ns.namespace.equals(namespace)) {
+                return ns;
+            }
+        }
+        throw new IllegalArgumentException("Unknown namespace %s".formatted(namespace));
     }
 }
@@ -0,0 +1,615 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+import model.Ticket;
+import model.TicketFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Tickets kept outside the heap, in fixed-width rows of direct buffers, found by an open-addressing (linear probing)
+ * index of row numbers which is off heap as well. A ticket takes a 40 byte row and 4 to 8 bytes of index instead of
+ * a {@code TicketEntity}, its references and a map slot, and the garbage collector sees a few large buffers however
+ * many tickets there are.
+ * <p>
+ * Rows are laid out in native byte order:
+ * <pre>
+ *  0  id        long
+ *  8  eventId   long
+ * 16  userId    long
+ * 24  version   long
+ * 32  place     int
+ * 36  meta      int: category ordinal + 1, 0 for none (4 bits), generation (28 bits)
+ * </pre>
+ * Tickets are read as flyweight views of their row. A row is never written while it holds a ticket: a put writes a
+ * new row and retires the one it replaces, so a view keeps showing the state it was read in, as a stored object
+ * would. Retired rows are recycled oldest first once more than an eighth of the tickets, and at least
+ * {@value #MIN_QUARANTINE}, are waiting, and recycling a row bumps its generation. Reading a view of a recycled row
+ * throws {@link IllegalStateException} instead of showing another ticket. Views are read-only, a ticket is changed
+ * by putting a copy, see {@link model.TicketFactory#clone}. Views are meant for the store, its listeners and
+ * snapshots, the DAO hands out {@link #detached} copies.
+ * <p>
+ * Reads are optimistic and normally lock-free, writes are serialized by a {@link StampedLock}, as in
+ * {@link ConcurrentLongObjectMap}. The memory is given back once the table and all views of it are garbage collected.
+ */
+final class OffHeapTicketTable implements LongObjectMap<Object> {
+
+    static final int ROW_BYTES = 40;
+
+    private static final int ID = 0;
+    private static final int EVENT_ID = 8;
+    private static final int USER_ID = 16;
+    private static final int VERSION = 24;
+    private static final int PLACE = 32;
+    private static final int META = 36;
+
+    private static final int CATEGORY_SHIFT = 28;
+    private static final int CATEGORY_MASK = 0xF;
+    private static final int GENERATION_MASK = (1 << CATEGORY_SHIFT) - 1;
+    private static final Ticket.Category[] CATEGORIES = Ticket.Category.values();
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_BITS;
+    private static final int MIN_QUARANTINE = 1 << 16;
+
+    private static final int FREE = 0;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 28;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    static {
+        Preconditions.checkState(CATEGORIES.length < CATEGORY_MASK, "Categories do not fit in the row");
+    }
+
+    private final StampedLock lock = new StampedLock();
+
+    private volatile Rows rows = new Rows();
+    private volatile Index index;
+    private volatile int size;
+
+    OffHeapTicketTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    OffHeapTicketTable(int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0, "Expected size cannot be negative");
+        index = new Index(tableSizeFor((int) Math.ceil(expectedSize / LOAD_FACTOR)));
+    }
+
+    @Override
+    public Object get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        TicketView view = find(key);
+        if (lock.validate(stamp)) {
+            return view;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return find(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @param value {@link Ticket} whose id is the key.
+     * @return a view of the replaced ticket, which stays readable as long as its row is not recycled.
+     */
+    @Override
+    public Object put(long key, Object value) {
+        Preconditions.checkNotNull(value, "Value cannot be null");
+        Preconditions.checkArgument(value instanceof Ticket, "Only tickets are kept off heap, not %s",
+                value.getClass().getName());
+        Ticket ticket = (Ticket) value;
+        Preconditions.checkArgument(ticket.getId() == key, "Ticket %s cannot be kept under id %s", ticket.getId(), key);
+        long eventId = ticket.getEventId();
+        long userId = ticket.getUserId();
+        long version = ticket.getVersion();
+        int place = ticket.getPlace();
+        Ticket.Category category = ticket.getCategory();
+
+        long stamp = lock.writeLock();
+        try {
+            Rows r = rows;
+            Index t = index;
+            int idx = t.indexOf(r, key);
+            if (idx < 0 && size + 1 > t.threshold) {
+                t = resize(tableSizeFor(t.capacity() << 1));
+            }
+
+            int row = r.allocate(Math.max(MIN_QUARANTINE, size >>> 3));
+            ByteBuffer chunk = r.chunkOf(row);
+            int at = offsetOf(row);
+            int generation = ((chunk.getInt(at + META) & GENERATION_MASK) + 1) & GENERATION_MASK;
+            chunk.putLong(at + ID, key);
+            chunk.putLong(at + EVENT_ID, eventId);
+            chunk.putLong(at + USER_ID, userId);
+            chunk.putLong(at + VERSION, version);
+            chunk.putInt(at + PLACE, place);
+            chunk.putInt(at + META, (category == null ? 0 : category.ordinal() + 1) << CATEGORY_SHIFT | generation);
+
+            if (idx >= 0) {
+                int replaced = t.rowAt(idx);
+                TicketView previous = new TicketView(r, replaced, r.generationOf(replaced));
+                t.slots.put(idx, row + 1);
+                r.retire(replaced);
+                return previous;
+            }
+            t.insert(key, row);
+            size++;
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return a view of the removed ticket, which stays readable as long as its row is not recycled.
+     */
+    @Override
+    public Object remove(long key) {
+        long stamp = lock.writeLock();
+        try {
+            Rows r = rows;
+            Index t = index;
+            int idx = t.indexOf(r, key);
+            if (idx < 0) {
+                return null;
+            }
+            int row = t.rowAt(idx);
+            TicketView previous = new TicketView(r, row, r.generationOf(row));
+            t.delete(r, idx);
+            r.retire(row);
+            size--;
+            return previous;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int expectedSize) {
+        long stamp = lock.writeLock();
+        try {
+            int capacity = tableSizeFor((int) Math.ceil(expectedSize / LOAD_FACTOR));
+            if (capacity > index.capacity()) {
+                resize(capacity);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Drops the rows and the index. Views read before keep the rows they were read from.
+     */
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            rows = new Rows();
+            index = new Index(DEFAULT_CAPACITY);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void forEach(LongObjectConsumer<? super Object> action) {
+        long stamp = lock.readLock();
+        try {
+            Rows r = rows;
+            Index t = index;
+            for (int i = 0; i < t.capacity(); i++) {
+                int row = t.rowAt(i);
+                if (row >= 0) {
+                    action.accept(r.idOf(row), new TicketView(r, row, r.generationOf(row)));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Object> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @return the number of rows written so far, held by tickets, retired or recycled.
+     */
+    int rowCount() {
+        return rows.used;
+    }
+
+    /**
+     * @return a heap copy of the ticket if it is a view of a row, which fails once the row is recycled, or the
+     * ticket itself.
+     */
+    static Ticket detached(Ticket ticket) {
+        return ticket instanceof TicketView ? TicketFactory.clone(ticket) : ticket;
+    }
+
+    private TicketView find(long key) {
+        Rows r = rows;
+        int row = index.find(r, key);
+        return row < 0 ? null : new TicketView(r, row, r.generationOf(row));
+    }
+
+    private Index resize(int capacity) {
+        Rows r = rows;
+        Index old = index;
+        Index resized = new Index(capacity);
+        for (int i = 0; i < old.capacity(); i++) {
+            int row = old.rowAt(i);
+            if (row >= 0) {
+                resized.insert(r.idOf(row), row);
+            }
+        }
+        index = resized;
+        return resized;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity, DEFAULT_CAPACITY) - 1) << 1;
+        Preconditions.checkState(n > 0 && n <= MAX_CAPACITY, "Ticket table cannot hold more than %s tickets",
+                (int) (MAX_CAPACITY * LOAD_FACTOR));
+        return n;
+    }
+
+    private static int offsetOf(int row) {
+        return (row & (CHUNK_ROWS - 1)) * ROW_BYTES;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Rows in chunks of {@value #CHUNK_ROWS}, which are allocated as needed and never moved. Rows are handed out in
+     * order, and retired ones again once enough rows retired after them.
+     */
+    private static final class Rows {
+        private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+        private volatile int used;
+        private int[] retired = new int[16];
+        private int oldest;
+        private int waiting;
+
+        boolean contains(int row) {
+            return row >= 0 && row < ((long) chunks.length << CHUNK_BITS);
+        }
+
+        ByteBuffer chunkOf(int row) {
+            return chunks[row >>> CHUNK_BITS];
+        }
+
+        long idOf(int row) {
+            return chunkOf(row).getLong(offsetOf(row) + ID);
+        }
+
+        int generationOf(int row) {
+            return chunkOf(row).getInt(offsetOf(row) + META) & GENERATION_MASK;
+        }
+
+        /**
+         * @param quarantine Number of retired rows kept from being recycled.
+         */
+        int allocate(int quarantine) {
+            if (waiting > quarantine) {
+                int row = retired[oldest];
+                oldest = (oldest + 1) % retired.length;
+                waiting--;
+                return row;
+            }
+            Preconditions.checkState(used < Integer.MAX_VALUE - 1, "Ticket table is out of rows");
+            if (!contains(used)) {
+                ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+                grown[chunks.length] = ByteBuffer.allocateDirect(CHUNK_ROWS * ROW_BYTES).order(ByteOrder.nativeOrder());
+                chunks = grown;
+            }
+            return used++;
+        }
+
+        void retire(int row) {
+            if (waiting == retired.length) {
+                int[] grown = new int[retired.length << 1];
+                for (int i = 0; i < waiting; i++) {
+                    grown[i] = retired[(oldest + i) % retired.length];
+                }
+                retired = grown;
+                oldest = 0;
+            }
+            retired[(oldest + waiting) % retired.length] = row;
+            waiting++;
+        }
+    }
+
+    /**
+     * Slots hold the row of a ticket plus one, {@link #FREE} for none. Keys are read from the rows.
+     */
+    private static final class Index {
+        final IntBuffer slots;
+        final int mask;
+        final int threshold;
+
+        Index(int capacity) {
+            slots = ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+            mask = capacity - 1;
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        /**
+         * @return the row at the index, {@code -1} for a free slot.
+         */
+        int rowAt(int idx) {
+            return slots.get(idx) - 1;
+        }
+
+        /**
+         * May run concurrently with a writer, so rows are checked to exist before they are read. A wrong result is
+         * then discarded by the caller, as the lock stamp no longer validates.
+         */
+        int find(Rows rows, long key) {
+            int idx = mix(key) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                int row = rowAt(idx);
+                if (row < 0 || !rows.contains(row)) {
+                    return -1;
+                }
+                if (rows.idOf(row) == key) {
+                    return row;
+                }
+                idx = (idx + 1) & mask;
+            }
+            return -1;
+        }
+
+        int indexOf(Rows rows, long key) {
+            int idx = mix(key) & mask;
+            int row;
+            while ((row = rowAt(idx)) >= 0) {
+                if (rows.idOf(row) == key) {
+                    return idx;
+                }
+                idx = (idx + 1) & mask;
+            }
+            return -1;
+        }
+
+        void insert(long key, int row) {
+            int idx = mix(key) & mask;
+            while (slots.get(idx) != FREE) {
+                idx = (idx + 1) & mask;
+            }
+            slots.put(idx, row + 1);
+        }
+
+        /**
+         * Backward shift deletion keeps probe sequences intact without tombstones.
+         */
+        void delete(Rows rows, int idx) {
+            int gap = idx;
+            int next = (gap + 1) & mask;
+            int row;
+            while ((row = rowAt(next)) >= 0) {
+                int home = mix(rows.idOf(row)) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    slots.put(gap, row + 1);
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            slots.put(gap, FREE);
+        }
+    }
+
+    /**
+     * Ticket read from a row. Views of the same row and generation are equal, as they show the same stored state.
+     */
+    private final class TicketView implements Ticket {
+        private final Rows rows;
+        private final int row;
+        private final int generation;
+
+        TicketView(Rows rows, int row, int generation) {
+            this.rows = rows;
+            this.row = row;
+            this.generation = generation;
+        }
+
+        @Override
+        public long getId() {
+            return read(ID);
+        }
+
+        @Override
+        public long getEventId() {
+            return read(EVENT_ID);
+        }
+
+        @Override
+        public long getUserId() {
+            return read(USER_ID);
+        }
+
+        @Override
+        public Category getCategory() {
+            int ordinal = (int) (read(META) >>> CATEGORY_SHIFT & CATEGORY_MASK);
+            return ordinal == 0 ? null : CATEGORIES[ordinal - 1];
+        }
+
+        @Override
+        public int getPlace() {
+            return (int) read(PLACE);
+        }
+
+        @Override
+        public long getVersion() {
+            return read(VERSION);
+        }
+
+        @Override
+        public void setId(long id) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setEventId(long eventId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setUserId(long userId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCategory(Category category) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setPlace(int place) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setVersion(long version) {
+            throw readOnly();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TicketView other
+                    && other.rows == rows && other.row == row && other.generation == generation;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * row + generation;
+        }
+
+        /**
+         * @return the field at the offset, ints widened to long.
+         */
+        private long read(int offset) {
+            long stamp = lock.tryOptimisticRead();
+            boolean current = holdsRow();
+            long value = readUnchecked(offset);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    current = holdsRow();
+                    value = readUnchecked(offset);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            Preconditions.checkState(current, "Ticket of row %s was recycled after it had been read", row);
+            return value;
+        }
+
+        private boolean holdsRow() {
+            return rows.generationOf(row) == generation;
+        }
+
+        private long readUnchecked(int offset) {
+            ByteBuffer chunk = rows.chunkOf(row);
+            int at = offsetOf(row) + offset;
+            return offset >= PLACE ? chunk.getInt(at) & 0xFFFFFFFFL : chunk.getLong(at);
+        }
+
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Stored tickets are read-only, a copy of them can be changed");
+        }
+    }
+
+    /**
+     * Walks the rows rather than the index, as deletions shift index slots in place while a row stays where it is for
+     * as long as it holds its ticket. A row is returned if the index maps its id to it when it is reached, so every
+     * ticket which is not concurrently modified is returned exactly once. A ticket overwritten meanwhile may be
+     * returned in its old and its new state.
+     */
+    private final class ValueIterator implements Iterator<Object> {
+        private final Rows snapshot = rows;
+        private int cursor = -1;
+        private TicketView next;
+
+        ValueIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Object next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            TicketView current = next;
+            advance();
+            return current;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && ++cursor < snapshot.used) {
+                long stamp = lock.tryOptimisticRead();
+                next = viewAt(cursor);
+                if (!lock.validate(stamp)) {
+                    stamp = lock.readLock();
+                    try {
+                        next = viewAt(cursor);
+                    } finally {
+                        lock.unlockRead(stamp);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the ticket the row holds, {@code null} if it holds none or the table was cleared since.
+         */
+        private TicketView viewAt(int row) {
+            if (rows != snapshot || index.find(snapshot, snapshot.idOf(row)) != row) {
+                return null;
+            }
+            return new TicketView(snapshot, row, snapshot.generationOf(row));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package dao;
+
+import java.util.List;
+
+/**
+ * A page of a sorted query result.
+ *
+ * @param items Entities of the page.
+ * @param next  Cursor to fetch the following page with, or {@code null} if this is the last page.
+ */
+public record Page<T>(List<T> items, Cursor next) {
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
@@ -29,6 +29,11 @@ public class PrimaryKey {
         return ns.supplementedWith(id);
     }
 
+    Namespace namespace() {
+        return ns;
+    }
 
-
+    long idValue() {
+        return id;
+    }
 }
@@ -0,0 +1,291 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+import model.Versioned;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+/**
+ * Client of a store served by a {@link StoreServer}, typically in another JVM, meant to be a shard of a
+ * {@link ShardedStore}, which keeps the listeners and transactions.
+ * <p>
+ * Every call is a round trip over one of a pool of connections, opened on demand and kept open for the next calls.
+ * Entities read are copies, and tickets refer to placeholders of their event and user carrying the ids only.
+ * A failure to reach the server, or a server which does not connect or answer within its timeout, surfaces as an
+ * {@link UncheckedIOException}.
+ */
+public class RemoteStore implements Store, Closeable {
+
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5_000;
+    private static final int DEFAULT_READ_TIMEOUT_MILLIS = 30_000;
+
+    private final InetSocketAddress address;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    public RemoteStore(String host, int port) {
+        this(new InetSocketAddress(host, port));
+    }
+
+    public RemoteStore(InetSocketAddress address) {
+        this(address, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param connectTimeoutMillis Time a connection may take to be opened, {@code 0} to wait as long as it takes.
+     * @param readTimeoutMillis    Time the server may take to send the next bytes of a response, {@code 0} to wait
+     *                             as long as it takes. A connection timing out is closed.
+     */
+    public RemoteStore(InetSocketAddress address, int connectTimeoutMillis, int readTimeoutMillis) {
+        Preconditions.checkArgument(connectTimeoutMillis >= 0, "Connect timeout must not be negative");
+        Preconditions.checkArgument(readTimeoutMillis >= 0, "Read timeout must not be negative");
+        this.address = Preconditions.checkNotNull(address, "Address cannot be null");
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    @Override
+    public Optional<Object> get(String key) {
+        Namespace ns = Namespace.ofKey(key);
+        return Optional.ofNullable(get(ns, ns.idOfKey(key)));
+    }
+
+    @Override
+    public Collection<Object> getAll(String namespace) {
+        return getAll(Namespace.of(namespace));
+    }
+
+    @Override
+    public Object save(String key, Object obj) {
+        Namespace ns = Namespace.ofKey(key);
+        return save(ns, ns.idOfKey(key), obj);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        Namespace ns = Namespace.ofKey(key);
+        return delete(ns, ns.idOfKey(key));
+    }
+
+    @Override
+    public boolean replace(String key, long expectedVersion, Versioned obj) {
+        Namespace ns = Namespace.ofKey(key);
+        return replace(ns, ns.idOfKey(key), expectedVersion, obj);
+    }
+
+    @Override
+    public Object get(Namespace ns, long id) {
+        return call(connection -> {
+            request(connection, StoreProtocol.GET, ns).writeLong(id);
+            response(connection);
+            return StoreProtocol.readEntity(connection.in, ns, id, null);
+        });
+    }
+
+    /**
+     * @return a snapshot of the entities, read in one round trip.
+     */
+    @Override
+    public Collection<Object> getAll(Namespace ns) {
+        return call(connection -> {
+            request(connection, StoreProtocol.SCAN, ns);
+            response(connection);
+            List<Object> entities = new ArrayList<>();
+            while (connection.in.readBoolean()) {
+                long id = connection.in.readLong();
+                entities.add(StoreProtocol.readEntity(connection.in, ns, id, null));
+            }
+            return Collections.unmodifiableList(entities);
+        });
+    }
+
+    /**
+     * Reads the whole namespace before the stream starts, as {@link #getAll(Namespace)} does.
+     */
+    @Override
+    public Stream<Object> stream(Namespace ns) {
+        return getAll(ns).stream();
+    }
+
+    @Override
+    public Object save(Namespace ns, long id, Object obj) {
+        Preconditions.checkNotNull(obj, "Savable object cannot be null");
+        return call(connection -> {
+            request(connection, StoreProtocol.PUT, ns).writeLong(id);
+            StoreProtocol.writeEntity(connection.out, ns, obj);
+            response(connection);
+            return StoreProtocol.readEntity(connection.in, ns, id, null);
+        });
+    }
+
+    @Override
+    public boolean delete(Namespace ns, long id) {
+        return call(connection -> {
+            request(connection, StoreProtocol.DELETE, ns).writeLong(id);
+            response(connection);
+            return connection.in.readBoolean();
+        });
+    }
+
+    @Override
+    public boolean replace(Namespace ns, long id, long expectedVersion, Versioned obj) {
+        Preconditions.checkNotNull(obj, "Savable object cannot be null");
+        boolean replaced = call(connection -> {
+            DataOutputStream out = request(connection, StoreProtocol.REPLACE, ns);
+            out.writeLong(id);
+            out.writeLong(expectedVersion);
+            StoreProtocol.writeEntity(out, ns, obj);
+            response(connection);
+            return connection.in.readBoolean();
+        });
+        if (replaced) {
+            // stamped by the server on its copy
+            obj.setVersion(expectedVersion + 1);
+        }
+        return replaced;
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, transactions are begun on the {@link ShardedStore} in front.
+     */
+    @Override
+    public Transaction begin() {
+        throw new UnsupportedOperationException("Transactions of a remote store are begun on the sharded store");
+    }
+
+    /**
+     * @throws UnsupportedOperationException always, listeners are added to the {@link ShardedStore} in front.
+     */
+    @Override
+    public void addListener(Namespace ns, StoreListener listener) {
+        throw new UnsupportedOperationException("Listeners of a remote store are added to the sharded store");
+    }
+
+    /**
+     * Closes the connections, those in use once their call completes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private static DataOutputStream request(Connection connection, byte op, Namespace ns) throws IOException {
+        Preconditions.checkNotNull(ns, "Namespace cannot be null");
+        connection.out.writeByte(op);
+        connection.out.writeByte(ns.ordinal());
+        return connection.out;
+    }
+
+    /**
+     * Sends the request written and reads the status of its response.
+     */
+    private static void response(Connection connection) throws IOException {
+        connection.out.flush();
+        try {
+            StoreProtocol.readStatus(connection.in);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            connection.rejected = true;
+            throw e;
+        }
+    }
+
+    private <T> T call(Call<T> call) {
+        Preconditions.checkState(!closed, "Store %s is closed", address);
+        Connection connection = idle.poll();
+        try {
+            if (connection == null) {
+                connection = new Connection(address, connectTimeoutMillis, readTimeoutMillis);
+            }
+            connection.rejected = false;
+            T result;
+            try {
+                result = call.on(connection);
+            } catch (RuntimeException e) {
+                // an error response leaves the connection in sync, any other failure may leave it midway a message
+                if (connection.rejected) {
+                    release(connection);
+                } else {
+                    connection.close();
+                }
+                throw e;
+            }
+            release(connection);
+            return result;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            throw new UncheckedIOException("Store %s could not be reached".formatted(address), e);
+        }
+    }
+
+    private void release(Connection connection) {
+        if (closed) {
+            connection.close();
+        } else {
+            idle.offer(connection);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Call<T> {
+        T on(Connection connection) throws IOException;
+    }
+
+    /**
+     * Socket with buffered streams.
+     */
+    private static final class Connection {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        /**
+         * Whether the server answered the last request with an error status, which it read whole.
+         */
+        private boolean rejected;
+
+        Connection(InetSocketAddress address, int connectTimeoutMillis, int readTimeoutMillis) throws IOException {
+            socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(readTimeoutMillis);
+                socket.connect(address, connectTimeoutMillis);
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+import model.Ticket;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Occupancy bitmap of the places of every event. Claiming or releasing a place is a single CAS on the
+ * {@link AtomicLongArray} word holding its bit, so concurrent bookings of the same place cannot both succeed.
+ * <p>
+ * The ticket holding every place is kept too, and a write putting a ticket on a place held by another one is vetoed,
+ * whether it reserved the place or not, e.g. a ticket saved directly or loaded. A store has a single index, shared by
+ * every DAO over it.
+ * <p>
+ * Places are grouped into fixed size pages which are allocated on first use.
+ */
+final class SeatIndex implements StoreListener {
+
+    private static final Map<Store, SeatIndex> BY_STORE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_WORDS = (1 << PAGE_BITS) / Long.SIZE;
+
+    private final ConcurrentLongObjectMap<Seats> byEvent = new ConcurrentLongObjectMap<>();
+    // the place indexed for every ticket, as the previous state a listener is given may be the stored instance
+    // changed in place
+    private final ConcurrentLongObjectMap<Seat> places = new ConcurrentLongObjectMap<>();
+
+    private SeatIndex() {
+    }
+
+    /**
+     * @return the index of the tickets of the store, registered on its first use.
+     */
+    static SeatIndex of(Store store) {
+        Preconditions.checkNotNull(store, "Store cannot be null");
+        return BY_STORE.computeIfAbsent(store, key -> {
+            SeatIndex index = new SeatIndex();
+            key.addListener(Namespace.TICKET, index);
+            return index;
+        });
+    }
+
+    /**
+     * @return {@code true} if the place was free and is now taken by the caller.
+     */
+    boolean claim(long eventId, int place) {
+        AtomicLongArray page = seats(eventId).page(place);
+        int word = wordOf(place);
+        long bit = bitOf(place);
+
+        long current;
+        do {
+            current = page.get(word);
+            if ((current & bit) != 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(word, current, current | bit));
+        return true;
+    }
+
+    /**
+     * Claims the places of one event, looking the event up once.
+     *
+     * @return for every place, whether it was free and is now taken by the caller.
+     */
+    boolean[] claimAll(long eventId, int[] places) {
+        Seats seats = seats(eventId);
+        boolean[] claimed = new boolean[places.length];
+        for (int i = 0; i < places.length; i++) {
+            AtomicLongArray page = seats.page(places[i]);
+            int word = wordOf(places[i]);
+            long bit = bitOf(places[i]);
+
+            long current;
+            do {
+                current = page.get(word);
+            } while ((current & bit) == 0 && !page.compareAndSet(word, current, current | bit));
+            claimed[i] = (current & bit) == 0;
+        }
+        return claimed;
+    }
+
+    /**
+     * Frees a place reserved but not held by a ticket.
+     *
+     * @return {@code true} if the place was taken and is now free.
+     */
+    boolean release(long eventId, int place) {
+        Seats seats = byEvent.get(eventId);
+        AtomicLongArray page = seats == null ? null : seats.existingPage(place);
+        if (page == null || seats.holders.get(Seats.placeKey(place)) != null) {
+            return false;
+        }
+        return clear(page, place);
+    }
+
+    /**
+     * @return id of the ticket holding the place or {@code null} if there is none.
+     */
+    Long holderOf(long eventId, int place) {
+        Seats seats = byEvent.get(eventId);
+        return seats == null ? null : seats.holders.get(Seats.placeKey(place));
+    }
+
+    private static boolean clear(AtomicLongArray page, int place) {
+        int word = wordOf(place);
+        long bit = bitOf(place);
+
+        long current;
+        do {
+            current = page.get(word);
+            if ((current & bit) == 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(word, current, current & ~bit));
+        return true;
+    }
+
+    boolean isTaken(long eventId, int place) {
+        Seats seats = byEvent.get(eventId);
+        AtomicLongArray page = seats == null ? null : seats.existingPage(place);
+        return page != null && (page.get(wordOf(place)) & bitOf(place)) != 0;
+    }
+
+    @Override
+    public void beforePut(long id, Object previous, Object current) {
+        Ticket ticket = (Ticket) current;
+        Long holder = holderOf(ticket.getEventId(), ticket.getPlace());
+        if (holder != null && holder != id) {
+            throw new IllegalStateException("Place %d of event %d is already taken by ticket %d"
+                    .formatted(ticket.getPlace(), ticket.getEventId(), holder));
+        }
+    }
+
+    @Override
+    public void afterPut(long id, Object previous, Object current) {
+        Ticket ticket = (Ticket) current;
+        Seat seat = new Seat(ticket.getEventId(), ticket.getPlace());
+        Seat vacated = places.put(id, seat);
+        if (vacated != null && !vacated.equals(seat)) {
+            vacate(id, vacated);
+        }
+        seats(seat.eventId()).holders.put(Seats.placeKey(seat.place()), id);
+        // a booking claims the place before the ticket is saved, so here the place may already be taken
+        claim(seat.eventId(), seat.place());
+    }
+
+    @Override
+    public void afterRemove(long id, Object previous) {
+        Seat vacated = places.remove(id);
+        if (vacated != null) {
+            vacate(id, vacated);
+        }
+    }
+
+    @Override
+    public synchronized void afterClear() {
+        byEvent.clear();
+        places.clear();
+    }
+
+    /**
+     * The holders of a place are checked against other tickets, so writes of tickets are to be serialized.
+     */
+    @Override
+    public boolean checksOtherKeys() {
+        return true;
+    }
+
+    private void vacate(long id, Seat seat) {
+        Seats seats = byEvent.get(seat.eventId());
+        long key = Seats.placeKey(seat.place());
+        if (seats != null && Objects.equals(seats.holders.get(key), id)) {
+            seats.holders.remove(key);
+            clear(seats.page(seat.place()), seat.place());
+        }
+    }
+
+    private Seats seats(long eventId) {
+        Seats seats = byEvent.get(eventId);
+        if (seats == null) {
+            synchronized (this) {
+                seats = byEvent.get(eventId);
+                if (seats == null) {
+                    seats = new Seats();
+                    byEvent.put(eventId, seats);
+                }
+            }
+        }
+        return seats;
+    }
+
+    private static int wordOf(int place) {
+        return (place & ((1 << PAGE_BITS) - 1)) >>> 6;
+    }
+
+    private static long bitOf(int place) {
+        return 1L << (place & 63);
+    }
+
+    private static final class Seats {
+        // page and place keys are shifted by one as the map reserves key 0
+        private final ConcurrentLongObjectMap<AtomicLongArray> pages = new ConcurrentLongObjectMap<>();
+        private final ConcurrentLongObjectMap<Long> holders = new ConcurrentLongObjectMap<>();
+
+        AtomicLongArray page(int place) {
+            AtomicLongArray page = existingPage(place);
+            if (page == null) {
+                synchronized (this) {
+                    page = existingPage(place);
+                    if (page == null) {
+                        page = new AtomicLongArray(PAGE_WORDS);
+                        pages.put(pageKey(place), page);
+                    }
+                }
+            }
+            return page;
+        }
+
+        AtomicLongArray existingPage(int place) {
+            return pages.get(pageKey(place));
+        }
+
+        private static long pageKey(int place) {
+            Preconditions.checkArgument(place >= 0, "Place cannot be negative");
+            return (place >>> PAGE_BITS) + 1L;
+        }
+
+        private static long placeKey(int place) {
+            Preconditions.checkArgument(place >= 0, "Place cannot be negative");
+            return place + 1L;
+        }
+    }
+
+    private record Seat(long eventId, int place) {
+    }
+}
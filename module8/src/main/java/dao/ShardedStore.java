@@ -0,0 +1,571 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+import model.Versioned;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Spreads the entities over several stores, its shards, by {@link HashRing consistent hashing} of their keys. A shard
+ * is any store, e.g. an {@link InMemoryStore} of this JVM or a {@link RemoteStore} served by another one, so the
+ * data may exceed one heap and writes to different shards proceed in parallel.
+ * <p>
+ * The shards hold entities only: listeners and transactions are kept here, and every write has to go through this
+ * store. Writes lock one of a fixed number of stripes chosen by the hash of the key, as {@link InMemoryStore} does,
+ * which {@link #begin transactions} lock for all their keys, whatever the shards of the keys. Listeners which
+ * {@link StoreListener#checksOtherKeys() check other keys}, as unique indexes do, are called one write at a time per
+ * namespace and before the write reaches its shard, so readers never see a write they veto. The other listeners are
+ * called under the stripe of the key only, and writes to different shards still proceed in parallel.
+ * <p>
+ * {@link #getAll} scans the shards in parallel and gathers their entities, {@link #stream} reads them lazily one shard
+ * after the other, or in parallel once the stream is made parallel.
+ * <p>
+ * {@link #addShard Adding} a shard moves over only the entities it takes over, about {@code 1/n} of them, and
+ * {@link #removeShard removing} one moves only its own. Both block writes while moving, and scans running
+ * meanwhile may see a moved entity twice.
+ */
+public class ShardedStore implements Store, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedStore.class);
+
+    private static final int STRIPE_BITS = 6;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[1 << STRIPE_BITS];
+    private final EnumMap<Namespace, Listeners> listeners = new EnumMap<>(Namespace.class);
+    private final ExecutorService scans;
+    private volatile HashRing ring;
+
+    public ShardedStore() {
+        this(128);
+    }
+
+    /**
+     * @param virtualNodes Points of every shard on the ring. More spread the keys more evenly, with 128 the share
+     *                     of a shard typically differs from the mean by less than 10%.
+     */
+    public ShardedStore(int virtualNodes) {
+        ring = new HashRing(virtualNodes);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        for (Namespace ns : Namespace.values()) {
+            listeners.put(ns, new Listeners());
+        }
+        AtomicInteger threads = new AtomicInteger();
+        scans = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "shard-scan-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return store of as many {@link InMemoryStore in-memory} shards, named {@code shard-0} on.
+     */
+    public static ShardedStore ofLocal(int shards) {
+        Preconditions.checkArgument(shards > 0, "Shards must be positive number");
+        ShardedStore store = new ShardedStore();
+        for (int i = 0; i < shards; i++) {
+            store.addShard("shard-" + i, new InMemoryStore());
+        }
+        return store;
+    }
+
+    /**
+     * Adds an empty shard and moves over the entities it owns from now on.
+     *
+     * @return the number of entities moved.
+     */
+    public int addShard(String name, Store shard) {
+        Preconditions.checkNotNull(shard, "Shard cannot be null");
+        for (Namespace ns : Namespace.values()) {
+            Preconditions.checkArgument(shard.stream(ns).findAny().isEmpty(), "Shard %s must be empty", name);
+        }
+        return holdingAllStripes(() -> {
+            HashRing current = ring;
+            int moved = move(current.stores(), current.with(name, shard));
+            LOG.info("Shard {} was added, {} entities moved to it.", name, moved);
+            return moved;
+        });
+    }
+
+    /**
+     * Moves the entities of a shard to those which own them without it and removes it. The shard is left as it is,
+     * the caller is to close it.
+     *
+     * @return the shard removed.
+     */
+    public Store removeShard(String name) {
+        return holdingAllStripes(() -> {
+            HashRing current = ring;
+            Store shard = current.shard(name);
+            Preconditions.checkArgument(shard != null, "Shard %s does not exist", name);
+            Preconditions.checkState(current.shards().size() > 1, "Last shard cannot be removed");
+            int moved = move(List.of(shard), current.without(name));
+            LOG.info("Shard {} was removed, {} entities moved from it.", name, moved);
+            return shard;
+        });
+    }
+
+    /**
+     * Must be called holding every stripe. Copies the entities of the shards owned by others in the next ring, then
+     * routes to the next ring and deletes them from where they were, so that readers find each entity at any time.
+     */
+    private int move(List<Store> sources, HashRing next) {
+        Map<Store, Map<Namespace, List<Long>>> moved = new HashMap<>();
+        for (Store from : sources) {
+            for (Namespace ns : Namespace.values()) {
+                for (Object entity : from.getAll(ns).toArray()) {
+                    long id = ns.idOfEntity(entity);
+                    Store to = next.ownerOf(ns, id);
+                    if (to != from) {
+                        to.save(ns, id, entity);
+                        moved.computeIfAbsent(from, shard -> new EnumMap<>(Namespace.class))
+                                .computeIfAbsent(ns, namespace -> new ArrayList<>())
+                                .add(id);
+                    }
+                }
+            }
+        }
+        ring = next;
+        int count = 0;
+        for (Map.Entry<Store, Map<Namespace, List<Long>>> from : moved.entrySet()) {
+            for (Map.Entry<Namespace, List<Long>> ids : from.getValue().entrySet()) {
+                for (long id : ids.getValue()) {
+                    from.getKey().delete(ids.getKey(), id);
+                }
+                count += ids.getValue().size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the shards by name, in the order they were added.
+     */
+    public Map<String, Store> shards() {
+        return ring.shards();
+    }
+
+    @Override
+    public Optional<Object> get(String key) {
+        Namespace ns = Namespace.ofKey(key);
+        return Optional.ofNullable(get(ns, ns.idOfKey(key)));
+    }
+
+    @Override
+    public Collection<Object> getAll(String namespace) {
+        return getAll(Namespace.of(namespace));
+    }
+
+    @Override
+    public Object save(String key, Object obj) {
+        Namespace ns = Namespace.ofKey(key);
+        return save(ns, ns.idOfKey(key), obj);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        Namespace ns = Namespace.ofKey(key);
+        return delete(ns, ns.idOfKey(key));
+    }
+
+    @Override
+    public boolean replace(String key, long expectedVersion, Versioned obj) {
+        Namespace ns = Namespace.ofKey(key);
+        return replace(ns, ns.idOfKey(key), expectedVersion, obj);
+    }
+
+    @Override
+    public Object get(Namespace ns, long id) {
+        return ring.ownerOf(ns, id).get(ns, id);
+    }
+
+    /**
+     * Copies the entities of every shard in parallel.
+     *
+     * @return a snapshot, unlike the live view of {@link InMemoryStore#getAll(Namespace)}.
+     */
+    @Override
+    public Collection<Object> getAll(Namespace ns) {
+        Preconditions.checkNotNull(ns, "Namespace cannot be null");
+        List<CompletableFuture<Object[]>> scattered = ring.stores().stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> shard.getAll(ns).toArray(), scans))
+                .toList();
+        List<Object> gathered = new ArrayList<>();
+        try {
+            for (CompletableFuture<Object[]> part : scattered) {
+                Collections.addAll(gathered, part.join());
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return Collections.unmodifiableList(gathered);
+    }
+
+    @Override
+    public Stream<Object> stream(Namespace ns) {
+        Preconditions.checkNotNull(ns, "Namespace cannot be null");
+        return ring.stores().stream().flatMap(shard -> shard.stream(ns));
+    }
+
+    @Override
+    public Object save(Namespace ns, long id, Object obj) {
+        Preconditions.checkNotNull(obj, "Savable object cannot be null");
+        ReentrantLock stripe = stripes[stripeOf(ns, id)];
+        stripe.lock();
+        try {
+            return write(ns, id, obj);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(Namespace ns, long id) {
+        ReentrantLock stripe = stripes[stripeOf(ns, id)];
+        stripe.lock();
+        try {
+            return erase(ns, id) != null;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(Namespace ns, long id, long expectedVersion, Versioned obj) {
+        Preconditions.checkNotNull(obj, "Savable object cannot be null");
+        ReentrantLock stripe = stripes[stripeOf(ns, id)];
+        stripe.lock();
+        try {
+            Store shard = ring.ownerOf(ns, id);
+            Object existing = shard.get(ns, id);
+            if (!(existing instanceof Versioned current) || current.getVersion() != expectedVersion) {
+                return false;
+            }
+            Listeners namespaceListeners = listeners.get(ns);
+            namespaceListeners.beforePut(id, existing, obj);
+            long version = obj.getVersion();
+            boolean replaced;
+            try {
+                replaced = shard.replace(ns, id, expectedVersion, obj);
+            } catch (RuntimeException e) {
+                // a failed object is left as it was passed
+                namespaceListeners.undoPut(id, existing, obj);
+                obj.setVersion(version);
+                throw e;
+            }
+            if (!replaced) {
+                namespaceListeners.undoPut(id, existing, obj);
+                return false;
+            }
+            namespaceListeners.afterPut(id, existing, obj);
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public Transaction begin() {
+        return new StripedTransaction();
+    }
+
+    /**
+     * Registers the listener for the writes of every shard, replaying the entities of every shard to it.
+     */
+    @Override
+    public void addListener(Namespace ns, StoreListener listener) {
+        Preconditions.checkNotNull(ns, "Namespace cannot be null");
+        Preconditions.checkNotNull(listener, "Listener cannot be null");
+        Listeners namespaceListeners = listeners.get(ns);
+        holdingAllStripes(() -> {
+            for (Store shard : ring.stores()) {
+                shard.stream(ns).forEach(entity -> {
+                    long id = ns.idOfEntity(entity);
+                    listener.beforePut(id, null, entity);
+                    listener.afterPut(id, null, entity);
+                });
+            }
+            namespaceListeners.add(listener);
+            return null;
+        });
+    }
+
+    /**
+     * Closes every shard which can be closed.
+     */
+    @Override
+    public void close() {
+        scans.shutdownNow();
+        for (Store shard : ring.stores()) {
+            if (shard instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Shard could not be closed.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Must be called holding the stripe of the key.
+     *
+     * @return the replaced object or {@code null} if there was none.
+     */
+    private Object write(Namespace ns, long id, Object obj) {
+        Store shard = ring.ownerOf(ns, id);
+        Listeners namespaceListeners = listeners.get(ns);
+        if (namespaceListeners.isEmpty()) {
+            return shard.save(ns, id, obj);
+        }
+        Object previous = shard.get(ns, id);
+        namespaceListeners.beforePut(id, previous, obj);
+        try {
+            shard.save(ns, id, obj);
+        } catch (RuntimeException e) {
+            namespaceListeners.undoPut(id, previous, obj);
+            throw e;
+        }
+        namespaceListeners.afterPut(id, previous, obj);
+        return previous;
+    }
+
+    /**
+     * Must be called holding the stripe of the key.
+     *
+     * @return the removed object or {@code null} if there was none.
+     */
+    private Object erase(Namespace ns, long id) {
+        Store shard = ring.ownerOf(ns, id);
+        Object previous = shard.get(ns, id);
+        if (previous != null && shard.delete(ns, id)) {
+            listeners.get(ns).afterRemove(id, previous);
+            return previous;
+        }
+        return null;
+    }
+
+    /**
+     * Locks every stripe, in the order transactions lock them, which keeps out every write of the store.
+     */
+    private <T> T holdingAllStripes(Supplier<T> action) {
+        int locked = 0;
+        try {
+            for (; locked < stripes.length; locked++) {
+                stripes[locked].lock();
+            }
+            return action.get();
+        } finally {
+            while (locked > 0) {
+                stripes[--locked].unlock();
+            }
+        }
+    }
+
+    static int stripeOf(Namespace ns, long id) {
+        long hash = (id ^ ((long) ns.ordinal() << 56)) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> (Long.SIZE - STRIPE_BITS));
+    }
+
+    /**
+     * Whether an entity read before is still the current one. Shards of this JVM return the stored object itself,
+     * remote ones a copy each time, which is compared by version then.
+     */
+    private static boolean unchanged(Object seen, Object current) {
+        if (seen == current) {
+            return true;
+        }
+        return seen instanceof Versioned before && current instanceof Versioned after
+                && before.getClass() == after.getClass() && before.getVersion() == after.getVersion();
+    }
+
+    /**
+     * Transaction which locks the stripes of every key it touched, in ascending order, for the time of the commit,
+     * as the one of {@link InMemoryStore} does. The writes are applied one by one to their shards and undone in
+     * reverse order should one of them fail.
+     */
+    private final class StripedTransaction implements Transaction {
+        private final Map<Key, Object> reads = new HashMap<>();
+        private final Map<Key, Object> written = new HashMap<>();
+        private final List<WriteAheadLog.Write> writes = new ArrayList<>();
+        private boolean committed;
+
+        @Override
+        public Object get(Namespace ns, long id) {
+            Key key = new Key(ns, id);
+            if (written.containsKey(key)) {
+                return written.get(key);
+            }
+            if (!reads.containsKey(key)) {
+                reads.put(key, ShardedStore.this.get(ns, id));
+            }
+            return reads.get(key);
+        }
+
+        @Override
+        public Transaction put(Namespace ns, long id, Object obj) {
+            Preconditions.checkNotNull(obj, "Savable object cannot be null");
+            return write(new WriteAheadLog.Write(ns, id, obj));
+        }
+
+        @Override
+        public Transaction delete(Namespace ns, long id) {
+            return write(new WriteAheadLog.Write(ns, id, null));
+        }
+
+        private Transaction write(WriteAheadLog.Write write) {
+            Preconditions.checkState(!committed, "Transaction has already been committed");
+            Preconditions.checkNotNull(write.ns(), "Namespace cannot be null");
+            written.put(new Key(write.ns(), write.id()), write.entity());
+            writes.add(write);
+            return this;
+        }
+
+        @Override
+        public void commit() {
+            Preconditions.checkState(!committed, "Transaction has already been committed");
+            committed = true;
+
+            int[] order = Stream.concat(reads.keySet().stream(), written.keySet().stream())
+                    .mapToInt(key -> stripeOf(key.ns(), key.id()))
+                    .distinct()
+                    .sorted()
+                    .toArray();
+
+            int locked = 0;
+            try {
+                for (; locked < order.length; locked++) {
+                    stripes[order[locked]].lock();
+                }
+
+                reads.forEach((key, seen) -> Preconditions.checkState(
+                        unchanged(seen, ShardedStore.this.get(key.ns(), key.id())),
+                        "Entity %s was changed by a concurrent write", key.ns().supplementedWith(key.id())));
+
+                List<WriteAheadLog.Write> undo = new ArrayList<>(writes.size());
+                try {
+                    for (WriteAheadLog.Write write : writes) {
+                        undo.add(apply(write));
+                    }
+                } catch (RuntimeException e) {
+                    for (int i = undo.size() - 1; i >= 0; i--) {
+                        try {
+                            apply(undo.get(i));
+                        } catch (RuntimeException suppressed) {
+                            e.addSuppressed(suppressed);
+                        }
+                    }
+                    throw e;
+                }
+            } finally {
+                while (locked > 0) {
+                    stripes[order[--locked]].unlock();
+                }
+            }
+        }
+
+        /**
+         * @return the write which reverts it.
+         */
+        private WriteAheadLog.Write apply(WriteAheadLog.Write write) {
+            Object previous = write.entity() != null
+                    ? ShardedStore.this.write(write.ns(), write.id(), write.entity())
+                    : erase(write.ns(), write.id());
+            return new WriteAheadLog.Write(write.ns(), write.id(), previous);
+        }
+    }
+
+    /**
+     * Listeners of a namespace. Those which {@link StoreListener#checksOtherKeys() check other keys} take a write in
+     * under the lock of this object before it is applied, so their checks see every write accepted before, whatever
+     * its shard, and give a write back should it fail on its shard. The others are called as the write is applied.
+     */
+    private static final class Listeners {
+        private final List<StoreListener> crossKey = new CopyOnWriteArrayList<>();
+        private final List<StoreListener> perKey = new CopyOnWriteArrayList<>();
+
+        void add(StoreListener listener) {
+            (listener.checksOtherKeys() ? crossKey : perKey).add(listener);
+        }
+
+        boolean isEmpty() {
+            return crossKey.isEmpty() && perKey.isEmpty();
+        }
+
+        /**
+         * Asks every listener to accept a write not applied yet. Throws if one of them vetoes it.
+         */
+        void beforePut(long id, Object previous, Object current) {
+            for (StoreListener listener : perKey) {
+                listener.beforePut(id, previous, current);
+            }
+            if (!crossKey.isEmpty()) {
+                synchronized (this) {
+                    for (StoreListener listener : crossKey) {
+                        listener.beforePut(id, previous, current);
+                    }
+                    for (StoreListener listener : crossKey) {
+                        listener.afterPut(id, previous, current);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gives back a write accepted by {@link #beforePut} which was not applied.
+         */
+        synchronized void undoPut(long id, Object previous, Object current) {
+            for (StoreListener listener : crossKey) {
+                if (previous == null) {
+                    listener.afterRemove(id, current);
+                } else {
+                    listener.afterPut(id, current, previous);
+                }
+            }
+        }
+
+        void afterPut(long id, Object previous, Object current) {
+            for (StoreListener listener : perKey) {
+                listener.afterPut(id, previous, current);
+            }
+        }
+
+        void afterRemove(long id, Object previous) {
+            if (!crossKey.isEmpty()) {
+                synchronized (this) {
+                    for (StoreListener listener : crossKey) {
+                        listener.afterRemove(id, previous);
+                    }
+                }
+            }
+            for (StoreListener listener : perKey) {
+                listener.afterRemove(id, previous);
+            }
+        }
+    }
+
+    private record Key(Namespace ns, long id) {
+    }
+}
@@ -1,15 +1,64 @@
 package dao;
 
-import java.util.List;
+import model.Versioned;
+
+import java.util.Collection;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface Store {
 
     Optional<Object> get(String key);
 
-    List<Object> getAll(String namespace);
+    /**
+     * Returns the entities of the given namespace. Implementations may return a live, weakly consistent view
+     * of the underlying container, so callers must not expect a stable snapshot.
+     */
+    Collection<Object> getAll(String namespace);
 
     Object save(String key, Object obj);
 
     boolean delete(String key);
+
+    boolean replace(String key, long expectedVersion, Versioned obj);
+
+    /*
+        Primitive keyed variants. They build no String keys and no Optional, so they are preferred on hot paths.
+     */
+
+    /**
+     * @return the stored object or {@code null} if there is none.
+     */
+    Object get(Namespace ns, long id);
+
+    Collection<Object> getAll(Namespace ns);
+
+    /**
+     * Lazy stream over the entities of the given namespace with the consistency of {@link #getAll(Namespace)}.
+     * Entities are visited on demand, so a short-circuiting pipeline stops reading early.
+     */
+    Stream<Object> stream(Namespace ns);
+
+    Object save(Namespace ns, long id, Object obj);
+
+    boolean delete(Namespace ns, long id);
+
+    /**
+     * Stores the object in place of the current entity if that one is still at the expected version, stamping the
+     * object with the next version. The check and the write are one atomic step, so of two updates based on the same
+     * version exactly one succeeds.
+     *
+     * @return {@code false} if there is no entity or it has another version, in which case nothing is written.
+     */
+    boolean replace(Namespace ns, long id, long expectedVersion, Versioned obj);
+
+    /**
+     * Starts a transaction over any keys of the store. Transactions of disjoint keys commit in parallel.
+     */
+    Transaction begin();
+
+    /**
+     * Registers a listener for the changes of the given namespace. Entities already stored are replayed to it.
+     */
+    void addListener(Namespace ns, StoreListener listener);
 }
@@ -0,0 +1,36 @@
+package dao;
+
+/**
+ * Observes the changes of a single store {@link Namespace}, e.g. to maintain a secondary index.
+ * <p>
+ * The store invokes the callbacks of one key one at a time and after the change is visible to readers. Stores write
+ * different keys in parallel, as {@link InMemoryStore} and {@link ShardedStore} do, and serialize only the callbacks
+ * of listeners which {@link #checksOtherKeys() check other keys}, so the others must be thread-safe.
+ * On registration the listener receives {@link #afterPut} for every entity already stored.
+ */
+public interface StoreListener {
+
+    /**
+     * Invoked before an object is put, under the same serialization as the write itself. Throwing an exception
+     * vetoes the write, e.g. to enforce a unique constraint. Also invoked for entities replayed on registration.
+     */
+    default void beforePut(long id, Object previous, Object current) {
+    }
+
+    /**
+     * @param previous the replaced object or {@code null} if the id was not present.
+     */
+    void afterPut(long id, Object previous, Object current);
+
+    void afterRemove(long id, Object previous);
+
+    void afterClear();
+
+    /**
+     * Whether {@link #beforePut} checks a write against the entities of other ids, e.g. for a unique constraint, so
+     * it has to see every write of the namespace accepted before.
+     */
+    default boolean checksOtherKeys() {
+        return false;
+    }
+}
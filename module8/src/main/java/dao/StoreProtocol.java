@@ -0,0 +1,98 @@
+package dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Messages exchanged by a {@link RemoteStore} and the {@link StoreServer} it connects to.
+ * <p>
+ * A request is an operation byte followed by the namespace ordinal and, but for a scan, the id. A response is a
+ * status byte followed by the result, or by the kind and message of the exception for an error. Entities are written
+ * as by {@link EntityCodec} with an int length prefix, {@code -1} standing for no entity. A scan responds with one
+ * entry per entity, each an id and an entity preceded by {@code 1}, and a {@code 0} at the end.
+ * <pre>
+ * GET     ns id                          -> OK entity
+ * PUT     ns id entity                   -> OK previous
+ * DELETE  ns id                          -> OK boolean
+ * REPLACE ns id expectedVersion entity   -> OK boolean
+ * SCAN    ns                             -> OK (1 id entity)* 0
+ * </pre>
+ */
+final class StoreProtocol {
+
+    static final byte GET = 1;
+    static final byte PUT = 2;
+    static final byte DELETE = 3;
+    static final byte REPLACE = 4;
+    static final byte SCAN = 5;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    static final byte ILLEGAL_ARGUMENT = 0;
+    static final byte ILLEGAL_STATE = 1;
+
+    private static final Namespace[] NAMESPACES = Namespace.values();
+
+    private StoreProtocol() {
+    }
+
+    static Namespace readNamespace(DataInput in) throws IOException {
+        int ordinal = in.readByte();
+        if (ordinal < 0 || ordinal >= NAMESPACES.length) {
+            throw new IOException("Unknown namespace " + ordinal);
+        }
+        return NAMESPACES[ordinal];
+    }
+
+    static void writeEntity(DataOutput out, Namespace ns, Object entity) throws IOException {
+        if (entity == null) {
+            out.writeInt(-1);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EntityCodec.write(new DataOutputStream(bytes), ns, entity);
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    /**
+     * @param store Store to resolve the event and user of a ticket from, {@code null} to refer to placeholders.
+     * @return the entity or {@code null} if there is none.
+     */
+    static Object readEntity(DataInput in, Namespace ns, long id, Store store) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return EntityCodec.read(ByteBuffer.wrap(bytes), ns, id, store);
+    }
+
+    static void writeError(DataOutput out, RuntimeException e) throws IOException {
+        out.writeByte(ERROR);
+        out.writeByte(e instanceof IllegalArgumentException ? ILLEGAL_ARGUMENT : ILLEGAL_STATE);
+        out.writeUTF(String.valueOf(e.getMessage()));
+    }
+
+    /**
+     * Reads the status of a response.
+     *
+     * @throws IllegalArgumentException if the request was rejected as such by the server.
+     * @throws IllegalStateException    if the request failed otherwise.
+     */
+    static void readStatus(DataInput in) throws IOException {
+        byte status = in.readByte();
+        if (status == OK) {
+            return;
+        }
+        byte kind = in.readByte();
+        String message = in.readUTF();
+        throw kind == ILLEGAL_ARGUMENT ? new IllegalArgumentException(message) : new IllegalStateException(message);
+    }
+}
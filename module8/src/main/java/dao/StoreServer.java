@@ -0,0 +1,196 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+import model.Versioned;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves a store over TCP to the {@link RemoteStore RemoteStores} connecting to it, typically one shard of a
+ * {@link ShardedStore} run in a JVM of its own. Each connection is served by a thread of its own, one request at a
+ * time, in the format of {@link StoreProtocol}.
+ * <p>
+ * The server knows nothing of listeners and transactions, which the store in front of it keeps, so that store is to
+ * be its only client.
+ */
+public class StoreServer implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StoreServer.class);
+
+    private final Store store;
+    private final ServerSocket socket;
+    private final ExecutorService connections;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Listens on the loopback interface.
+     *
+     * @param port Port to listen on, {@code 0} for any free one.
+     */
+    public StoreServer(Store store, int port) throws IOException {
+        this(store, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public StoreServer(Store store, InetSocketAddress address) throws IOException {
+        this.store = Preconditions.checkNotNull(store, "Store cannot be null");
+        this.socket = new ServerSocket();
+        this.socket.bind(Preconditions.checkNotNull(address, "Address cannot be null"));
+        AtomicInteger threads = new AtomicInteger();
+        this.connections = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "store-server-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        connections.execute(this::accept);
+        LOG.info("Store is served on {}.", socket.getLocalSocketAddress());
+    }
+
+    public int port() {
+        return socket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                client.setTcpNoDelay(true);
+                clients.add(client);
+                connections.execute(() -> serve(client));
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    LOG.warn("Connection could not be accepted.", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                handle(op, in, out);
+                out.flush();
+            }
+        } catch (SocketException e) {
+            LOG.debug("Connection {} was closed.", client.getRemoteSocketAddress(), e);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Connection {} failed.", client.getRemoteSocketAddress(), e);
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    private void handle(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        Namespace ns = StoreProtocol.readNamespace(in);
+        if (op == StoreProtocol.SCAN) {
+            out.writeByte(StoreProtocol.OK);
+            Iterator<Object> entities = store.stream(ns).iterator();
+            while (entities.hasNext()) {
+                Object entity = entities.next();
+                long id = ns.idOfEntity(entity);
+                out.writeBoolean(true);
+                out.writeLong(id);
+                StoreProtocol.writeEntity(out, ns, entity);
+            }
+            out.writeBoolean(false);
+            return;
+        }
+
+        long id = in.readLong();
+        // the request is read whole before the store is called, so that an error leaves the stream in sync
+        long expectedVersion = op == StoreProtocol.REPLACE ? in.readLong() : 0;
+        Object entity = op == StoreProtocol.PUT || op == StoreProtocol.REPLACE
+                ? StoreProtocol.readEntity(in, ns, id, store)
+                : null;
+        try {
+            switch (op) {
+                case StoreProtocol.GET -> {
+                    Object found = store.get(ns, id);
+                    out.writeByte(StoreProtocol.OK);
+                    StoreProtocol.writeEntity(out, ns, found);
+                }
+                case StoreProtocol.PUT -> {
+                    Object previous = store.save(ns, id, entity);
+                    out.writeByte(StoreProtocol.OK);
+                    StoreProtocol.writeEntity(out, ns, previous);
+                }
+                case StoreProtocol.DELETE -> {
+                    boolean deleted = store.delete(ns, id);
+                    out.writeByte(StoreProtocol.OK);
+                    out.writeBoolean(deleted);
+                }
+                case StoreProtocol.REPLACE -> {
+                    boolean replaced = store.replace(ns, id, expectedVersion, (Versioned) entity);
+                    out.writeByte(StoreProtocol.OK);
+                    out.writeBoolean(replaced);
+                }
+                default -> throw new IOException("Unknown operation " + op);
+            }
+        } catch (RuntimeException e) {
+            StoreProtocol.writeError(out, e);
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes those open.
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+        connections.shutdownNow();
+    }
+
+    /**
+     * Serves an in-memory store on the port given as the first argument until the JVM is stopped, e.g. as a shard of
+     * a {@link ShardedStore} of another JVM. A write-ahead log given as the second argument keeps its content across
+     * restarts.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Preconditions.checkArgument(args.length >= 1, "Usage: StoreServer <port> [<write-ahead log>]");
+        InMemoryStore store = new InMemoryStore();
+        if (args.length > 1) {
+            store.recover(WriteAheadLog.open(Path.of(args[1]), WriteAheadLog.Durability.BATCH, 10));
+        }
+        StoreServer server = new StoreServer(store, Integer.parseInt(args[0]));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                LOG.warn("Server could not be closed.", e);
+            }
+            store.close();
+        }));
+        // the threads of the server are daemons, the JVM lives as long as this one waits
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,191 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary image of an {@link InMemoryStore}.
+ * <p>
+ * The file starts with a magic number and the format version, followed by sections of
+ * {@code [byte namespace][int count][int length]} and {@code count} records of {@code [long id][entity]}, the entity
+ * encoded by {@link EntityCodec}. Sections are capped at 1 GiB so that each of them can be mapped on its own.
+ * Users and events precede tickets, so a ticket resolves its event and user while it is loaded.
+ * <p>
+ * Loading maps the file and decodes entities straight into the store, without an intermediate copy of the data set.
+ */
+final class StoreSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StoreSnapshot.class);
+
+    static final int MAGIC = 0x42534E50;
+    static final int FORMAT_VERSION = 2;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int SECTION_HEADER_SIZE = 9;
+    private static final int MAX_SECTION_SIZE = 1 << 30;
+    private static final Namespace[] ORDER = {Namespace.USER, Namespace.EVENT, Namespace.TICKET};
+
+    private StoreSnapshot() {
+    }
+
+    /**
+     * Writes the store next to the target file and moves it in place once it is on disk, so a crash never leaves
+     * a partial snapshot behind. The caller must keep the store from being written meanwhile.
+     */
+    static void write(InMemoryStore store, Path file) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            DataOutputStream out = new DataOutputStream(buffered);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+
+            for (Namespace ns : ORDER) {
+                Section[] section = new Section[1];
+                store.forEach(ns, (id, entity) -> {
+                    try {
+                        if (section[0] == null || section[0].isFull()) {
+                            if (section[0] != null) {
+                                section[0].close();
+                            }
+                            section[0] = new Section(channel, buffered, ns);
+                        }
+                        section[0].add(id, entity);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (section[0] != null) {
+                    section[0].close();
+                }
+            }
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + file, e);
+        } catch (UncheckedIOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + file, e.getCause());
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot move snapshot in place " + file, e);
+        }
+        LOG.info("Snapshot of {} entities was written to {}.", store.size(), file);
+    }
+
+    /**
+     * @return number of entities loaded.
+     */
+    static long load(InMemoryStore store, Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            Preconditions.checkState(header.getInt() == MAGIC, "%s is not a snapshot", file);
+            int version = header.getInt();
+            Preconditions.checkState(version == FORMAT_VERSION, "Unsupported snapshot format %s", version);
+
+            long loaded = 0;
+            long position = HEADER_SIZE;
+            ByteBuffer sectionHeader = ByteBuffer.allocate(SECTION_HEADER_SIZE);
+            while (position < size) {
+                readFully(channel, sectionHeader.clear(), position);
+                Namespace ns = Namespace.values()[sectionHeader.get()];
+                int count = sectionHeader.getInt();
+                int length = sectionHeader.getInt();
+                Preconditions.checkState(position + SECTION_HEADER_SIZE + length <= size, "Snapshot %s is truncated", file);
+
+                MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, position + SECTION_HEADER_SIZE, length);
+                store.reserve(ns, store.size(ns) + count);
+                for (int i = 0; i < count; i++) {
+                    long id = records.getLong();
+                    store.save(ns, id, EntityCodec.read(records, ns, id, store));
+                }
+                loaded += count;
+                position += SECTION_HEADER_SIZE + length;
+            }
+
+            LOG.info("Loaded {} entities from snapshot {}.", loaded, file);
+            return loaded;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Snapshot %s is corrupt".formatted(file), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load snapshot " + file, e);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IllegalStateException("Snapshot is truncated");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Records of one namespace. The header is written ahead with a zero count and length and patched on close.
+     */
+    private static final class Section {
+        private final FileChannel channel;
+        private final BufferedOutputStream buffered;
+        private final DataOutputStream out;
+        private final long start;
+        private final Namespace ns;
+        private int count;
+
+        Section(FileChannel channel, BufferedOutputStream buffered, Namespace ns) throws IOException {
+            buffered.flush();
+            this.channel = channel;
+            this.buffered = buffered;
+            this.start = channel.position();
+            this.ns = ns;
+            DataOutputStream header = new DataOutputStream(buffered);
+            header.writeByte(ns.ordinal());
+            header.writeInt(0);
+            header.writeInt(0);
+            this.out = new DataOutputStream(buffered);
+        }
+
+        boolean isFull() {
+            // leaves room for one more entity of any reasonable size
+            return out.size() >= MAX_SECTION_SIZE - 64 * 1024;
+        }
+
+        void add(long id, Object entity) throws IOException {
+            out.writeLong(id);
+            EntityCodec.write(out, ns, entity);
+            count++;
+        }
+
+        void close() throws IOException {
+            buffered.flush();
+            ByteBuffer header = ByteBuffer.allocate(SECTION_HEADER_SIZE)
+                    .put((byte) ns.ordinal())
+                    .putInt(count)
+                    .putInt(out.size())
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, start + header.position());
+            }
+        }
+    }
+}
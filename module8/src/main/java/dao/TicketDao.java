@@ -2,5 +2,55 @@ package dao;
 
 import model.Ticket;
 
+import java.util.List;
+
 public interface TicketDao extends Dao<Ticket, PrimaryKey>, TicketQuery {
+
+    /**
+     * Primitive keyed lookup which allocates neither a key nor an {@link java.util.Optional}.
+     *
+     * @return Ticket or null if there is none.
+     */
+    Ticket findById(long id);
+
+    /**
+     * Saves a new ticket provided its event and user are stored. The check and the write are atomic, so a ticket
+     * never refers to an event or a user deleted meanwhile.
+     *
+     * @throws IllegalArgumentException if the event or the user does not exist.
+     * @throws IllegalStateException if the event or the user was changed while the ticket was saved.
+     */
+    Ticket book(Ticket ticket);
+
+    /**
+     * Saves new tickets in a single transaction, provided their events and users are stored. Either every ticket is
+     * saved or, if any of them fails, none.
+     *
+     * @return saved tickets in the order of the given ones.
+     * @throws IllegalArgumentException if an event or a user does not exist.
+     * @throws IllegalStateException if an event or a user was changed while the tickets were saved.
+     */
+    List<Ticket> bookAll(List<Ticket> tickets);
+
+    /**
+     * Atomically takes the place of the event unless it is already taken, either by a stored ticket
+     * or by another reservation. Saving a ticket for the place keeps it taken, deleting the ticket frees it.
+     *
+     * @return {@code true} if the place was free and is now reserved by the caller.
+     */
+    boolean reservePlace(long eventId, int place);
+
+    /**
+     * Bulk variant of {@link #reservePlace} for the places of one event.
+     *
+     * @return for every place, whether it was free and is now reserved by the caller.
+     */
+    boolean[] reservePlaces(long eventId, int[] places);
+
+    /**
+     * Frees a place reserved by {@link #reservePlace} whose ticket was not saved.
+     *
+     * @return {@code true} if the place was taken.
+     */
+    boolean releasePlace(long eventId, int place);
 }
@@ -1,20 +1,37 @@
 package dao;
 
 import com.google.common.base.Preconditions;
+import metrics.Metrics;
+import metrics.QueryCounter;
 import model.Ticket;
 import model.TicketFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 public class TicketDaoImpl implements TicketDao {
 
+    private static final QueryCounter USER_TICKETS = Metrics.query("TicketDao.streamByUserId");
+    private static final QueryCounter EVENT_TICKETS = Metrics.query("TicketDao.streamByEventId");
+
     private final Store store;
     private final IdGenerator idGenerator;
+    private final TicketIndex index;
+    private final SeatIndex seats;
 
     public TicketDaoImpl(Store store, IdGenerator idGenerator) {
         this.store = store;
         this.idGenerator = idGenerator;
+        this.index = new TicketIndex(store);
+        this.seats = SeatIndex.of(store);
+        store.addListener(Namespace.TICKET, index);
+        store.addListener(Namespace.EVENT, index.eventChanges());
+        store.addListener(Namespace.USER, index.userChanges());
     }
 
     @Override
@@ -24,58 +41,193 @@ public class TicketDaoImpl implements TicketDao {
         Ticket tempTicket = TicketFactory.clone(ticket);
         tempTicket.setId(Long.MIN_VALUE == ticket.getId() ? idGenerator.next() : ticket.getId());
 
-        store.save(PrimaryKey.ticketKey(tempTicket.getId()).id(), tempTicket);
+        boolean claimed = claimPlaceOf(tempTicket);
+        try {
+            store.save(Namespace.TICKET, tempTicket.getId(), tempTicket);
+        } catch (RuntimeException e) {
+            releaseIfClaimed(claimed, tempTicket);
+            throw e;
+        }
+
+        return tempTicket;
+    }
+
+    @Override
+    public Ticket book(Ticket ticket) {
+        Preconditions.checkNotNull(ticket, "Ticket cannot be null");
+
+        return bookAll(List.of(ticket)).get(0);
+    }
+
+    @Override
+    public List<Ticket> bookAll(List<Ticket> tickets) {
+        Preconditions.checkNotNull(tickets, "Tickets cannot be null");
+
+        // the transaction reads every user and event once, however many tickets refer to it
+        Transaction tx = store.begin();
+        List<Ticket> booked = new ArrayList<>(tickets.size());
+        for (Ticket ticket : tickets) {
+            Preconditions.checkArgument(tx.get(Namespace.USER, ticket.getUserId()) != null, "Non-existent userId");
+            Preconditions.checkArgument(tx.get(Namespace.EVENT, ticket.getEventId()) != null, "Non-existent eventId");
+
+            Ticket tempTicket = TicketFactory.clone(ticket);
+            tempTicket.setId(Long.MIN_VALUE == ticket.getId() ? idGenerator.next() : ticket.getId());
+
+            tx.put(Namespace.TICKET, tempTicket.getId(), tempTicket);
+            booked.add(tempTicket);
+        }
+        tx.commit();
+
+        return booked;
+    }
+
+    @Override
+    public Ticket update(Ticket ticket) {
+        Preconditions.checkNotNull(ticket, "Ticket cannot be null");
+
+        Ticket tempTicket = TicketFactory.clone(ticket);
+
+        boolean claimed = claimPlaceOf(tempTicket);
+        boolean replaced = false;
+        try {
+            replaced = store.replace(Namespace.TICKET, tempTicket.getId(), ticket.getVersion(), tempTicket);
+        } finally {
+            if (!replaced) {
+                releaseIfClaimed(claimed, tempTicket);
+            }
+        }
+        if (!replaced) {
+            Preconditions.checkArgument(findById(ticket.getId()) != null, "Ticket identified by id must exist is the store");
+            throw new IllegalStateException("Ticket %d was updated concurrently, version %d is stale"
+                    .formatted(ticket.getId(), ticket.getVersion()));
+        }
 
         return tempTicket;
     }
 
     @Override
     public Optional<Ticket> findById(PrimaryKey primaryKey) {
-        Optional<Object> result = store.get(primaryKey.id());
-        return result.isPresent()
-                ? Optional.of((Ticket) result.get())
-                : Optional.empty();
+        return Optional.ofNullable(findById(primaryKey.idValue()));
+    }
 
+    @Override
+    public Ticket findById(long id) {
+        Preconditions.checkArgument(id > 0, "Id must be positive number");
+        Ticket ticket = (Ticket) store.get(Namespace.TICKET, id);
+        return ticket == null ? null : OffHeapTicketTable.detached(ticket);
     }
 
     @Override
     public Iterable<Ticket> findAll() {
-        return store.getAll(Namespace.TICKET.prefixed())
-                .stream()
-                .map(x -> (Ticket) x)
-                .collect(Collectors.toList());
+        return streamAll().collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Ticket> streamAll() {
+        return store.stream(Namespace.TICKET).map(x -> OffHeapTicketTable.detached((Ticket) x));
     }
 
     @Override
     public void delete(Ticket entity) {
-        deleteById(PrimaryKey.ticketKey(entity.getId()));
+        store.delete(Namespace.TICKET, entity.getId());
     }
 
     @Override
     public boolean deleteById(PrimaryKey primaryKey) {
-        return store.delete(primaryKey.id());
+        return store.delete(Namespace.TICKET, primaryKey.idValue());
     }
 
     @Override
     public boolean existsById(PrimaryKey primaryKey) {
-        return findById(primaryKey).isPresent();
+        return findById(primaryKey.idValue()) != null;
     }
 
     @Override
     public Iterable<Ticket> findByUserId(long userId) {
-        return store.getAll(Namespace.TICKET.prefixed())
-                .stream()
-                .map(x -> (Ticket) x)
-                .filter(ticket -> ticket.getUserId() == userId)
-                .collect(Collectors.toList());
+        return streamByUserId(userId).collect(Collectors.toList());
     }
 
     @Override
     public Iterable<Ticket> findByEventId(long eventId) {
-        return store.getAll(Namespace.TICKET.prefixed())
-                .stream()
-                .map(x -> (Ticket) x)
-                .filter(ticket -> ticket.getEventId() == eventId)
-                .collect(Collectors.toList());
+        return streamByEventId(eventId).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Ticket> streamByUserId(long userId) {
+        return USER_TICKETS.returning(resolve(USER_TICKETS.scanning(index.streamOfUser(userId))));
+    }
+
+    @Override
+    public Stream<Ticket> streamByEventId(long eventId) {
+        return EVENT_TICKETS.returning(resolve(EVENT_TICKETS.scanning(index.streamOfEvent(eventId))));
+    }
+
+    @Override
+    public Page<Ticket> findByUserId(long userId, Cursor after, int limit) {
+        Preconditions.checkArgument(limit > 0, "Limit must be positive number");
+        return page(index.ticketsOfUser(userId, after, limit));
+    }
+
+    @Override
+    public Page<Ticket> findByEventId(long eventId, Cursor after, int limit) {
+        Preconditions.checkArgument(limit > 0, "Limit must be positive number");
+        return page(index.ticketsOfEvent(eventId, after, limit));
+    }
+
+    private Page<Ticket> page(TicketIndex.Slice slice) {
+        List<Ticket> tickets = new ArrayList<>(slice.ids().length);
+        for (long id : slice.ids()) {
+            // the ticket may have been cancelled since the postings were read
+            Ticket ticket = (Ticket) store.get(Namespace.TICKET, id);
+            if (ticket != null) {
+                tickets.add(OffHeapTicketTable.detached(ticket));
+            }
+        }
+        return new Page<>(tickets, slice.next());
+    }
+
+    private Stream<Ticket> resolve(LongStream ticketIds) {
+        // the ticket may have been cancelled since its id was read from the index
+        return ticketIds
+                .mapToObj(id -> (Ticket) store.get(Namespace.TICKET, id))
+                .filter(Objects::nonNull)
+                .map(OffHeapTicketTable::detached);
+    }
+
+    /**
+     * Claims the place of a ticket written without a reservation, unless the ticket holds it already, so that it
+     * cannot be taken by a booking which reserved it meanwhile.
+     *
+     * @return whether the place was claimed, to be released should the write fail.
+     */
+    private boolean claimPlaceOf(Ticket ticket) {
+        if (seats.claim(ticket.getEventId(), ticket.getPlace())) {
+            return true;
+        }
+        Long holder = seats.holderOf(ticket.getEventId(), ticket.getPlace());
+        Preconditions.checkState(holder != null && holder == ticket.getId(), "Place already occupied");
+        return false;
+    }
+
+    private void releaseIfClaimed(boolean claimed, Ticket ticket) {
+        if (claimed) {
+            seats.release(ticket.getEventId(), ticket.getPlace());
+        }
+    }
+
+    @Override
+    public boolean reservePlace(long eventId, int place) {
+        return seats.claim(eventId, place);
+    }
+
+    @Override
+    public boolean[] reservePlaces(long eventId, int[] places) {
+        Preconditions.checkNotNull(places, "Places cannot be null");
+        return seats.claimAll(eventId, places);
+    }
+
+    @Override
+    public boolean releasePlace(long eventId, int place) {
+        return seats.release(eventId, place);
     }
 }
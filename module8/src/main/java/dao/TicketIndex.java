@@ -0,0 +1,505 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+import model.Event;
+import model.Ticket;
+import model.User;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sorted posting lists of tickets: per user ordered by event date descending, per event ordered by user email
+ * ascending. Both orders are maintained on write. The sort keys follow changes of event dates and user emails.
+ * <p>
+ * A posting list keeps the ticket ids sorted in a primitive array, with their sort keys in a parallel one, and is
+ * locked on its own, so writes of different tickets lock only the lists they change. A list emptied is retired and
+ * dropped, a writer finding it retired looks the list up again. Every ticket has an entry in a side table with its
+ * user, event and sort keys, and its changes are serialized on that entry, always before the lists. Reads copy a
+ * bounded slice of a list at a time, so streams are weakly consistent.
+ */
+final class TicketIndex implements StoreListener {
+
+    private static final int MIN_CAPACITY = 4;
+    private static final int CHUNK = 256;
+
+    private final Store store;
+    private final ConcurrentLongObjectMap<Indexed> tickets = new ConcurrentLongObjectMap<>();
+    private final ConcurrentLongObjectMap<DatePostings> byUser = new ConcurrentLongObjectMap<>();
+    private final ConcurrentLongObjectMap<EmailPostings> byEvent = new ConcurrentLongObjectMap<>();
+
+    TicketIndex(Store store) {
+        this.store = store;
+    }
+
+    /**
+     * @return up to {@code limit} of the user's tickets following {@code after}, newest event first.
+     * @throws IllegalArgumentException if the cursor comes from a query of another order.
+     */
+    Slice ticketsOfUser(long userId, Cursor after, int limit) {
+        checkOrder(after, Order.EVENT_DATE_DESC);
+        return slice(byUser.get(userId), after, limit);
+    }
+
+    /**
+     * @return up to {@code limit} of the event's tickets following {@code after}, by user email.
+     * @throws IllegalArgumentException if the cursor comes from a query of another order.
+     */
+    Slice ticketsOfEvent(long eventId, Cursor after, int limit) {
+        checkOrder(after, Order.USER_EMAIL);
+        return slice(byEvent.get(eventId), after, limit);
+    }
+
+    /**
+     * @return lazy stream over the ids of the user's tickets, newest event first.
+     */
+    LongStream streamOfUser(long userId) {
+        return stream(after -> ticketsOfUser(userId, after, CHUNK));
+    }
+
+    /**
+     * @return lazy stream over the ids of the event's tickets, by user email.
+     */
+    LongStream streamOfEvent(long eventId) {
+        return stream(after -> ticketsOfEvent(eventId, after, CHUNK));
+    }
+
+    @Override
+    public void afterPut(long id, Object previous, Object current) {
+        unlink(id);
+        Ticket ticket = (Ticket) current;
+        Indexed indexed = new Indexed(id, ticket.getUserId(), ticket.getEventId());
+        synchronized (indexed) {
+            tickets.put(id, indexed);
+            long date = eventDateOf(indexed);
+            String email = userEmailOf(indexed);
+            indexed.eventDate = date;
+            indexed.userEmail = email;
+            update(byUser, indexed.userId, DatePostings::new, postings -> postings.add(date, id));
+            update(byEvent, indexed.eventId, EmailPostings::new, postings -> postings.add(email, id));
+            // an event or user written meanwhile may have looked for its tickets before this one was listed
+            moveInUserList(indexed, eventDateOf(indexed));
+            moveInEventList(indexed, userEmailOf(indexed));
+        }
+    }
+
+    @Override
+    public void afterRemove(long id, Object previous) {
+        unlink(id);
+    }
+
+    @Override
+    public void afterClear() {
+        tickets.clear();
+        byUser.clear();
+        byEvent.clear();
+    }
+
+    /**
+     * Re-sorts the tickets of an event whose date changed.
+     */
+    StoreListener eventChanges() {
+        return new StoreListener() {
+            @Override
+            public void afterPut(long eventId, Object previous, Object current) {
+                long date = dateOf((Event) current);
+                if (date != dateOf((Event) previous)) {
+                    rekeyEvent(eventId, date);
+                }
+            }
+
+            @Override
+            public void afterRemove(long eventId, Object previous) {
+            }
+
+            @Override
+            public void afterClear() {
+            }
+        };
+    }
+
+    /**
+     * Re-sorts the tickets of a user whose email changed.
+     */
+    StoreListener userChanges() {
+        return new StoreListener() {
+            @Override
+            public void afterPut(long userId, Object previous, Object current) {
+                String email = emailOf((User) current);
+                if (!email.equals(emailOf((User) previous))) {
+                    rekeyUser(userId, email);
+                }
+            }
+
+            @Override
+            public void afterRemove(long userId, Object previous) {
+            }
+
+            @Override
+            public void afterClear() {
+            }
+        };
+    }
+
+    private void rekeyEvent(long eventId, long date) {
+        streamOfEvent(eventId).forEach(ticketId -> {
+            Indexed indexed = tickets.get(ticketId);
+            if (indexed != null && indexed.eventId == eventId) {
+                synchronized (indexed) {
+                    moveInUserList(indexed, date);
+                }
+            }
+        });
+    }
+
+    private void rekeyUser(long userId, String email) {
+        streamOfUser(userId).forEach(ticketId -> {
+            Indexed indexed = tickets.get(ticketId);
+            if (indexed != null && indexed.userId == userId) {
+                synchronized (indexed) {
+                    moveInEventList(indexed, email);
+                }
+            }
+        });
+    }
+
+    /**
+     * Must be called holding the entry.
+     */
+    private void moveInUserList(Indexed indexed, long date) {
+        if (!indexed.unlinked && indexed.eventDate != date) {
+            update(byUser, indexed.userId, null, postings -> {
+                postings.remove(indexed.eventDate, indexed.id);
+                postings.add(date, indexed.id);
+            });
+            indexed.eventDate = date;
+        }
+    }
+
+    /**
+     * Must be called holding the entry.
+     */
+    private void moveInEventList(Indexed indexed, String email) {
+        if (!indexed.unlinked && !indexed.userEmail.equals(email)) {
+            update(byEvent, indexed.eventId, null, postings -> {
+                postings.remove(indexed.userEmail, indexed.id);
+                postings.add(email, indexed.id);
+            });
+            indexed.userEmail = email;
+        }
+    }
+
+    private void unlink(long id) {
+        Indexed indexed = tickets.remove(id);
+        if (indexed != null) {
+            synchronized (indexed) {
+                indexed.unlinked = true;
+                update(byUser, indexed.userId, null, postings -> postings.remove(indexed.eventDate, id));
+                update(byEvent, indexed.eventId, null, postings -> postings.remove(indexed.userEmail, id));
+            }
+        }
+    }
+
+    private long eventDateOf(Indexed indexed) {
+        return dateOf((Event) store.get(Namespace.EVENT, indexed.eventId));
+    }
+
+    private String userEmailOf(Indexed indexed) {
+        return emailOf((User) store.get(Namespace.USER, indexed.userId));
+    }
+
+    /**
+     * Changes the list of the key holding it, and retires the list if the change left it empty.
+     *
+     * @param factory creates the list if there is none, or {@code null} to leave a missing list alone.
+     */
+    private static <P extends Postings> void update(ConcurrentLongObjectMap<P> index, long key, Supplier<P> factory,
+                                                    Consumer<P> change) {
+        while (true) {
+            P postings = index.get(key);
+            if (postings == null) {
+                if (factory == null) {
+                    return;
+                }
+                P created = factory.get();
+                postings = Objects.requireNonNullElse(index.putIfAbsent(key, created), created);
+            }
+            synchronized (postings) {
+                if (!postings.retired) {
+                    change.accept(postings);
+                    if (postings.size == 0) {
+                        postings.retired = true;
+                        index.remove(key, postings);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private static Slice slice(Postings postings, Cursor after, int limit) {
+        return postings == null ? Slice.EMPTY : postings.slice(after, limit);
+    }
+
+    private static LongStream stream(Function<Cursor, Slice> slices) {
+        PrimitiveIterator.OfLong ids = new PrimitiveIterator.OfLong() {
+            private Slice slice;
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                if (slice == null) {
+                    slice = slices.apply(null);
+                }
+                while (next == slice.ids().length && slice.next() != null) {
+                    slice = slices.apply(slice.next());
+                    next = 0;
+                }
+                return next < slice.ids().length;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return slice.ids()[next++];
+            }
+        };
+        return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(ids, Spliterator.ORDERED), false);
+    }
+
+    private static void checkOrder(Cursor after, Order order) {
+        Preconditions.checkArgument(after == null || after.order == order,
+                "Cursor %s does not belong to a query by %s", after, order);
+    }
+
+    private static long dateOf(Event event) {
+        return event == null || event.getDate() == null ? Long.MIN_VALUE : event.getDate().getTime();
+    }
+
+    private static String emailOf(User user) {
+        return user == null ? "" : Objects.requireNonNullElse(user.getEmail(), "");
+    }
+
+    private enum Order {
+        EVENT_DATE_DESC, USER_EMAIL
+    }
+
+    /**
+     * Ticket ids of a part of a posting list.
+     *
+     * @param next Cursor of the last id, or {@code null} if no posting follows it.
+     */
+    record Slice(long[] ids, Cursor next) {
+
+        static final Slice EMPTY = new Slice(new long[0], null);
+    }
+
+    /**
+     * Where a ticket is listed. Changes of the ticket's postings hold the entry.
+     */
+    private static final class Indexed {
+        final long id;
+        final long userId;
+        final long eventId;
+        long eventDate;
+        String userEmail;
+        boolean unlinked;
+
+        Indexed(long id, long userId, long eventId) {
+            this.id = id;
+            this.userId = userId;
+            this.eventId = eventId;
+        }
+    }
+
+    /**
+     * Ticket ids in the order of a query. Must be changed holding the list, subclasses keep the sort keys.
+     */
+    private abstract static class Postings {
+        long[] ids = new long[MIN_CAPACITY];
+        int size;
+        boolean retired;
+
+        synchronized Slice slice(Cursor after, int limit) {
+            int from = after == null ? 0 : indexAfter(after);
+            int to = (int) Math.min(size, (long) from + limit);
+            return new Slice(Arrays.copyOfRange(ids, from, to), to < size ? cursorAt(to - 1) : null);
+        }
+
+        /**
+         * Opens a gap for a posting at the index, to be filled by the subclass.
+         */
+        void open(int at) {
+            if (size == ids.length) {
+                resize(size << 1);
+            }
+            shift(at, at + 1, size - at);
+            size++;
+        }
+
+        void close(int at) {
+            size--;
+            shift(at + 1, at, size - at);
+            if (size * 4 < ids.length && ids.length > MIN_CAPACITY) {
+                resize(ids.length >> 1);
+            }
+        }
+
+        void resize(int capacity) {
+            ids = Arrays.copyOf(ids, capacity);
+        }
+
+        void shift(int from, int to, int length) {
+            System.arraycopy(ids, from, ids, to, length);
+        }
+
+        /**
+         * @return index of the first posting sorting after the position of the cursor.
+         */
+        abstract int indexAfter(Cursor cursor);
+
+        abstract Cursor cursorAt(int at);
+    }
+
+    /**
+     * Tickets of a user, newest event first.
+     */
+    private static final class DatePostings extends Postings {
+        private long[] dates = new long[MIN_CAPACITY];
+
+        void add(long date, long id) {
+            int at = search(date, id);
+            open(at);
+            ids[at] = id;
+            dates[at] = date;
+        }
+
+        void remove(long date, long id) {
+            int at = search(date, id);
+            if (at < size && ids[at] == id && dates[at] == date) {
+                close(at);
+            }
+        }
+
+        @Override
+        int indexAfter(Cursor cursor) {
+            long date = (Long) cursor.key;
+            int at = search(date, cursor.id);
+            return at < size && ids[at] == cursor.id && dates[at] == date ? at + 1 : at;
+        }
+
+        @Override
+        Cursor cursorAt(int at) {
+            return new Cursor(Order.EVENT_DATE_DESC, dates[at], ids[at]);
+        }
+
+        @Override
+        void resize(int capacity) {
+            super.resize(capacity);
+            dates = Arrays.copyOf(dates, capacity);
+        }
+
+        @Override
+        void shift(int from, int to, int length) {
+            super.shift(from, to, length);
+            System.arraycopy(dates, from, dates, to, length);
+        }
+
+        /**
+         * @return index of the first posting not sorting before the given one.
+         */
+        private int search(long date, long id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (dates[mid] > date || dates[mid] == date && ids[mid] < id) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Tickets of an event, by user email.
+     */
+    private static final class EmailPostings extends Postings {
+        private String[] emails = new String[MIN_CAPACITY];
+
+        void add(String email, long id) {
+            int at = search(email, id);
+            open(at);
+            ids[at] = id;
+            emails[at] = email;
+        }
+
+        void remove(String email, long id) {
+            int at = search(email, id);
+            if (at < size && ids[at] == id && emails[at].equals(email)) {
+                close(at);
+            }
+        }
+
+        @Override
+        int indexAfter(Cursor cursor) {
+            String email = (String) cursor.key;
+            int at = search(email, cursor.id);
+            return at < size && ids[at] == cursor.id && emails[at].equals(email) ? at + 1 : at;
+        }
+
+        @Override
+        Cursor cursorAt(int at) {
+            return new Cursor(Order.USER_EMAIL, emails[at], ids[at]);
+        }
+
+        @Override
+        void close(int at) {
+            super.close(at);
+            emails[size] = null;
+        }
+
+        @Override
+        void resize(int capacity) {
+            super.resize(capacity);
+            emails = Arrays.copyOf(emails, capacity);
+        }
+
+        @Override
+        void shift(int from, int to, int length) {
+            super.shift(from, to, length);
+            System.arraycopy(emails, from, emails, to, length);
+        }
+
+        /**
+         * @return index of the first posting not sorting before the given one.
+         */
+        private int search(String email, long id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int order = emails[mid].compareTo(email);
+                if (order < 0 || order == 0 && ids[mid] < id) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
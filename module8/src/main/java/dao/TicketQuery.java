@@ -2,9 +2,41 @@ package dao;
 
 import model.Ticket;
 
+import java.util.stream.Stream;
+
+/**
+ * Queries come in two flavours: {@code findBy*} materializes the result, while {@code streamBy*} returns a lazy
+ * stream which reads entities only as far as it is consumed.
+ */
 public interface TicketQuery {
 
+    /**
+     * @return Tickets of the user, sorted by event date in descending order.
+     */
     Iterable<Ticket> findByUserId(long userId);
 
+    /**
+     * @return Tickets of the event, sorted by user email in ascending order.
+     */
     Iterable<Ticket> findByEventId(long eventId);
+
+    Stream<Ticket> streamByUserId(long userId);
+
+    Stream<Ticket> streamByEventId(long eventId);
+
+    /**
+     * Keyset pagination over {@link #findByUserId(long)}.
+     *
+     * @param after Cursor of the previous page, or {@code null} to start from the first ticket.
+     * @param limit Maximum number of tickets on the page.
+     */
+    Page<Ticket> findByUserId(long userId, Cursor after, int limit);
+
+    /**
+     * Keyset pagination over {@link #findByEventId(long)}.
+     *
+     * @param after Cursor of the previous page, or {@code null} to start from the first ticket.
+     * @param limit Maximum number of tickets on the page.
+     */
+    Page<Ticket> findByEventId(long eventId, Cursor after, int limit);
 }
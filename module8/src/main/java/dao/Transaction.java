@@ -0,0 +1,31 @@
+package dao;
+
+/**
+ * Writes of several keys of a {@link Store} which are applied together on {@link #commit()}.
+ * <p>
+ * Reads are optimistic: the transaction remembers what it read and commits only if none of it has changed since,
+ * which makes read, check and write one atomic step. A transaction belongs to the thread which began it and is used
+ * once.
+ */
+public interface Transaction {
+
+    /**
+     * Reads the entity as seen by this transaction, that is including its own writes, and makes the commit depend on
+     * it not being changed by anyone else meanwhile. Absence is remembered as well.
+     *
+     * @return the entity or {@code null} if there is none.
+     */
+    Object get(Namespace ns, long id);
+
+    Transaction put(Namespace ns, long id, Object obj);
+
+    Transaction delete(Namespace ns, long id);
+
+    /**
+     * Applies the writes in the order they were made, either all of them or, should a read be stale or a listener
+     * veto a write, none.
+     *
+     * @throws IllegalStateException if an entity read by the transaction was changed since.
+     */
+    void commit();
+}
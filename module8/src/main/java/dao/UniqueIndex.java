@@ -0,0 +1,76 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Hash index of a unique attribute to the id of its owner. Writes which would duplicate a value are vetoed.
+ * Entities whose attribute is {@code null} are not indexed.
+ * <p>
+ * The value owned by every entity is kept, as the previous state a listener is given may be the stored instance
+ * changed in place, which already holds the new value.
+ */
+final class UniqueIndex<K> implements StoreListener {
+
+    private final ConcurrentHashMap<K, Long> owners = new ConcurrentHashMap<>();
+    private final ConcurrentLongObjectMap<K> owned = new ConcurrentLongObjectMap<>();
+    private final Function<Object, K> attribute;
+    private final String name;
+
+    UniqueIndex(String name, Function<Object, K> attribute) {
+        this.name = Preconditions.checkNotNull(name, "Index name cannot be null");
+        this.attribute = Preconditions.checkNotNull(attribute, "Attribute cannot be null");
+    }
+
+    /**
+     * @return id of the owner of the value or {@code null} if the value is not taken.
+     */
+    Long ownerOf(K value) {
+        return owners.get(value);
+    }
+
+    @Override
+    public void beforePut(long id, Object previous, Object current) {
+        K value = attribute.apply(current);
+        if (value != null) {
+            Long owner = owners.get(value);
+            if (owner != null && owner != id) {
+                throw new IllegalStateException("%s %s is already taken".formatted(name, value));
+            }
+        }
+    }
+
+    @Override
+    public void afterPut(long id, Object previous, Object current) {
+        K value = attribute.apply(current);
+        K previousValue = value == null ? owned.remove(id) : owned.put(id, value);
+        if (previousValue != null && !Objects.equals(previousValue, value)) {
+            owners.remove(previousValue, id);
+        }
+        if (value != null) {
+            owners.put(value, id);
+        }
+    }
+
+    @Override
+    public void afterRemove(long id, Object previous) {
+        K value = owned.remove(id);
+        if (value != null) {
+            owners.remove(value, id);
+        }
+    }
+
+    @Override
+    public void afterClear() {
+        owners.clear();
+        owned.clear();
+    }
+
+    @Override
+    public boolean checksOtherKeys() {
+        return true;
+    }
+}
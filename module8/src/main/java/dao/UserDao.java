@@ -3,4 +3,11 @@ package dao;
 import model.User;
 
 public interface UserDao extends Dao<User, PrimaryKey>, UserQuery {
+
+    /**
+     * Primitive keyed lookup which allocates neither a key nor an {@link java.util.Optional}.
+     *
+     * @return User or null if there is none.
+     */
+    User findById(long id);
 }
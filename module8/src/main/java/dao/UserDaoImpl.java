@@ -1,21 +1,34 @@
 package dao;
 
 import com.google.common.base.Preconditions;
+import metrics.Metrics;
+import metrics.QueryCounter;
 import model.User;
 import model.UserFactory;
 
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 public class UserDaoImpl implements UserDao {
 
+    private static final QueryCounter NAME_SEARCH = Metrics.query("UserDao.searchByName");
+
     private final Store store;
     private final IdGenerator idGenerator;
+    private final UniqueIndex<String> emailIndex;
+    private final NGramIndex nameIndex;
 
     public UserDaoImpl(Store store, IdGenerator idGenerator) {
         this.store = store;
         this.idGenerator = idGenerator;
+        this.emailIndex = new UniqueIndex<>("User email", user -> ((User) user).getEmail());
+        this.nameIndex = new NGramIndex(user -> ((User) user).getName());
+        store.addListener(Namespace.USER, emailIndex);
+        store.addListener(Namespace.USER, nameIndex);
     }
 
     @Override
@@ -27,59 +40,104 @@ public class UserDaoImpl implements UserDao {
                                         user.getName(),
                                         user.getEmail()
                                     );
+        tempUser.setVersion(user.getVersion());
 
-        store.save(PrimaryKey.userKey(tempUser.getId()).id(), tempUser);
+        store.save(Namespace.USER, tempUser.getId(), tempUser);
+
+        return tempUser;
+    }
+
+    @Override
+    public User update(User user) {
+        Preconditions.checkNotNull(user, "User cannot be null");
+
+        User tempUser = UserFactory.create(user.getId(), user.getName(), user.getEmail());
+
+        if (!store.replace(Namespace.USER, tempUser.getId(), user.getVersion(), tempUser)) {
+            Preconditions.checkArgument(findById(user.getId()) != null, "User identified by id must exist is the store");
+            throw new IllegalStateException("User %d was updated concurrently, version %d is stale"
+                    .formatted(user.getId(), user.getVersion()));
+        }
 
         return tempUser;
     }
 
     @Override
     public Optional<User> findById(PrimaryKey primaryKey) {
-        Optional<Object> result = store.get(primaryKey.id());
-        return result.isPresent()
-                ? Optional.of((User) result.get())
-                : Optional.empty();
+        return Optional.ofNullable(findById(primaryKey.idValue()));
+    }
+
+    @Override
+    public User findById(long id) {
+        Preconditions.checkArgument(id > 0, "Id must be positive number");
+        return (User) store.get(Namespace.USER, id);
     }
 
     @Override
     public Iterable<User> findAll() {
-        return store.getAll(Namespace.USER.prefixed())
-                .stream()
-                .map(x -> (User) x)
-                .collect(Collectors.toList());
+        return streamAll().collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return store.stream(Namespace.USER).map(x -> (User) x);
     }
 
     @Override
     public void delete(User user) {
-        deleteById(PrimaryKey.userKey(user.getId()));
+        store.delete(Namespace.USER, user.getId());
     }
 
     @Override
     public boolean deleteById(PrimaryKey primaryKey) {
-        return store.delete(primaryKey.id());
+        return store.delete(Namespace.USER, primaryKey.idValue());
     }
 
     @Override
     public boolean existsById(PrimaryKey primaryKey) {
-        return findById(primaryKey).isPresent();
+        return findById(primaryKey.idValue()) != null;
     }
 
     @Override
     public User findByEmail(String email) {
         Preconditions.checkNotNull(email, "Email cannot be null");
 
-        return StreamSupport.stream(findAll().spliterator(), false)
-                .filter(user -> email.equals(user.getEmail()))
-                .findFirst()
-                .orElse(null);
+        Long userId = emailIndex.ownerOf(email);
+        return userId == null ? null : (User) store.get(Namespace.USER, userId);
     }
 
     @Override
     public Iterable<User> findByName(String nameSegment) {
+        return streamByName(nameSegment).collect(Collectors.toList());
+    }
+
+    @Override
+    public Iterable<User> findByNameIgnoreCase(String nameSegment) {
+        return streamByNameIgnoreCase(nameSegment).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<User> streamByName(String nameSegment) {
+        Preconditions.checkNotNull(nameSegment, "nameSegment cannot be null");
+
+        return searchByName(nameSegment, name -> name.contains(nameSegment));
+    }
+
+    @Override
+    public Stream<User> streamByNameIgnoreCase(String nameSegment) {
         Preconditions.checkNotNull(nameSegment, "nameSegment cannot be null");
 
-        return StreamSupport.stream(findAll().spliterator(), false)
-                .filter(user -> user.getName().contains(nameSegment))
-                .collect(Collectors.toList());
+        String folded = NGramIndex.fold(nameSegment);
+        return searchByName(nameSegment, name -> NGramIndex.fold(name).contains(folded));
+    }
+
+    private Stream<User> searchByName(String nameSegment, Predicate<String> matcher) {
+        long[] candidates = nameIndex.candidates(nameSegment);
+        Stream<User> users = candidates == null
+                ? streamAll()
+                : LongStream.of(candidates).mapToObj(id -> (User) store.get(Namespace.USER, id)).filter(Objects::nonNull);
+
+        return NAME_SEARCH.returning(NAME_SEARCH.scanning(users)
+                .filter(user -> user.getName() != null && matcher.test(user.getName())));
     }
 }
@@ -2,9 +2,21 @@ package dao;
 
 import model.User;
 
+import java.util.stream.Stream;
+
+/**
+ * Queries come in two flavours: {@code findBy*} materializes the result, while {@code streamBy*} returns a lazy
+ * stream which reads entities only as far as it is consumed.
+ */
 public interface UserQuery {
 
     User findByEmail(String email);
 
     Iterable<User> findByName(String name);
+
+    Iterable<User> findByNameIgnoreCase(String name);
+
+    Stream<User> streamByName(String name);
+
+    Stream<User> streamByNameIgnoreCase(String name);
 }
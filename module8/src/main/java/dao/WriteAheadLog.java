@@ -0,0 +1,439 @@
+package dao;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the writes of an {@link InMemoryStore}.
+ * <p>
+ * The file starts with a magic number and the format version, followed by records of
+ * {@code [int length][int crc32][byte op][byte namespace][long id][entity]}, the entity being present for puts only
+ * and encoded by {@link EntityCodec}. The writes of a transaction share one record of
+ * {@code [int length][int crc32][byte op][int count]} followed by {@code count} bodies of the above, so they are
+ * replayed all or none. A torn or corrupt tail, left by a crash in the middle of a write, is cut off on replay.
+ * <p>
+ * Writers append into an in-memory buffer under a short lock and then wait for the {@link Durability} they asked for
+ * outside of it, so the store keeps accepting writes while the log is being forced to disk.
+ */
+public final class WriteAheadLog implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    static final int MAGIC = 0x4257414C;
+    static final int FORMAT_VERSION = 2;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+    private static final byte BATCH = 4;
+    private static final int HEADER_SIZE = 8;
+    private static final int FRAME_SIZE = 8;
+    private static final long NO_ID = 0L;
+
+    public enum Durability {
+        /**
+         * Every write forces the log itself before it returns, one write at a time.
+         */
+        SYNC,
+        /**
+         * Every write is durable before it returns, but concurrent writers share a force: the first waiting writer
+         * forces everything appended so far on behalf of the others (group commit).
+         */
+        BATCH,
+        /**
+         * Writes return right away and the log is forced every flush interval, so a crash may lose the writes of
+         * the last interval.
+         */
+        PERIODIC
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Durability durability;
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+
+    // guarded by this
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private long appended;
+    private boolean replayed;
+    private boolean closed;
+    private IOException failure;
+
+    // owned by the holder of forceLock
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private volatile long durable;
+
+    private WriteAheadLog(Path path, FileChannel channel, Durability durability, long flushIntervalMillis) {
+        this.path = path;
+        this.channel = channel;
+        this.durability = durability;
+        if (durability == Durability.PERIODIC) {
+            flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Opens or creates the log file. The log must be {@link #replay replayed} before it accepts writes.
+     *
+     * @param flushIntervalMillis Interval of forcing the log in {@link Durability#PERIODIC} mode, ignored otherwise.
+     */
+    public static WriteAheadLog open(Path path, Durability durability, long flushIntervalMillis) {
+        Preconditions.checkNotNull(path, "Path cannot be null");
+        Preconditions.checkNotNull(durability, "Durability cannot be null");
+        Preconditions.checkArgument(durability != Durability.PERIODIC || flushIntervalMillis > 0,
+                "Flush interval must be positive number");
+        try {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new WriteAheadLog(path, channel, durability, flushIntervalMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-ahead log " + path, e);
+        }
+    }
+
+    public Durability durability() {
+        return durability;
+    }
+
+    /**
+     * Applies the records of the log to the store, cuts off a torn tail and positions the log for appending.
+     *
+     * @return number of records replayed.
+     */
+    synchronized long replay(InMemoryStore store) {
+        Preconditions.checkState(!replayed, "Write-ahead log %s has already been replayed", path);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                writeHeader();
+                replayed = true;
+                return 0;
+            }
+
+            channel.position(0);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+            int magic = in.readInt();
+            int version = in.readInt();
+            Preconditions.checkState(magic == MAGIC, "%s is not a write-ahead log", path);
+            Preconditions.checkState(version == FORMAT_VERSION, "Unsupported write-ahead log format %s", version);
+
+            long position = HEADER_SIZE;
+            long records = 0;
+            CRC32 crc = new CRC32();
+            while (position + FRAME_SIZE <= size) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || position + FRAME_SIZE + length > size) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(store, payload);
+                position += FRAME_SIZE + length;
+                records++;
+            }
+
+            if (position < size) {
+                LOG.warn("Cutting off {} bytes of torn tail of write-ahead log {}.", size - position, path);
+                channel.truncate(position);
+            }
+            channel.position(position);
+            replayed = true;
+            LOG.info("Replayed {} records of write-ahead log {}.", records, path);
+            return records;
+        } catch (EOFException e) {
+            throw new IllegalStateException("Write-ahead log %s has a truncated header".formatted(path), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay write-ahead log " + path, e);
+        }
+    }
+
+    /**
+     * Encodes a put as a record to {@link #append}. Encoding takes no lock, so writers encode before they lock.
+     */
+    static byte[] putRecord(Namespace ns, long id, Object entity) {
+        return record(PUT, ns, id, entity);
+    }
+
+    static byte[] deleteRecord(Namespace ns, long id) {
+        return record(DELETE, ns, id, null);
+    }
+
+    static byte[] clearRecord(Namespace ns) {
+        return record(CLEAR, ns, NO_ID, null);
+    }
+
+    /**
+     * Encodes the writes as one record.
+     */
+    static byte[] batchRecord(List<Write> writes) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * writes.size());
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(BATCH);
+            out.writeInt(writes.size());
+            for (Write write : writes) {
+                encode(out, write.entity() != null ? PUT : DELETE, write.ns(), write.id(), write.entity());
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends a record encoded by one of the {@code *Record} methods.
+     *
+     * @return sequence number of the record, to be passed to {@link #awaitDurable}.
+     */
+    long append(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+
+        synchronized (this) {
+            Preconditions.checkState(replayed, "Write-ahead log %s must be replayed before it is written", path);
+            Preconditions.checkState(!closed, "Write-ahead log %s is closed", path);
+            Preconditions.checkState(failure == null, "Write-ahead log %s failed: %s", path, failure);
+            if (pending.remaining() < FRAME_SIZE + record.length) {
+                pending = grow(pending, FRAME_SIZE + record.length);
+            }
+            pending.putInt(record.length).putInt((int) crc.getValue()).put(record);
+            return ++appended;
+        }
+    }
+
+    /**
+     * Blocks until the record with the given sequence number is durable as configured.
+     */
+    void awaitDurable(long sequence) {
+        switch (durability) {
+            case SYNC -> {
+                forceLock.lock();
+                try {
+                    force(true);
+                } finally {
+                    forceLock.unlock();
+                }
+            }
+            case BATCH -> {
+                while (durable < sequence) {
+                    forceLock.lock();
+                    try {
+                        // a writer which forced the log while this one waited may have covered it already
+                        if (durable < sequence) {
+                            force(false);
+                        }
+                    } finally {
+                        forceLock.unlock();
+                    }
+                }
+            }
+            case PERIODIC -> {
+            }
+        }
+    }
+
+    /**
+     * Drops every record, once their effect is captured by a snapshot. Writers still waiting for the durability of
+     * a dropped record are released. The caller must keep the store from being written meanwhile.
+     */
+    void truncate() {
+        forceLock.lock();
+        try {
+            synchronized (this) {
+                Preconditions.checkState(replayed && !closed, "Write-ahead log %s is not open for writing", path);
+                pending.clear();
+                channel.truncate(HEADER_SIZE);
+                channel.position(HEADER_SIZE);
+                channel.force(true);
+                durable = appended;
+            }
+            LOG.info("Write-ahead log {} was truncated.", path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot truncate write-ahead log " + path, e);
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (flusher != null) {
+            // interrupting a flush would close the channel under it, so a running one is let finish
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        forceLock.lock();
+        try {
+            if (failure == null) {
+                force(false);
+            }
+            channel.close();
+            LOG.info("Write-ahead log {} was closed.", path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close write-ahead log " + path, e);
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    private static byte[] record(byte op, Namespace ns, long id, Object entity) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            encode(new DataOutputStream(bytes), op, ns, id, entity);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes out the pending records and forces them to disk. Must be called holding {@link #forceLock}.
+     * A failed write leaves a gap in the log, so the log refuses any further record.
+     *
+     * @param always Whether to force the log even if there is nothing pending.
+     */
+    private void force(boolean always) {
+        ByteBuffer batch;
+        long upTo;
+        synchronized (this) {
+            if (failure != null) {
+                throw new IllegalStateException("Write-ahead log %s failed: %s".formatted(path, failure));
+            }
+            if (!always && durable >= appended) {
+                return;
+            }
+            batch = pending;
+            pending = spare.clear();
+            upTo = appended;
+        }
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+            durable = upTo;
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+            throw new UncheckedIOException("Cannot write write-ahead log " + path, e);
+        } finally {
+            spare = batch.clear();
+        }
+    }
+
+    private void flushQuietly() {
+        forceLock.lock();
+        try {
+            force(false);
+        } catch (RuntimeException e) {
+            LOG.error("Periodic flush of write-ahead log {} failed.", path, e);
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+        channel.truncate(0);
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+    }
+
+    private static void encode(DataOutputStream out, byte op, Namespace ns, long id, Object entity) throws IOException {
+        out.writeByte(op);
+        out.writeByte(ns.ordinal());
+        out.writeLong(id);
+        if (op == PUT) {
+            EntityCodec.write(out, ns, entity);
+        }
+    }
+
+    private static void apply(InMemoryStore store, byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        if (in.get(0) == BATCH) {
+            in.get();
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                apply(store, in);
+            }
+        } else {
+            apply(store, in);
+        }
+    }
+
+    private static void apply(InMemoryStore store, ByteBuffer in) {
+        byte op = in.get();
+        Namespace ns = Namespace.values()[in.get()];
+        long id = in.getLong();
+        switch (op) {
+            case PUT -> store.save(ns, id, EntityCodec.read(in, ns, id, store));
+            case DELETE -> store.delete(ns, id);
+            case CLEAR -> store.clear(ns);
+            default -> throw new IllegalStateException("Unknown write-ahead log operation " + op);
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < needed) {
+            capacity <<= 1;
+        }
+        return ByteBuffer.allocate(capacity).put(buffer.flip());
+    }
+
+    /**
+     * Put of an entity or, if the entity is {@code null}, delete.
+     */
+    record Write(Namespace ns, long id, Object entity) {
+    }
+}
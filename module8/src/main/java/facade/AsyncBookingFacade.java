@@ -0,0 +1,68 @@
+package facade;
+
+import dao.Cursor;
+import dao.Page;
+import model.Event;
+import model.Ticket;
+import model.User;
+import service.BookingRequest;
+import service.BookingResult;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link BookingFacade}. Every operation has the contract of its {@link BookingFacade}
+ * namesake and runs in the background; the future completes with its result or exceptionally with the exception
+ * it throws. Independent calls run concurrently, so their futures can be combined without waiting for each in turn.
+ */
+public interface AsyncBookingFacade extends AutoCloseable {
+
+    CompletableFuture<Event> getEventById(long id);
+
+    CompletableFuture<List<Event>> getEventsByTitle(String title, int pageSize, int pageNum);
+
+    CompletableFuture<List<Event>> getEventsForDay(Date day, int pageSize, int pageNum);
+
+    CompletableFuture<List<Event>> getEventsBetween(Date from, Date to, int pageSize, int pageNum);
+
+    CompletableFuture<Event> createEvent(Event event);
+
+    CompletableFuture<Event> updateEvent(Event event);
+
+    CompletableFuture<Boolean> deleteEvent(long eventId);
+
+    CompletableFuture<User> getUserById(long userId);
+
+    CompletableFuture<User> getUserByEmail(String email);
+
+    CompletableFuture<List<User>> getUsersByName(String name, int pageSize, int pageNum);
+
+    CompletableFuture<User> createUser(User user);
+
+    CompletableFuture<User> updateUser(User user);
+
+    CompletableFuture<Boolean> deleteUser(long userId);
+
+    CompletableFuture<Ticket> bookTicket(long userId, long eventId, int place, Ticket.Category category);
+
+    CompletableFuture<List<BookingResult>> bookTickets(List<BookingRequest> requests);
+
+    CompletableFuture<List<Ticket>> getBookedTickets(User user, int pageSize, int pageNum);
+
+    CompletableFuture<List<Ticket>> getBookedTickets(Event event, int pageSize, int pageNum);
+
+    CompletableFuture<Page<Ticket>> getBookedTickets(User user, Cursor after, int pageSize);
+
+    CompletableFuture<Page<Ticket>> getBookedTickets(Event event, Cursor after, int pageSize);
+
+    CompletableFuture<Boolean> cancelTicket(long ticketId);
+
+    /**
+     * Stops accepting operations. Operations already accepted still complete. An executor created by the facade
+     * is shut down, a given one is left running.
+     */
+    @Override
+    void close();
+}
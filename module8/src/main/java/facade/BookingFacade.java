@@ -1,8 +1,12 @@
 package facade;
 
+import dao.Cursor;
+import dao.Page;
 import model.Event;
 import model.Ticket;
 import model.User;
+import service.BookingRequest;
+import service.BookingResult;
 
 import java.util.Date;
 import java.util.List;
@@ -38,6 +42,17 @@ public interface BookingFacade {
      */
     List<Event> getEventsForDay(Date day, int pageSize, int pageNum);
 
+    /**
+     * Get list of events dated between the specified dates, both inclusive, ordered by date.
+     * In case nothing was found, empty list is returned.
+     * @param from Lower bound of the event date.
+     * @param to Upper bound of the event date.
+     * @param pageSize Pagination param. Number of events to return on a page.
+     * @param pageNum Pagination param. Number of the page to return. Starts from 1.
+     * @return List of events.
+     */
+    List<Event> getEventsBetween(Date from, Date to, int pageSize, int pageNum);
+
     /**
      * Creates new event. Event id should be auto-generated.
      * @param event Event data.
@@ -47,8 +62,9 @@ public interface BookingFacade {
 
     /**
      * Updates event using given data.
-     * @param event Event data for update. Should have id set.
+     * @param event Event data for update. Should have id set and the version it was read at.
      * @return Updated Event object.
+     * @throws IllegalStateException if the event was updated since it was read.
      */
     Event updateEvent(Event event);
 
@@ -86,13 +102,16 @@ public interface BookingFacade {
      * Creates new user. User id should be auto-generated.
      * @param user User data.
      * @return Created User object.
+     * @throws java.lang.IllegalStateException if the email is already taken by another user.
      */
     User createUser(User user);
 
     /**
      * Updates user using given data.
-     * @param user User data for update. Should have id set.
+     * @param user User data for update. Should have id set and the version it was read at.
      * @return Updated User object.
+     * @throws IllegalStateException if the email is already taken by another user or the user was updated
+     *                               since it was read.
      */
     User updateUser(User user);
 
@@ -114,6 +133,13 @@ public interface BookingFacade {
      */
     Ticket bookTicket(long userId, long eventId, int place, Ticket.Category category);
 
+    /**
+     * Book tickets in bulk. A failed request does not affect the others.
+     * @param requests Bookings to make.
+     * @return Result of every request, in the order of the requests.
+     */
+    List<BookingResult> bookTickets(List<BookingRequest> requests);
+
     /**
      * Get all booked tickets for specified user. Tickets should be sorted by event date in descending order.
      * @param user User
@@ -132,6 +158,24 @@ public interface BookingFacade {
      */
     List<Ticket> getBookedTickets(Event event, int pageSize, int pageNum);
 
+    /**
+     * Get booked tickets for specified user page by page. Tickets are sorted by event date in descending order.
+     * @param user User
+     * @param after Cursor of the previous page, or null to get the first page.
+     * @param pageSize Pagination param. Number of tickets to return on a page.
+     * @return Page of Ticket objects with the cursor of the next page.
+     */
+    Page<Ticket> getBookedTickets(User user, Cursor after, int pageSize);
+
+    /**
+     * Get booked tickets for specified event page by page. Tickets are sorted by user email in ascending order.
+     * @param event Event
+     * @param after Cursor of the previous page, or null to get the first page.
+     * @param pageSize Pagination param. Number of tickets to return on a page.
+     * @return Page of Ticket objects with the cursor of the next page.
+     */
+    Page<Ticket> getBookedTickets(Event event, Cursor after, int pageSize);
+
     /**
      * Cancel ticket with a specified id.
      * @param ticketId Ticket id.
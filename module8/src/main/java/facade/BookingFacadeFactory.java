@@ -4,10 +4,48 @@ import service.EventService;
 import service.TicketService;
 import service.UserService;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class BookingFacadeFactory {
 
     public static BookingFacade create(UserService userService, EventService eventService, TicketService ticketService) {
         return new DefaultBookingFacade(userService, eventService, ticketService);
     }
 
+    /**
+     * Creates an asynchronous facade which runs every operation on a thread of its own: a virtual thread where the
+     * runtime supports them, a pooled daemon thread otherwise. The threads are released on close.
+     *
+     * @param maxConcurrency Maximum number of operations running at a time. Further ones wait in line.
+     */
+    public static AsyncBookingFacade createAsync(BookingFacade facade, int maxConcurrency) {
+        return new DefaultAsyncBookingFacade(facade, newThreadPerTaskExecutor(), maxConcurrency, true);
+    }
+
+    /**
+     * Creates an asynchronous facade which runs operations on the given executor. The executor is not shut down
+     * on close.
+     *
+     * @param maxConcurrency Maximum number of operations running at a time. Further ones wait in line.
+     */
+    public static AsyncBookingFacade createAsync(BookingFacade facade, Executor executor, int maxConcurrency) {
+        return new DefaultAsyncBookingFacade(facade, executor, maxConcurrency, false);
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            // virtual threads are final as of Java 21, while the project targets 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "booking-async-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
 }
@@ -0,0 +1,149 @@
+package facade;
+
+import com.google.common.base.Preconditions;
+import dao.Cursor;
+import dao.Page;
+import model.Event;
+import model.Ticket;
+import model.User;
+import service.BookingRequest;
+import service.BookingResult;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+class DefaultAsyncBookingFacade implements AsyncBookingFacade {
+
+    private final BookingFacade facade;
+    private final Executor executor;
+    private final Executor limited;
+    private final boolean ownsExecutor;
+    private volatile boolean closed;
+
+    /**
+     * @param ownsExecutor Whether the executor is shut down on {@link #close()}.
+     */
+    DefaultAsyncBookingFacade(BookingFacade facade, Executor executor, int maxConcurrency, boolean ownsExecutor) {
+        this.facade = Preconditions.checkNotNull(facade, "Facade cannot be null");
+        this.executor = Preconditions.checkNotNull(executor, "Executor cannot be null");
+        this.limited = new LimitingExecutor(executor, maxConcurrency);
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    @Override
+    public CompletableFuture<Event> getEventById(long id) {
+        return supply(() -> facade.getEventById(id));
+    }
+
+    @Override
+    public CompletableFuture<List<Event>> getEventsByTitle(String title, int pageSize, int pageNum) {
+        return supply(() -> facade.getEventsByTitle(title, pageSize, pageNum));
+    }
+
+    @Override
+    public CompletableFuture<List<Event>> getEventsForDay(Date day, int pageSize, int pageNum) {
+        return supply(() -> facade.getEventsForDay(day, pageSize, pageNum));
+    }
+
+    @Override
+    public CompletableFuture<List<Event>> getEventsBetween(Date from, Date to, int pageSize, int pageNum) {
+        return supply(() -> facade.getEventsBetween(from, to, pageSize, pageNum));
+    }
+
+    @Override
+    public CompletableFuture<Event> createEvent(Event event) {
+        return supply(() -> facade.createEvent(event));
+    }
+
+    @Override
+    public CompletableFuture<Event> updateEvent(Event event) {
+        return supply(() -> facade.updateEvent(event));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteEvent(long eventId) {
+        return supply(() -> facade.deleteEvent(eventId));
+    }
+
+    @Override
+    public CompletableFuture<User> getUserById(long userId) {
+        return supply(() -> facade.getUserById(userId));
+    }
+
+    @Override
+    public CompletableFuture<User> getUserByEmail(String email) {
+        return supply(() -> facade.getUserByEmail(email));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> getUsersByName(String name, int pageSize, int pageNum) {
+        return supply(() -> facade.getUsersByName(name, pageSize, pageNum));
+    }
+
+    @Override
+    public CompletableFuture<User> createUser(User user) {
+        return supply(() -> facade.createUser(user));
+    }
+
+    @Override
+    public CompletableFuture<User> updateUser(User user) {
+        return supply(() -> facade.updateUser(user));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteUser(long userId) {
+        return supply(() -> facade.deleteUser(userId));
+    }
+
+    @Override
+    public CompletableFuture<Ticket> bookTicket(long userId, long eventId, int place, Ticket.Category category) {
+        return supply(() -> facade.bookTicket(userId, eventId, place, category));
+    }
+
+    @Override
+    public CompletableFuture<List<BookingResult>> bookTickets(List<BookingRequest> requests) {
+        return supply(() -> facade.bookTickets(requests));
+    }
+
+    @Override
+    public CompletableFuture<List<Ticket>> getBookedTickets(User user, int pageSize, int pageNum) {
+        return supply(() -> facade.getBookedTickets(user, pageSize, pageNum));
+    }
+
+    @Override
+    public CompletableFuture<List<Ticket>> getBookedTickets(Event event, int pageSize, int pageNum) {
+        return supply(() -> facade.getBookedTickets(event, pageSize, pageNum));
+    }
+
+    @Override
+    public CompletableFuture<Page<Ticket>> getBookedTickets(User user, Cursor after, int pageSize) {
+        return supply(() -> facade.getBookedTickets(user, after, pageSize));
+    }
+
+    @Override
+    public CompletableFuture<Page<Ticket>> getBookedTickets(Event event, Cursor after, int pageSize) {
+        return supply(() -> facade.getBookedTickets(event, after, pageSize));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> cancelTicket(long ticketId) {
+        return supply(() -> facade.cancelTicket(ticketId));
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (ownsExecutor && executor instanceof ExecutorService service) {
+            service.shutdown();
+        }
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        Preconditions.checkState(!closed, "Facade is closed");
+        return CompletableFuture.supplyAsync(operation, limited);
+    }
+}
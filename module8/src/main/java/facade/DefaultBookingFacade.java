@@ -1,8 +1,12 @@
 package facade;
 
+import dao.Cursor;
+import dao.Page;
 import model.Event;
 import model.Ticket;
 import model.User;
+import service.BookingRequest;
+import service.BookingResult;
 import service.EventService;
 import service.TicketService;
 import service.UserService;
@@ -35,6 +39,10 @@ class DefaultBookingFacade implements BookingFacade {
         return eventService.getEventsForDay(day, pageSize, pageNum);
     }
 
+    public List<Event> getEventsBetween(Date from, Date to, int pageSize, int pageNum) {
+        return eventService.getEventsBetween(from, to, pageSize, pageNum);
+    }
+
     public Event createEvent(Event event) {
         return eventService.createEvent(event);
     }
@@ -96,6 +104,10 @@ class DefaultBookingFacade implements BookingFacade {
         return ticketService.bookTicket(userId, eventId, place, category);
     }
 
+    public List<BookingResult> bookTickets(List<BookingRequest> requests) {
+        return ticketService.bookTickets(requests);
+    }
+
     public List<Ticket> getBookedTickets(User user, int pageSize, int pageNum) {
         return ticketService.getBookedTickets(user, pageSize, pageNum);
     }
@@ -104,6 +116,14 @@ class DefaultBookingFacade implements BookingFacade {
         return ticketService.getBookedTickets(event, pageSize, pageNum);
     }
 
+    public Page<Ticket> getBookedTickets(User user, Cursor after, int pageSize) {
+        return ticketService.getBookedTickets(user, after, pageSize);
+    }
+
+    public Page<Ticket> getBookedTickets(Event event, Cursor after, int pageSize) {
+        return ticketService.getBookedTickets(event, after, pageSize);
+    }
+
     public boolean cancelTicket(long ticketId) {
         return ticketService.cancelTicket(ticketId);
     }
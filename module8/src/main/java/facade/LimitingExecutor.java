@@ -0,0 +1,69 @@
+package facade;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs at most a given number of tasks on the delegate at a time. Further tasks wait in a queue instead of holding
+ * a thread, and each finishing task hands its slot over to the next one in line.
+ */
+final class LimitingExecutor implements Executor {
+
+    private final Executor delegate;
+    private final int limit;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+
+    LimitingExecutor(Executor delegate, int limit) {
+        Preconditions.checkArgument(limit > 0, "Concurrency limit must be positive number");
+        this.delegate = Preconditions.checkNotNull(delegate, "Executor cannot be null");
+        this.limit = limit;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Preconditions.checkNotNull(task, "Task cannot be null");
+        queue.add(task);
+        drain();
+    }
+
+    private void drain() {
+        while (!queue.isEmpty()) {
+            int current = running.get();
+            if (current >= limit) {
+                // the running task which finishes next takes the queued ones over
+                return;
+            }
+            if (!running.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Runnable task = queue.poll();
+            if (task == null) {
+                running.decrementAndGet();
+                continue;
+            }
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        running.decrementAndGet();
+                        drain();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the delegate was shut down, a task accepted before still runs, on the thread handing it over
+                try {
+                    task.run();
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package load;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Writes data sets of any size in the format of {@code test-data.csv}, to be loaded by {@link config.StoreData}.
+ * <p>
+ * Users come first, then events, then tickets, with consecutive ids from 1. Each ticket is booked by a user picked
+ * uniformly, for an event picked by a Zipf distribution, so that a few events sell most of the tickets, at the next
+ * free place of the event. The same seed writes the same data.
+ */
+public final class DatasetGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DatasetGenerator.class);
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 2, 4);
+    private static final int DAYS = 365;
+
+    private final int users;
+    private final int events;
+    private final long tickets;
+    private final double zipfExponent;
+    private final long seed;
+
+    public DatasetGenerator(int users, int events, long tickets, double zipfExponent, long seed) {
+        Preconditions.checkArgument(users > 0, "Users must be positive number");
+        Preconditions.checkArgument(events > 0, "Events must be positive number");
+        Preconditions.checkArgument(tickets >= 0, "Tickets cannot be negative");
+        Preconditions.checkArgument(zipfExponent >= 0, "Zipf exponent cannot be negative");
+        this.users = users;
+        this.events = events;
+        this.tickets = tickets;
+        this.zipfExponent = zipfExponent;
+        this.seed = seed;
+    }
+
+    public void write(Path path) {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Data set could not be written to " + path, e);
+        }
+    }
+
+    public void write(Writer output) throws IOException {
+        BufferedWriter writer = output instanceof BufferedWriter buffered ? buffered : new BufferedWriter(output);
+        long id = 1;
+        for (int i = 0; i < users; i++, id++) {
+            writer.write("user," + id + ",User" + id + ",user" + id + "@email.org");
+            writer.newLine();
+        }
+
+        long firstEventId = id;
+        for (int i = 0; i < events; i++, id++) {
+            writer.write("event," + id + ",Event" + id + "," + FIRST_DAY.plusDays(i % DAYS));
+            writer.newLine();
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        ZipfDistribution popularity = new ZipfDistribution(events, zipfExponent);
+        int[] placesTaken = new int[events];
+        for (long i = 0; i < tickets; i++, id++) {
+            int event = popularity.sample(random);
+            long userId = 1 + random.nextInt(users);
+            writer.write("ticket," + id + ",STANDARD," + userId + "," + (firstEventId + event) + ","
+                    + placesTaken[event]++);
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Takes arguments of the form {@code key=value}, each key defaulting as shown:
+     * {@code users=10000 events=1000 tickets=1000000 zipf=1.0 seed=42 file=load-data.csv}.
+     */
+    public static void main(String[] args) {
+        Map<String, String> values = LoadSettings.arguments(args,
+                Set.of("users", "events", "tickets", "zipf", "seed", "file"));
+        Path path = Path.of(values.getOrDefault("file", "load-data.csv"));
+        DatasetGenerator generator = new DatasetGenerator(
+                Integer.parseInt(values.getOrDefault("users", "10000")),
+                Integer.parseInt(values.getOrDefault("events", "1000")),
+                Long.parseLong(values.getOrDefault("tickets", "1000000")),
+                Double.parseDouble(values.getOrDefault("zipf", "1.0")),
+                Long.parseLong(values.getOrDefault("seed", "42")));
+
+        generator.write(path);
+        LOG.info("Data set written to {}.", path.toAbsolutePath());
+    }
+}
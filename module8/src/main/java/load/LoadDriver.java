@@ -0,0 +1,245 @@
+package load;
+
+import com.google.common.base.Preconditions;
+import dao.Namespace;
+import dao.Store;
+import facade.BookingFacade;
+import metrics.LatencyHistogram;
+import model.Event;
+import model.Ticket;
+import model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+
+/**
+ * Drives a {@link BookingFacade} with a mix of reads, bookings and cancellations at a fixed rate, and reports the
+ * throughput and latencies reached every report interval.
+ * <p>
+ * Operations are started open-loop: the i-th one is due {@code i / rate} seconds after the start, whether the earlier
+ * ones completed or not, and its latency is measured from then. An operation waiting for one of the
+ * {@code concurrency} workers is therefore counted as slow, instead of the driver slowing down along with the system
+ * and hiding the stall, which is known as coordinated omission.
+ * <p>
+ * Events are picked by a Zipf distribution over a shuffled order of them, users and places uniformly. Cancellations
+ * cancel tickets booked earlier in the run and read an event instead while there are none.
+ */
+public final class LoadDriver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadDriver.class);
+
+    private final BookingFacade facade;
+    private final LoadSettings settings;
+    private final long[] userIds;
+    private final long[] eventIds;
+    private final Consumer<LoadReport> reports;
+    private final ZipfDistribution popularity;
+
+    private final Queue<Long> booked = new ConcurrentLinkedQueue<>();
+    private final LatencyHistogram total = new LatencyHistogram("total");
+    private final LongAdder totalFailed = new LongAdder();
+    private final LongAdder totalConflicts = new LongAdder();
+    private final AtomicReference<Interval> current = new AtomicReference<>();
+
+    private long start;
+
+    /**
+     * @param eventIds Ids of the events to book, which get their popularity in a random order.
+     * @param reports  Receives the report of every interval, from a thread of the driver.
+     */
+    public LoadDriver(BookingFacade facade, LoadSettings settings, long[] userIds, long[] eventIds,
+                      Consumer<LoadReport> reports) {
+        Preconditions.checkArgument(userIds.length > 0, "Users cannot be empty");
+        Preconditions.checkArgument(eventIds.length > 0, "Events cannot be empty");
+        this.facade = Preconditions.checkNotNull(facade, "Facade cannot be null");
+        this.settings = Preconditions.checkNotNull(settings, "Settings cannot be null");
+        this.userIds = userIds.clone();
+        this.eventIds = shuffled(eventIds);
+        this.reports = Preconditions.checkNotNull(reports, "Reports cannot be null");
+        this.popularity = new ZipfDistribution(eventIds.length, settings.zipfExponent());
+    }
+
+    /**
+     * Runs for the duration of the settings, then waits for the operations started to complete.
+     *
+     * @return the report of the whole run.
+     */
+    public LoadReport run() throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(settings.concurrency());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        start = System.nanoTime();
+        current.set(new Interval(start));
+        long interval = settings.reportInterval().toNanos();
+        reporter.scheduleAtFixedRate(this::report, interval, interval, TimeUnit.NANOSECONDS);
+        try {
+            dispatch(workers);
+            workers.shutdown();
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                LOG.info("Waiting for the operations started to complete.");
+            }
+        } finally {
+            workers.shutdownNow();
+            reporter.shutdownNow();
+            reporter.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        report();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        return LoadReport.of(elapsed, elapsed, total.snapshot(), totalFailed.sum(), totalConflicts.sum());
+    }
+
+    private void dispatch(ExecutorService workers) throws InterruptedException {
+        long operations = settings.duration().toNanos() * settings.rate() / TimeUnit.SECONDS.toNanos(1);
+        for (long i = 0; i < operations; i++) {
+            long due = start + i * TimeUnit.SECONDS.toNanos(1) / settings.rate();
+            long delay;
+            while ((delay = due - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+            workers.execute(() -> perform(due));
+        }
+    }
+
+    private void perform(long due) {
+        RandomGenerator random = ThreadLocalRandom.current();
+        boolean conflict = false;
+        boolean failed = false;
+        try {
+            switch (settings.mix().pick(random)) {
+                case READ -> read(random);
+                case BOOK -> {
+                    Ticket ticket = facade.bookTicket(userIds[random.nextInt(userIds.length)], event(random),
+                            random.nextInt(settings.places()), Ticket.Category.STANDARD);
+                    booked.add(ticket.getId());
+                }
+                case CANCEL -> {
+                    Long ticketId = booked.poll();
+                    if (ticketId == null) {
+                        read(random);
+                    } else {
+                        facade.cancelTicket(ticketId);
+                    }
+                }
+            }
+        } catch (IllegalStateException e) {
+            conflict = true;
+        } catch (RuntimeException e) {
+            LOG.debug("Operation failed.", e);
+            failed = true;
+        } finally {
+            long latency = System.nanoTime() - due;
+            total.record(latency);
+            if (conflict) {
+                totalConflicts.increment();
+            }
+            if (failed) {
+                totalFailed.increment();
+            }
+            Interval interval = enter();
+            try {
+                interval.latencies.record(latency);
+                if (conflict) {
+                    interval.conflicts.increment();
+                }
+                if (failed) {
+                    interval.failed.increment();
+                }
+            } finally {
+                interval.recording.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Registers as recording into the current interval. An interval swapped out before the registration took effect
+     * is left for the next one, so that {@link #report()} never misses an operation of the interval it reports.
+     */
+    private Interval enter() {
+        while (true) {
+            Interval interval = current.get();
+            interval.recording.incrementAndGet();
+            if (current.get() == interval) {
+                return interval;
+            }
+            interval.recording.decrementAndGet();
+        }
+    }
+
+    private void read(RandomGenerator random) {
+        facade.getEventById(event(random));
+    }
+
+    private long event(RandomGenerator random) {
+        return eventIds[popularity.sample(random)];
+    }
+
+    /**
+     * Reports the interval which ends now, once the operations still recording into it are done. Operations are
+     * counted in the interval they complete in.
+     */
+    private void report() {
+        long now = System.nanoTime();
+        Interval ended = current.getAndSet(new Interval(now));
+        while (ended.recording.get() != 0) {
+            Thread.onSpinWait();
+        }
+        reports.accept(LoadReport.of(Duration.ofNanos(now - start), Duration.ofNanos(now - ended.start),
+                ended.latencies.snapshot(), ended.failed.sum(), ended.conflicts.sum()));
+    }
+
+    private static long[] shuffled(long[] ids) {
+        List<Long> order = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            order.add(id);
+        }
+        Collections.shuffle(order);
+        return order.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static final class Interval {
+        private final long start;
+        private final LatencyHistogram latencies = new LatencyHistogram("interval");
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final AtomicInteger recording = new AtomicInteger();
+
+        private Interval(long start) {
+            this.start = start;
+        }
+    }
+
+    /**
+     * Runs against the application configured as usual, e.g. with a large data file given by
+     * {@code -Dstore.file.location}, taking the arguments of {@link LoadSettings#parse(String...)}.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        LoadSettings settings = LoadSettings.parse(args);
+        try (ConfigurableApplicationContext ctx = new ClassPathXmlApplicationContext("beans.xml")) {
+            Store store = ctx.getBean("store", Store.class);
+            long[] userIds = store.stream(Namespace.USER).mapToLong(user -> ((User) user).getId()).toArray();
+            long[] eventIds = store.stream(Namespace.EVENT).mapToLong(event -> ((Event) event).getId()).toArray();
+            LOG.info("Driving {} users and {} events with {}.", userIds.length, eventIds.length, settings);
+
+            LoadDriver driver = new LoadDriver(ctx.getBean("bookingFacade", BookingFacade.class), settings,
+                    userIds, eventIds, report -> LOG.info("{}", report));
+            LOG.info("Total {}", driver.run());
+        }
+    }
+}
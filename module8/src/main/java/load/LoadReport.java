@@ -0,0 +1,38 @@
+package load;
+
+import metrics.LatencyHistogram;
+
+import java.time.Duration;
+
+/**
+ * Operations completed over a period of a run, with their latencies measured from the time they were meant to
+ * start.
+ *
+ * @param elapsed    Time from the start of the run to the end of the period.
+ * @param completed  Operations completed, successfully or not.
+ * @param failed     Operations which failed for another reason than a place being taken already.
+ * @param conflicts  Bookings of a place taken already.
+ * @param throughput Operations completed per second.
+ */
+public record LoadReport(Duration elapsed, long completed, long failed, long conflicts, double throughput,
+                         long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+
+    static LoadReport of(Duration elapsed, Duration period, LatencyHistogram.Snapshot latencies, long failed,
+                         long conflicts) {
+        double seconds = Math.max(1, period.toNanos()) / 1e9;
+        return new LoadReport(elapsed, latencies.count(), failed, conflicts, latencies.count() / seconds,
+                latencies.valueAtPercentile(50), latencies.valueAtPercentile(90),
+                latencies.valueAtPercentile(99), latencies.valueAtPercentile(99.9), latencies.max());
+    }
+
+    @Override
+    public String toString() {
+        return "%6.1fs %9d ops %9.1f ops/s %6d failed %6d conflicts | p50 %8.3f p90 %8.3f p99 %8.3f p999 %8.3f max %8.3f ms"
+                .formatted(elapsed.toMillis() / 1e3, completed, throughput, failed, conflicts,
+                        millis(p50Nanos), millis(p90Nanos), millis(p99Nanos), millis(p999Nanos), millis(maxNanos));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
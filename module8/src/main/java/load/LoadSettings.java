@@ -0,0 +1,65 @@
+package load;
+
+import com.google.common.base.Preconditions;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parameters of a run of the {@link LoadDriver}.
+ *
+ * @param rate           Operations started per second, whether the earlier ones completed or not.
+ * @param duration       Time during which operations are started.
+ * @param reportInterval Period of the reports of throughput and latencies.
+ * @param concurrency    Number of operations running at a time, further ones wait for their turn.
+ * @param zipfExponent   Skew of the popularity of events, 0 for none.
+ * @param mix            Weights of the operations.
+ * @param places         Number of places of an event, bookings pick one of them at random.
+ */
+public record LoadSettings(int rate, Duration duration, Duration reportInterval, int concurrency,
+                           double zipfExponent, WorkloadMix mix, int places) {
+
+    public LoadSettings {
+        Preconditions.checkArgument(rate > 0, "Rate must be positive number");
+        Preconditions.checkArgument(!duration.isNegative() && !duration.isZero(), "Duration must be positive");
+        Preconditions.checkArgument(!reportInterval.isNegative() && !reportInterval.isZero(),
+                "Report interval must be positive");
+        Preconditions.checkArgument(concurrency > 0, "Concurrency must be positive number");
+        Preconditions.checkArgument(zipfExponent >= 0, "Zipf exponent cannot be negative");
+        Preconditions.checkNotNull(mix, "Mix cannot be null");
+        Preconditions.checkArgument(places > 0, "Places must be positive number");
+    }
+
+    /**
+     * Parses arguments of the form {@code key=value}, each key defaulting as shown:
+     * {@code rate=1000 duration=60 report=5 concurrency=64 zipf=1.0 mix=80:15:5 places=1000}, times in seconds.
+     */
+    public static LoadSettings parse(String... args) {
+        Map<String, String> values = arguments(args,
+                Set.of("rate", "duration", "report", "concurrency", "zipf", "mix", "places"));
+        return new LoadSettings(
+                Integer.parseInt(values.getOrDefault("rate", "1000")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("report", "5"))),
+                Integer.parseInt(values.getOrDefault("concurrency", "64")),
+                Double.parseDouble(values.getOrDefault("zipf", "1.0")),
+                WorkloadMix.parse(values.getOrDefault("mix", "80:15:5")),
+                Integer.parseInt(values.getOrDefault("places", "1000")));
+    }
+
+    /**
+     * @return the values of the {@code key=value} arguments by key, each key being one of those given.
+     */
+    static Map<String, String> arguments(String[] args, Set<String> keys) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            Preconditions.checkArgument(pair.length == 2, "Argument %s is not key=value", arg);
+            Preconditions.checkArgument(keys.contains(pair[0]), "Unknown argument %s, expected one of %s", arg, keys);
+            values.put(pair[0], pair[1]);
+        }
+        return values;
+    }
+}
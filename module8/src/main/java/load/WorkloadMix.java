@@ -0,0 +1,42 @@
+package load;
+
+import com.google.common.base.Preconditions;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Relative weights of the operations of a workload.
+ *
+ * @param read   Weight of looking up an event.
+ * @param book   Weight of booking a ticket.
+ * @param cancel Weight of cancelling a ticket booked before.
+ */
+public record WorkloadMix(int read, int book, int cancel) {
+
+    public enum Operation {
+        READ, BOOK, CANCEL
+    }
+
+    public WorkloadMix {
+        Preconditions.checkArgument(read >= 0 && book >= 0 && cancel >= 0, "Weights cannot be negative");
+        Preconditions.checkArgument(read + book + cancel > 0, "At least one weight must be positive");
+    }
+
+    /**
+     * Parses weights given as {@code read:book:cancel}, e.g. {@code 80:15:5}.
+     */
+    public static WorkloadMix parse(String value) {
+        String[] weights = value.split(":");
+        Preconditions.checkArgument(weights.length == 3, "Mix %s is not read:book:cancel", value);
+        return new WorkloadMix(Integer.parseInt(weights[0]), Integer.parseInt(weights[1]),
+                Integer.parseInt(weights[2]));
+    }
+
+    public Operation pick(RandomGenerator random) {
+        int draw = random.nextInt(read + book + cancel);
+        if (draw < read) {
+            return Operation.READ;
+        }
+        return draw < read + book ? Operation.BOOK : Operation.CANCEL;
+    }
+}
@@ -0,0 +1,43 @@
+package load;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Ranks drawn with probability falling off as a power of the rank: rank {@code k}, from 0, is drawn with probability
+ * proportional to {@code 1 / (k + 1)^exponent}. An exponent of 0 draws every rank equally, about 1 is typical of the
+ * popularity of items on the web.
+ * <p>
+ * The cumulative distribution is kept in an array of one double per rank, a draw is a binary search in it.
+ */
+public final class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    public ZipfDistribution(int size, double exponent) {
+        Preconditions.checkArgument(size > 0, "Size must be positive number");
+        Preconditions.checkArgument(exponent >= 0, "Exponent cannot be negative");
+
+        cumulative = new double[size];
+        double sum = 0;
+        for (int k = 0; k < size; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < size; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    public int size() {
+        return cumulative.length;
+    }
+
+    public int sample(RandomGenerator random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,76 @@
+package metrics;
+
+import com.google.common.base.Preconditions;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Times every method of an interface, e.g. a service, by a proxy in front of its implementation.
+ * <p>
+ * Each method gets the {@link LatencyHistogram} named after the simple name of the interface and the method, with
+ * the parameter types for overloaded ones, e.g. {@code TicketService.getBookedTickets(User,int,int)}. Calls which
+ * throw are timed as well.
+ */
+public final class Instrumentation {
+
+    private Instrumentation() {
+    }
+
+    public static <T> T timed(Class<T> type, T target) {
+        Preconditions.checkNotNull(type, "Type cannot be null");
+        Preconditions.checkNotNull(target, "Target cannot be null");
+        Preconditions.checkArgument(type.isInterface(), "%s is not an interface", type.getName());
+
+        Map<Method, LatencyHistogram> histograms = new HashMap<>();
+        Map<String, Long> overloads = Arrays.stream(type.getMethods())
+                .collect(Collectors.groupingBy(Method::getName, Collectors.counting()));
+        for (Method method : type.getMethods()) {
+            histograms.put(method, Metrics.latency(nameOf(type, method, overloads.get(method.getName()) > 1)));
+        }
+
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new TimingHandler(target, histograms)));
+    }
+
+    private static String nameOf(Class<?> type, Method method, boolean overloaded) {
+        String name = type.getSimpleName() + "." + method.getName();
+        if (!overloaded) {
+            return name;
+        }
+        return Arrays.stream(method.getParameterTypes())
+                .map(Class::getSimpleName)
+                .collect(Collectors.joining(",", name + "(", ")"));
+    }
+
+    private record TimingHandler(Object target, Map<Method, LatencyHistogram> histograms) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            LatencyHistogram histogram = histograms.get(method);
+            if (histogram == null || !Metrics.recording()) {
+                return call(method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return call(method, args);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
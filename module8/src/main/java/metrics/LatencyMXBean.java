@@ -0,0 +1,21 @@
+package metrics;
+
+/**
+ * Latency of one operation, in microseconds, since it was first called or last reset.
+ */
+public interface LatencyMXBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getMaxMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+}
@@ -0,0 +1,96 @@
+package metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the latency histograms and query counters of the application, each exposed as an MBean of the
+ * platform server under the {@code booking} domain as it is created.
+ * <p>
+ * Recording is switched on and off at runtime through {@code booking:type=Metrics}. While it is off, instrumented
+ * code does not read the clock and queries are not counted.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Metrics.class);
+
+    static final String DOMAIN = "booking";
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    private static final Map<String, LatencyHistogram> LATENCIES = new ConcurrentHashMap<>();
+    private static final Map<String, QueryCounter> QUERIES = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled = true;
+
+    static {
+        register("type=Metrics", INSTANCE);
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Sets whether to record from now on, meant to be called once on start.
+     *
+     * @return the registry, to be managed as a bean.
+     */
+    public static Metrics configure(boolean enabled) {
+        Metrics.enabled = enabled;
+        return INSTANCE;
+    }
+
+    public static boolean recording() {
+        return enabled;
+    }
+
+    public static LatencyHistogram latency(String name) {
+        return LATENCIES.computeIfAbsent(name, key -> {
+            LatencyHistogram histogram = new LatencyHistogram(key);
+            register("type=Latency,name=" + ObjectName.quote(key), histogram);
+            return histogram;
+        });
+    }
+
+    public static QueryCounter query(String name) {
+        return QUERIES.computeIfAbsent(name, key -> {
+            QueryCounter counter = new QueryCounter(key);
+            register("type=Query,name=" + ObjectName.quote(key), counter);
+            return counter;
+        });
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+        LOG.info("Metrics were switched {}.", enabled ? "on" : "off");
+    }
+
+    @Override
+    public void reset() {
+        LATENCIES.values().forEach(LatencyHistogram::reset);
+        QUERIES.values().forEach(QueryCounter::reset);
+    }
+
+    private static void register(String properties, Object mbean) {
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+            }
+        } catch (JMException e) {
+            LOG.warn("Metrics {} could not be exposed over JMX.", properties, e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package metrics;
+
+/**
+ * Switch of the whole instrumentation, which can be flipped at runtime.
+ */
+public interface MetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Clears every histogram and counter.
+     */
+    void reset();
+}
@@ -0,0 +1,79 @@
+package metrics;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Counts the entities a query scans and returns. Queries are lazy, so only what the caller consumes is counted.
+ */
+public final class QueryCounter implements QueryMXBean {
+
+    private final String name;
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder returned = new LongAdder();
+
+    QueryCounter(String name) {
+        this.name = Preconditions.checkNotNull(name, "Name cannot be null");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Counts the query and the entities read from the stream, which are to be checked whether they match.
+     */
+    public <T> Stream<T> scanning(Stream<T> candidates) {
+        if (!Metrics.recording()) {
+            return candidates;
+        }
+        queries.increment();
+        return candidates.peek(entity -> scanned.increment());
+    }
+
+    /**
+     * Counts the query and the ids read from the stream, whose entities are to be looked up.
+     */
+    public LongStream scanning(LongStream candidates) {
+        if (!Metrics.recording()) {
+            return candidates;
+        }
+        queries.increment();
+        return candidates.peek(id -> scanned.increment());
+    }
+
+    /**
+     * Counts the entities read from the stream, which are the matching ones.
+     */
+    public <T> Stream<T> returning(Stream<T> matches) {
+        if (!Metrics.recording()) {
+            return matches;
+        }
+        return matches.peek(entity -> returned.increment());
+    }
+
+    public void reset() {
+        queries.reset();
+        scanned.reset();
+        returned.reset();
+    }
+
+    @Override
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getScanned() {
+        return scanned.sum();
+    }
+
+    @Override
+    public long getReturned() {
+        return returned.sum();
+    }
+}
@@ -0,0 +1,22 @@
+package metrics;
+
+/**
+ * Work of one DAO query since it was first run or last reset.
+ */
+public interface QueryMXBean {
+
+    /**
+     * @return number of times the query was run.
+     */
+    long getQueries();
+
+    /**
+     * @return number of entities the queries read to check whether they match.
+     */
+    long getScanned();
+
+    /**
+     * @return number of entities the queries returned, which a caller reading a page only is passed on.
+     */
+    long getReturned();
+}
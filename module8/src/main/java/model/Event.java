@@ -2,7 +2,7 @@ package model;
 
 import java.util.Date;
 
-public interface Event {
+public interface Event extends Versioned {
     /**
      * Event id. UNIQUE.
      * @return Event Id
@@ -7,6 +7,7 @@ class EventEntity implements Event {
     private long id;
     private String title;
     private Date date;
+    private long version;
 
     public EventEntity(String title, Date date) {
         this(Long.MIN_VALUE, title, date);
@@ -47,4 +48,14 @@ class EventEntity implements Event {
     public void setDate(Date date) {
         this.date = date;
     }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
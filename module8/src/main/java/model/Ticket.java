@@ -1,6 +1,6 @@
 package model;
 
-public interface Ticket {
+public interface Ticket extends Versioned {
     enum Category {STANDARD, PREMIUM, BAR}
 
     /**
@@ -9,6 +9,7 @@ class TicketEntity implements Ticket {
     private final User user;
     private Category category;
     private int place;
+    private long version;
 
     public TicketEntity(long id, Event event, User user, Category category, int place) {
         this.id = id;
@@ -26,6 +27,7 @@ class TicketEntity implements Ticket {
 
     public TicketEntity(TicketEntity ticket) {
         this(ticket.id, ticket.event, ticket.user, ticket.category, ticket.place);
+        this.version = ticket.version;
     }
 
     @Override
@@ -79,4 +81,14 @@ class TicketEntity implements Ticket {
     public void setPlace(int place) {
         this.place = place;
     }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -10,8 +10,18 @@ public class TicketFactory {
         return new TicketEntity(event, user, category, place);
     }
 
+    /**
+     * Copies a ticket. Tickets other than entities, such as the views of an off-heap store, carry ids only, so the
+     * copy refers to an event and a user holding these ids.
+     */
     public static Ticket clone(Ticket ticket) {
-        return new TicketEntity((TicketEntity) ticket);
+        if (ticket instanceof TicketEntity entity) {
+            return new TicketEntity(entity);
+        }
+        TicketEntity copy = new TicketEntity(ticket.getId(), EventFactory.create(ticket.getEventId(), null, null),
+                UserFactory.create(ticket.getUserId(), null, null), ticket.getCategory(), ticket.getPlace());
+        copy.setVersion(ticket.getVersion());
+        return copy;
     }
 
 
@@ -1,6 +1,6 @@
 package model;
 
-public interface User {
+public interface User extends Versioned {
     /**
      * User Id. UNIQUE.
      * @return User Id.
@@ -4,6 +4,7 @@ class UserEntity implements User {
     private long id;
     private String name;
     private String email;
+    private long version;
 
     public UserEntity(String name, String email) {
         this(Long.MIN_VALUE, name, email);
@@ -44,4 +45,14 @@ class UserEntity implements User {
     public void setEmail(String email) {
         this.email = email;
     }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
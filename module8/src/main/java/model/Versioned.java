@@ -0,0 +1,13 @@
+package model;
+
+/**
+ * Entity stamped with the version of its stored state, so that an update based on a stale read can be detected.
+ */
+public interface Versioned {
+    /**
+     * Version of the stored state, incremented by every update. {@code 0} for an entity which was never updated.
+     * @return Version.
+     */
+    long getVersion();
+    void setVersion(long version);
+}
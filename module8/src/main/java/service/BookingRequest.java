@@ -0,0 +1,10 @@
+package service;
+
+import model.Ticket;
+
+/**
+ * One booking of a {@link TicketService#bookTickets batch}, with the arguments of
+ * {@link TicketService#bookTicket(long, long, int, Ticket.Category)}.
+ */
+public record BookingRequest(long userId, long eventId, int place, Ticket.Category category) {
+}
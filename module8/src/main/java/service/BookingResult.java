@@ -0,0 +1,21 @@
+package service;
+
+import model.Ticket;
+
+/**
+ * Outcome of a {@link BookingRequest}: the booked ticket or the reason the booking failed.
+ */
+public record BookingResult(BookingRequest request, Ticket ticket, String failure) {
+
+    public static BookingResult booked(BookingRequest request, Ticket ticket) {
+        return new BookingResult(request, ticket, null);
+    }
+
+    public static BookingResult failed(BookingRequest request, String failure) {
+        return new BookingResult(request, null, failure);
+    }
+
+    public boolean isBooked() {
+        return ticket != null;
+    }
+}
@@ -0,0 +1,32 @@
+package service;
+
+import dao.StoreListener;
+
+/**
+ * Drops the cached entities the store changes, including those changed bypassing the caching service.
+ */
+final class CacheInvalidator implements StoreListener {
+
+    private final TinyLfuCache<Long, ?> cache;
+
+    CacheInvalidator(TinyLfuCache<Long, ?> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void afterPut(long id, Object previous, Object current) {
+        if (previous != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public void afterRemove(long id, Object previous) {
+        cache.invalidate(id);
+    }
+
+    @Override
+    public void afterClear() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,23 @@
+package service;
+
+/**
+ * Counts of a cache since it was created.
+ *
+ * @param hitCount      Lookups answered by the cache.
+ * @param missCount     Lookups passed on to the cached service, whether it found the entity or not.
+ * @param evictionCount Entities dropped to stay within the bound, not counting invalidations.
+ */
+public record CacheStats(long hitCount, long missCount, long evictionCount) {
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * @return Ratio of lookups answered by the cache, 1 if there was none.
+     */
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+}
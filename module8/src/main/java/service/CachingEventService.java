@@ -0,0 +1,189 @@
+package service;
+
+import com.google.common.base.Preconditions;
+import dao.Namespace;
+import dao.Store;
+import dao.StoreListener;
+import model.Event;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decorates an {@link EventService} with bounded caches of {@link #getEventById events by id} and of
+ * {@link #getEventsByTitle pages of title searches}, which creates, updates and deletes made through it invalidate.
+ * Changes bypassing it are seen only if it listens to the store, otherwise once the entry is evicted. Other queries
+ * are passed on as they are.
+ * <p>
+ * A change of an event drops the cached pages of only those titles the old or the new title of the event contains,
+ * as no other search can find it. Every cached title is tested, which is cheap as long as events change far less
+ * often than they are searched.
+ */
+public class CachingEventService implements EventService {
+
+    static final long DEFAULT_MAXIMUM_PAGES = 1024;
+
+    private final EventService delegate;
+
+    private final TinyLfuCache<Long, Event> cache;
+
+    private final TinyLfuCache<TitlePage, List<Event>> pages;
+
+    private final boolean listening;
+
+    public CachingEventService(EventService delegate, long maximumSize) {
+        this(delegate, new TinyLfuCache<>(maximumSize), DEFAULT_MAXIMUM_PAGES, null);
+    }
+
+    /**
+     * @param store Store the events are kept in, whose changes invalidate the cache as well.
+     */
+    public CachingEventService(EventService delegate, long maximumSize, Store store) {
+        this(delegate, maximumSize, DEFAULT_MAXIMUM_PAGES, store);
+    }
+
+    /**
+     * @param maximumPages Number of pages of title searches to keep.
+     * @param store        Store the events are kept in, whose changes invalidate the cache as well.
+     */
+    public CachingEventService(EventService delegate, long maximumSize, long maximumPages, Store store) {
+        this(delegate, new TinyLfuCache<>(maximumSize), maximumPages,
+                Preconditions.checkNotNull(store, "Store cannot be null"));
+    }
+
+    /**
+     * @param weigher Weight of an event, e.g. its estimated size in bytes, which the cached events together stay
+     *                within the maximum weight of.
+     */
+    public CachingEventService(EventService delegate, long maximumWeight, ToIntFunction<Event> weigher) {
+        this(delegate, new TinyLfuCache<>(maximumWeight, weigher), DEFAULT_MAXIMUM_PAGES, null);
+    }
+
+    private CachingEventService(EventService delegate, TinyLfuCache<Long, Event> cache, long maximumPages,
+                                Store store) {
+        this.delegate = Preconditions.checkNotNull(delegate, "Event service cannot be null");
+        this.cache = cache;
+        this.pages = new TinyLfuCache<>(maximumPages);
+        this.listening = store != null;
+        if (store != null) {
+            store.addListener(Namespace.EVENT, new Invalidator());
+        }
+    }
+
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    public CacheStats pageCacheStats() {
+        return pages.stats();
+    }
+
+    @Override
+    public Event getEventById(long eventId) {
+        return cache.get(eventId, delegate::getEventById);
+    }
+
+    /**
+     * @return List of events, which cannot be modified.
+     */
+    @Override
+    public List<Event> getEventsByTitle(String title, int pageSize, int pageNum) {
+        Preconditions.checkNotNull(title, "title cannot be null");
+
+        return pages.get(new TitlePage(title, pageSize, pageNum),
+                page -> List.copyOf(delegate.getEventsByTitle(page.title(), page.pageSize(), page.pageNum())));
+    }
+
+    @Override
+    public Flow.Publisher<Event> streamEventsByTitle(String title) {
+        return delegate.streamEventsByTitle(title);
+    }
+
+    @Override
+    public List<Event> getEventsForDay(Date day, int pageSize, int pageNum) {
+        return delegate.getEventsForDay(day, pageSize, pageNum);
+    }
+
+    @Override
+    public List<Event> getEventsBetween(Date from, Date to, int pageSize, int pageNum) {
+        return delegate.getEventsBetween(from, to, pageSize, pageNum);
+    }
+
+    @Override
+    public Event createEvent(Event event) {
+        Preconditions.checkNotNull(event, "Event cannot be null");
+
+        try {
+            return delegate.createEvent(event);
+        } finally {
+            invalidatePagesOf(event.getTitle());
+        }
+    }
+
+    @Override
+    public Event updateEvent(Event event) {
+        Preconditions.checkNotNull(event, "Event cannot be null");
+
+        Event previous = listening ? null : delegate.getEventById(event.getId());
+        try {
+            return delegate.updateEvent(event);
+        } finally {
+            cache.invalidate(event.getId());
+            invalidatePagesOf(event.getTitle());
+            if (previous != null) {
+                invalidatePagesOf(previous.getTitle());
+            }
+        }
+    }
+
+    @Override
+    public boolean deleteEvent(long eventId) {
+        Event previous = listening ? null : delegate.getEventById(eventId);
+        try {
+            return delegate.deleteEvent(eventId);
+        } finally {
+            cache.invalidate(eventId);
+            if (previous != null) {
+                invalidatePagesOf(previous.getTitle());
+            }
+        }
+    }
+
+    private void invalidatePagesOf(String eventTitle) {
+        if (eventTitle != null) {
+            pages.invalidateIf(page -> eventTitle.contains(page.title()));
+        }
+    }
+
+    private record TitlePage(String title, int pageSize, int pageNum) {
+    }
+
+    /**
+     * Drops the cached event and the pages which may find it before or after the change.
+     */
+    private final class Invalidator implements StoreListener {
+
+        @Override
+        public void afterPut(long id, Object previous, Object current) {
+            if (previous != null) {
+                cache.invalidate(id);
+                invalidatePagesOf(((Event) previous).getTitle());
+            }
+            invalidatePagesOf(((Event) current).getTitle());
+        }
+
+        @Override
+        public void afterRemove(long id, Object previous) {
+            cache.invalidate(id);
+            invalidatePagesOf(((Event) previous).getTitle());
+        }
+
+        @Override
+        public void afterClear() {
+            cache.invalidateAll();
+            pages.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package service;
+
+import com.google.common.base.Preconditions;
+import dao.Namespace;
+import dao.Store;
+import model.User;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decorates a {@link UserService} with a bounded cache of {@link #getUserById users by id}, which updates and deletes
+ * made through it invalidate. Changes bypassing it are seen only if it listens to the store, otherwise once the user
+ * is evicted. Lookups by email and queries are passed on as they are.
+ */
+public class CachingUserService implements UserService {
+
+    private final UserService delegate;
+
+    private final TinyLfuCache<Long, User> cache;
+
+    public CachingUserService(UserService delegate, long maximumSize) {
+        this(delegate, new TinyLfuCache<>(maximumSize));
+    }
+
+    /**
+     * @param store Store the users are kept in, whose changes invalidate the cache as well.
+     */
+    public CachingUserService(UserService delegate, long maximumSize, Store store) {
+        this(delegate, new TinyLfuCache<>(maximumSize));
+        Preconditions.checkNotNull(store, "Store cannot be null");
+        store.addListener(Namespace.USER, new CacheInvalidator(cache));
+    }
+
+    /**
+     * @param weigher Weight of a user, e.g. its estimated size in bytes, which the cached users together stay
+     *                within the maximum weight of.
+     */
+    public CachingUserService(UserService delegate, long maximumWeight, ToIntFunction<User> weigher) {
+        this(delegate, new TinyLfuCache<>(maximumWeight, weigher));
+    }
+
+    private CachingUserService(UserService delegate, TinyLfuCache<Long, User> cache) {
+        this.delegate = Preconditions.checkNotNull(delegate, "User service cannot be null");
+        this.cache = cache;
+    }
+
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    @Override
+    public User getUserById(long userId) {
+        return cache.get(userId, delegate::getUserById);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return delegate.getUserByEmail(email);
+    }
+
+    @Override
+    public List<User> getUsersByName(String name, int pageSize, int pageNum) {
+        return delegate.getUsersByName(name, pageSize, pageNum);
+    }
+
+    @Override
+    public Flow.Publisher<User> streamUsersByName(String name) {
+        return delegate.streamUsersByName(name);
+    }
+
+    @Override
+    public User createUser(User user) {
+        return delegate.createUser(user);
+    }
+
+    @Override
+    public User updateUser(User user) {
+        Preconditions.checkNotNull(user, "User cannot be null");
+
+        try {
+            return delegate.updateUser(user);
+        } finally {
+            cache.invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public boolean deleteUser(long userId) {
+        try {
+            return delegate.deleteUser(userId);
+        } finally {
+            cache.invalidate(userId);
+        }
+    }
+}
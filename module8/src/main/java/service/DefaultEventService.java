@@ -6,9 +6,8 @@ import model.Event;
 
 import java.util.Date;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.Flow;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 public class DefaultEventService implements EventService {
     public static EventService initiate(Store store, IdGenerator idGenerator) {
@@ -23,8 +22,7 @@ public class DefaultEventService implements EventService {
 
     @Override
     public Event getEventById(long eventId) {
-        Optional<Event> event = dao.findById(PrimaryKey.eventKey(eventId));
-        return event.orElse(null);
+        return dao.findById(eventId);
     }
 
     @Override
@@ -35,12 +33,19 @@ public class DefaultEventService implements EventService {
 
         int skipCount = (pageNum - 1) * pageSize;
 
-        return StreamSupport.stream(dao.findByTitle(title).spliterator(), false)
+        return dao.streamByTitle(title)
                 .skip(skipCount)
                 .limit(pageSize)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Flow.Publisher<Event> streamEventsByTitle(String title) {
+        Preconditions.checkNotNull(title, "title cannot be null");
+
+        return new StreamPublisher<>(() -> dao.streamByTitle(title));
+    }
+
     @Override
     public List<Event> getEventsForDay(Date day, int pageSize, int pageNum) {
         Preconditions.checkNotNull(day, "date cannot be null");
@@ -49,7 +54,23 @@ public class DefaultEventService implements EventService {
 
         int skipCount = (pageNum - 1) * pageSize;
 
-        return StreamSupport.stream(dao.findByDate(day).spliterator(), false)
+        return dao.streamByDate(day)
+                .skip(skipCount)
+                .limit(pageSize)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Event> getEventsBetween(Date from, Date to, int pageSize, int pageNum) {
+        Preconditions.checkNotNull(from, "from cannot be null");
+        Preconditions.checkNotNull(to, "to cannot be null");
+        Preconditions.checkArgument(!from.after(to), "from must not be after to");
+        Preconditions.checkArgument(pageNum > 0, "pageNum must be greater than 0");
+        Preconditions.checkArgument(pageSize > 0 && pageSize <= 100, "pageSize must be between 1 and 100");
+
+        int skipCount = (pageNum - 1) * pageSize;
+
+        return dao.streamBetween(from, to)
                 .skip(skipCount)
                 .limit(pageSize)
                 .collect(Collectors.toList());
@@ -65,9 +86,8 @@ public class DefaultEventService implements EventService {
     @Override
     public Event updateEvent(Event event) {
         Preconditions.checkNotNull(event, "Event cannot be null");
-        Preconditions.checkArgument(dao.existsById(PrimaryKey.eventKey(event.getId())), "Event identified by id must exist is the store");
 
-        return dao.save(event);
+        return dao.update(event);
     }
 
     @Override
@@ -4,10 +4,13 @@ import com.google.common.base.Preconditions;
 import dao.*;
 import model.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.Flow;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 public class DefaultTicketService implements TicketService {
     private final TicketDao dao;
@@ -44,13 +47,123 @@ public class DefaultTicketService implements TicketService {
         Event event = eventService.getEventById(eventId);
         Preconditions.checkArgument(event != null, "Non-existent eventId");
 
-        Optional<Ticket> ticketPlaceCheck = StreamSupport.stream(dao.findByEventId(event.getId()).spliterator(), false)
-                .filter(ticket -> ticket.getPlace() == place)
-                .findFirst();
-        Preconditions.checkState(ticketPlaceCheck.isEmpty(), "Place already occupied");
+        Preconditions.checkArgument(place >= 0, "place cannot be negative");
+        Preconditions.checkState(dao.reservePlace(event.getId(), place), "Place already occupied");
 
         Ticket tempTicket = TicketFactory.createNonPersisted(event, user, category, place);
-        return dao.save(tempTicket);
+        try {
+            return dao.book(tempTicket);
+        } catch (RuntimeException e) {
+            dao.releasePlace(event.getId(), place);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<BookingResult> bookTickets(List<BookingRequest> requests) {
+        Preconditions.checkNotNull(requests, "requests cannot be null");
+
+        Map<Long, List<Integer>> byEvent = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = Preconditions.checkNotNull(requests.get(i), "request cannot be null");
+            byEvent.computeIfAbsent(request.eventId(), eventId -> new ArrayList<>()).add(i);
+        }
+
+        BookingResult[] results = new BookingResult[requests.size()];
+        Map<Long, User> users = new HashMap<>();
+        List<Ticket> tickets = new ArrayList<>();
+        List<Integer> ticketRequests = new ArrayList<>();
+        List<BookingRequest> claimed = new ArrayList<>();
+
+        List<Ticket> booked = null;
+        try {
+            byEvent.forEach((eventId, group) -> {
+                Event event = findEvent(eventId);
+                List<Integer> valid = new ArrayList<>(group.size());
+                for (int i : group) {
+                    String failure = validate(requests.get(i), event, users);
+                    if (failure != null) {
+                        results[i] = BookingResult.failed(requests.get(i), failure);
+                    } else {
+                        valid.add(i);
+                    }
+                }
+
+                int[] places = valid.stream().mapToInt(i -> requests.get(i).place()).toArray();
+                boolean[] reserved = dao.reservePlaces(eventId, places);
+                for (int k = 0; k < places.length; k++) {
+                    BookingRequest request = requests.get(valid.get(k));
+                    if (reserved[k]) {
+                        claimed.add(request);
+                        User user = users.get(request.userId());
+                        tickets.add(TicketFactory.createNonPersisted(event, user, request.category(), request.place()));
+                        ticketRequests.add(valid.get(k));
+                    } else {
+                        results[valid.get(k)] = BookingResult.failed(request, "Place already occupied");
+                    }
+                }
+            });
+            try {
+                booked = dao.bookAll(tickets);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // an event or user was changed meanwhile, booking one by one tells which requests are affected
+            }
+        } catch (RuntimeException e) {
+            // a place claimed without a ticket behind it could never be booked again
+            for (BookingRequest request : claimed) {
+                dao.releasePlace(request.eventId(), request.place());
+            }
+            throw e;
+        }
+        for (int k = 0; k < tickets.size(); k++) {
+            BookingRequest request = requests.get(ticketRequests.get(k));
+            if (booked != null) {
+                results[ticketRequests.get(k)] = BookingResult.booked(request, booked.get(k));
+                continue;
+            }
+            try {
+                results[ticketRequests.get(k)] = BookingResult.booked(request, dao.book(tickets.get(k)));
+            } catch (RuntimeException e) {
+                dao.releasePlace(request.eventId(), request.place());
+                results[ticketRequests.get(k)] = BookingResult.failed(request, e.getMessage());
+            }
+        }
+        return List.of(results);
+    }
+
+    private Event findEvent(long eventId) {
+        try {
+            return eventService.getEventById(eventId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks the request as {@link #bookTicket} does, caching the users looked up.
+     *
+     * @return reason the request cannot be booked or null.
+     */
+    private String validate(BookingRequest request, Event event, Map<Long, User> users) {
+        try {
+            User user = users.get(request.userId());
+            if (user == null) {
+                user = userService.getUserById(request.userId());
+                if (user == null) {
+                    return "Non-existent userId";
+                }
+                users.put(request.userId(), user);
+            }
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (event == null) {
+            return "Non-existent eventId";
+        }
+        if (request.place() < 0) {
+            return "place cannot be negative";
+        }
+        return null;
     }
 
     @Override
@@ -61,9 +174,7 @@ public class DefaultTicketService implements TicketService {
 
         int skipCount = (pageNum - 1) * pageSize;
 
-        // TODO implement "Tickets should be sorted by event date in descending order."
-
-        return StreamSupport.stream(dao.findByUserId(user.getId()).spliterator(), false)
+        return dao.streamByUserId(user.getId())
                 .skip(skipCount)
                 .limit(pageSize)
                 .collect(Collectors.toList());
@@ -77,14 +188,42 @@ public class DefaultTicketService implements TicketService {
 
         int skipCount = (pageNum - 1) * pageSize;
 
-        // TODO implement "Tickets should be sorted in by user email in ascending order."
-
-        return StreamSupport.stream(dao.findByEventId(event.getId()).spliterator(), false)
+        return dao.streamByEventId(event.getId())
                 .skip(skipCount)
                 .limit(pageSize)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Page<Ticket> getBookedTickets(User user, Cursor after, int pageSize) {
+        Preconditions.checkNotNull(user, "user cannot be null");
+        Preconditions.checkArgument(pageSize > 0 && pageSize <= 100, "pageSize must be between 1 and 100");
+
+        return dao.findByUserId(user.getId(), after, pageSize);
+    }
+
+    @Override
+    public Page<Ticket> getBookedTickets(Event event, Cursor after, int pageSize) {
+        Preconditions.checkNotNull(event, "event cannot be null");
+        Preconditions.checkArgument(pageSize > 0 && pageSize <= 100, "pageSize must be between 1 and 100");
+
+        return dao.findByEventId(event.getId(), after, pageSize);
+    }
+
+    @Override
+    public Flow.Publisher<Ticket> streamBookedTickets(User user) {
+        Preconditions.checkNotNull(user, "user cannot be null");
+
+        return new StreamPublisher<>(() -> dao.streamByUserId(user.getId()));
+    }
+
+    @Override
+    public Flow.Publisher<Ticket> streamBookedTickets(Event event) {
+        Preconditions.checkNotNull(event, "event cannot be null");
+
+        return new StreamPublisher<>(() -> dao.streamByEventId(event.getId()));
+    }
+
     @Override
     public boolean cancelTicket(long ticketId) {
         Preconditions.checkArgument(ticketId > 0, "ticketId must be greater than 0");
@@ -5,9 +5,8 @@ import dao.*;
 import model.User;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.Flow;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 public class DefaultUserService implements UserService {
 
@@ -23,8 +22,7 @@ public class DefaultUserService implements UserService {
 
     @Override
     public User getUserById(long userId) {
-        Optional<User> user = dao.findById(PrimaryKey.userKey(userId));
-        return user.orElse(null);
+        return dao.findById(userId);
     }
 
     @Override
@@ -42,12 +40,19 @@ public class DefaultUserService implements UserService {
 
         int skipCount = (pageNum - 1) * pageSize;
 
-        return StreamSupport.stream(dao.findByName(name).spliterator(), false)
+        return dao.streamByName(name)
                 .skip(skipCount)
                 .limit(pageSize)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Flow.Publisher<User> streamUsersByName(String name) {
+        Preconditions.checkNotNull(name, "name cannot be null");
+
+        return new StreamPublisher<>(() -> dao.streamByName(name));
+    }
+
     @Override
     public User createUser(User user) {
         Preconditions.checkNotNull(user, "User cannot be null");
@@ -58,9 +63,8 @@ public class DefaultUserService implements UserService {
     @Override
     public User updateUser(User user) {
         Preconditions.checkNotNull(user, "User cannot be null");
-        Preconditions.checkArgument(dao.existsById(PrimaryKey.userKey(user.getId())), "User identified by id must exist is the store");
 
-        return dao.save(user);
+        return dao.update(user);
     }
 
     @Override
@@ -4,6 +4,7 @@ import model.Event;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Flow;
 
 public interface EventService {
     /**
@@ -24,6 +25,15 @@ public interface EventService {
      */
     List<Event> getEventsByTitle(String title, int pageSize, int pageNum);
 
+    /**
+     * Publish all events matching title, in the order of {@link #getEventsByTitle}, as the subscriber requests them.
+     * Every subscription runs the query anew.
+     *
+     * @param title Event title or it's part.
+     * @return Publisher of events.
+     */
+    Flow.Publisher<Event> streamEventsByTitle(String title);
+
     /**
      * Get list of events for specified day.
      * In case nothing was found, empty list is returned.
@@ -35,6 +45,18 @@ public interface EventService {
      */
     List<Event> getEventsForDay(Date day, int pageSize, int pageNum);
 
+    /**
+     * Get list of events dated between the specified dates, both inclusive, ordered by date.
+     * In case nothing was found, empty list is returned.
+     *
+     * @param from     Lower bound of the event date.
+     * @param to       Upper bound of the event date.
+     * @param pageSize Pagination param. Number of events to return on a page.
+     * @param pageNum  Pagination param. Number of the page to return. Starts from 1.
+     * @return List of events.
+     */
+    List<Event> getEventsBetween(Date from, Date to, int pageSize, int pageNum);
+
     /**
      * Creates new event. Event id should be auto-generated.
      *
@@ -46,8 +68,9 @@ public interface EventService {
     /**
      * Updates event using given data.
      *
-     * @param event Event data for update. Should have id set.
+     * @param event Event data for update. Should have id set and the version it was read at.
      * @return Updated Event object.
+     * @throws IllegalStateException if the event was updated since it was read.
      */
     Event updateEvent(Event event);
 
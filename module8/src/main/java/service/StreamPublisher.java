@@ -0,0 +1,123 @@
+package service;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Publishes the elements of a lazy stream, opened anew for every subscriber, as the subscriber demands them.
+ * Only the requested elements are read from the stream, so a subscriber consumes any number of them in bounded memory.
+ * <p>
+ * Elements are emitted on the thread which requests them. A request made from within {@code onNext} only adds to
+ * the demand the emitting thread serves, so the call stack does not grow with the number of elements.
+ */
+final class StreamPublisher<T> implements Flow.Publisher<T> {
+
+    private final Supplier<? extends Stream<? extends T>> source;
+
+    StreamPublisher(Supplier<? extends Stream<? extends T>> source) {
+        this.source = Preconditions.checkNotNull(source, "Source cannot be null");
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Preconditions.checkNotNull(subscriber, "Subscriber cannot be null");
+        subscriber.onSubscribe(new StreamSubscription<>(subscriber, source));
+    }
+
+    private static final class StreamSubscription<T> implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Supplier<? extends Stream<? extends T>> source;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean invalidRequest;
+
+        // owned by the draining thread
+        private Stream<? extends T> stream;
+        private Iterator<? extends T> iterator;
+
+        StreamSubscription(Flow.Subscriber<? super T> subscriber, Supplier<? extends Stream<? extends T>> source) {
+            this.subscriber = subscriber;
+            this.source = source;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = true;
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        /**
+         * Serves the demand unless another thread, or an outer call of this one, already does. A terminal signal
+         * leaves the subscription claimed for good, so nothing is emitted after it.
+         */
+        private void drain() {
+            if (pending.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (cancelled) {
+                    close();
+                    return;
+                }
+                if (invalidRequest) {
+                    close();
+                    subscriber.onError(new IllegalArgumentException("Requested number of elements must be positive"));
+                    return;
+                }
+
+                long requested = demand.get();
+                long emitted = 0;
+                while (emitted < requested && !cancelled) {
+                    T next;
+                    try {
+                        if (iterator == null) {
+                            stream = source.get();
+                            iterator = stream.iterator();
+                        }
+                        if (!iterator.hasNext()) {
+                            close();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        next = iterator.next();
+                    } catch (RuntimeException e) {
+                        close();
+                        subscriber.onError(e);
+                        return;
+                    }
+                    subscriber.onNext(next);
+                    emitted++;
+                }
+                if (requested != Long.MAX_VALUE) {
+                    demand.addAndGet(-emitted);
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void close() {
+            if (stream != null) {
+                stream.close();
+                stream = null;
+            }
+        }
+    }
+}
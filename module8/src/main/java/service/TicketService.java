@@ -1,11 +1,19 @@
 package service;
 
+import dao.Cursor;
+import dao.Page;
 import model.Event;
 import model.Ticket;
 import model.User;
 
 import java.util.List;
+import java.util.concurrent.Flow;
 
+/**
+ * Tickets returned are copies of their stored state when they were read, even with tickets kept off heap, where the
+ * store itself holds views of rows which are recycled later. They stay readable for as long as they are kept, so an
+ * {@link IllegalStateException} always stands for a conflict or a concurrent update of the call which threw it.
+ */
 public interface TicketService {
     /**
      * Book ticket for a specified event on behalf of specified user.
@@ -19,6 +27,15 @@ public interface TicketService {
      */
     Ticket bookTicket(long userId, long eventId, int place, Ticket.Category category);
 
+    /**
+     * Book tickets in bulk. Requests are grouped by event, so every event and user is looked up once, and the
+     * tickets are saved in a single store transaction. A failed request does not affect the others.
+     *
+     * @param requests Bookings to make.
+     * @return Result of every request, in the order of the requests.
+     */
+    List<BookingResult> bookTickets(List<BookingRequest> requests);
+
     /**
      * Get all booked tickets for specified user. Tickets should be sorted by event date in descending order.
      *
@@ -39,6 +56,46 @@ public interface TicketService {
      */
     List<Ticket> getBookedTickets(Event event, int pageSize, int pageNum);
 
+    /**
+     * Get booked tickets for specified user page by page, in the order of {@link #getBookedTickets(User, int, int)}.
+     * Unlike page numbers, the cursor does not skip or repeat tickets when bookings change between calls.
+     *
+     * @param user     User
+     * @param after    Cursor of the previous page, or null to get the first page.
+     * @param pageSize Pagination param. Number of tickets to return on a page.
+     * @return Page of Ticket objects with the cursor of the next page.
+     */
+    Page<Ticket> getBookedTickets(User user, Cursor after, int pageSize);
+
+    /**
+     * Get booked tickets for specified event page by page, in the order of {@link #getBookedTickets(Event, int, int)}.
+     * Unlike page numbers, the cursor does not skip or repeat tickets when bookings change between calls.
+     *
+     * @param event    Event
+     * @param after    Cursor of the previous page, or null to get the first page.
+     * @param pageSize Pagination param. Number of tickets to return on a page.
+     * @return Page of Ticket objects with the cursor of the next page.
+     */
+    Page<Ticket> getBookedTickets(Event event, Cursor after, int pageSize);
+
+    /**
+     * Publish all booked tickets for specified user, in the order of {@link #getBookedTickets(User, int, int)},
+     * as the subscriber requests them. Every subscription runs the query anew.
+     *
+     * @param user User
+     * @return Publisher of Ticket objects.
+     */
+    Flow.Publisher<Ticket> streamBookedTickets(User user);
+
+    /**
+     * Publish all booked tickets for specified event, in the order of {@link #getBookedTickets(Event, int, int)},
+     * as the subscriber requests them. Every subscription runs the query anew.
+     *
+     * @param event Event
+     * @return Publisher of Ticket objects.
+     */
+    Flow.Publisher<Ticket> streamBookedTickets(Event event);
+
     /**
      * Cancel ticket with a specified id.
      *
@@ -0,0 +1,296 @@
+package service;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded read-through cache, evicting by W-TinyLFU.
+ * <p>
+ * New entries enter a small LRU window. An entry leaving the window is admitted to the main space only if the
+ * {@link FrequencySketch sketch} has seen its key more often than that of the entry it would evict, so one-off reads
+ * never push out popular entities. The main space is a segmented LRU: entries hit again are promoted from probation
+ * to the protected segment, whose overflow is demoted back to probation.
+ * <p>
+ * Lookups do not lock. Hits are recorded in the policy only if its lock is free at once, so under contention some
+ * are lost, which merely makes the frequencies a little less exact. Loads and invalidations lock.
+ */
+final class TinyLfuCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int REMOVED = -1;
+    private static final int EPOCH_STRIPES = 64;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final ToIntFunction<V> weigher;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final Node<K, V>[] queues;
+
+    /*
+        Bumped by every invalidation of a key of the stripe, so that a load which started before it is not cached.
+     */
+    private final AtomicLongArray epochs = new AtomicLongArray(EPOCH_STRIPES);
+
+    /*
+        Bumped by every invalidation by predicate, which may drop any key.
+     */
+    private final AtomicLong sweeps = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // guarded by lock
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+
+    TinyLfuCache(long maximumSize) {
+        this(maximumSize, value -> 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    TinyLfuCache(long maximumWeight, ToIntFunction<V> weigher) {
+        Preconditions.checkArgument(maximumWeight > 0, "Maximum weight must be positive number");
+        this.weigher = Preconditions.checkNotNull(weigher, "Weigher cannot be null");
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * 0.8);
+        this.sketch = new FrequencySketch(maximumWeight);
+        this.queues = (Node<K, V>[]) new Node<?, ?>[]{new Node<>(null, null, 0), new Node<>(null, null, 0),
+                new Node<>(null, null, 0)};
+        for (Node<K, V> head : queues) {
+            head.prev = head;
+            head.next = head;
+        }
+    }
+
+    /**
+     * @return cached value or the one loaded, which is cached unless it is null or the key was invalidated meanwhile.
+     */
+    V get(K key, Function<? super K, ? extends V> loader) {
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            hits.increment();
+            if (lock.tryLock()) {
+                try {
+                    sketch.increment(key.hashCode());
+                    if (node.queue != REMOVED) {
+                        onHit(node);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return node.value;
+        }
+
+        misses.increment();
+        long epoch = epochs.get(stripeOf(key));
+        long sweep = sweeps.get();
+        V value = loader.apply(key);
+        if (value != null) {
+            put(key, value, epoch, sweep);
+        }
+        return value;
+    }
+
+    void invalidate(K key) {
+        epochs.incrementAndGet(stripeOf(key));
+        lock.lock();
+        try {
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every entry of a key matching the predicate, which is tested against all keys. A load which started
+     * before is not cached, whatever its key.
+     */
+    void invalidateIf(Predicate<? super K> predicate) {
+        sweeps.incrementAndGet();
+        lock.lock();
+        try {
+            data.values().removeIf(node -> {
+                if (predicate.test(node.key)) {
+                    unlink(node);
+                    return true;
+                }
+                return false;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void invalidateAll() {
+        invalidateIf(key -> true);
+    }
+
+    CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    long size() {
+        return data.size();
+    }
+
+    boolean contains(K key) {
+        return data.containsKey(key);
+    }
+
+    private void put(K key, V value, long epoch, long sweep) {
+        int weight = weigher.applyAsInt(value);
+        Preconditions.checkArgument(weight >= 0, "Weight cannot be negative");
+        lock.lock();
+        try {
+            if (epochs.get(stripeOf(key)) != epoch || sweeps.get() != sweep) {
+                return;
+            }
+            sketch.increment(key.hashCode());
+            Node<K, V> existing = data.get(key);
+            if (existing != null) {
+                unlink(existing);
+            }
+            Node<K, V> node = new Node<>(key, value, weight);
+            link(node, WINDOW);
+            data.put(key, node);
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onHit(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW, PROTECTED -> {
+                int queue = node.queue;
+                unlink(node);
+                link(node, queue);
+            }
+            case PROBATION -> {
+                unlink(node);
+                link(node, PROTECTED);
+                while (protectedWeight > protectedMaximum) {
+                    Node<K, V> demoted = queues[PROTECTED].next;
+                    unlink(demoted);
+                    link(demoted, PROBATION);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown queue %s".formatted(node.queue));
+        }
+    }
+
+    /**
+     * Moves the overflow of the window to the main space, each entry either admitted in place of the probation
+     * victim or dropped, then drops the least recently used entries while the cache is still too heavy.
+     */
+    private void evict() {
+        while (windowWeight > windowMaximum) {
+            Node<K, V> candidate = queues[WINDOW].next;
+            unlink(candidate);
+            if (totalWeight + candidate.weight <= maximumWeight) {
+                link(candidate, PROBATION);
+                continue;
+            }
+            Node<K, V> victim = lru(PROBATION, PROTECTED);
+            if (victim != null && sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+                evict(victim);
+                link(candidate, PROBATION);
+            } else {
+                data.remove(candidate.key);
+                evictions.increment();
+            }
+        }
+        while (totalWeight > maximumWeight) {
+            evict(lru(PROBATION, PROTECTED, WINDOW));
+        }
+    }
+
+    private Node<K, V> lru(int... queues) {
+        for (int queue : queues) {
+            Node<K, V> head = this.queues[queue];
+            if (head.next != head) {
+                return head.next;
+            }
+        }
+        return null;
+    }
+
+    private void evict(Node<K, V> node) {
+        unlink(node);
+        data.remove(node.key);
+        evictions.increment();
+    }
+
+    private void link(Node<K, V> node, int queue) {
+        Node<K, V> head = queues[queue];
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        node.queue = queue;
+        totalWeight += node.weight;
+        if (queue == WINDOW) {
+            windowWeight += node.weight;
+        } else if (queue == PROTECTED) {
+            protectedWeight += node.weight;
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        totalWeight -= node.weight;
+        if (node.queue == WINDOW) {
+            windowWeight -= node.weight;
+        } else if (node.queue == PROTECTED) {
+            protectedWeight -= node.weight;
+        }
+        node.queue = REMOVED;
+    }
+
+    private static int stripeOf(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (EPOCH_STRIPES - 1);
+    }
+
+    /**
+     * Entry linked into one of the queues, oldest first after the head.
+     */
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final int weight;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+        // guarded by lock
+        private int queue = REMOVED;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
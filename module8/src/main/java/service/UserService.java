@@ -3,6 +3,7 @@ package service;
 import model.User;
 
 import java.util.List;
+import java.util.concurrent.Flow;
 
 public interface UserService {
     /**
@@ -30,19 +31,31 @@ public interface UserService {
      */
     List<User> getUsersByName(String name, int pageSize, int pageNum);
 
+    /**
+     * Publish all users matching name, in the order of {@link #getUsersByName}, as the subscriber requests them.
+     * Every subscription runs the query anew.
+     *
+     * @param name Users name or it's part.
+     * @return Publisher of users.
+     */
+    Flow.Publisher<User> streamUsersByName(String name);
+
     /**
      * Creates new user. User id should be auto-generated.
      *
      * @param user User data.
      * @return Created User object.
+     * @throws IllegalStateException if the email is already taken by another user.
      */
     User createUser(User user);
 
     /**
      * Updates user using given data.
      *
-     * @param user User data for update. Should have id set.
+     * @param user User data for update. Should have id set and the version it was read at.
      * @return Updated User object.
+     * @throws IllegalStateException if the email is already taken by another user or the user was updated
+     *                               since it was read.
      */
     User updateUser(User user);
 
@@ -90,7 +90,8 @@ public class BookingScenariosIT {
 
         // given
         String name = "Dummy user1";
-        String email = "dummy@email.com";
+        String email1 = "dummy1@email.com";
+        String email2 = "dummy2@email.com";
         long userId1 = 1L;
         long userId2 = 2L;
 
@@ -103,8 +104,8 @@ public class BookingScenariosIT {
         assertThat(store).as("store is empty").extracting(InMemoryStore::size).isEqualTo(0);
 
         // when
-        User user1 = sut.createUser(UserFactory.create(userId1, name, email));
-        User user2 = sut.createUser(UserFactory.create(userId2, name, email));
+        User user1 = sut.createUser(UserFactory.create(userId1, name, email1));
+        User user2 = sut.createUser(UserFactory.create(userId2, name, email2));
 
         Event event1 = sut.createEvent(EventFactory.create(eventId1, title, date1));
         Event event2 = sut.createEvent(EventFactory.create(eventId2, title, date2));
@@ -1,13 +1,28 @@
 package config;
 
+import model.Event;
+import model.Ticket;
+import model.User;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class StoreDataTest {
 
+    @TempDir
+    Path dir;
+
     @Test
     void testOpenCSV() {
         // given
@@ -22,8 +37,115 @@ class StoreDataTest {
                 .hasSize(8);
     }
 
+    @Test
+    void testTicketsBeforeTheirUsersAndEvents() {
+        // given
+        StoreData sut = StoreData.fromString("""
+                                                ticket,5,BAR,1,2,6
+                                                user,1,Dummy Name1,dummy@email.com
+                                                event,2,Dummy title2,2023-12-31
+                                                """);
+
+        // when
+        Map<String, Object> result = sut.load();
+
+        // then
+        Ticket ticket = (Ticket) result.get("ticket:5");
+        assertThat(ticket.getUserId()).isEqualTo(1);
+        assertThat(ticket.getEventId()).isEqualTo(2);
+    }
+
+    @Test
+    void testUnsatisfiedTicket() {
+        // given
+        StoreData sut = StoreData.fromString("""
+                                                user,1,Dummy Name1,dummy@email.com
+                                                ticket,5,BAR,1,2,6
+                                                """);
+
+        // when, then
+        assertThrows(IllegalArgumentException.class, sut::load);
+    }
+
+    @Test
+    void testTwoTicketsOfOnePlace() {
+        // given
+        StoreData sut = StoreData.fromString("""
+                                                user,1,Dummy Name1,dummy@email.com
+                                                event,2,Dummy title2,2023-12-31
+                                                ticket,5,BAR,1,2,6
+                                                ticket,6,PREMIUM,1,2,6
+                                                """);
+
+        // when, then
+        assertThrows(IllegalArgumentException.class, sut::load);
+    }
+
+    @Test
+    void testEventDateIsParsedAsCalendarDay() {
+        // given
+        StoreData sut = StoreData.fromString("event,2,Dummy title2,2023-12-31");
+
+        // when
+        Event event = (Event) sut.load().get("event:2");
+
+        // then
+        Date expected = Date.from(LocalDate.of(2023, 12, 31).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        assertThat(event.getDate()).isEqualTo(expected);
+    }
+
+    @Test
+    void testLargeFileIsLoadedInChunks() throws IOException {
+        // given
+        int users = 20_000;
+        StringBuilder csv = new StringBuilder();
+        for (int i = 1; i <= users; i++) {
+            // every ticket precedes its user, often in an earlier chunk
+            csv.append("ticket,").append(users + i).append(",STANDARD,").append(i).append(",1,").append(i).append('\n');
+            csv.append("user,").append(i).append(",Dummy Name").append(i).append(",dummy").append(i).append("@email.com\n");
+        }
+        csv.append("event,1,Dummy title1,2023-12-31\n");
+        Path file = dir.resolve("large.csv");
+        Files.writeString(file, csv);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        // when
+        Map<String, Object> result = StoreData.fromPath(file.toString(), pool).load();
+        pool.shutdown();
+
+        // then
+        assertThat(result).hasSize(2 * users + 1);
+        Ticket last = (Ticket) result.get("ticket:" + (2 * users));
+        assertThat(last.getUserId()).isEqualTo(users);
+        assertThat(last.getPlace()).isEqualTo(users);
+    }
+
+    @Test
+    void testMappedChunksKeepMultibyteValuesAndLastLine() throws IOException {
+        // given
+        int users = 20_000;
+        StringBuilder csv = new StringBuilder();
+        for (int i = 1; i <= users; i++) {
+            csv.append("user,").append(i).append(",Dümmy Nämé").append(i).append(",dummy").append(i).append("@email.com\n");
+        }
+        csv.append("event,1,Événement,2023-12-31");
+        Path file = dir.resolve("unicode.csv");
+        Files.writeString(file, csv);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        // when
+        Map<String, Object> result = StoreData.fromPath(file.toString(), pool).load();
+        pool.shutdown();
+
+        // then
+        assertThat(result).hasSize(users + 1);
+        assertThat(result.values()).filteredOn(User.class::isInstance)
+                .allSatisfy(user -> assertThat(((User) user).getName()).startsWith("Dümmy Nämé"));
+        assertThat(((Event) result.get("event:1")).getTitle()).isEqualTo("Événement");
+    }
+
     private static String getFilePath(String fileName) {
         return ClassLoader.getSystemClassLoader().getResource(fileName).getFile();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,191 @@
+package dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConcurrentLongObjectMapTest {
+
+    private ConcurrentLongObjectMap<String> sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new ConcurrentLongObjectMap<>();
+    }
+
+    @Test
+    @DisplayName("Behaves like a map under random puts and removes")
+    void matchesReferenceMap() {
+        // given
+        Map<Long, String> reference = new HashMap<>();
+        Random random = new Random(42);
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(sut.remove(key)).isEqualTo(reference.remove(key));
+            } else {
+                String value = "v" + i;
+                assertThat(sut.put(key, value)).isEqualTo(reference.put(key, value));
+            }
+        }
+
+        // then
+        assertThat(sut.size()).isEqualTo(reference.size());
+        reference.forEach((key, value) -> assertThat(sut.get(key)).isEqualTo(value));
+        assertThat(sut.values()).containsExactlyInAnyOrderElementsOf(reference.values());
+    }
+
+    @Test
+    @DisplayName("Conditional puts and removes behave like those of a map")
+    void matchesReferenceMapConditionally() {
+        // given
+        Map<Long, String> reference = new HashMap<>();
+        Random random = new Random(42);
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                String value = sut.get(key);
+                String expected = random.nextBoolean() || value == null ? "other" : value;
+                assertThat(sut.remove(key, expected)).isEqualTo(reference.remove(key, expected));
+            } else {
+                String value = "v" + i;
+                assertThat(sut.putIfAbsent(key, value)).isEqualTo(reference.putIfAbsent(key, value));
+            }
+        }
+
+        // then
+        assertThat(sut.size()).isEqualTo(reference.size());
+        reference.forEach((key, value) -> assertThat(sut.get(key)).isEqualTo(value));
+    }
+
+    @Test
+    @DisplayName("Reserved key is rejected")
+    void reservedKey() {
+        assertThrows(IllegalArgumentException.class, () -> sut.put(0, "zero"));
+        assertThat(sut.get(0)).isNull();
+        assertThat(sut.remove(0)).isNull();
+    }
+
+    @Test
+    @DisplayName("Readers always see entries that are not being modified")
+    void concurrentReadersAndWriters() throws Exception {
+        // given
+        int stable = 1_000;
+        for (long key = 1; key <= stable; key++) {
+            sut.put(key, "stable" + key);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        Future<?> writer = executor.submit(() -> {
+            for (long key = stable + 1; key <= stable + 50_000; key++) {
+                sut.put(key, "volatile");
+                if (key % 3 == 0) {
+                    sut.remove(key);
+                }
+            }
+        });
+        Future<Boolean> reader = executor.submit(() -> {
+            while (!writer.isDone()) {
+                for (long key = 1; key <= stable; key++) {
+                    if (!("stable" + key).equals(sut.get(key))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        });
+
+        // then
+        writer.get(30, TimeUnit.SECONDS);
+        assertThat(reader.get(30, TimeUnit.SECONDS)).as("stable entries are always visible").isTrue();
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Iteration returns every entry not removed meanwhile exactly once")
+    void iterationAcrossRemovals() {
+        // given
+        for (long key = 1; key <= 10_000; key++) {
+            sut.put(key, key % 2 == 0 ? "kept" : String.valueOf(key));
+        }
+        int kept = 0;
+
+        // when every other entry is removed right after it was returned
+        for (String value : sut.values()) {
+            if ("kept".equals(value)) {
+                kept++;
+            } else {
+                sut.remove(Long.parseLong(value));
+            }
+        }
+
+        // then
+        assertThat(kept).isEqualTo(5_000);
+        assertThat(sut.size()).isEqualTo(5_000);
+    }
+
+    @Test
+    @DisplayName("Iteration returns every entry not modified meanwhile exactly once while others churn")
+    void iterationAcrossChurn() {
+        // given
+        for (long key = 1; key <= 20_000; key++) {
+            sut.put(key, "stable" + key);
+            sut.put(1_000_000 + key, "churn");
+        }
+        Map<String, Integer> seen = new HashMap<>();
+        long churned = 1_000_000;
+
+        // when every value returned is followed by a removal shifting entries and an insertion
+        for (String value : sut.values()) {
+            seen.merge(value, 1, Integer::sum);
+            sut.remove(++churned);
+            sut.put(churned + 1_000_000, "churn");
+        }
+
+        // then
+        seen.remove("churn");
+        assertThat(seen).hasSize(20_000).allSatisfy((value, times) -> assertThat(times).as(value).isOne());
+    }
+
+    @Test
+    @DisplayName("The first value of a large map comes without copying its table")
+    void iterationIsLazy() {
+        // given
+        for (long key = 1; key <= 1_000_000; key++) {
+            sut.put(key, "value");
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        sut.values().stream().findFirst();
+
+        // when, the least of a few runs being kept as a compilation may allocate on the way
+        Optional<String> first = Optional.empty();
+        long allocated = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            first = sut.values().stream().findFirst();
+            allocated = Math.min(allocated, threads.getCurrentThreadAllocatedBytes() - before);
+        }
+
+        // then
+        assertThat(first).contains("value");
+        assertThat(allocated).as("bytes allocated").isLessThan(64 * 1024);
+    }
+}
@@ -0,0 +1,178 @@
+package dao;
+
+import config.StoreData;
+import model.Event;
+import model.EventFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventDaoImplTest {
+
+    private InMemoryStore store;
+    private EventDao sut;
+
+    @BeforeEach
+    void setUp() {
+        StoreData sti = StoreData.fromString("""
+                                                event,1,Rock Concert,2023-12-31
+                                                event,2,Jazz concert,2023-12-31
+                                                event,3,Concerto for piano,2023-12-31
+                                                event,4,Stand-up comedy,2023-12-31
+                                                """);
+
+        store = new InMemoryStore(sti.load());
+        sut = new EventDaoImpl(store, new IdGenerator());
+    }
+
+    @Nested
+    @DisplayName("Testing title search")
+    class TestTitleSearch {
+
+        @Test
+        @DisplayName("Title is matched using 'contains' approach")
+        void containsMatch() {
+            assertThat(sut.findByTitle("oncert")).extracting(Event::getId).containsExactly(1L, 2L, 3L);
+            assertThat(sut.findByTitle("Concert")).extracting(Event::getId).containsExactly(1L, 3L);
+            assertThat(sut.findByTitle("Opera")).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Case insensitive mode ignores the case of title and segment")
+        void ignoreCaseMatch() {
+            assertThat(sut.findByTitleIgnoreCase("CONCERT")).extracting(Event::getId).containsExactly(1L, 2L, 3L);
+            assertThat(sut.findByTitleIgnoreCase("up com")).extracting(Event::getId).containsExactly(4L);
+        }
+
+        @Test
+        @DisplayName("Segments shorter than a trigram still match")
+        void shortSegment() {
+            assertThat(sut.findByTitle("z")).extracting(Event::getId).containsExactly(2L);
+            assertThat(sut.findByTitle("")).hasSize(4);
+        }
+
+        @Test
+        @DisplayName("Candidates sharing every trigram but not the substring are filtered out")
+        void noFalsePositives() {
+            // given "cert" + "conc" share all the trigrams of "concert" without containing it
+            sut.save(EventFactory.create(5, "cert conc onc", new Date()));
+
+            // then
+            assertThat(sut.findByTitle("concert")).extracting(Event::getId).containsExactly(2L);
+        }
+
+        @Test
+        @DisplayName("Index follows renames and deletes")
+        void indexFollowsWrites() {
+            // when
+            sut.save(EventFactory.create(4, "Comedy concert", new Date()));
+            sut.deleteById(PrimaryKey.eventKey(1));
+
+            // then
+            assertThat(sut.findByTitle("concert")).extracting(Event::getId).containsExactly(2L, 4L);
+            assertThat(sut.findByTitle("Stand")).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Index follows a title changed in place on the stored event")
+        void indexFollowsInPlaceChange() {
+            // given
+            Event event = sut.findById(2);
+            event.setTitle("Rock evening");
+
+            // when
+            sut.update(event);
+
+            // then
+            assertThat(sut.findByTitle("Jazz")).isEmpty();
+            assertThat(sut.findByTitle("Rock")).extracting(Event::getId).containsExactly(1L, 2L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing date index")
+    class TestDateIndex {
+
+        private final ZoneId zone = ZoneId.of("Europe/Budapest");
+
+        @BeforeEach
+        void setUp() {
+            store = new InMemoryStore();
+            sut = new EventDaoImpl(store, new IdGenerator(), zone);
+        }
+
+        @Test
+        @DisplayName("Events are matched by calendar day, not by the exact instant")
+        void sameCalendarDay() {
+            // given
+            sut.save(EventFactory.create(1, "Evening", at(2023, 12, 31, 20)));
+            sut.save(EventFactory.create(2, "Morning", at(2023, 12, 31, 8)));
+            sut.save(EventFactory.create(3, "Next day", at(2024, 1, 1, 0)));
+
+            // when
+            Iterable<Event> events = sut.findByDate(at(2023, 12, 31, 12));
+
+            // then
+            assertThat(events).extracting(Event::getId).containsExactly(2L, 1L);
+        }
+
+        @Test
+        @DisplayName("Calendar day is determined in the configured zone")
+        void dayInConfiguredZone() {
+            // given 2023-12-31T23:30 UTC is already 2024-01-01 in Budapest
+            Date lateUtc = Date.from(LocalDateTime.of(2023, 12, 31, 23, 30).toInstant(ZoneOffset.UTC));
+            sut.save(EventFactory.create(1, "New year", lateUtc));
+
+            // then
+            assertThat(sut.findByDate(at(2024, 1, 1, 12))).extracting(Event::getId).containsExactly(1L);
+            assertThat(sut.findByDate(at(2023, 12, 31, 12))).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Range query is ordered by date and follows date changes")
+        void range() {
+            // given
+            sut.save(EventFactory.create(1, "First", at(2023, 12, 1, 10)));
+            sut.save(EventFactory.create(2, "Second", at(2023, 12, 15, 10)));
+            sut.save(EventFactory.create(3, "Third", at(2023, 12, 20, 10)));
+
+            // when
+            sut.save(EventFactory.create(1, "First", at(2023, 12, 25, 10)));
+
+            // then
+            assertThat(sut.findBetween(at(2023, 12, 15, 10), at(2023, 12, 31, 0)))
+                    .extracting(Event::getId).containsExactly(2L, 3L, 1L);
+            assertThat(sut.findBetween(at(2023, 12, 15, 11), at(2023, 12, 20, 10)))
+                    .extracting(Event::getId).containsExactly(3L);
+        }
+
+        @Test
+        @DisplayName("Index follows a date changed in place on the stored event")
+        void indexFollowsInPlaceChange() {
+            // given
+            sut.save(EventFactory.create(1, "First", at(2023, 12, 1, 10)));
+            Event event = sut.findById(1);
+            event.getDate().setTime(at(2023, 12, 25, 10).getTime());
+
+            // when
+            sut.update(event);
+
+            // then
+            assertThat(sut.findByDate(at(2023, 12, 1, 12))).isEmpty();
+            assertThat(sut.findByDate(at(2023, 12, 25, 12))).extracting(Event::getId).containsExactly(1L);
+            assertThat(sut.findBetween(at(2023, 11, 30, 0), at(2023, 12, 2, 0))).isEmpty();
+        }
+
+        private Date at(int year, int month, int day, int hour) {
+            return Date.from(LocalDateTime.of(year, month, day, hour, 0).atZone(zone).toInstant());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package dao;
+
+import model.UserFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Nested
+    @DisplayName("Testing ids handed out")
+    class TestNext {
+
+        @Test
+        @DisplayName("Threads never get the same id")
+        void idsAreUniqueAcrossThreads() throws Exception {
+            // given
+            IdGenerator sut = new IdGenerator(16, 0, 0, "");
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+
+            // when
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    for (int j = 0; j < 1000; j++) {
+                        ids.add(sut.next());
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                ids.addAll(future.get());
+            }
+            executor.shutdown();
+
+            // then
+            assertThat(ids).hasSize(4000).allMatch(id -> id > 0);
+        }
+
+        @Test
+        @DisplayName("Threads started per task draw from shared blocks instead of taking one each")
+        void threadPerTaskSharesBlocks() throws Exception {
+            // given
+            Path mark = dir.resolve("ids");
+            IdGenerator sut = new IdGenerator(1024, 0, 0, mark.toString());
+            long first = sut.next();
+
+            // when
+            Set<Long> ids = new HashSet<>();
+            for (int i = 0; i < 2_000; i++) {
+                List<Long> taken = new ArrayList<>();
+                Thread thread = new Thread(() -> taken.add(sut.next()));
+                thread.start();
+                thread.join();
+                ids.addAll(taken);
+            }
+
+            // then
+            assertThat(ids).hasSize(2_000);
+            assertThat(ids.stream().mapToLong(Long::longValue).max().orElseThrow() - first)
+                    .as("ids are taken from at most one block per stripe").isLessThan(65L * 1024);
+            assertThat(Long.parseLong(Files.readString(mark).trim()) - first).isLessThan(2L * 65 * 1024);
+        }
+
+        @Test
+        @DisplayName("Seeding moves the ids above the given one, even within a block taken before")
+        void seedAboveDropsBlock() {
+            // given
+            IdGenerator sut = new IdGenerator(16, 0, 0, "");
+            long first = sut.next();
+
+            // when
+            sut.seedAbove(first + 1_000_000);
+
+            // then
+            assertThat(sut.next()).isEqualTo(first + 1_000_001);
+        }
+
+        @Test
+        @DisplayName("A seeded generator starts above every id of the store")
+        void seededFromStore() {
+            // given
+            InMemoryStore store = new InMemoryStore();
+            long max = System.currentTimeMillis() + 1_000_000;
+            store.save(Namespace.USER, max, UserFactory.create(max, "Dummy Name", "dummy@email.com"));
+
+            // when
+            IdGenerator sut = IdGenerator.seeded(store, 16, 0, 0, "");
+
+            // then
+            assertThat(sut.next()).isEqualTo(max + 1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing high-water mark")
+    class TestHighWaterMark {
+
+        @Test
+        @DisplayName("A restarted generator never reuses an id")
+        void restartContinuesAboveMark() throws Exception {
+            // given
+            Path file = dir.resolve("store.id");
+            IdGenerator sut = new IdGenerator(16, 0, 0, file.toString());
+            long last = 0;
+            for (int i = 0; i < 100; i++) {
+                last = sut.next();
+            }
+
+            // when
+            IdGenerator restarted = new IdGenerator(16, 0, 0, file.toString());
+
+            // then
+            assertThat(Long.parseLong(Files.readString(file))).isGreaterThan(last);
+            assertThat(restarted.next()).isGreaterThan(last);
+        }
+
+        @Test
+        @DisplayName("A file of another kind is rejected")
+        void foreignFileIsRejected() throws Exception {
+            // given
+            Path file = dir.resolve("store.id");
+            Files.writeString(file, "type,id,name,email");
+
+            // when, then
+            assertThrows(IllegalStateException.class, () -> new IdGenerator(16, 0, 0, file.toString()));
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing node layout")
+    class TestNodeLayout {
+
+        @Test
+        @DisplayName("The node id takes the topmost bits of every id")
+        void nodeIdInTopBits() {
+            // given
+            IdGenerator sut = new IdGenerator(16, 5, 4, "");
+
+            // when
+            long id = sut.next();
+
+            // then
+            assertThat(id).isPositive();
+            assertThat(id >>> 59).isEqualTo(5);
+        }
+
+        @Test
+        @DisplayName("Ids of other nodes do not move the counter")
+        void otherNodesAreIgnored() {
+            // given
+            IdGenerator sut = new IdGenerator(16, 5, 4, "");
+            IdGenerator other = new IdGenerator(16, 6, 4, "");
+            long first = sut.next();
+
+            // when
+            sut.seedAbove(other.next() + 1_000_000);
+
+            // then
+            assertThat(sut.next()).isEqualTo(first + 1);
+        }
+
+        @Test
+        @DisplayName("A node id must fit in the node bits")
+        void nodeIdMustFit() {
+            // when, then
+            assertThrows(IllegalArgumentException.class, () -> new IdGenerator(16, 16, 4, ""));
+        }
+    }
+}
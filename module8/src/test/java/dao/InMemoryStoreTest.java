@@ -0,0 +1,377 @@
+package dao;
+
+import model.User;
+import model.UserFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InMemoryStoreTest {
+
+    private InMemoryStore sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new InMemoryStore();
+    }
+
+    private static User user(long id) {
+        return UserFactory.create(id, "User" + id, "user" + id + "@email.org");
+    }
+
+    @Nested
+    @DisplayName("Testing namespace partitioning")
+    class TestPartitioning {
+
+        @Test
+        @DisplayName("getAll returns entities of the requested namespace only")
+        void getAllIsScopedToNamespace() {
+            // given
+            sut.save(Namespace.USER.supplementedWith(1), "user1");
+            sut.save(Namespace.EVENT.supplementedWith(1), "event1");
+            sut.save(Namespace.TICKET.supplementedWith(1), "ticket1");
+            sut.save(Namespace.TICKET.supplementedWith(2), "ticket2");
+
+            // when
+            Collection<Object> tickets = sut.getAll(Namespace.TICKET.prefixed());
+
+            // then
+            assertThat(tickets).containsExactlyInAnyOrder("ticket1", "ticket2");
+            assertThat(sut.getAll(Namespace.USER.ns())).containsExactly("user1");
+            assertThat(sut.size()).isEqualTo(4);
+            assertThat(sut.size(Namespace.TICKET)).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("getAll is a live view of the namespace")
+        void getAllIsLiveView() {
+            // given
+            Collection<Object> events = sut.getAll(Namespace.EVENT.prefixed());
+
+            // when
+            sut.save(Namespace.EVENT.supplementedWith(3), "event3");
+
+            // then
+            assertThat(events).containsExactly("event3");
+            assertThrows(UnsupportedOperationException.class, () -> events.remove("event3"));
+        }
+
+        @Test
+        @DisplayName("Same id in different namespaces does not collide")
+        void sameIdDifferentNamespaces() {
+            // given
+            sut.save(Namespace.USER.supplementedWith(7), "user7");
+            sut.save(Namespace.EVENT.supplementedWith(7), "event7");
+
+            // when
+            boolean deleted = sut.delete(Namespace.USER.supplementedWith(7));
+
+            // then
+            assertThat(deleted).isTrue();
+            assertThat(sut.get(Namespace.USER.supplementedWith(7))).isEmpty();
+            assertThat(sut.get(Namespace.EVENT.supplementedWith(7))).contains("event7");
+        }
+
+        @Test
+        @DisplayName("Keys outside of known namespaces are rejected")
+        void unknownNamespace() {
+            assertThrows(IllegalArgumentException.class, () -> sut.save("order:1", "order1"));
+            assertThrows(IllegalArgumentException.class, () -> sut.getAll("order:"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing versioned replace")
+    class TestReplace {
+
+        @Test
+        @DisplayName("Replace of the current version stores the object with the next version")
+        void replaceCurrentVersion() {
+            // given
+            sut.save(Namespace.USER, 1, UserFactory.create(1, "Dummy Name", "dummy@email.com"));
+            User update = UserFactory.create(1, "Dummy Name2", "dummy@email.com");
+
+            // when
+            boolean replaced = sut.replace(Namespace.USER, 1, 0, update);
+
+            // then
+            assertThat(replaced).isTrue();
+            assertThat(update.getVersion()).isEqualTo(1);
+            assertThat(sut.get(Namespace.USER, 1)).isSameAs(update);
+        }
+
+        @Test
+        @DisplayName("Replace of a stale version or of a missing entity writes nothing")
+        void replaceStaleVersion() {
+            // given
+            User current = UserFactory.create(1, "Dummy Name", "dummy@email.com");
+            current.setVersion(3);
+            sut.save(Namespace.USER, 1, current);
+            User update = UserFactory.create(1, "Dummy Name2", "dummy@email.com");
+
+            // when
+            boolean stale = sut.replace(Namespace.USER, 1, 2, update);
+            boolean missing = sut.replace(Namespace.USER, 2, 0, update);
+
+            // then
+            assertThat(stale).isFalse();
+            assertThat(missing).isFalse();
+            assertThat(update.getVersion()).isZero();
+            assertThat(sut.get(Namespace.USER, 1)).isSameAs(current);
+        }
+
+        @Test
+        @DisplayName("Of concurrent updates of the same version exactly one wins")
+        void concurrentReplace() throws Exception {
+            // given
+            sut.save(Namespace.USER, 1, UserFactory.create(1, "Dummy Name", "dummy@email.com"));
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> updates = new ArrayList<>();
+
+            // when
+            for (int i = 0; i < 8; i++) {
+                User update = UserFactory.create(1, "Dummy Name" + i, "dummy@email.com");
+                updates.add(executor.submit(() -> {
+                    start.await();
+                    return sut.replace(Namespace.USER, 1, 0, update);
+                }));
+            }
+            start.countDown();
+            int won = 0;
+            for (Future<Boolean> update : updates) {
+                won += update.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            executor.shutdown();
+
+            // then
+            assertThat(won).isEqualTo(1);
+            assertThat(((User) sut.get(Namespace.USER, 1)).getVersion()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing transactions")
+    class TestTransaction {
+
+        @Test
+        @DisplayName("Commit applies every write and reads see the own writes")
+        void commitAppliesWrites() {
+            // given
+            sut.save(Namespace.USER, 1, "user1");
+            Transaction tx = sut.begin();
+
+            // when
+            tx.put(Namespace.USER, 2, "user2").delete(Namespace.USER, 1).put(Namespace.EVENT, 3, "event3");
+            Object ownDelete = tx.get(Namespace.USER, 1);
+            tx.commit();
+
+            // then
+            assertThat(ownDelete).isNull();
+            assertThat(sut.get(Namespace.USER, 1)).isNull();
+            assertThat(sut.get(Namespace.USER, 2)).isEqualTo("user2");
+            assertThat(sut.get(Namespace.EVENT, 3)).isEqualTo("event3");
+            assertThrows(IllegalStateException.class, tx::commit);
+        }
+
+        @Test
+        @DisplayName("A read changed meanwhile fails the commit and nothing is written")
+        void staleReadFailsCommit() {
+            // given
+            sut.save(Namespace.USER, 1, "user1");
+            Transaction tx = sut.begin();
+            tx.get(Namespace.USER, 1);
+            tx.get(Namespace.EVENT, 5);
+            tx.put(Namespace.TICKET, 2, "ticket2");
+
+            // when
+            sut.save(Namespace.EVENT, 5, "event5");
+
+            // then
+            assertThrows(IllegalStateException.class, tx::commit);
+            assertThat(sut.get(Namespace.TICKET, 2)).isNull();
+        }
+
+        @Test
+        @DisplayName("A vetoed write reverts the writes applied before it")
+        void vetoRevertsCommit() {
+            // given
+            sut.save(Namespace.USER, 1, "user1");
+            sut.addListener(Namespace.EVENT, new StoreListener() {
+                @Override
+                public void beforePut(long id, Object previous, Object current) {
+                    if ("rejected".equals(current)) {
+                        throw new IllegalStateException("Rejected");
+                    }
+                }
+
+                @Override
+                public void afterPut(long id, Object previous, Object current) {
+                }
+
+                @Override
+                public void afterRemove(long id, Object previous) {
+                }
+
+                @Override
+                public void afterClear() {
+                }
+            });
+            Transaction tx = sut.begin()
+                    .put(Namespace.USER, 1, "user1b")
+                    .put(Namespace.USER, 2, "user2")
+                    .put(Namespace.EVENT, 3, "rejected");
+
+            // when
+            assertThrows(IllegalStateException.class, tx::commit);
+
+            // then
+            assertThat(sut.get(Namespace.USER, 1)).isEqualTo("user1");
+            assertThat(sut.get(Namespace.USER, 2)).isNull();
+            assertThat(sut.get(Namespace.EVENT, 3)).isNull();
+        }
+
+        @Test
+        @DisplayName("Concurrent read-modify-write transactions lose no update")
+        void concurrentTransactions() throws Exception {
+            // given
+            sut.save(Namespace.EVENT, 1, 0);
+            sut.save(Namespace.EVENT, 2, 0);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<Integer>> increments = new ArrayList<>();
+
+            // when
+            for (int i = 0; i < 8; i++) {
+                increments.add(executor.submit(() -> {
+                    int committed = 0;
+                    for (int j = 0; j < 200; j++) {
+                        Transaction tx = sut.begin();
+                        int first = (Integer) tx.get(Namespace.EVENT, 1);
+                        int second = (Integer) tx.get(Namespace.EVENT, 2);
+                        tx.put(Namespace.EVENT, 1, first + 1).put(Namespace.EVENT, 2, second + 1);
+                        try {
+                            tx.commit();
+                            committed++;
+                        } catch (IllegalStateException e) {
+                            // retried by the next iteration
+                        }
+                    }
+                    return committed;
+                }));
+            }
+            int committed = 0;
+            for (Future<Integer> increment : increments) {
+                committed += increment.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            // then
+            assertThat(sut.get(Namespace.EVENT, 1)).isEqualTo(committed);
+            assertThat(sut.get(Namespace.EVENT, 2)).isEqualTo(committed);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing listeners")
+    class TestListeners {
+
+        @Test
+        @DisplayName("Writes of keys of different stripes call the listeners in parallel")
+        void listenersOfDifferentKeysRunInParallel() throws Exception {
+            // given
+            new UserDaoImpl(sut, new IdGenerator());
+            CountDownLatch entered = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            sut.addListener(Namespace.USER, new StoreListener() {
+                @Override
+                public void afterPut(long id, Object previous, Object current) {
+                    if (id == 1) {
+                        entered.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+
+                @Override
+                public void afterRemove(long id, Object previous) {
+                }
+
+                @Override
+                public void afterClear() {
+                }
+            });
+            int stripe = InMemoryStore.stripeOf(Namespace.USER, 1);
+            long other = LongStream.rangeClosed(2, 1_000)
+                    .filter(id -> InMemoryStore.stripeOf(Namespace.USER, id) != stripe)
+                    .findFirst().orElseThrow();
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+
+            // when the write of key 1 is held in its listener
+            Future<?> held = executor.submit(() -> sut.save(Namespace.USER, 1, user(1)));
+            assertThat(entered.await(10, TimeUnit.SECONDS)).isTrue();
+            Future<?> parallel = executor.submit(() -> sut.save(Namespace.USER, other, user(other)));
+
+            // then
+            try {
+                parallel.get(10, TimeUnit.SECONDS);
+            } finally {
+                release.countDown();
+            }
+            held.get(10, TimeUnit.SECONDS);
+            executor.shutdown();
+            assertThat(sut.getAll(Namespace.USER)).hasSize(2);
+        }
+
+        @Test
+        @DisplayName("Concurrent writes of different keys keep a unique index consistent")
+        void concurrentUniqueAcrossStripes() throws Exception {
+            // given
+            UserDaoImpl users = new UserDaoImpl(sut, new IdGenerator());
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> writers = new ArrayList<>();
+
+            // when every email is claimed by eight ids at once
+            for (int thread = 0; thread < 8; thread++) {
+                long offset = thread * 1_000L;
+                writers.add(executor.submit(() -> {
+                    for (long id = 1; id <= 200; id++) {
+                        try {
+                            users.save(UserFactory.create(offset + id, "User" + id, "user" + id + "@email.org"));
+                        } catch (IllegalStateException e) {
+                            // taken by another thread
+                        }
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            // then
+            assertThat(sut.getAll(Namespace.USER)).hasSize(200)
+                    .extracting(user -> ((User) user).getEmail()).doesNotHaveDuplicates();
+            for (long id = 1; id <= 200; id++) {
+                User owner = users.findByEmail("user" + id + "@email.org");
+                assertThat(owner.getId() % 1_000).isEqualTo(id);
+            }
+        }
+    }
+}
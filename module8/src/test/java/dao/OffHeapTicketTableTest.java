@@ -0,0 +1,327 @@
+package dao;
+
+import config.StoreData;
+import model.EventFactory;
+import model.Ticket;
+import model.TicketFactory;
+import model.UserFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffHeapTicketTableTest {
+
+    private OffHeapTicketTable sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new OffHeapTicketTable();
+    }
+
+    @Nested
+    @DisplayName("Testing the table as a map")
+    class TestMap {
+
+        @Test
+        @DisplayName("Behaves like a map under random puts and removes")
+        void matchesReferenceMap() {
+            // given
+            Map<Long, String> reference = new HashMap<>();
+            Random random = new Random(42);
+
+            // when
+            for (int i = 0; i < 100_000; i++) {
+                long id = 1 + random.nextInt(5_000);
+                if (random.nextInt(3) == 0) {
+                    assertThat(describe(sut.remove(id))).isEqualTo(reference.remove(id));
+                } else {
+                    Ticket ticket = ticket(id, random.nextInt(100), i);
+                    assertThat(describe(sut.put(id, ticket))).isEqualTo(reference.put(id, describe(ticket)));
+                }
+            }
+
+            // then
+            assertThat(sut.size()).isEqualTo(reference.size());
+            reference.forEach((id, ticket) -> assertThat(describe(sut.get(id))).isEqualTo(ticket));
+            assertThat(sut.values()).extracting(OffHeapTicketTableTest::describe)
+                    .containsExactlyInAnyOrderElementsOf(reference.values());
+        }
+
+        @Test
+        @DisplayName("Only tickets are kept, under their own id")
+        void rejectsOtherValues() {
+            assertThrows(IllegalArgumentException.class, () -> sut.put(1, "ticket"));
+            assertThrows(IllegalArgumentException.class, () -> sut.put(2, ticket(1, 1, 1)));
+            assertThat(sut.size()).isZero();
+        }
+
+        @Test
+        @DisplayName("Iteration returns every ticket not removed meanwhile exactly once")
+        void iterationAcrossRemovals() {
+            // given
+            for (long id = 1; id <= 10_000; id++) {
+                sut.put(id, ticket(id, (int) (id % 2), 0));
+            }
+            int kept = 0;
+
+            // when every other ticket is removed right after it was returned
+            for (Object value : sut.values()) {
+                Ticket ticket = (Ticket) value;
+                if (ticket.getPlace() == 0) {
+                    kept++;
+                } else {
+                    sut.remove(ticket.getId());
+                }
+            }
+
+            // then
+            assertThat(kept).isEqualTo(5_000);
+            assertThat(sut.size()).isEqualTo(5_000);
+        }
+
+        @Test
+        @DisplayName("Cleared table is empty and usable")
+        void clear() {
+            // given
+            sut.put(1, ticket(1, 1, 1));
+            Object view = sut.get(1);
+
+            // when
+            sut.clear();
+            sut.put(2, ticket(2, 2, 2));
+
+            // then
+            assertThat(sut.get(1)).isNull();
+            assertThat(sut.size()).isOne();
+            assertThat(((Ticket) view).getPlace()).as("views read before keep their rows").isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing views of the rows")
+    class TestViews {
+
+        @Test
+        @DisplayName("Views show every field of the ticket put")
+        void viewShowsFields() {
+            // given
+            Ticket ticket = ticket(7, 12, 3);
+            ticket.setCategory(null);
+
+            // when
+            sut.put(7, ticket);
+            Ticket view = (Ticket) sut.get(7);
+
+            // then
+            assertThat(view.getId()).isEqualTo(7);
+            assertThat(view.getEventId()).isEqualTo(107);
+            assertThat(view.getUserId()).isEqualTo(1007);
+            assertThat(view.getPlace()).isEqualTo(12);
+            assertThat(view.getVersion()).isEqualTo(3);
+            assertThat(view.getCategory()).isNull();
+            assertThat(view).isEqualTo(sut.get(7));
+        }
+
+        @Test
+        @DisplayName("Views keep the state they were read in after the ticket is overwritten or removed")
+        void viewsAreStable() {
+            // given
+            sut.put(1, ticket(1, 10, 0));
+            sut.put(2, ticket(2, 20, 0));
+            Ticket first = (Ticket) sut.get(1);
+            Ticket second = (Ticket) sut.get(2);
+
+            // when
+            Object replaced = sut.put(1, ticket(1, 11, 1));
+            sut.remove(2);
+
+            // then
+            assertThat(replaced).isEqualTo(first);
+            assertThat(first.getPlace()).isEqualTo(10);
+            assertThat(second.getPlace()).isEqualTo(20);
+            assertThat(((Ticket) sut.get(1)).getPlace()).isEqualTo(11);
+            assertThat(sut.get(1)).isNotEqualTo(first);
+        }
+
+        @Test
+        @DisplayName("Views are read-only, their copies are not")
+        void viewsAreReadOnly() {
+            // given
+            sut.put(1, ticket(1, 10, 4));
+            Ticket view = (Ticket) sut.get(1);
+
+            // when
+            Ticket copy = TicketFactory.clone(view);
+            copy.setPlace(11);
+
+            // then
+            assertThrows(UnsupportedOperationException.class, () -> view.setPlace(11));
+            assertThat(describe(copy)).isEqualTo(describe(ticket(1, 11, 4)));
+        }
+
+        @Test
+        @DisplayName("Retired rows are recycled, and views of them fail instead of showing another ticket")
+        void rowsAreRecycled() {
+            // given
+            sut.put(1, ticket(1, 10, 0));
+            Ticket view = (Ticket) sut.get(1);
+            sut.remove(1);
+
+            // when
+            for (int i = 0; i < 100_000; i++) {
+                sut.put(2, ticket(2, i, i));
+            }
+
+            // then
+            assertThat(sut.rowCount()).isLessThan(70_000);
+            assertThrows(IllegalStateException.class, view::getPlace);
+            assertThat(((Ticket) sut.get(2)).getPlace()).isEqualTo(99_999);
+        }
+
+        @Test
+        @DisplayName("Readers always see tickets that are not being modified")
+        void concurrentReadersAndWriters() throws Exception {
+            // given
+            int stable = 1_000;
+            for (long id = 1; id <= stable; id++) {
+                sut.put(id, ticket(id, (int) id, 0));
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+
+            // when
+            Future<?> writer = executor.submit(() -> {
+                for (long id = stable + 1; id <= stable + 200_000; id++) {
+                    sut.put(id, ticket(id, 0, 0));
+                    if (id % 3 != 0) {
+                        sut.remove(id);
+                    }
+                }
+            });
+            Future<Boolean> reader = executor.submit(() -> {
+                while (!writer.isDone()) {
+                    for (long id = 1; id <= stable; id++) {
+                        Ticket ticket = (Ticket) sut.get(id);
+                        if (ticket == null || ticket.getPlace() != id || ticket.getEventId() != 100 + id) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            });
+
+            // then
+            writer.get(30, TimeUnit.SECONDS);
+            assertThat(reader.get(30, TimeUnit.SECONDS)).as("stable tickets are always visible").isTrue();
+            executor.shutdown();
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing a store keeping tickets off heap")
+    class TestStore {
+
+        private InMemoryStore store;
+        private TicketDao dao;
+
+        @BeforeEach
+        void setUp() {
+            store = new InMemoryStore(true);
+            store.init(StoreData.fromString("""
+                                            user,1,Dummy Name1,dummy1@email.com
+                                            event,2,Dummy title2,2023-12-31
+                                            ticket,3,BAR,1,2,6
+                                            """).load());
+            dao = new TicketDaoImpl(store, new IdGenerator());
+        }
+
+        @Test
+        @DisplayName("Tickets are booked, updated, found and cancelled through the DAO")
+        void daoRoundTrip() {
+            // given
+            Ticket booked = dao.book(TicketFactory.create(Long.MIN_VALUE, EventFactory.create(2, null, null),
+                    UserFactory.create(1, null, null), Ticket.Category.PREMIUM, 7));
+            Ticket stored = dao.findById(booked.getId());
+
+            // when
+            Ticket changed = TicketFactory.clone(stored);
+            changed.setPlace(8);
+            dao.update(changed);
+
+            // then
+            assertThat(dao.findById(booked.getId()).getPlace()).isEqualTo(8);
+            assertThat(dao.findById(booked.getId()).getVersion()).isEqualTo(1);
+            assertThat(stored.getPlace()).as("the ticket read before the update").isEqualTo(7);
+            assertThat(dao.findByUserId(1)).extracting(Ticket::getId).containsExactlyInAnyOrder(3L, booked.getId());
+            assertThrows(IllegalStateException.class, () -> dao.update(stored));
+
+            assertThat(dao.deleteById(PrimaryKey.ticketKey(booked.getId()))).isTrue();
+            assertThat(dao.findByUserId(1)).extracting(Ticket::getId).containsExactly(3L);
+        }
+
+        @Test
+        @DisplayName("Tickets found by the DAO stay readable after their rows are recycled")
+        void daoReturnsCopies() {
+            // given
+            Ticket found = dao.findById(3);
+            Iterable<Ticket> ofUser = dao.findByUserId(1);
+            dao.deleteById(PrimaryKey.ticketKey(3));
+
+            // when
+            for (int i = 0; i < 100_000; i++) {
+                store.save(Namespace.TICKET, 4, TicketFactory.create(4, EventFactory.create(2, null, null),
+                        UserFactory.create(1, null, null), Ticket.Category.BAR, i));
+            }
+
+            // then
+            assertThat(found.getPlace()).isEqualTo(6);
+            assertThat(ofUser).extracting(Ticket::getPlace).containsExactly(6);
+        }
+
+        @Test
+        @DisplayName("A transaction reading a ticket commits unless the ticket changed")
+        void transactionsCompareViews() {
+            // given
+            Transaction unchanged = store.begin();
+            unchanged.get(Namespace.TICKET, 3);
+            Transaction stale = store.begin();
+            stale.get(Namespace.TICKET, 3);
+            unchanged.delete(Namespace.TICKET, 3);
+
+            // when
+            unchanged.commit();
+
+            // then
+            assertThat(store.get(Namespace.TICKET, 3)).isNull();
+            stale.put(Namespace.USER, 1, UserFactory.create(1, "Name", "name@email.com"));
+            assertThrows(IllegalStateException.class, stale::commit);
+        }
+    }
+
+    private static Ticket ticket(long id, int place, long version) {
+        Ticket ticket = TicketFactory.create(id, EventFactory.create(100 + id, null, null),
+                UserFactory.create(1000 + id, null, null), Ticket.Category.values()[(int) (id % 3)], place);
+        ticket.setVersion(version);
+        return ticket;
+    }
+
+    private static String describe(Object value) {
+        if (value == null) {
+            return null;
+        }
+        Ticket ticket = (Ticket) value;
+        return ticket.getId() + "," + ticket.getEventId() + "," + ticket.getUserId() + "," + ticket.getCategory()
+                + "," + ticket.getPlace() + "," + ticket.getVersion();
+    }
+}
@@ -0,0 +1,517 @@
+package dao;
+
+import model.Event;
+import model.EventFactory;
+import model.Ticket;
+import model.TicketFactory;
+import model.User;
+import model.UserFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class ShardedStoreTest {
+
+    private ShardedStore sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = ShardedStore.ofLocal(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.close();
+    }
+
+    private static User user(long id) {
+        return UserFactory.create(id, "User" + id, "user" + id + "@email.org");
+    }
+
+    private static int sizeOf(Store shard) {
+        return shard.getAll(Namespace.USER).size();
+    }
+
+    @Nested
+    @DisplayName("Testing routing")
+    class TestRouting {
+
+        @Test
+        @DisplayName("Entities are spread over every shard and read back from theirs")
+        void entitiesAreSpread() {
+            // when
+            for (long id = 1; id <= 10_000; id++) {
+                sut.save(Namespace.USER, id, user(id));
+            }
+
+            // then
+            assertThat(sut.shards().values()).allSatisfy(shard -> assertThat(sizeOf(shard)).isBetween(1_500, 3_500));
+            assertThat(sut.get(Namespace.USER, 42)).usingRecursiveComparison().isEqualTo(user(42));
+            assertThat(sut.get(Namespace.USER.supplementedWith(42))).containsSame(sut.get(Namespace.USER, 42));
+            assertThat(sut.getAll(Namespace.USER)).hasSize(10_000);
+            assertThat(sut.stream(Namespace.USER).parallel().count()).isEqualTo(10_000);
+        }
+
+        @Test
+        @DisplayName("Replace checks the version on the shard of the key")
+        void replaceChecksVersion() {
+            // given
+            sut.save(Namespace.USER, 1, user(1));
+            User update = user(1);
+
+            // when
+            boolean replaced = sut.replace(Namespace.USER, 1, 0, update);
+            boolean stale = sut.replace(Namespace.USER, 1, 0, user(1));
+
+            // then
+            assertThat(replaced).isTrue();
+            assertThat(stale).isFalse();
+            assertThat(((User) sut.get(Namespace.USER, 1)).getVersion()).isEqualTo(1);
+            assertThat(sut.delete(Namespace.USER, 1)).isTrue();
+            assertThat(sut.delete(Namespace.USER, 1)).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing shards added and removed")
+    class TestRebalancing {
+
+        @Test
+        @DisplayName("A new shard takes over its share of the entities only")
+        void addingMovesItsShareOnly() {
+            // given
+            for (long id = 1; id <= 10_000; id++) {
+                sut.save(Namespace.USER, id, user(id));
+            }
+            InMemoryStore added = new InMemoryStore();
+
+            // when
+            int moved = sut.addShard("shard-4", added);
+
+            // then
+            assertThat(moved).isEqualTo(added.size()).isBetween(1_200, 2_800);
+            assertThat(sut.shards().values().stream().mapToInt(ShardedStoreTest::sizeOf).sum()).isEqualTo(10_000);
+            for (long id = 1; id <= 10_000; id++) {
+                assertThat(sut.get(Namespace.USER, id)).usingRecursiveComparison().isEqualTo(user(id));
+            }
+        }
+
+        @Test
+        @DisplayName("A removed shard hands its entities over to the others")
+        void removingMovesItsOwnOnly() {
+            // given
+            for (long id = 1; id <= 1_000; id++) {
+                sut.save(Namespace.USER, id, user(id));
+            }
+            int own = sizeOf(sut.shards().get("shard-2"));
+
+            // when
+            Store removed = sut.removeShard("shard-2");
+
+            // then
+            assertThat(sut.shards()).hasSize(3).doesNotContainKey("shard-2");
+            assertThat(sizeOf(removed)).isZero();
+            assertThat(sut.getAll(Namespace.USER)).hasSize(1_000);
+            assertThat(own).isPositive();
+            assertThrows(IllegalArgumentException.class, () -> sut.removeShard("shard-2"));
+        }
+
+        @Test
+        @DisplayName("Only an empty shard can be added")
+        void nonEmptyShardIsRejected() {
+            // given
+            InMemoryStore shard = new InMemoryStore();
+            shard.save(Namespace.USER, 1, user(1));
+
+            // then
+            assertThrows(IllegalArgumentException.class, () -> sut.addShard("shard-4", shard));
+            assertThrows(IllegalArgumentException.class, () -> sut.addShard("shard-0", new InMemoryStore()));
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing listeners and transactions")
+    class TestListeners {
+
+        @Test
+        @DisplayName("A unique index vetoes a duplicate whatever the shard of either entity")
+        void uniqueAcrossShards() {
+            // given
+            UserDaoImpl users = new UserDaoImpl(sut, new IdGenerator());
+            users.save(user(1));
+
+            // when
+            for (long id = 2; id <= 50; id++) {
+                long duplicate = id;
+                assertThrows(IllegalStateException.class,
+                        () -> users.save(UserFactory.create(duplicate, "Other", "user1@email.org")));
+            }
+
+            // then
+            assertThat(sut.getAll(Namespace.USER)).extracting(user -> ((User) user).getId()).containsExactly(1L);
+            assertThat(users.findByEmail("user1@email.org").getId()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Concurrent writes of the same unique value on different shards leave a single owner")
+        void concurrentUniqueAcrossShards() throws Exception {
+            // given
+            UserDaoImpl users = new UserDaoImpl(sut, new IdGenerator());
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> writers = new ArrayList<>();
+
+            // when every email is claimed by eight ids at once
+            for (int thread = 0; thread < 8; thread++) {
+                long offset = thread * 1_000L;
+                writers.add(executor.submit(() -> {
+                    for (long id = 1; id <= 200; id++) {
+                        try {
+                            users.save(UserFactory.create(offset + id, "User" + id, "user" + id + "@email.org"));
+                        } catch (IllegalStateException e) {
+                            // taken by another thread
+                        }
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            // then
+            assertThat(sut.getAll(Namespace.USER)).hasSize(200)
+                    .extracting(user -> ((User) user).getEmail()).doesNotHaveDuplicates();
+            for (long id = 1; id <= 200; id++) {
+                User owner = users.findByEmail("user" + id + "@email.org");
+                assertThat(owner.getId() % 1_000).isEqualTo(id);
+                assertThat(sut.get(Namespace.USER, owner.getId())).isSameAs(owner);
+            }
+        }
+
+        @Test
+        @DisplayName("A vetoed write never reaches its shard, so readers never see it")
+        void vetoedWriteIsNeverVisible() {
+            // given
+            UserDaoImpl users = new UserDaoImpl(sut, new IdGenerator());
+            users.save(user(1));
+            List<Object> seen = new ArrayList<>();
+            sut.addListener(Namespace.USER, new StoreListener() {
+                @Override
+                public void beforePut(long id, Object previous, Object current) {
+                    seen.add(sut.get(Namespace.USER, 2));
+                }
+
+                @Override
+                public void afterPut(long id, Object previous, Object current) {
+                    seen.add(sut.get(Namespace.USER, 2));
+                }
+
+                @Override
+                public void afterRemove(long id, Object previous) {
+                }
+
+                @Override
+                public void afterClear() {
+                }
+            });
+            seen.clear();
+
+            // when
+            assertThrows(IllegalStateException.class,
+                    () -> users.save(UserFactory.create(2, "Other", "user1@email.org")));
+
+            // then
+            assertThat(seen).containsOnlyNulls();
+            assertThat(sut.get(Namespace.USER, 2)).isNull();
+            assertThat(users.findByEmail("user1@email.org").getId()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Writes of keys of different stripes call the listeners in parallel")
+        void listenersOfDifferentKeysRunInParallel() throws Exception {
+            // given
+            new UserDaoImpl(sut, new IdGenerator());
+            CountDownLatch entered = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            sut.addListener(Namespace.USER, new StoreListener() {
+                @Override
+                public void afterPut(long id, Object previous, Object current) {
+                    if (id == 1) {
+                        entered.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+
+                @Override
+                public void afterRemove(long id, Object previous) {
+                }
+
+                @Override
+                public void afterClear() {
+                }
+            });
+            long other = LongStream.rangeClosed(2, 1_000)
+                    .filter(id -> ShardedStore.stripeOf(Namespace.USER, id) != ShardedStore.stripeOf(Namespace.USER, 1))
+                    .findFirst().orElseThrow();
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+
+            // when the write of key 1 is held in its listener
+            Future<?> held = executor.submit(() -> sut.save(Namespace.USER, 1, user(1)));
+            assertThat(entered.await(10, TimeUnit.SECONDS)).isTrue();
+            Future<?> parallel = executor.submit(() -> sut.save(Namespace.USER, other, user(other)));
+
+            // then
+            try {
+                parallel.get(10, TimeUnit.SECONDS);
+            } finally {
+                release.countDown();
+            }
+            held.get(10, TimeUnit.SECONDS);
+            executor.shutdown();
+            assertThat(sut.getAll(Namespace.USER)).hasSize(2);
+        }
+
+        @Test
+        @DisplayName("Moving entities between shards does not reach the listeners")
+        void movesAreNotNotified() {
+            // given
+            UserDaoImpl users = new UserDaoImpl(sut, new IdGenerator());
+            for (long id = 1; id <= 1_000; id++) {
+                users.save(user(id));
+            }
+
+            // when
+            sut.addShard("shard-4", new InMemoryStore());
+            sut.removeShard("shard-0");
+
+            // then
+            for (long id = 1; id <= 1_000; id++) {
+                assertThat(users.findByEmail("user" + id + "@email.org").getId()).isEqualTo(id);
+            }
+        }
+
+        @Test
+        @DisplayName("A transaction over several shards is applied whole or not at all")
+        void transactionAcrossShards() {
+            // given
+            Event event = EventFactory.create(1, "Event1", new Date());
+            sut.save(Namespace.EVENT, 1, event);
+            for (long id = 1; id <= 20; id++) {
+                sut.save(Namespace.USER, id, user(id));
+            }
+            TicketDaoImpl tickets = new TicketDaoImpl(sut, new IdGenerator());
+            sut.addListener(Namespace.TICKET, new StoreListener() {
+                @Override
+                public void beforePut(long id, Object previous, Object current) {
+                    if (((Ticket) current).getPlace() == 51) {
+                        throw new IllegalStateException("Rejected");
+                    }
+                }
+
+                @Override
+                public void afterPut(long id, Object previous, Object current) {
+                }
+
+                @Override
+                public void afterRemove(long id, Object previous) {
+                }
+
+                @Override
+                public void afterClear() {
+                }
+            });
+            List<Ticket> booked = new ArrayList<>();
+            for (long id = 1; id <= 20; id++) {
+                booked.add(TicketFactory.create(100 + id, event, user(id), Ticket.Category.BAR, (int) id));
+            }
+
+            // when
+            tickets.bookAll(booked);
+            List<Ticket> rejected = List.of(
+                    TicketFactory.create(200, event, user(1), Ticket.Category.BAR, 50),
+                    TicketFactory.create(201, event, user(2), Ticket.Category.BAR, 51),
+                    TicketFactory.create(202, event, user(3), Ticket.Category.BAR, 52));
+
+            // then
+            assertThat(sut.getAll(Namespace.TICKET)).hasSize(20);
+            assertThrows(IllegalStateException.class, () -> tickets.bookAll(rejected));
+            assertThat(sut.get(Namespace.TICKET, 200)).isNull();
+            assertThat(sut.get(Namespace.TICKET, 201)).isNull();
+            assertThat(sut.get(Namespace.TICKET, 202)).isNull();
+            assertThat(tickets.findById(110)).isNotNull();
+        }
+
+        @Test
+        @DisplayName("Concurrent read-modify-write transactions over several shards lose no update")
+        void concurrentTransactions() throws Exception {
+            // given
+            sut.save(Namespace.USER, 1, user(1));
+            sut.save(Namespace.USER, 2, user(2));
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<Integer>> increments = new ArrayList<>();
+
+            // when
+            for (int i = 0; i < 8; i++) {
+                increments.add(executor.submit(() -> {
+                    int committed = 0;
+                    for (int j = 0; j < 100; j++) {
+                        Transaction tx = sut.begin();
+                        User first = (User) tx.get(Namespace.USER, 1);
+                        User second = (User) tx.get(Namespace.USER, 2);
+                        User nextFirst = user(1);
+                        nextFirst.setVersion(first.getVersion() + 1);
+                        User nextSecond = user(2);
+                        nextSecond.setVersion(second.getVersion() + 1);
+                        tx.put(Namespace.USER, 1, nextFirst).put(Namespace.USER, 2, nextSecond);
+                        try {
+                            tx.commit();
+                            committed++;
+                        } catch (IllegalStateException e) {
+                            // lost the race, retried by the next iteration
+                        }
+                    }
+                    return committed;
+                }));
+            }
+            int committed = 0;
+            for (Future<Integer> increment : increments) {
+                committed += increment.get();
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+            // then
+            assertThat(((User) sut.get(Namespace.USER, 1)).getVersion()).isEqualTo(committed);
+            assertThat(((User) sut.get(Namespace.USER, 2)).getVersion()).isEqualTo(committed);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing remote shards")
+    class TestRemote {
+
+        @Test
+        @DisplayName("Shards served over sockets behave as local ones")
+        void remoteShards() throws IOException {
+            // given
+            InMemoryStore first = new InMemoryStore();
+            InMemoryStore second = new InMemoryStore();
+            try (StoreServer firstServer = new StoreServer(first, 0);
+                 StoreServer secondServer = new StoreServer(second, 0);
+                 ShardedStore store = new ShardedStore()) {
+                store.addShard("remote-0", new RemoteStore("localhost", firstServer.port()));
+                store.addShard("remote-1", new RemoteStore("localhost", secondServer.port()));
+                UserDaoImpl users = new UserDaoImpl(store, new IdGenerator());
+                Event event = EventFactory.create(1_000, "Event", new Date(0));
+                store.save(Namespace.EVENT, event.getId(), event);
+
+                // when
+                for (long id = 1; id <= 200; id++) {
+                    users.save(user(id));
+                }
+                store.save(Namespace.TICKET, 1, TicketFactory.create(1, event, user(7), Ticket.Category.PREMIUM, 3));
+                boolean replaced = store.replace(Namespace.USER, 5, 0, UserFactory.create(5, "Renamed", "user5@email.org"));
+
+                // then
+                assertThat(first.size(Namespace.USER)).isPositive();
+                assertThat(second.size(Namespace.USER)).isPositive();
+                assertThat(first.size() + second.size()).isEqualTo(202);
+                assertThat(store.getAll(Namespace.USER)).hasSize(200);
+                assertThat(replaced).isTrue();
+                assertThat(((User) store.get(Namespace.USER, 5)).getName()).isEqualTo("Renamed");
+                Ticket ticket = (Ticket) store.get(Namespace.TICKET, 1);
+                assertThat(ticket.getUserId()).isEqualTo(7);
+                assertThat(ticket.getEventId()).isEqualTo(1_000);
+                assertThat(ticket.getPlace()).isEqualTo(3);
+                assertThrows(IllegalStateException.class,
+                        () -> users.save(UserFactory.create(300, "Other", "user1@email.org")));
+                assertThat(store.get(Namespace.USER, 300)).isNull();
+            }
+        }
+
+        @Test
+        @DisplayName("Errors of the served store are rethrown by the client")
+        void errorsAreRethrown() throws IOException {
+            // given
+            Store failing = new InMemoryStore() {
+                @Override
+                public Object save(Namespace ns, long id, Object obj) {
+                    throw new IllegalArgumentException("Rejected " + id);
+                }
+            };
+            try (StoreServer server = new StoreServer(failing, 0);
+                 RemoteStore client = new RemoteStore("localhost", server.port())) {
+
+                // when
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                        () -> client.save(Namespace.USER, 1, user(1)));
+
+                // then
+                assertThat(e).hasMessage("Rejected 1");
+                assertThat(client.get(Namespace.USER, 1)).isNull();
+                assertThat(client.getAll(Namespace.USER)).isEmpty();
+            }
+        }
+
+        @Test
+        @DisplayName("A server which does not answer fails the call once the read timeout is over")
+        void silentServerTimesOut() throws IOException {
+            try (ServerSocket silent = new ServerSocket(0);
+                 RemoteStore client = new RemoteStore(new InetSocketAddress("localhost", silent.getLocalPort()),
+                         1_000, 200)) {
+
+                // when
+                UncheckedIOException e = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                        () -> assertThrows(UncheckedIOException.class, () -> client.get(Namespace.USER, 1)));
+
+                // then
+                assertThat(e).hasCauseInstanceOf(SocketTimeoutException.class);
+            }
+        }
+
+        @Test
+        @DisplayName("A call failing on the client closes its connection rather than reusing it midway a request")
+        void failedCallClosesConnection() throws IOException {
+            try (ServerSocket server = new ServerSocket(0);
+                 RemoteStore client = new RemoteStore("localhost", server.getLocalPort())) {
+
+                // when an event is written as a user
+                assertThrows(ClassCastException.class,
+                        () -> client.save(Namespace.USER, 1, EventFactory.create(1, "Event1", new Date())));
+
+                // then
+                try (Socket accepted = server.accept()) {
+                    accepted.setSoTimeout(5_000);
+                    assertThat(accepted.getInputStream().read()).as("end of stream").isEqualTo(-1);
+                }
+            }
+        }
+    }
+}
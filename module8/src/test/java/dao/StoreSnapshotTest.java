@@ -0,0 +1,139 @@
+package dao;
+
+import model.Event;
+import model.EventFactory;
+import model.Ticket;
+import model.TicketFactory;
+import model.User;
+import model.UserFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StoreSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private InMemoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryStore();
+        Event event = EventFactory.create(1, "Dummy title", new Date(1_700_000_000_000L));
+        User user = UserFactory.create(2, "Dummy Name", "dummy@email.com");
+        store.save(Namespace.EVENT, 1, event);
+        store.save(Namespace.EVENT, 5, EventFactory.create(5, null, null));
+        store.save(Namespace.USER, 2, user);
+        store.save(Namespace.TICKET, 3, TicketFactory.create(3, event, user, Ticket.Category.PREMIUM, 4));
+    }
+
+    @Nested
+    @DisplayName("Testing snapshot round trip")
+    class TestRoundTrip {
+
+        @Test
+        @DisplayName("A restored store holds what was checkpointed")
+        void restoreCheckpoint() {
+            // given
+            Path snapshot = dir.resolve("store.snapshot");
+            store.replace(Namespace.EVENT, 1, 0, EventFactory.create(1, "Dummy title", new Date(1_700_000_000_000L)));
+            store.checkpoint(snapshot);
+
+            // when
+            InMemoryStore restored = new InMemoryStore();
+            restored.restore(snapshot);
+
+            // then
+            assertThat(restored.size()).isEqualTo(4);
+            Event event = (Event) restored.get(Namespace.EVENT, 1);
+            assertThat(event.getTitle()).isEqualTo("Dummy title");
+            assertThat(event.getDate()).isEqualTo(new Date(1_700_000_000_000L));
+            assertThat(event.getVersion()).isEqualTo(1);
+            Event empty = (Event) restored.get(Namespace.EVENT, 5);
+            assertThat(empty.getTitle()).isNull();
+            assertThat(empty.getDate()).isNull();
+            Ticket ticket = (Ticket) restored.get(Namespace.TICKET, 3);
+            assertThat(ticket.getEventId()).isEqualTo(1);
+            assertThat(ticket.getUserId()).isEqualTo(2);
+            assertThat(ticket.getCategory()).isEqualTo(Ticket.Category.PREMIUM);
+            assertThat(ticket.getPlace()).isEqualTo(4);
+            assertThat(((User) restored.get(Namespace.USER, 2)).getEmail()).isEqualTo("dummy@email.com");
+        }
+
+        @Test
+        @DisplayName("Checkpoint truncates the log, which then holds the later writes only")
+        void checkpointTruncatesLog() {
+            // given
+            Path snapshot = dir.resolve("store.snapshot");
+            Path log = dir.resolve("store.wal");
+            store.recover(WriteAheadLog.open(log, WriteAheadLog.Durability.SYNC, 0));
+            store.save(Namespace.USER, 6, UserFactory.create(6, "Dummy Name6", "dummy6@email.com"));
+            store.checkpoint(snapshot);
+            store.delete(Namespace.TICKET, 3);
+            store.close();
+
+            // when
+            InMemoryStore restarted = new InMemoryStore();
+            restarted.restore(snapshot);
+            restarted.recover(WriteAheadLog.open(log, WriteAheadLog.Durability.SYNC, 0));
+
+            // then
+            assertThat(restarted.get(Namespace.USER, 6)).isNotNull();
+            assertThat(restarted.get(Namespace.TICKET, 3)).isNull();
+            assertThat(restarted.size()).isEqualTo(4);
+            restarted.close();
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing snapshot validation")
+    class TestValidation {
+
+        @Test
+        @DisplayName("Only an empty store can be restored")
+        void restoreIntoNonEmptyStore() {
+            // given
+            Path snapshot = dir.resolve("store.snapshot");
+            store.checkpoint(snapshot);
+
+            // when, then
+            assertThrows(IllegalStateException.class, () -> store.restore(snapshot));
+        }
+
+        @Test
+        @DisplayName("A file of another kind is rejected")
+        void foreignFileIsRejected() throws IOException {
+            // given
+            Path snapshot = dir.resolve("store.snapshot");
+            Files.writeString(snapshot, "type,id,name,email");
+
+            // when, then
+            assertThrows(IllegalStateException.class, () -> new InMemoryStore().restore(snapshot));
+        }
+
+        @Test
+        @DisplayName("A truncated snapshot is rejected")
+        void truncatedFileIsRejected() throws IOException {
+            // given
+            Path snapshot = dir.resolve("store.snapshot");
+            store.checkpoint(snapshot);
+            byte[] bytes = Files.readAllBytes(snapshot);
+            Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 5));
+
+            // when, then
+            assertThrows(IllegalStateException.class, () -> new InMemoryStore().restore(snapshot));
+        }
+    }
+}
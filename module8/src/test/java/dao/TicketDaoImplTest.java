@@ -0,0 +1,370 @@
+package dao;
+
+import config.StoreData;
+import model.Event;
+import model.EventFactory;
+import model.Ticket;
+import model.TicketFactory;
+import model.User;
+import model.UserFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TicketDaoImplTest {
+
+    private InMemoryStore store;
+    private TicketDao sut;
+
+    @BeforeEach
+    void setUp() {
+        StoreData sti = StoreData.fromString("""
+                                                user,1,Dummy Name1,dummy1@email.com
+                                                user,2,Dummy Name2,dummy2@email.com
+                                                event,3,Dummy title3,2023-12-31
+                                                event,4,Dummy title4,2023-12-31
+                                                ticket,5,BAR,1,3,6
+                                                ticket,6,BAR,2,3,7
+                                                ticket,7,BAR,2,4,8
+                                                """);
+
+        store = new InMemoryStore(sti.load());
+        sut = new TicketDaoImpl(store, new IdGenerator());
+    }
+
+    @Nested
+    @DisplayName("Testing ticket secondary indexes")
+    class TestSecondaryIndexes {
+
+        @Test
+        @DisplayName("Tickets already in the store are indexed")
+        void preloadedTicketsAreIndexed() {
+            assertThat(sut.findByEventId(3)).extracting(Ticket::getId).containsExactlyInAnyOrder(5L, 6L);
+            assertThat(sut.findByUserId(2)).extracting(Ticket::getId).containsExactlyInAnyOrder(6L, 7L);
+            assertThat(sut.findByUserId(3)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Saved and deleted tickets are reflected")
+        void indexFollowsWrites() {
+            // given
+            Event event = (Event) store.get(Namespace.EVENT, 3);
+            User user = (User) store.get(Namespace.USER, 1);
+
+            // when
+            Ticket saved = sut.save(TicketFactory.createNonPersisted(event, user, Ticket.Category.STANDARD, 9));
+            sut.deleteById(PrimaryKey.ticketKey(6));
+
+            // then
+            assertThat(sut.findByEventId(3)).extracting(Ticket::getId).containsExactlyInAnyOrder(5L, saved.getId());
+            assertThat(sut.findByUserId(2)).extracting(Ticket::getId).containsExactly(7L);
+        }
+
+        @Test
+        @DisplayName("Clearing the store empties the indexes")
+        void indexFollowsClear() {
+            // when
+            store.clear();
+
+            // then
+            assertThat(sut.findByEventId(3)).isEmpty();
+            assertThat(sut.findByUserId(2)).isEmpty();
+        }
+    
+        @Test
+        @DisplayName("Changing a user email re-sorts the tickets of an event")
+        void orderFollowsUserEmail() {
+            // given
+            assertThat(sut.findByEventId(3)).extracting(Ticket::getId).containsExactly(5L, 6L);
+
+            // when
+            store.save(Namespace.USER, 2, UserFactory.create(2, "Dummy Name2", "a-dummy2@email.com"));
+
+            // then
+            assertThat(sut.findByEventId(3)).extracting(Ticket::getId).containsExactly(6L, 5L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing cursor pagination")
+    class TestCursorPagination {
+
+        @Test
+        @DisplayName("Pages are read until the cursor runs out")
+        void pagesFollowEachOther() {
+            // when
+            Page<Ticket> first = sut.findByEventId(3, null, 1);
+            Page<Ticket> second = sut.findByEventId(3, first.next(), 1);
+
+            // then
+            assertThat(first.items()).extracting(Ticket::getId).containsExactly(5L);
+            assertThat(second.items()).extracting(Ticket::getId).containsExactly(6L);
+            assertThat(second.hasNext()).as("an exactly full last page has no successor").isFalse();
+        }
+
+        @Test
+        @DisplayName("Tickets saved before the cursor do not shift the next page")
+        void insertBeforeCursor() {
+            // given
+            Page<Ticket> first = sut.findByEventId(3, null, 1);
+            Event event = (Event) store.get(Namespace.EVENT, 3);
+            User user = UserFactory.create(10, "Dummy Name0", "a@email.com");
+            store.save(Namespace.USER, 10, user);
+
+            // when
+            sut.save(TicketFactory.createNonPersisted(event, user, Ticket.Category.STANDARD, 9));
+            Page<Ticket> second = sut.findByEventId(3, first.next(), 1);
+
+            // then
+            assertThat(second.items()).extracting(Ticket::getId).containsExactly(6L);
+        }
+
+        @Test
+        @DisplayName("A cursor of a query of another order is rejected")
+        void foreignCursor() {
+            // given
+            Page<Ticket> byUser = sut.findByUserId(2, null, 1);
+
+            // when, then
+            assertThat(byUser.hasNext()).isTrue();
+            assertThrows(IllegalArgumentException.class, () -> sut.findByEventId(3, byUser.next(), 1));
+        }
+
+        @Test
+        @DisplayName("Pages of many tickets follow the event date order as tickets are added and removed")
+        void pagesOfManyTickets() {
+            // given
+            User user = (User) store.get(Namespace.USER, 1);
+            for (long id = 100; id < 400; id++) {
+                Event event = EventFactory.create(id, "Event" + id, new Date(id % 37 * 86_400_000L));
+                store.save(Namespace.EVENT, id, event);
+                sut.save(TicketFactory.createNonPersisted(event, user, Ticket.Category.STANDARD, 1));
+            }
+
+            // when
+            List<Long> all = pagedTicketsOf(1);
+            List<Long> allSorted = sortedTicketsOf(1);
+            store.getAll(Namespace.TICKET).stream()
+                    .map(ticket -> (Ticket) ticket)
+                    .filter(ticket -> ticket.getId() % 3 == 0)
+                    .toList()
+                    .forEach(ticket -> sut.delete(ticket));
+            List<Long> remaining = pagedTicketsOf(1);
+
+            // then
+            assertThat(all).hasSize(301).containsExactlyElementsOf(allSorted);
+            assertThat(remaining).containsExactlyElementsOf(sortedTicketsOf(1))
+                    .noneMatch(id -> id % 3 == 0);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing concurrent indexing")
+    class TestConcurrentIndexing {
+
+        @Test
+        @DisplayName("Tickets saved while event dates change end up in the order of the final dates")
+        void savesDuringDateChanges() throws Exception {
+            // given
+            for (long id = 100; id < 110; id++) {
+                store.save(Namespace.EVENT, id, EventFactory.create(id, "Event" + id, new Date(id * 86_400_000L)));
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(5);
+            List<Future<?>> writers = new ArrayList<>();
+            AtomicBoolean saving = new AtomicBoolean(true);
+
+            // when
+            for (int thread = 0; thread < 4; thread++) {
+                int firstPlace = 100 + thread * 1_000;
+                writers.add(executor.submit(() -> {
+                    for (int place = firstPlace; place < firstPlace + 500; place++) {
+                        Event event = (Event) store.get(Namespace.EVENT, 100 + place % 10);
+                        User user = (User) store.get(Namespace.USER, 1 + place % 2);
+                        sut.save(TicketFactory.createNonPersisted(event, user, Ticket.Category.STANDARD, place));
+                    }
+                }));
+            }
+            Future<?> dates = executor.submit(() -> {
+                Random random = new Random(42);
+                while (saving.get()) {
+                    long id = 100 + random.nextInt(10);
+                    store.save(Namespace.EVENT, id, EventFactory.create(id, "Event" + id,
+                            new Date(random.nextInt(30) * 86_400_000L)));
+                }
+            });
+            try {
+                for (Future<?> writer : writers) {
+                    writer.get(30, TimeUnit.SECONDS);
+                }
+            } finally {
+                saving.set(false);
+            }
+            dates.get(30, TimeUnit.SECONDS);
+            executor.shutdown();
+
+            // then
+            for (long userId = 1; userId <= 2; userId++) {
+                List<Long> expected = sortedTicketsOf(userId);
+                assertThat(expected).hasSizeGreaterThanOrEqualTo(1_000);
+                assertThat(sut.findByUserId(userId)).extracting(Ticket::getId).containsExactlyElementsOf(expected);
+                assertThat(pagedTicketsOf(userId)).containsExactlyElementsOf(expected);
+            }
+        }
+    }
+
+    /**
+     * Reads the tickets of the user page by page.
+     */
+    private List<Long> pagedTicketsOf(long userId) {
+        List<Long> ids = new ArrayList<>();
+        Cursor after = null;
+        do {
+            Page<Ticket> page = sut.findByUserId(userId, after, 7);
+            page.items().forEach(ticket -> ids.add(ticket.getId()));
+            after = page.next();
+        } while (after != null);
+        return ids;
+    }
+
+    /**
+     * Ids of the stored tickets of the user, newest event first, as the index should list them.
+     */
+    private List<Long> sortedTicketsOf(long userId) {
+        return store.getAll(Namespace.TICKET).stream()
+                .map(ticket -> (Ticket) ticket)
+                .filter(ticket -> ticket.getUserId() == userId)
+                .sorted(Comparator.comparingLong((Ticket ticket) -> dateOf(ticket.getEventId())).reversed()
+                        .thenComparingLong(Ticket::getId))
+                .map(Ticket::getId)
+                .toList();
+    }
+
+    private long dateOf(long eventId) {
+        Event event = (Event) store.get(Namespace.EVENT, eventId);
+        return event == null || event.getDate() == null ? Long.MIN_VALUE : event.getDate().getTime();
+    }
+
+    @Nested
+    @DisplayName("Testing booking")
+    class TestBooking {
+
+        @Test
+        @DisplayName("A booked ticket is stored and indexed")
+        void bookStoresTicket() {
+            // given
+            Event event = (Event) store.get(Namespace.EVENT, 4);
+            User user = (User) store.get(Namespace.USER, 1);
+
+            // when
+            Ticket booked = sut.book(TicketFactory.createNonPersisted(event, user, Ticket.Category.PREMIUM, 9));
+
+            // then
+            assertThat(sut.findById(booked.getId())).isSameAs(booked);
+            assertThat(sut.findByUserId(1)).extracting(Ticket::getId).contains(booked.getId());
+        }
+
+        @Test
+        @DisplayName("A ticket of a deleted event is not booked")
+        void bookOfDeletedEvent() {
+            // given
+            Event event = (Event) store.get(Namespace.EVENT, 4);
+            User user = (User) store.get(Namespace.USER, 1);
+            store.delete(Namespace.EVENT, 4);
+
+            // when, then
+            assertThrows(IllegalArgumentException.class,
+                    () -> sut.book(TicketFactory.createNonPersisted(event, user, Ticket.Category.PREMIUM, 9)));
+            assertThat(sut.findByUserId(1)).extracting(Ticket::getId).containsExactly(5L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing places")
+    class TestPlaces {
+
+        @Test
+        @DisplayName("A ticket saved on a place held by another one is rejected, even without a reservation")
+        void saveOnTakenPlace() {
+            // given
+            Event event = (Event) store.get(Namespace.EVENT, 3);
+            User user = (User) store.get(Namespace.USER, 1);
+
+            // when
+            assertThrows(IllegalStateException.class,
+                    () -> sut.save(TicketFactory.createNonPersisted(event, user, Ticket.Category.BAR, 6)));
+            Ticket unreserved = TicketFactory.create(20, event, user, Ticket.Category.BAR, 6);
+            assertThrows(IllegalStateException.class, () -> store.save(Namespace.TICKET, 20, unreserved));
+            sut.deleteById(PrimaryKey.ticketKey(5));
+
+            // then
+            assertThat(sut.findByEventId(3)).extracting(Ticket::getId).containsExactly(6L);
+            assertThat(sut.reservePlace(3, 6)).as("place of the ticket deleted").isTrue();
+            assertThat(sut.reservePlace(3, 7)).as("place of the ticket kept").isFalse();
+        }
+
+        @Test
+        @DisplayName("A ticket moves only to a free place and frees the one it leaves")
+        void updateMovesPlace() {
+            // given
+            Ticket ticket = sut.findById(5);
+
+            // when
+            Ticket taken = TicketFactory.clone(ticket);
+            taken.setPlace(7);
+            assertThrows(IllegalStateException.class, () -> sut.update(taken));
+            Ticket free = TicketFactory.clone(ticket);
+            free.setPlace(9);
+            sut.update(free);
+
+            // then
+            assertThat(sut.findById(5).getPlace()).isEqualTo(9);
+            assertThat(sut.reservePlace(3, 9)).isFalse();
+            assertThat(sut.reservePlace(3, 6)).isTrue();
+            assertThat(sut.reservePlace(3, 7)).isFalse();
+        }
+
+        @Test
+        @DisplayName("DAOs over the same store share the places")
+        void placesArePerStore() {
+            // given
+            TicketDao other = new TicketDaoImpl(store, new IdGenerator());
+
+            // when
+            boolean reserved = other.reservePlace(4, 20);
+
+            // then
+            assertThat(reserved).isTrue();
+            assertThat(sut.reservePlace(4, 20)).isFalse();
+            assertThat(sut.reservePlace(4, 8)).as("place of a stored ticket").isFalse();
+        }
+
+        @Test
+        @DisplayName("A store holding two tickets of the same place is rejected")
+        void duplicatePlacesAreRejected() {
+            // given
+            InMemoryStore duplicated = new InMemoryStore();
+            Event event = EventFactory.create(1, "Event1", null);
+            User user = UserFactory.create(2, "User2", "user2@email.com");
+            duplicated.save(Namespace.TICKET, 1, TicketFactory.create(1, event, user, Ticket.Category.BAR, 3));
+            duplicated.save(Namespace.TICKET, 2, TicketFactory.create(2, event, user, Ticket.Category.BAR, 3));
+
+            // when, then
+            assertThrows(IllegalStateException.class, () -> new TicketDaoImpl(duplicated, new IdGenerator()));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dao;
+
+import config.StoreData;
+import model.User;
+import model.UserFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserDaoImplTest {
+
+    private InMemoryStore store;
+    private UserDao sut;
+
+    @BeforeEach
+    void setUp() {
+        StoreData sti = StoreData.fromString("""
+                                                user,1,Dummy Name1,dummy1@email.com
+                                                user,2,Dummy Name2,dummy2@email.com
+                                                """);
+
+        store = new InMemoryStore(sti.load());
+        sut = new UserDaoImpl(store, new IdGenerator());
+    }
+
+    @Nested
+    @DisplayName("Testing unique email index")
+    class TestEmailIndex {
+
+        @Test
+        @DisplayName("Email lookup follows updates and deletes")
+        void lookupFollowsWrites() {
+            // when
+            sut.save(UserFactory.create(1, "Dummy Name1", "renamed@email.com"));
+            sut.deleteById(PrimaryKey.userKey(2));
+
+            // then
+            assertThat(sut.findByEmail("renamed@email.com")).extracting(User::getId).isEqualTo(1L);
+            assertThat(sut.findByEmail("dummy1@email.com")).isNull();
+            assertThat(sut.findByEmail("dummy2@email.com")).isNull();
+        }
+
+        @Test
+        @DisplayName("Email changed in place on the stored user is released on update")
+        void inPlaceChangeReleasesEmail() {
+            // given
+            User user = sut.findById(1);
+            user.setEmail("renamed@email.com");
+
+            // when
+            sut.update(user);
+            User other = sut.save(UserFactory.create(2, "Dummy Name2", "dummy1@email.com"));
+
+            // then
+            assertThat(sut.findByEmail("renamed@email.com")).extracting(User::getId).isEqualTo(1L);
+            assertThat(sut.findByEmail("dummy1@email.com")).isSameAs(other);
+        }
+
+        @Test
+        @DisplayName("A released email can be taken again")
+        void releasedEmailCanBeReused() {
+            // given
+            sut.save(UserFactory.create(1, "Dummy Name1", "renamed@email.com"));
+
+            // when
+            User user = sut.save(UserFactory.createNonPersisted("Dummy Name3", "dummy1@email.com"));
+
+            // then
+            assertThat(sut.findByEmail("dummy1@email.com")).isSameAs(user);
+        }
+
+        @Test
+        @DisplayName("Duplicate email is rejected without changing the store")
+        void duplicateIsRejected() {
+            assertThrows(IllegalStateException.class,
+                    () -> sut.save(UserFactory.create(1, "Dummy Name1", "dummy2@email.com")));
+
+            assertThat(sut.findById(1)).extracting(User::getEmail).isEqualTo("dummy1@email.com");
+            assertThat(sut.findByEmail("dummy2@email.com")).extracting(User::getId).isEqualTo(2L);
+        }
+
+        @Test
+        @DisplayName("Only one of concurrent creations with the same email succeeds")
+        void concurrentCreation() throws InterruptedException {
+            // given
+            int threads = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Callable<User>> creations = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                creations.add(() -> {
+                    start.await();
+                    return sut.save(UserFactory.createNonPersisted("Racer", "race@email.com"));
+                });
+            }
+
+            // when
+            List<Future<User>> results = new ArrayList<>();
+            creations.forEach(creation -> results.add(executor.submit(creation)));
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<User> result : results) {
+                try {
+                    result.get();
+                    succeeded++;
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+                }
+            }
+            executor.shutdown();
+
+            // then
+            assertThat(succeeded).isEqualTo(1);
+            assertThat(store.size(Namespace.USER)).isEqualTo(3);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing name search")
+    class TestNameSearch {
+
+        @Test
+        @DisplayName("Name is matched using 'contains' approach, optionally ignoring case")
+        void containsMatch() {
+            // given
+            sut.save(UserFactory.create(3, "John Smith", "john@email.com"));
+
+            // then
+            assertThat(sut.findByName("Name")).extracting(User::getId).containsExactly(1L, 2L);
+            assertThat(sut.findByName("name")).isEmpty();
+            assertThat(sut.findByNameIgnoreCase("name")).extracting(User::getId).containsExactly(1L, 2L);
+            assertThat(sut.findByNameIgnoreCase("SMITH")).extracting(User::getId).containsExactly(3L);
+        }
+    }
+}
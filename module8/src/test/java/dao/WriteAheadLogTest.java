@@ -0,0 +1,241 @@
+package dao;
+
+import model.Event;
+import model.EventFactory;
+import model.Ticket;
+import model.TicketFactory;
+import model.User;
+import model.UserFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    private InMemoryStore recovered(Path file, WriteAheadLog.Durability durability) {
+        InMemoryStore store = new InMemoryStore();
+        store.recover(WriteAheadLog.open(file, durability, 5));
+        return store;
+    }
+
+    @Nested
+    @DisplayName("Testing replay")
+    class TestReplay {
+
+        @Test
+        @DisplayName("Writes survive a restart")
+        void writesAreReplayed() {
+            // given
+            Path file = dir.resolve("store.wal");
+            InMemoryStore store = recovered(file, WriteAheadLog.Durability.SYNC);
+            Event event = EventFactory.create(1, "Dummy title", new Date(1_700_000_000_000L));
+            User user = UserFactory.create(2, "Dummy Name", "dummy@email.com");
+            store.save(Namespace.EVENT, 1, event);
+            store.save(Namespace.USER, 2, user);
+            store.save(Namespace.TICKET, 3, TicketFactory.create(3, event, user, Ticket.Category.BAR, 7));
+            store.save(Namespace.TICKET, 4, TicketFactory.create(4, event, user, Ticket.Category.PREMIUM, 8));
+            store.delete(Namespace.TICKET, 4);
+            store.close();
+
+            // when
+            InMemoryStore restarted = recovered(file, WriteAheadLog.Durability.SYNC);
+
+            // then
+            assertThat(restarted.size()).isEqualTo(3);
+            Event replayedEvent = (Event) restarted.get(Namespace.EVENT, 1);
+            assertThat(replayedEvent.getTitle()).isEqualTo("Dummy title");
+            assertThat(replayedEvent.getDate()).isEqualTo(event.getDate());
+            assertThat(((User) restarted.get(Namespace.USER, 2)).getEmail()).isEqualTo("dummy@email.com");
+            Ticket ticket = (Ticket) restarted.get(Namespace.TICKET, 3);
+            assertThat(ticket.getEventId()).isEqualTo(1);
+            assertThat(ticket.getUserId()).isEqualTo(2);
+            assertThat(ticket.getCategory()).isEqualTo(Ticket.Category.BAR);
+            assertThat(ticket.getPlace()).isEqualTo(7);
+            restarted.close();
+        }
+
+        @Test
+        @DisplayName("Clearing the store is replayed")
+        void clearIsReplayed() {
+            // given
+            Path file = dir.resolve("store.wal");
+            InMemoryStore store = recovered(file, WriteAheadLog.Durability.BATCH);
+            store.save(Namespace.USER, 1, UserFactory.create(1, "Dummy Name", "dummy@email.com"));
+            store.clear();
+            store.save(Namespace.USER, 2, UserFactory.create(2, "Dummy Name2", "dummy2@email.com"));
+            store.close();
+
+            // when
+            InMemoryStore restarted = recovered(file, WriteAheadLog.Durability.BATCH);
+
+            // then
+            assertThat(restarted.get(Namespace.USER, 1)).isNull();
+            assertThat(restarted.get(Namespace.USER, 2)).isNotNull();
+            restarted.close();
+        }
+
+        @Test
+        @DisplayName("A committed transaction is replayed")
+        void transactionIsReplayed() {
+            // given
+            Path file = dir.resolve("store.wal");
+            InMemoryStore store = recovered(file, WriteAheadLog.Durability.BATCH);
+            store.save(Namespace.USER, 1, UserFactory.create(1, "Dummy Name", "dummy@email.com"));
+            store.begin()
+                    .delete(Namespace.USER, 1)
+                    .put(Namespace.USER, 2, UserFactory.create(2, "Dummy Name2", "dummy2@email.com"))
+                    .put(Namespace.EVENT, 3, EventFactory.create(3, "Dummy title", null))
+                    .commit();
+            store.close();
+
+            // when
+            InMemoryStore restarted = recovered(file, WriteAheadLog.Durability.BATCH);
+
+            // then
+            assertThat(restarted.get(Namespace.USER, 1)).isNull();
+            assertThat(restarted.get(Namespace.USER, 2)).isNotNull();
+            assertThat(((Event) restarted.get(Namespace.EVENT, 3)).getTitle()).isEqualTo("Dummy title");
+            restarted.close();
+        }
+
+        @Test
+        @DisplayName("A torn tail is cut off and the log stays writable")
+        void tornTailIsCutOff() throws IOException {
+            // given
+            Path file = dir.resolve("store.wal");
+            InMemoryStore store = recovered(file, WriteAheadLog.Durability.SYNC);
+            store.save(Namespace.USER, 1, UserFactory.create(1, "Dummy Name", "dummy@email.com"));
+            store.save(Namespace.USER, 2, UserFactory.create(2, "Dummy Name2", "dummy2@email.com"));
+            store.close();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 3);
+            }
+
+            // when
+            InMemoryStore restarted = recovered(file, WriteAheadLog.Durability.SYNC);
+            restarted.save(Namespace.USER, 3, UserFactory.create(3, "Dummy Name3", "dummy3@email.com"));
+            restarted.close();
+            InMemoryStore again = recovered(file, WriteAheadLog.Durability.SYNC);
+
+            // then
+            assertThat(again.get(Namespace.USER, 1)).isNotNull();
+            assertThat(again.get(Namespace.USER, 2)).as("torn record is lost").isNull();
+            assertThat(again.get(Namespace.USER, 3)).isNotNull();
+            again.close();
+        }
+
+        @Test
+        @DisplayName("A file of another kind is rejected")
+        void foreignFileIsRejected() throws IOException {
+            // given
+            Path file = dir.resolve("store.wal");
+            Files.writeString(file, "type,id,name,email");
+
+            // when
+            InMemoryStore store = new InMemoryStore();
+            WriteAheadLog log = WriteAheadLog.open(file, WriteAheadLog.Durability.SYNC, 0);
+
+            // then
+            assertThrows(IllegalStateException.class, () -> store.recover(log));
+            log.close();
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing durability")
+    class TestDurability {
+
+        @Test
+        @DisplayName("Concurrent writers share forces of the log")
+        void groupCommit() throws Exception {
+            // given
+            Path file = dir.resolve("store.wal");
+            InMemoryStore store = recovered(file, WriteAheadLog.Durability.BATCH);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+
+            // when
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 1; i <= 400; i++) {
+                long id = i;
+                writes.add(executor.submit(() ->
+                        store.save(Namespace.USER, id, UserFactory.create(id, "Name" + id, "user" + id + "@email.com"))));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+            executor.shutdown();
+            store.close();
+
+            // then
+            assertThat(recovered(file, WriteAheadLog.Durability.BATCH).size(Namespace.USER)).isEqualTo(400);
+        }
+
+        @Test
+        @DisplayName("Periodic log is forced on close")
+        void periodicFlushOnClose() {
+            // given
+            Path file = dir.resolve("store.wal");
+            InMemoryStore store = recovered(file, WriteAheadLog.Durability.PERIODIC);
+
+            // when
+            store.save(Namespace.USER, 1, UserFactory.create(1, "Dummy Name", "dummy@email.com"));
+            store.close();
+
+            // then
+            assertThat(recovered(file, WriteAheadLog.Durability.PERIODIC).get(Namespace.USER, 1)).isNotNull();
+        }
+
+        @Test
+        @DisplayName("Closing while the periodic flush runs keeps every write")
+        void closeDuringPeriodicFlush() {
+            for (int round = 0; round < 20; round++) {
+                // given
+                Path file = dir.resolve("store-" + round + ".wal");
+                InMemoryStore store = new InMemoryStore();
+                store.recover(WriteAheadLog.open(file, WriteAheadLog.Durability.PERIODIC, 1));
+
+                // when the flusher runs all along the writes
+                for (long id = 1; id <= 2_000; id++) {
+                    store.save(Namespace.USER, id, UserFactory.create(id, "Name" + id, "user" + id + "@email.com"));
+                }
+                store.close();
+
+                // then
+                assertThat(recovered(file, WriteAheadLog.Durability.PERIODIC).size(Namespace.USER))
+                        .as("users of round %d", round).isEqualTo(2_000);
+            }
+        }
+
+        @Test
+        @DisplayName("A closed log refuses writes")
+        void closedLogRefusesWrites() {
+            // given
+            InMemoryStore store = recovered(dir.resolve("store.wal"), WriteAheadLog.Durability.SYNC);
+            store.close();
+
+            // when, then
+            assertThrows(IllegalStateException.class,
+                    () -> store.save(Namespace.USER, 1, UserFactory.create(1, "Dummy Name", "dummy@email.com")));
+            assertThat(store.get(Namespace.USER, 1)).as("refused write is not applied").isNull();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package facade;
+
+import model.Event;
+import model.EventFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+
+class DefaultAsyncBookingFacadeTest {
+
+    private BookingFacade facade;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        facade = mock(BookingFacade.class);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Nested
+    @DisplayName("Testing delegation")
+    class TestDelegation {
+
+        @Test
+        @DisplayName("The future completes with the result of the facade")
+        void completesWithResult() throws Exception {
+            // given
+            Event event = EventFactory.create(1, "Dummy title", null);
+            given(facade.getEventById(1)).willReturn(event);
+            AsyncBookingFacade sut = BookingFacadeFactory.createAsync(facade, executor, 4);
+
+            // when
+            CompletableFuture<Event> result = sut.getEventById(1);
+
+            // then
+            assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(event);
+        }
+
+        @Test
+        @DisplayName("The future fails with the exception of the facade")
+        void failsWithException() {
+            // given
+            given(facade.cancelTicket(0)).willThrow(new IllegalArgumentException("ticketId must be greater than 0"));
+            AsyncBookingFacade sut = BookingFacadeFactory.createAsync(facade, executor, 4);
+
+            // when
+            CompletableFuture<Boolean> result = sut.cancelTicket(0);
+
+            // then
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("A closed facade takes no operation")
+        void closedFacade() {
+            // given
+            AsyncBookingFacade sut = BookingFacadeFactory.createAsync(facade, 4);
+
+            // when
+            sut.close();
+
+            // then
+            assertThrows(IllegalStateException.class, () -> sut.getUserById(1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing concurrency limit")
+    class TestConcurrencyLimit {
+
+        @Test
+        @DisplayName("No more operations than the limit run at a time and the others follow")
+        void limitIsRespected() throws Exception {
+            // given
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger peak = new AtomicInteger();
+            CountDownLatch release = new CountDownLatch(1);
+            willAnswer(invocation -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                release.await(10, TimeUnit.SECONDS);
+                running.decrementAndGet();
+                return true;
+            }).given(facade).deleteUser(1);
+            AsyncBookingFacade sut = BookingFacadeFactory.createAsync(facade, executor, 2);
+
+            // when
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(sut.deleteUser(1));
+            }
+            Thread.sleep(100);
+            int peakWhileBlocked = peak.get();
+            release.countDown();
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+            // then
+            assertThat(peakWhileBlocked).isEqualTo(2);
+            assertThat(peak.get()).isEqualTo(2);
+            assertThat(results).allMatch(CompletableFuture::join);
+        }
+    }
+}
@@ -206,6 +206,22 @@ class DefaultBookingFacadeTest {
             verifyNoMoreInteractions(spiedEventService);
         }
 
+        @Test
+        @DisplayName("delegates to eventService->getEventsBetween()")
+        void getEventsBetween() {
+            // given
+            int pageSize = 2;
+            int pageNum = 1;
+            Date firstDayOf2023 = Date.from(LocalDate.of(2023, 1, 1).atStartOfDay().atZone(ZoneId.systemDefault()).toInstant());
+
+            // when
+            sut.getEventsBetween(firstDayOf2023, lastDayOf2023, pageSize, pageNum);
+
+            // then
+            verify(spiedEventService).getEventsBetween(firstDayOf2023, lastDayOf2023, pageSize, pageNum);
+            verifyNoMoreInteractions(spiedEventService);
+        }
+
         @Test
         @DisplayName("delegates to eventService->createEvent()")
         void createEvent() {
@@ -298,6 +314,26 @@ class DefaultBookingFacadeTest {
             verifyNoMoreInteractions(spiedTicketService);
         }
 
+        @Test
+        @DisplayName("delegates to ticketService->bookTickets()")
+        void bookTickets() {
+            // given
+            User dummyUser = sut.createUser(UserFactory.createNonPersisted(USER_NAME, USER_EMAIL));
+            Event dummyEvent = sut.createEvent(EventFactory.createNonPersisted("Dummy title", lastDayOf2023));
+            List<BookingRequest> requests = List.of(
+                    new BookingRequest(dummyUser.getId(), dummyEvent.getId(), 4, Ticket.Category.BAR),
+                    new BookingRequest(dummyUser.getId(), dummyEvent.getId(), 5, Ticket.Category.BAR));
+
+            // when
+            sut.bookTickets(requests);
+
+            // then
+            verify(spiedTicketService).bookTickets(requests);
+            // The userService and eventService has many invocations.
+            // Seems overkill to verify each and every non-related invocation
+            verifyNoMoreInteractions(spiedTicketService);
+        }
+
         @Test
         @DisplayName("delegates to ticketService->getBookedTickets(Event)")
         void whenGetBookedTicketsByEvent() {
@@ -330,6 +366,20 @@ class DefaultBookingFacadeTest {
             verifyNoMoreInteractions(spiedTicketService);
         }
 
+        @Test
+        @DisplayName("delegates to ticketService->getBookedTickets(User, Cursor)")
+        void testGetBookedTicketsByUserCursor() {
+            // given
+            User userToFilter = UserFactory.create(1, USER_NAME, USER_EMAIL);
+
+            // when
+            sut.getBookedTickets(userToFilter, null, 2);
+
+            // then
+            verify(spiedTicketService).getBookedTickets(any(User.class), isNull(), eq(2));
+            verifyNoMoreInteractions(spiedTicketService);
+        }
+
         @Test
         @DisplayName("delegates to ticketService->cancelTicket()")
         void cancelTicket() {
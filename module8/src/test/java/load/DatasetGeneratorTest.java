@@ -0,0 +1,78 @@
+package load;
+
+import config.StoreData;
+import model.Ticket;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatasetGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("The data set written loads into the store with the numbers of entities asked for")
+    void dataSetLoads() {
+        // given
+        Path path = dir.resolve("load-data.csv");
+        DatasetGenerator sut = new DatasetGenerator(100, 10, 5_000, 1.0, 42);
+
+        // when
+        sut.write(path);
+        Map<String, Object> result = StoreData.fromPath(path.toString()).load();
+
+        // then
+        assertThat(result.keySet().stream().filter(key -> key.startsWith("user:"))).hasSize(100);
+        assertThat(result.keySet().stream().filter(key -> key.startsWith("event:"))).hasSize(10);
+        Set<String> places = result.values().stream()
+                .filter(Ticket.class::isInstance)
+                .map(Ticket.class::cast)
+                .map(ticket -> ticket.getEventId() + "/" + ticket.getPlace())
+                .collect(Collectors.toSet());
+        assertThat(places).as("places are distinct per event").hasSize(5_000);
+    }
+
+    @Test
+    @DisplayName("Tickets go mostly to the most popular events")
+    void ticketsAreSkewed() {
+        // given
+        Path path = dir.resolve("load-data.csv");
+        DatasetGenerator sut = new DatasetGenerator(100, 100, 10_000, 1.0, 42);
+
+        // when
+        sut.write(path);
+        Map<Long, Long> ticketsPerEvent = StoreData.fromPath(path.toString()).load().values().stream()
+                .filter(Ticket.class::isInstance)
+                .collect(Collectors.groupingBy(ticket -> ((Ticket) ticket).getEventId(), Collectors.counting()));
+
+        // then
+        long first = ticketsPerEvent.get(101L);
+        long last = ticketsPerEvent.getOrDefault(200L, 0L);
+        assertThat(first).isGreaterThan(10 * last);
+    }
+
+    @Test
+    @DisplayName("The same seed writes the same data")
+    void sameSeedSameData() throws IOException {
+        // given
+        StringWriter first = new StringWriter();
+        StringWriter second = new StringWriter();
+
+        // when
+        new DatasetGenerator(10, 10, 100, 1.0, 7).write(first);
+        new DatasetGenerator(10, 10, 100, 1.0, 7).write(second);
+
+        // then
+        assertThat(first.toString()).isEqualTo(second.toString()).hasLineCount(120);
+    }
+}
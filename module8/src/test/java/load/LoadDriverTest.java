@@ -0,0 +1,132 @@
+package load;
+
+import facade.BookingFacade;
+import model.Ticket;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.verify;
+
+class LoadDriverTest {
+
+    private static final long[] USERS = {1, 2, 3};
+    private static final long[] EVENTS = {10, 11, 12, 13};
+
+    @Nested
+    @DisplayName("Testing runs")
+    class TestRun {
+
+        @Test
+        @DisplayName("Every operation due in the duration is run and reported")
+        void operationsAreRunAtTheRate() throws InterruptedException {
+            // given
+            BookingFacade facade = mock(BookingFacade.class);
+            AtomicLong ids = new AtomicLong();
+            given(facade.bookTicket(anyLong(), anyLong(), anyInt(), eq(Ticket.Category.STANDARD))).willAnswer(call -> {
+                Ticket ticket = mock(Ticket.class);
+                given(ticket.getId()).willReturn(ids.incrementAndGet());
+                return ticket;
+            });
+            LoadSettings settings = new LoadSettings(1000, Duration.ofMillis(500), Duration.ofMillis(100), 4, 1.0,
+                    new WorkloadMix(50, 30, 20), 100);
+            List<LoadReport> reports = new CopyOnWriteArrayList<>();
+            LoadDriver sut = new LoadDriver(facade, settings, USERS, EVENTS, reports::add);
+
+            // when
+            LoadReport total = sut.run();
+
+            // then
+            assertThat(total.completed()).isEqualTo(500);
+            assertThat(total.failed()).isZero();
+            assertThat(total.maxNanos()).isGreaterThanOrEqualTo(total.p50Nanos());
+            assertThat(reports).hasSizeGreaterThanOrEqualTo(4);
+            assertThat(reports.stream().mapToLong(LoadReport::completed).sum()).isEqualTo(500);
+            verify(facade, atLeastOnce()).getEventById(anyLong());
+            verify(facade, atLeastOnce()).cancelTicket(anyLong());
+            long calls = mockingDetails(facade).getInvocations().size();
+            assertThat(calls).isEqualTo(500);
+        }
+
+        @Test
+        @DisplayName("Operations completing while an interval is reported are counted in some interval")
+        void intervalsAddUpToTotal() throws InterruptedException {
+            // given
+            BookingFacade facade = mock(BookingFacade.class);
+            LoadSettings settings = new LoadSettings(20_000, Duration.ofMillis(500), Duration.ofMillis(1), 8, 1.0,
+                    new WorkloadMix(1, 0, 0), 100);
+            List<LoadReport> reports = new CopyOnWriteArrayList<>();
+            LoadDriver sut = new LoadDriver(facade, settings, USERS, EVENTS, reports::add);
+
+            // when
+            LoadReport total = sut.run();
+
+            // then
+            assertThat(total.completed()).isEqualTo(10_000);
+            assertThat(reports.stream().mapToLong(LoadReport::completed).sum()).isEqualTo(total.completed());
+        }
+
+        @Test
+        @DisplayName("Taken places are counted as conflicts, other errors as failures")
+        void errorsAreCounted() throws InterruptedException {
+            // given
+            BookingFacade facade = mock(BookingFacade.class);
+            given(facade.bookTicket(anyLong(), anyLong(), anyInt(), eq(Ticket.Category.STANDARD)))
+                    .willThrow(new IllegalStateException("Place already occupied"));
+            given(facade.getEventById(anyLong())).willThrow(new IllegalArgumentException("Non-existent eventId"));
+            LoadSettings settings = new LoadSettings(1000, Duration.ofMillis(200), Duration.ofMillis(100), 2, 0,
+                    new WorkloadMix(1, 1, 0), 100);
+            LoadDriver sut = new LoadDriver(facade, settings, USERS, EVENTS, report -> {
+            });
+
+            // when
+            LoadReport total = sut.run();
+
+            // then
+            assertThat(total.completed()).isEqualTo(200);
+            assertThat(total.conflicts()).isPositive();
+            assertThat(total.failed()).isPositive();
+            assertThat(total.conflicts() + total.failed()).isEqualTo(200);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing settings")
+    class TestSettings {
+
+        @Test
+        @DisplayName("Arguments override the defaults")
+        void argumentsAreParsed() {
+            // when
+            LoadSettings settings = LoadSettings.parse("rate=500", "mix=90:10:0", "duration=30");
+
+            // then
+            assertThat(settings.rate()).isEqualTo(500);
+            assertThat(settings.duration()).isEqualTo(Duration.ofSeconds(30));
+            assertThat(settings.mix()).isEqualTo(new WorkloadMix(90, 10, 0));
+            assertThat(settings.concurrency()).isEqualTo(64);
+        }
+
+        @Test
+        void invalidArguments() {
+            assertThrows(IllegalArgumentException.class, () -> LoadSettings.parse("rate"));
+            assertThrows(IllegalArgumentException.class, () -> LoadSettings.parse("speed=10"));
+            assertThrows(IllegalArgumentException.class, () -> LoadSettings.parse("rate=0"));
+            assertThrows(IllegalArgumentException.class, () -> LoadSettings.parse("mix=1:2"));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package load;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ZipfDistributionTest {
+
+    @Test
+    @DisplayName("Ranks are drawn in proportion to 1 / (rank + 1)^exponent")
+    void ranksFollowThePowerLaw() {
+        // given
+        ZipfDistribution sut = new ZipfDistribution(100, 1.0);
+        SplittableRandom random = new SplittableRandom(1);
+        int[] counts = new int[sut.size()];
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            counts[sut.sample(random)]++;
+        }
+
+        // then
+        assertThat((double) counts[0] / counts[1]).isCloseTo(2.0, offset(0.2));
+        assertThat((double) counts[0] / counts[9]).isCloseTo(10.0, offset(1.5));
+        assertThat(counts[0]).isGreaterThan(100_000 / 10);
+    }
+
+    @Test
+    @DisplayName("An exponent of 0 draws every rank equally")
+    void uniformWithoutExponent() {
+        // given
+        ZipfDistribution sut = new ZipfDistribution(10, 0);
+        SplittableRandom random = new SplittableRandom(1);
+        int[] counts = new int[sut.size()];
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            counts[sut.sample(random)]++;
+        }
+
+        // then
+        assertThat(IntStream.of(counts).min().orElseThrow()).isGreaterThan(9_000);
+        assertThat(IntStream.of(counts).max().orElseThrow()).isLessThan(11_000);
+    }
+
+    @Test
+    void invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ZipfDistribution(0, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new ZipfDistribution(10, -1.0));
+    }
+}
@@ -0,0 +1,122 @@
+package metrics;
+
+import dao.EventDaoImpl;
+import dao.IdGenerator;
+import dao.InMemoryStore;
+import model.EventFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import service.DefaultEventService;
+import service.EventService;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InstrumentationTest {
+
+    @AfterEach
+    void tearDown() {
+        Metrics.configure(true);
+    }
+
+    interface Greeter {
+        String greet(String name);
+
+        String greet(String name, int times);
+    }
+
+    @Nested
+    @DisplayName("Testing timed proxies")
+    class TestTimed {
+
+        @Test
+        @DisplayName("Every call is timed in the histogram of its method, exposed over JMX")
+        void callsAreTimed() throws Exception {
+            // given
+            Greeter sut = Instrumentation.timed(Greeter.class, new Greeter() {
+                public String greet(String name) {
+                    return "Hello " + name;
+                }
+
+                public String greet(String name, int times) {
+                    return ("Hello " + name).repeat(times);
+                }
+            });
+
+            // when
+            String greeting = sut.greet("Dummy");
+            sut.greet("Dummy", 2);
+            sut.greet("Dummy", 3);
+
+            // then
+            assertThat(greeting).isEqualTo("Hello Dummy");
+            assertThat(Metrics.latency("Greeter.greet(String)").getCount()).isEqualTo(1);
+            assertThat(Metrics.latency("Greeter.greet(String,int)").getCount()).isEqualTo(2);
+            ObjectName name = new ObjectName("booking:type=Latency,name=" + ObjectName.quote("Greeter.greet(String,int)"));
+            assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Count")).isEqualTo(2L);
+        }
+
+        @Test
+        @DisplayName("The exception of the target is rethrown as it is")
+        void exceptionIsRethrown() {
+            // given
+            EventService sut = Instrumentation.timed(EventService.class,
+                    new DefaultEventService(new EventDaoImpl(new InMemoryStore(), new IdGenerator())));
+
+            // when, then
+            assertThrows(NullPointerException.class, () -> sut.getEventsByTitle(null, 10, 1));
+            assertThat(Metrics.latency("EventService.getEventsByTitle").getCount()).isPositive();
+        }
+
+        @Test
+        @DisplayName("Nothing is recorded while metrics are switched off")
+        void switchedOff() {
+            // given
+            EventService sut = Instrumentation.timed(EventService.class,
+                    new DefaultEventService(new EventDaoImpl(new InMemoryStore(), new IdGenerator())));
+            long before = Metrics.latency("EventService.getEventsForDay").getCount();
+
+            // when
+            Metrics.configure(false);
+            sut.getEventsForDay(new Date(), 10, 1);
+
+            // then
+            assertThat(Metrics.latency("EventService.getEventsForDay").getCount()).isEqualTo(before);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing query counters")
+    class TestQueries {
+
+        @Test
+        @DisplayName("A search counts the entities it scanned and returned")
+        void scannedAndReturned() {
+            // given
+            InMemoryStore store = new InMemoryStore();
+            EventDaoImpl dao = new EventDaoImpl(store, new IdGenerator());
+            dao.save(EventFactory.create(Long.MIN_VALUE, "Dummy title", new Date()));
+            dao.save(EventFactory.create(Long.MIN_VALUE, "Dummy", new Date()));
+            dao.save(EventFactory.create(Long.MIN_VALUE, "Other title", new Date()));
+            QueryCounter counter = Metrics.query("EventDao.searchByTitle");
+            long queries = counter.getQueries();
+            long scanned = counter.getScanned();
+            long returned = counter.getReturned();
+
+            // when
+            long found = dao.streamByTitle("title").count();
+
+            // then
+            assertThat(found).isEqualTo(2);
+            assertThat(counter.getQueries() - queries).isEqualTo(1);
+            assertThat(counter.getScanned() - scanned).isGreaterThanOrEqualTo(2);
+            assertThat(counter.getReturned() - returned).isEqualTo(2);
+        }
+    }
+}
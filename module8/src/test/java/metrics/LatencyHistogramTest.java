@@ -0,0 +1,135 @@
+package metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LatencyHistogramTest {
+
+    @Nested
+    @DisplayName("Testing buckets")
+    class TestBuckets {
+
+        @Test
+        @DisplayName("Every value falls in a bucket whose highest value is within 1/64 above it")
+        void bucketPrecision() {
+            for (long value = 1; value < LatencyHistogram.HIGHEST_TRACKABLE; value = value * 3 / 2 + 1) {
+                // when
+                long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+
+                // then
+                assertThat(highest).as("bucket of %s", value).isGreaterThanOrEqualTo(value);
+                assertThat(highest - value).as("bucket of %s", value).isLessThanOrEqualTo(value / 64);
+            }
+        }
+
+        @Test
+        @DisplayName("Buckets follow each other without gaps")
+        void bucketsAreContiguous() {
+            for (int index = 1; index <= LatencyHistogram.indexOf(LatencyHistogram.HIGHEST_TRACKABLE); index++) {
+                // when
+                long lowest = LatencyHistogram.highestValueOf(index - 1) + 1;
+
+                // then
+                assertThat(LatencyHistogram.indexOf(lowest)).isEqualTo(index);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing percentiles")
+    class TestPercentiles {
+
+        @Test
+        @DisplayName("Percentiles of uniform latencies are within the bucket precision")
+        void uniformPercentiles() {
+            // given
+            LatencyHistogram sut = new LatencyHistogram("uniform");
+
+            // when
+            for (long micros = 1; micros <= 10_000; micros++) {
+                sut.record(micros * 1_000);
+            }
+
+            // then
+            LatencyHistogram.Snapshot snapshot = sut.snapshot();
+            assertThat(snapshot.count()).isEqualTo(10_000);
+            assertThat(snapshot.max()).isEqualTo(10_000_000);
+            assertThat((double) snapshot.valueAtPercentile(50)).isCloseTo(5_000_000, within(5_000_000 / 64.0));
+            assertThat((double) snapshot.valueAtPercentile(99)).isCloseTo(9_900_000, within(9_900_000 / 64.0));
+            assertThat((double) snapshot.valueAtPercentile(99.9)).isCloseTo(9_990_000, within(9_990_000 / 64.0));
+            assertThat(snapshot.valueAtPercentile(100)).isEqualTo(10_000_000);
+            assertThat(sut.getMeanMicros()).isCloseTo(5_000.5, within(0.01));
+        }
+
+        @Test
+        @DisplayName("A rare outlier shows in p999 but not in p99")
+        void outlierInTail() {
+            // given
+            LatencyHistogram sut = new LatencyHistogram("outlier");
+
+            // when
+            for (int i = 0; i < 998; i++) {
+                sut.record(100_000);
+            }
+            sut.record(50_000_000);
+            sut.record(50_000_000);
+
+            // then
+            assertThat(sut.getP99Micros()).isCloseTo(100, within(2.0));
+            assertThat(sut.getP999Micros()).isCloseTo(50_000, within(800.0));
+        }
+
+        @Test
+        @DisplayName("An empty histogram reports zero and rejects an invalid percentile")
+        void emptyHistogram() {
+            // given
+            LatencyHistogram sut = new LatencyHistogram("empty");
+
+            // then
+            assertThat(sut.getP99Micros()).isZero();
+            assertThrows(IllegalArgumentException.class, () -> sut.snapshot().valueAtPercentile(101));
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing concurrent recording")
+    class TestConcurrency {
+
+        @Test
+        @DisplayName("No value is lost when recorded from many threads")
+        void noLostValues() throws Exception {
+            // given
+            LatencyHistogram sut = new LatencyHistogram("concurrent");
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+
+            // when
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        sut.record(i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            // then
+            assertThat(sut.getCount()).isEqualTo(40_000);
+            assertThat(sut.snapshot().count()).isEqualTo(40_000);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package service;
+
+import dao.EventDaoImpl;
+import dao.IdGenerator;
+import dao.InMemoryStore;
+import dao.Namespace;
+import model.Event;
+import model.EventFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CachingEventServiceTest {
+
+    private InMemoryStore store;
+    private EventService delegate;
+    private CachingEventService sut;
+    private Event event;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryStore();
+        delegate = spy(new DefaultEventService(new EventDaoImpl(store, new IdGenerator())));
+        sut = new CachingEventService(delegate, 100, store);
+        event = delegate.createEvent(EventFactory.create(Long.MIN_VALUE, "Dummy title", new Date()));
+    }
+
+    @Nested
+    @DisplayName("Testing getEventById method")
+    class TestGetEventById {
+
+        @Test
+        @DisplayName("Repeated reads are served from the cache")
+        void repeatedReadsAreCached() {
+            // when
+            sut.getEventById(event.getId());
+            Event cached = sut.getEventById(event.getId());
+
+            // then
+            assertThat(cached.getTitle()).isEqualTo("Dummy title");
+            verify(delegate, times(1)).getEventById(event.getId());
+            assertThat(sut.cacheStats()).isEqualTo(new CacheStats(1, 1, 0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing invalidation")
+    class TestInvalidation {
+
+        @Test
+        @DisplayName("An update is seen by the next read")
+        void updateInvalidates() {
+            // given
+            sut.getEventById(event.getId());
+            Event changed = EventFactory.create(event.getId(), "Other title", event.getDate());
+            changed.setVersion(event.getVersion());
+
+            // when
+            sut.updateEvent(changed);
+
+            // then
+            assertThat(sut.getEventById(event.getId()).getTitle()).isEqualTo("Other title");
+        }
+
+        @Test
+        @DisplayName("A failed update leaves nothing stale behind")
+        void failedUpdateInvalidates() {
+            // given
+            sut.getEventById(event.getId());
+            Event stale = EventFactory.create(event.getId(), "Other title", event.getDate());
+            stale.setVersion(event.getVersion() + 1);
+
+            // when
+            assertThrows(IllegalStateException.class, () -> sut.updateEvent(stale));
+
+            // then
+            sut.getEventById(event.getId());
+            verify(delegate, times(2)).getEventById(event.getId());
+        }
+
+        @Test
+        @DisplayName("A delete is seen by the next read")
+        void deleteInvalidates() {
+            // given
+            sut.getEventById(event.getId());
+
+            // when
+            sut.deleteEvent(event.getId());
+
+            // then
+            assertThat(sut.getEventById(event.getId())).isNull();
+        }
+
+        @Test
+        @DisplayName("Changes of the store bypassing the service are seen as well")
+        void storeChangesInvalidate() {
+            // given
+            sut.getEventById(event.getId());
+
+            // when
+            store.delete(Namespace.EVENT, event.getId());
+
+            // then
+            assertThat(sut.getEventById(event.getId())).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing getEventsByTitle method")
+    class TestGetEventsByTitle {
+
+        @Test
+        @DisplayName("Repeated searches are served from the cache")
+        void repeatedSearchesAreCached() {
+            // when
+            sut.getEventsByTitle("Dummy", 10, 1);
+            List<Event> events = sut.getEventsByTitle("Dummy", 10, 1);
+
+            // then
+            assertThat(events).extracting(Event::getId).containsExactly(event.getId());
+            verify(delegate, times(1)).getEventsByTitle("Dummy", 10, 1);
+            assertThat(sut.pageCacheStats()).isEqualTo(new CacheStats(1, 1, 0));
+        }
+
+        @Test
+        @DisplayName("A new event drops only the searches it matches")
+        void newEventDropsMatchingSearches() {
+            // given
+            sut.getEventsByTitle("Dummy", 10, 1);
+            sut.getEventsByTitle("Other", 10, 1);
+
+            // when
+            sut.createEvent(EventFactory.create(Long.MIN_VALUE, "Other title", new Date()));
+
+            // then
+            assertThat(sut.getEventsByTitle("Other", 10, 1)).hasSize(1);
+            sut.getEventsByTitle("Dummy", 10, 1);
+            verify(delegate, times(1)).getEventsByTitle("Dummy", 10, 1);
+            verify(delegate, times(2)).getEventsByTitle("Other", 10, 1);
+        }
+
+        @Test
+        @DisplayName("A renamed event drops the searches of its old and new title")
+        void renameDropsOldAndNewTitle() {
+            // given
+            sut.getEventsByTitle("Dummy", 10, 1);
+            sut.getEventsByTitle("Other", 10, 1);
+            Event renamed = EventFactory.create(event.getId(), "Other title", event.getDate());
+            renamed.setVersion(event.getVersion());
+
+            // when
+            store.replace(Namespace.EVENT, event.getId(), event.getVersion(), renamed);
+
+            // then
+            assertThat(sut.getEventsByTitle("Dummy", 10, 1)).isEmpty();
+            assertThat(sut.getEventsByTitle("Other", 10, 1)).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("Without the store, changes made through the service drop the searches")
+        void serviceChangesDropSearches() {
+            // given
+            CachingEventService unlistening = new CachingEventService(delegate, 100);
+            unlistening.getEventsByTitle("Dummy", 10, 1);
+
+            // when
+            unlistening.deleteEvent(event.getId());
+
+            // then
+            assertThat(unlistening.getEventsByTitle("Dummy", 10, 1)).isEmpty();
+        }
+    }
+}
@@ -13,10 +13,12 @@ import org.mockito.Mockito;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verifyNoInteractions;
 
@@ -46,8 +48,8 @@ class DefaultEventServiceTest {
         @Test
         @DisplayName("When event id exists")
         void whenEventExists() {
-            given(dao.findById(any()))
-                    .willReturn(Optional.of(DUMMY_EVENT));
+            given(dao.findById(anyLong()))
+                    .willReturn(DUMMY_EVENT);
 
             Event actual = sut.getEventById(1);
 
@@ -57,8 +59,8 @@ class DefaultEventServiceTest {
         @Test
         @DisplayName("When Event id exists")
         void whenEventDoesNotExist() {
-            given(dao.findById(any()))
-                    .willReturn(Optional.empty());
+            given(dao.findById(anyLong()))
+                    .willReturn(null);
 
             Event Event = sut.getEventById(1);
 
@@ -76,7 +78,7 @@ class DefaultEventServiceTest {
         @Test
         @DisplayName("When pageSize is negative")
         void testWithNegativePageSize() {
-            given(dao.findByTitle(any())).willReturn(null);
+            given(dao.streamByTitle(any())).willReturn(null);
 
             assertThrows(IllegalArgumentException.class,
                     () -> sut.getEventsByTitle("Dummy title", -1, 2),
@@ -88,7 +90,7 @@ class DefaultEventServiceTest {
         @Test
         @DisplayName("When pageNumber is non-positive")
         void testWithNonPositivePageNumber() {
-            given(dao.findByTitle(any())).willReturn(null);
+            given(dao.streamByTitle(any())).willReturn(null);
 
             assertThrows(IllegalArgumentException.class,
                     () -> sut.getEventsByTitle("Dummy title", PAGE_SIZE, 0),
@@ -100,10 +102,8 @@ class DefaultEventServiceTest {
         @Test
         @DisplayName("When less than one page of events were found")
         void testGetEventsByTitleWhenOnePageOfEventsWereFound() {
-            given(dao.findByTitle("Dummy title"))
-                    .willReturn(
-                            Arrays.asList(DUMMY_EVENT)
-                    );
+            given(dao.streamByTitle("Dummy title"))
+                    .willAnswer(invocation -> Stream.of(DUMMY_EVENT));
 
             List<Event> eventsFirstPage = sut.getEventsByTitle("Dummy title", PAGE_SIZE, 1);
             List<Event> eventsSecondPage = sut.getEventsByTitle("Dummy title", PAGE_SIZE, 2);
@@ -117,18 +117,31 @@ class DefaultEventServiceTest {
                     .as("Second events page must be empty", PAGE_SIZE).isEmpty();
         }
 
+        @Test
+        @DisplayName("Only the requested page is read from the DAO")
+        void testGetEventsByTitleReadsLazily() {
+            // given
+            given(dao.streamByTitle("Dummy title"))
+                    .willAnswer(invocation -> Stream.iterate(1L, id -> id + 1)
+                            .map(id -> EventFactory.create(id, "Dummy title" + id, DUMMY_DATE)));
+
+            // when
+            List<Event> eventsSecondPage = sut.getEventsByTitle("Dummy title", PAGE_SIZE, 2);
+
+            // then
+            assertThat(eventsSecondPage).extracting(Event::getId).containsExactly(3L, 4L);
+        }
+
         @Test
         @DisplayName("When two pages of events were found")
         void testGetUsersByName() {
             // given
-            given(dao.findByTitle("Dummy title"))
-                    .willReturn(
-                            Arrays.asList(
+            given(dao.streamByTitle("Dummy title"))
+                    .willAnswer(invocation -> Stream.of(
                                     EventFactory.create(1, "Dummy title1", DUMMY_DATE),
                                     EventFactory.create(2, "Dummy title2", DUMMY_DATE),
                                     EventFactory.create(5, "Dummy title5", DUMMY_DATE)
-                            )
-                    );
+                    ));
 
             // when
             List<Event> eventsFirstPage = sut.getEventsByTitle("Dummy title", PAGE_SIZE, 1);
@@ -164,7 +177,7 @@ class DefaultEventServiceTest {
         @Test
         @DisplayName("When pageSize is negative")
         void testWithNegativePageSize() {
-            given(dao.findByDate(any())).willReturn(null);
+            given(dao.streamByDate(any())).willReturn(null);
 
             assertThrows(IllegalArgumentException.class,
                     () -> sut.getEventsForDay(DUMMY_DATE, -1, 2),
@@ -176,7 +189,7 @@ class DefaultEventServiceTest {
         @Test
         @DisplayName("When pageNumber is non-positive")
         void testWithNonPositivePageNumber() {
-            given(dao.findByDate(any())).willReturn(null);
+            given(dao.streamByDate(any())).willReturn(null);
 
             assertThrows(IllegalArgumentException.class,
                     () -> sut.getEventsForDay(DUMMY_DATE, PAGE_SIZE, 0),
@@ -189,10 +202,8 @@ class DefaultEventServiceTest {
         @DisplayName("When less than one page of events were found")
         void testGetEventsByTitleWhenOnePageOfEventsWereFound() {
             // given
-            given(dao.findByDate(DUMMY_DATE))
-                    .willReturn(
-                            Arrays.asList(DUMMY_EVENT)
-                    );
+            given(dao.streamByDate(DUMMY_DATE))
+                    .willAnswer(invocation -> Stream.of(DUMMY_EVENT));
 
             // when
             List<Event> eventsFirstPage = sut.getEventsForDay(DUMMY_DATE, PAGE_SIZE, 1);
@@ -212,14 +223,12 @@ class DefaultEventServiceTest {
         @DisplayName("When two pages of events were found")
         void testGetUsersByName() {
             // given
-            given(dao.findByDate(DUMMY_DATE))
-                    .willReturn(
-                            Arrays.asList(
+            given(dao.streamByDate(DUMMY_DATE))
+                    .willAnswer(invocation -> Stream.of(
                                     EventFactory.create(1, "Dummy title1", DUMMY_DATE),
                                     EventFactory.create(2, "Dummy title2", DUMMY_DATE),
                                     EventFactory.create(5, "Dummy title5", DUMMY_DATE)
-                            )
-                    );
+                    ));
 
             // when
             List<Event> eventsFirstPage = sut.getEventsForDay(DUMMY_DATE, PAGE_SIZE, 1);
@@ -248,6 +257,48 @@ class DefaultEventServiceTest {
     }
 
 
+    @Nested
+    @DisplayName("Testing getEventsBetween method")
+    class TestGetEventsBetween {
+
+        private final int PAGE_SIZE = 2;
+
+        @Test
+        @DisplayName("When from is after to")
+        void testWithReversedRange() {
+            Date dayBefore = new Date(DUMMY_DATE.getTime() - 86_400_000L);
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> sut.getEventsBetween(DUMMY_DATE, dayBefore, PAGE_SIZE, 1),
+                    "IllegalArgumentException was expected");
+
+            verifyNoInteractions(dao);
+        }
+
+        @Test
+        @DisplayName("Events are returned ordered by date and paginated")
+        void testOrderedPages() {
+            // given
+            StoreData sti = StoreData.fromString("""
+                                                    event,1,Dummy title1,2023-12-31
+                                                    event,2,Dummy title2,2023-12-29
+                                                    event,3,Dummy title3,2023-12-30
+                                                    event,4,Dummy title4,2024-01-15
+                                                    """);
+            sut = new DefaultEventService(new EventDaoImpl(new InMemoryStore(sti.load()), new IdGenerator()));
+            Date from = Date.from(LocalDate.of(2023, 1, 1).atStartOfDay().atZone(ZoneId.systemDefault()).toInstant());
+            Date to = Date.from(LocalDate.of(2023, 12, 31).atStartOfDay().atZone(ZoneId.systemDefault()).toInstant());
+
+            // when
+            List<Event> firstPage = sut.getEventsBetween(from, to, PAGE_SIZE, 1);
+            List<Event> secondPage = sut.getEventsBetween(from, to, PAGE_SIZE, 2);
+
+            // then
+            assertThat(firstPage).extracting(Event::getId).containsExactly(2L, 3L);
+            assertThat(secondPage).extracting(Event::getId).containsExactly(1L);
+        }
+    }
+
     @Nested
     @DisplayName("Testing createEvent method")
     class TestCreateEvent {
@@ -347,6 +398,24 @@ class DefaultEventServiceTest {
                     () -> sut.updateEvent(originalEvent),
                     "IllegalArgumentException was expected");
         }
+
+        @Test
+        @DisplayName("When event was updated since it was read")
+        void updateStaleEvent() {
+            // given
+            Event first = EventFactory.create(1, "Dummy title 4", new Date());
+            Event second = EventFactory.create(1, "Dummy title 5", new Date());
+
+            // when
+            Event updatedEvent = sut.updateEvent(first);
+
+            // then
+            assertThat(updatedEvent.getVersion()).isEqualTo(1);
+            assertThrows(IllegalStateException.class,
+                    () -> sut.updateEvent(second),
+                    "IllegalStateException was expected");
+            assertThat(sut.getEventById(1).getTitle()).isEqualTo("Dummy title 4");
+        }
     }
 
     @Nested
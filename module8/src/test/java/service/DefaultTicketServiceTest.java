@@ -3,7 +3,9 @@ package service;
 import config.StoreData;
 import dao.IdGenerator;
 import dao.InMemoryStore;
+import dao.Page;
 import dao.TicketDao;
+import dao.Transaction;
 import model.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,10 +13,20 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -128,6 +140,154 @@ class DefaultTicketServiceTest {
                     () -> sut.bookTicket(existingUserId, existingEventId, occupiedPlace, Ticket.Category.BAR),
                     "IllegalStateException was expected");
         }
+
+        @Test
+        @DisplayName("When a cancelled place is booked again")
+        void testBookTicketAfterCancellation() {
+            // given
+            long existingUserId = PAGE_SIZE;
+            long existingEventId = 3;
+            int occupiedPlace = 6;
+
+            // when
+            boolean cancelled = sut.cancelTicket(5);
+            Ticket ticket = sut.bookTicket(existingUserId, existingEventId, occupiedPlace, Ticket.Category.PREMIUM);
+
+            // then
+            assertThat(cancelled).isTrue();
+            assertThat(ticket)
+                    .isNotNull()
+                    .hasFieldOrPropertyWithValue("place", occupiedPlace);
+        }
+
+        @Test
+        @DisplayName("When the same place is booked concurrently")
+        void testConcurrentBookingOfSamePlace() throws InterruptedException {
+            // given
+            int threads = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Ticket>> bookings = new ArrayList<>();
+
+            // when
+            for (int i = 0; i < threads; i++) {
+                bookings.add(executor.submit(() -> {
+                    start.await();
+                    return sut.bookTicket(PAGE_SIZE, 4, 10, Ticket.Category.STANDARD);
+                }));
+            }
+            start.countDown();
+
+            int booked = 0;
+            for (Future<Ticket> booking : bookings) {
+                try {
+                    booking.get();
+                    booked++;
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+                }
+            }
+            executor.shutdown();
+
+            // then
+            assertThat(booked).as("only one booking of the place succeeds").isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing bookTickets method")
+    class TestBulkBooking {
+
+        @BeforeEach
+        void setUp() {
+            StoreData sti = StoreData.fromString("""
+                                                    user,2,Dummy Name1,dummy@email.com
+                                                    user,3,Dummy Name3,dummy3@email.com
+                                                    event,1,Dummy title1,2023-12-31
+                                                    event,4,Dummy title4,2023-12-31
+                                                    ticket,5,BAR,2,4,6
+                                                    """);
+
+            InMemoryStore store = new InMemoryStore(sti.load());
+
+            sut = DefaultTicketService.initiate(store, new IdGenerator());
+        }
+
+        @Test
+        @DisplayName("Every request gets its own result in request order")
+        void resultPerRequest() {
+            // given
+            List<BookingRequest> requests = List.of(
+                    new BookingRequest(2, 1, 1, Ticket.Category.BAR),
+                    new BookingRequest(3, 4, 7, Ticket.Category.PREMIUM),
+                    new BookingRequest(9, 1, 2, Ticket.Category.BAR),
+                    new BookingRequest(2, 8, 1, Ticket.Category.BAR),
+                    new BookingRequest(3, 4, 6, Ticket.Category.BAR),
+                    new BookingRequest(3, 1, 1, Ticket.Category.STANDARD),
+                    new BookingRequest(3, 1, 3, Ticket.Category.STANDARD));
+
+            // when
+            List<BookingResult> results = sut.bookTickets(requests);
+
+            // then
+            assertThat(results).extracting(BookingResult::request).containsExactlyElementsOf(requests);
+            assertThat(results).extracting(BookingResult::failure).containsExactly(
+                    null, null, "Non-existent userId", "Non-existent eventId",
+                    "Place already occupied", "Place already occupied", null);
+            assertThat(results.get(1).ticket())
+                    .hasFieldOrPropertyWithValue("eventId", 4L)
+                    .hasFieldOrPropertyWithValue("userId", 3L)
+                    .hasFieldOrPropertyWithValue("place", 7)
+                    .hasFieldOrPropertyWithValue("category", Ticket.Category.PREMIUM);
+            assertThat(sut.getBookedTickets(EventFactory.create(1, DUMMY_TITLE, DUMMY_DATE), 10, 1))
+                    .extracting(Ticket::getPlace).containsExactlyInAnyOrder(1, 3);
+        }
+
+        @Test
+        @DisplayName("A failed request leaves its place free")
+        void failedRequestKeepsPlaceFree() {
+            // given
+            List<BookingRequest> requests = List.of(new BookingRequest(9, 4, 8, Ticket.Category.BAR));
+
+            // when
+            sut.bookTickets(requests);
+            Ticket ticket = sut.bookTicket(3, 4, 8, Ticket.Category.BAR);
+
+            // then
+            assertThat(ticket).hasFieldOrPropertyWithValue("place", 8);
+        }
+
+        @Test
+        @DisplayName("Places claimed are released when the store fails the booking")
+        void storeFailureReleasesPlaces() {
+            // given
+            AtomicBoolean failing = new AtomicBoolean(true);
+            InMemoryStore store = new InMemoryStore(StoreData.fromString("""
+                                                                        user,2,Dummy Name1,dummy@email.com
+                                                                        event,1,Dummy title1,2023-12-31
+                                                                        event,4,Dummy title4,2023-12-31
+                                                                        """).load()) {
+                @Override
+                public Transaction begin() {
+                    if (failing.get()) {
+                        throw new UncheckedIOException(new IOException("Disk full"));
+                    }
+                    return super.begin();
+                }
+            };
+            sut = DefaultTicketService.initiate(store, new IdGenerator());
+            List<BookingRequest> requests = List.of(
+                    new BookingRequest(2, 1, 1, Ticket.Category.BAR),
+                    new BookingRequest(2, 4, 2, Ticket.Category.BAR));
+
+            // when
+            assertThrows(UncheckedIOException.class, () -> sut.bookTickets(requests));
+            failing.set(false);
+            List<BookingResult> results = sut.bookTickets(requests);
+
+            // then
+            assertThat(results).extracting(BookingResult::failure).containsOnlyNulls();
+        }
     }
 
     @Nested
@@ -140,12 +300,14 @@ class DefaultTicketServiceTest {
 
             StoreData sti = StoreData.fromString("""
                                                     user,2,Dummy Name1,dummy@email.com
+                                                    user,8,Dummy Name2,zed@email.com
+                                                    user,9,Dummy Name3,abc@email.com
                                                     event,1,Dummy title1,2023-12-31
                                                     event,3,Dummy title3,2023-12-31
                                                     event,4,Dummy title4,2023-12-31
                                                     ticket,5,BAR,2,3,6
-                                                    ticket,6,BAR,2,3,7
-                                                    ticket,7,BAR,2,3,8
+                                                    ticket,6,BAR,8,3,7
+                                                    ticket,7,BAR,9,3,8
                                                     """);
 
             InMemoryStore store = new InMemoryStore(sti.load());
@@ -164,16 +326,76 @@ class DefaultTicketServiceTest {
             // then
             assertThat(tickets)
                     .as("tickets cannot be null").isNotNull()
-                    .as("ChunkSize should less than or equal to %d", PAGE_SIZE).hasSize(PAGE_SIZE);
-            // TODO extend with further assertions
-            // TODO assert that all the returned tickets belong to the same input user
+                    .as("ChunkSize should less than or equal to %d", PAGE_SIZE).hasSize(PAGE_SIZE)
+                    .as("all the returned tickets belong to the input event").allMatch(t -> t.getEventId() == 3);
         }
 
-//        @Test
-//        @DisplayName("Tickets should be sorted by event date in descending order")
-//        void testBookingRetrievalOrderedByDate() {
-//            fail("Not yet implemented");
-//        }
+        @Test
+        @DisplayName("Tickets should be sorted by user email in ascending order")
+        void testBookingRetrievalOrderedByUserEmail() {
+            // given
+            Event srcEvent = EventFactory.create(3, "Dummy event", new Date());
+
+            // when
+            List<Ticket> firstPage = sut.getBookedTickets(srcEvent, PAGE_SIZE, 1);
+            List<Ticket> secondPage = sut.getBookedTickets(srcEvent, PAGE_SIZE, 2);
+
+            // then
+            assertThat(firstPage).extracting(Ticket::getId).containsExactly(7L, 5L);
+            assertThat(secondPage).extracting(Ticket::getId).containsExactly(6L);
+        }
+
+        @Test
+        @DisplayName("Cursor pages follow each other in user email order")
+        void testBookingRetrievalByCursor() {
+            // given
+            Event srcEvent = EventFactory.create(3, "Dummy event", new Date());
+
+            // when
+            Page<Ticket> firstPage = sut.getBookedTickets(srcEvent, null, PAGE_SIZE);
+            sut.cancelTicket(7);
+            Page<Ticket> secondPage = sut.getBookedTickets(srcEvent, firstPage.next(), PAGE_SIZE);
+
+            // then
+            assertThat(firstPage.items()).extracting(Ticket::getId).containsExactly(7L, 5L);
+            assertThat(firstPage.hasNext()).isTrue();
+            assertThat(secondPage.items())
+                    .as("cancelling a ticket of a previous page does not shift the next one")
+                    .extracting(Ticket::getId).containsExactly(6L);
+            assertThat(secondPage.hasNext()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Published tickets come in user email order without a page limit")
+        void testBookingPublisher() {
+            // given
+            Event srcEvent = EventFactory.create(3, "Dummy event", new Date());
+            List<Ticket> received = new ArrayList<>();
+
+            // when
+            sut.streamBookedTickets(srcEvent).subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Ticket item) {
+                    received.add(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+
+            // then
+            assertThat(received).extracting(Ticket::getId).containsExactly(7L, 5L, 6L);
+        }
     }
 
     @Nested
@@ -186,12 +408,12 @@ class DefaultTicketServiceTest {
 
             StoreData sti = StoreData.fromString("""
                                                     user,2,Dummy Name1,dummy@email.com
-                                                    event,1,Dummy title1,2023-12-31
-                                                    event,3,Dummy title3,2023-12-31
+                                                    event,1,Dummy title1,2023-12-29
+                                                    event,3,Dummy title3,2023-12-30
                                                     event,4,Dummy title4,2023-12-31
                                                     ticket,5,BAR,2,3,6
-                                                    ticket,6,BAR,2,3,7
-                                                    ticket,7,BAR,2,3,8
+                                                    ticket,6,BAR,2,1,7
+                                                    ticket,7,BAR,2,4,8
                                                     """);
 
             InMemoryStore store = new InMemoryStore(sti.load());
@@ -210,17 +432,40 @@ class DefaultTicketServiceTest {
             // then
             assertThat(tickets)
                     .as("tickets cannot be null").isNotNull()
-                    .as("ChunkSize should less than or equal to %d", PAGE_SIZE).hasSize(PAGE_SIZE);
+                    .as("ChunkSize should less than or equal to %d", PAGE_SIZE).hasSize(PAGE_SIZE)
+                    .as("all the returned tickets belong to the input user").allMatch(t -> t.getUserId() == 2);
+        }
 
-            // TODO extend with further assertions
-            // TODO assert that all the returned tickets belong to the same input user
+        @Test
+        @DisplayName("Tickets should be sorted by event date in descending order")
+        void testBookingRetrievalOrderedByDate() {
+            // given
+            User srcUser = UserFactory.create(2, DUMMY_NAME, DUMMY_EMAIL);
+
+            // when
+            List<Ticket> firstPage = sut.getBookedTickets(srcUser, PAGE_SIZE, 1);
+            List<Ticket> secondPage = sut.getBookedTickets(srcUser, PAGE_SIZE, 2);
+
+            // then
+            assertThat(firstPage).extracting(Ticket::getId).containsExactly(7L, 5L);
+            assertThat(secondPage).extracting(Ticket::getId).containsExactly(6L);
         }
 
-//        @Test
-//        @DisplayName("Tickets should be sorted in by user email in ascending order.")
-//        void testBookingRetrievalOrderedByUserEmail() {
-//            fail("Not yet implemented");
-//        }
+        @Test
+        @DisplayName("Cursor pages follow each other in event date order")
+        void testBookingRetrievalByCursor() {
+            // given
+            User srcUser = UserFactory.create(2, DUMMY_NAME, DUMMY_EMAIL);
+
+            // when
+            Page<Ticket> firstPage = sut.getBookedTickets(srcUser, null, PAGE_SIZE);
+            Page<Ticket> secondPage = sut.getBookedTickets(srcUser, firstPage.next(), PAGE_SIZE);
+
+            // then
+            assertThat(firstPage.items()).extracting(Ticket::getId).containsExactly(7L, 5L);
+            assertThat(secondPage.items()).extracting(Ticket::getId).containsExactly(6L);
+            assertThat(secondPage.hasNext()).isFalse();
+        }
     }
 
     @Nested
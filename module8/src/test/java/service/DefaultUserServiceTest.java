@@ -11,10 +11,12 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verifyNoInteractions;
 
@@ -38,8 +40,8 @@ class DefaultUserServiceTest {
         @Test
         @DisplayName("When user id exists")
         void whenUserExists() {
-            given(dao.findById(any()))
-                .willReturn(Optional.of(DUMMY_USER));
+            given(dao.findById(anyLong()))
+                .willReturn(DUMMY_USER);
 
             User user = sut.getUserById(1);
 
@@ -49,8 +51,8 @@ class DefaultUserServiceTest {
         @Test
         @DisplayName("When user id exists")
         void whenUserDoesNotExist() {
-            given(dao.findById(any()))
-                    .willReturn(Optional.empty());
+            given(dao.findById(anyLong()))
+                    .willReturn(null);
 
             User user = sut.getUserById(1);
 
@@ -107,7 +109,7 @@ class DefaultUserServiceTest {
         @Test
         @DisplayName("When pageSize is negative")
         void testWithNegativePageSize() {
-            given(dao.findByName(any())).willReturn(null);
+            given(dao.streamByName(any())).willReturn(null);
 
             assertThrows(IllegalArgumentException.class,
                     () -> sut.getUsersByName("Dummy Name", -1, 2),
@@ -119,7 +121,7 @@ class DefaultUserServiceTest {
         @Test
         @DisplayName("When pageNumber is non-positive")
         void testWithNonPositivePageNumber() {
-            given(dao.findByName(any())).willReturn(null);
+            given(dao.streamByName(any())).willReturn(null);
 
             assertThrows(IllegalArgumentException.class,
                     () -> sut.getUsersByName("Dummy Name", PAGE_SIZE, 0),
@@ -131,10 +133,8 @@ class DefaultUserServiceTest {
         @Test
         @DisplayName("When less than one page of users were found")
         void testGetUsersByNameWhenOnePageOfUsersWereFound() {
-            given(dao.findByName("Dummy Name"))
-                .willReturn(
-                    Arrays.asList(DUMMY_USER)
-                );
+            given(dao.streamByName("Dummy Name"))
+                .willAnswer(invocation -> Stream.of(DUMMY_USER));
 
             List<User> usersFirstPage = sut.getUsersByName("Dummy Name", PAGE_SIZE, 1);
             List<User> usersSecondPage = sut.getUsersByName("Dummy Name", PAGE_SIZE, 2);
@@ -151,14 +151,12 @@ class DefaultUserServiceTest {
         @Test
         @DisplayName("When two pages of users were found")
         void testGetUsersByName() {
-            given(dao.findByName("Dummy Name"))
-                    .willReturn(
-                            Arrays.asList(
+            given(dao.streamByName("Dummy Name"))
+                    .willAnswer(invocation -> Stream.of(
                                     UserFactory.create(1, "Dummy Name1", DUMMY_EMAIL),
                                     UserFactory.create(2, "Dummy Name2", DUMMY_EMAIL),
                                     UserFactory.create(5, "Dummy Name5", DUMMY_EMAIL)
-                            )
-                    );
+                    ));
 
             List<User> usersFirstPage = sut.getUsersByName("Dummy Name", PAGE_SIZE, 1);
             List<User> usersSecondPage = sut.getUsersByName("Dummy Name", PAGE_SIZE, 2);
@@ -186,9 +184,9 @@ class DefaultUserServiceTest {
         @BeforeEach
         void setUp() {
             StoreData sti = StoreData.fromString("""
-                                                    user,1,Dummy Name1,dummy@email.com
-                                                    user,2,Dummy Name2,dummy@email.com
-                                                    user,3,Dummy Name3,dummy@email.com
+                                                    user,1,Dummy Name1,dummy1@email.com
+                                                    user,2,Dummy Name2,dummy2@email.com
+                                                    user,3,Dummy Name3,dummy3@email.com
                                                     """);
 
             InMemoryStore store = new InMemoryStore(sti.load());
@@ -215,6 +213,23 @@ class DefaultUserServiceTest {
                     .extracting(User::getId)
                     .as("ID must not match").isNotEqualTo(tempUser.getId());
         }
+
+        @Test
+        @DisplayName("When email is already taken")
+        void testCreateUserWithTakenEmail() {
+            // given
+            User tempUser = UserFactory.createNonPersisted(DUMMY_NAME, "dummy2@email.com");
+
+            // when
+
+            // then
+            assertThrows(IllegalStateException.class,
+                    () -> sut.createUser(tempUser),
+                    "IllegalStateException was expected");
+            assertThat(sut.getUserByEmail("dummy2@email.com"))
+                    .isNotNull()
+                    .extracting(User::getId).isEqualTo(2L);
+        }
     }
 
     @Nested
@@ -224,7 +239,7 @@ class DefaultUserServiceTest {
         @BeforeEach
         void setUp() {
             StoreData sti = StoreData.fromString("""
-                                                    user,1,Dummy Name1,dummy@email.com
+                                                    user,1,Dummy Name1,dummy1@email.com
                                                     """);
 
             InMemoryStore store = new InMemoryStore(sti.load());
@@ -272,6 +287,24 @@ class DefaultUserServiceTest {
                     () -> sut.updateUser(originalUser),
                     "IllegalArgumentException was expected");
         }
+
+        @Test
+        @DisplayName("When user was updated since it was read")
+        void updateStaleUser() {
+            // given
+            User first = UserFactory.create(1, "Dummy name 4", "dummy1@email.com");
+            User second = UserFactory.create(1, "Dummy name 5", "dummy1@email.com");
+
+            // when
+            User updatedUser = sut.updateUser(first);
+
+            // then
+            assertThat(updatedUser.getVersion()).isEqualTo(1);
+            assertThrows(IllegalStateException.class,
+                    () -> sut.updateUser(second),
+                    "IllegalStateException was expected");
+            assertThat(sut.getUserById(1).getName()).isEqualTo("Dummy name 4");
+        }
     }
 
     @Nested
@@ -282,9 +315,9 @@ class DefaultUserServiceTest {
         void setUp() {
 
             StoreData sti = StoreData.fromString("""
-                                                   user,1,Dummy Name1,dummy@email.com
-                                                   user,2,Dummy Name2,dummy@email.com
-                                                   user,3,Dummy Name3,dummy@email.com
+                                                   user,1,Dummy Name1,dummy1@email.com
+                                                   user,2,Dummy Name2,dummy2@email.com
+                                                   user,3,Dummy Name3,dummy3@email.com
                                                    """);
 
             InMemoryStore store = new InMemoryStore(sti.load());
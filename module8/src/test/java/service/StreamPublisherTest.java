@@ -0,0 +1,169 @@
+package service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamPublisherTest {
+
+    /**
+     * Requests a fixed number of elements on subscription and, if asked to, one more after each element.
+     */
+    private static final class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        private final long initial;
+        private final boolean requestOnNext;
+        private final List<T> items = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        RecordingSubscriber(long initial, boolean requestOnNext) {
+            this.initial = initial;
+            this.requestOnNext = requestOnNext;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initial);
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+            if (requestOnNext) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing demand")
+    class TestDemand {
+
+        @Test
+        @DisplayName("Only requested elements are read and the end of the stream completes the subscriber")
+        void emitsOnDemand() {
+            // given
+            StreamPublisher<Integer> sut = new StreamPublisher<>(() -> Stream.of(1, 2, 3, 4, 5));
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(2, false);
+
+            // when
+            sut.subscribe(subscriber);
+            List<Integer> firstBatch = List.copyOf(subscriber.items);
+            subscriber.subscription.request(10);
+
+            // then
+            assertThat(firstBatch).containsExactly(1, 2);
+            assertThat(subscriber.items).containsExactly(1, 2, 3, 4, 5);
+            assertThat(subscriber.completed).isTrue();
+        }
+
+        @Test
+        @DisplayName("An endless stream is read as far as requested and closed on cancel")
+        void cancelClosesStream() {
+            // given
+            AtomicBoolean closed = new AtomicBoolean();
+            StreamPublisher<Integer> sut = new StreamPublisher<>(
+                    () -> Stream.iterate(1, i -> i + 1).onClose(() -> closed.set(true)));
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(3, false);
+
+            // when
+            sut.subscribe(subscriber);
+            subscriber.subscription.cancel();
+            subscriber.subscription.request(3);
+
+            // then
+            assertThat(subscriber.items).containsExactly(1, 2, 3);
+            assertThat(subscriber.completed).isFalse();
+            assertThat(closed).isTrue();
+        }
+
+        @Test
+        @DisplayName("Requesting from onNext does not grow the stack")
+        void requestFromOnNext() {
+            // given
+            StreamPublisher<Integer> sut = new StreamPublisher<>(() -> IntStream.range(0, 200_000).boxed());
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(1, true);
+
+            // when
+            sut.subscribe(subscriber);
+
+            // then
+            assertThat(subscriber.items).hasSize(200_000);
+            assertThat(subscriber.completed).isTrue();
+        }
+
+        @Test
+        @DisplayName("Every subscriber reads the source anew")
+        void subscriptionsAreIndependent() {
+            // given
+            StreamPublisher<Integer> sut = new StreamPublisher<>(() -> Stream.of(1, 2, 3));
+            RecordingSubscriber<Integer> first = new RecordingSubscriber<>(Long.MAX_VALUE, false);
+            RecordingSubscriber<Integer> second = new RecordingSubscriber<>(Long.MAX_VALUE, false);
+
+            // when
+            sut.subscribe(first);
+            sut.subscribe(second);
+
+            // then
+            assertThat(first.items).containsExactly(1, 2, 3);
+            assertThat(second.items).containsExactly(1, 2, 3);
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing errors")
+    class TestErrors {
+
+        @Test
+        @DisplayName("A non-positive request fails the subscriber")
+        void nonPositiveRequest() {
+            // given
+            StreamPublisher<Integer> sut = new StreamPublisher<>(() -> Stream.of(1, 2, 3));
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(0, false);
+
+            // when
+            sut.subscribe(subscriber);
+
+            // then
+            assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+            assertThat(subscriber.items).isEmpty();
+        }
+
+        @Test
+        @DisplayName("A failing source fails the subscriber")
+        void failingSource() {
+            // given
+            StreamPublisher<Integer> sut = new StreamPublisher<>(() -> Stream.of(1, 0).map(i -> 1 / i));
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(5, false);
+
+            // when
+            sut.subscribe(subscriber);
+
+            // then
+            assertThat(subscriber.items).containsExactly(1);
+            assertThat(subscriber.error).isInstanceOf(ArithmeticException.class);
+            assertThat(subscriber.completed).isFalse();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TinyLfuCacheTest {
+
+    @Nested
+    @DisplayName("Testing read-through")
+    class TestReadThrough {
+
+        @Test
+        @DisplayName("A value is loaded once and then served from the cache")
+        void loadsOnce() {
+            // given
+            TinyLfuCache<Long, String> sut = new TinyLfuCache<>(10);
+            AtomicInteger loads = new AtomicInteger();
+
+            // when
+            for (int i = 0; i < 3; i++) {
+                sut.get(1L, id -> "value" + loads.incrementAndGet());
+            }
+
+            // then
+            assertThat(sut.get(1L, id -> "other")).isEqualTo("value1");
+            assertThat(loads).hasValue(1);
+            assertThat(sut.stats()).isEqualTo(new CacheStats(3, 1, 0));
+            assertThat(sut.stats().hitRate()).isEqualTo(0.75);
+        }
+
+        @Test
+        @DisplayName("Absent values are not cached")
+        void nullIsNotCached() {
+            // given
+            TinyLfuCache<Long, String> sut = new TinyLfuCache<>(10);
+
+            // when
+            sut.get(1L, id -> null);
+
+            // then
+            assertThat(sut.get(1L, id -> "value")).isEqualTo("value");
+        }
+
+        @Test
+        @DisplayName("A value loaded before an invalidation of its key is not cached")
+        void loadRacingInvalidationIsDropped() {
+            // given
+            TinyLfuCache<Long, String> sut = new TinyLfuCache<>(10);
+
+            // when
+            sut.get(1L, id -> {
+                sut.invalidate(1L);
+                return "stale";
+            });
+
+            // then
+            assertThat(sut.contains(1L)).isFalse();
+            assertThat(sut.get(1L, id -> "fresh")).isEqualTo("fresh");
+        }
+
+        @Test
+        @DisplayName("Invalidation drops the cached values of the key or matching the predicate")
+        void invalidate() {
+            // given
+            TinyLfuCache<Long, String> sut = new TinyLfuCache<>(10);
+            sut.get(1L, id -> "old");
+            sut.get(2L, id -> "old");
+
+            // when
+            sut.invalidate(1L);
+            sut.invalidateIf(key -> key == 2L);
+
+            // then
+            assertThat(sut.get(1L, id -> "new")).isEqualTo("new");
+            assertThat(sut.get(2L, id -> "new")).isEqualTo("new");
+            assertThat(sut.stats().evictionCount()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Testing eviction")
+    class TestEviction {
+
+        @Test
+        @DisplayName("The cache stays within its maximum size")
+        void boundedBySize() {
+            // given
+            TinyLfuCache<Long, String> sut = new TinyLfuCache<>(100);
+
+            // when
+            for (long id = 1; id <= 1000; id++) {
+                sut.get(id, key -> "value" + key);
+            }
+
+            // then
+            assertThat(sut.size()).isEqualTo(100);
+            assertThat(sut.stats().evictionCount()).isEqualTo(900);
+        }
+
+        @Test
+        @DisplayName("The cache stays within its maximum weight")
+        void boundedByWeight() {
+            // given
+            TinyLfuCache<Long, String> sut = new TinyLfuCache<>(100, String::length);
+
+            // when
+            for (long id = 1; id <= 100; id++) {
+                sut.get(id, key -> "0123456789");
+            }
+
+            // then
+            assertThat(sut.size()).isEqualTo(10);
+        }
+
+        @Test
+        @DisplayName("Frequently read values survive a scan of one-off reads")
+        void frequentValuesSurviveScan() {
+            // given
+            TinyLfuCache<Long, String> sut = new TinyLfuCache<>(100);
+            for (int round = 0; round < 5; round++) {
+                for (long id = 1; id <= 50; id++) {
+                    sut.get(id, key -> "value" + key);
+                }
+            }
+
+            // when
+            for (long id = 1_000; id < 1_500; id++) {
+                sut.get(id, key -> "value" + key);
+            }
+
+            // then
+            for (long id = 1; id <= 50; id++) {
+                assertThat(sut.contains(id)).as("id %s is cached", id).isTrue();
+            }
+        }
+    }
+}